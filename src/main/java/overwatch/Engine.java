@@ -4,15 +4,22 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnmodifiableView;
 import overwatch.algorithm.Algorithm;
+import overwatch.algorithm.AnalysisSnapshot;
 import overwatch.debug.DebugFrame;
+import overwatch.journal.Journal;
+import overwatch.journal.OccupancyJournal;
 import overwatch.model.Zone;
 import overwatch.service.*;
+import overwatch.skeleton.Outline;
+import overwatch.trace.FrameEvents;
+import overwatch.trace.FrameTrace;
 
 import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.*;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -52,12 +59,46 @@ public class Engine {
 
     private static final @Nullable DebugFrame debugFrame;
 
+    /**
+     * Schlüssel, deren Änderung eine neue Instanz des Algorithmus erfordert. Alle übrigen werden über {@link Algorithm#applyConfiguration} übernommen.
+     */
+    private static final List<String> ALGORITHM_KEYS = List.of(
+            ConfigurationService.Keys.ANALYSE_ALGORITHM,
+            ConfigurationService.Keys.ANALYSE_OPENCV_ENABLE,
+            ConfigurationService.Keys.ANALYSE_OPENCV_WORKING_WIDTH,
+            ConfigurationService.Keys.ANALYSE_OPENCV_DETECTION,
+            ConfigurationService.Keys.ANALYSE_DONGLE_PARALLELISM,
+            ConfigurationService.Keys.ANALYSE_OCCUPANCY_MODE,
+            ConfigurationService.Keys.ANALYSE_COLOR_MODE,
+            ConfigurationService.Keys.IMAGE_BASE_PATH);
+
     private Engine () {}
 
     static {
         debugFrame = ConfigurationService.getBoolean(ConfigurationService.Keys.DEBUG_FRAME_ENABLE)
                 ? new DebugFrame()
                 : null;
+        ConfigurationService.subscribe(Engine::applyConfiguration);
+    }
+
+    /**
+     * Übernimmt eine geänderte Konfiguration in den laufenden Algorithmus.
+     * Das Intervall und Schwellwerte werden direkt übernommen. Betrifft die Änderung den Aufbau des Algorithmus, wird eine neue Instanz
+     * mit dem Zustand der aktiven Zonen gestartet, siehe {@link #ALGORITHM_KEYS}.
+     * @param previous Die bisherige Konfiguration.
+     * @param current Die neue Konfiguration.
+     */
+    private static void applyConfiguration(@NotNull ConfigurationService.Snapshot previous, @NotNull ConfigurationService.Snapshot current) {
+        final EngineTask engineTask = Engine.engineTask;
+        if (!isRunning() || engineTask == null)
+            return;
+        if (current.isChanged(previous, ALGORITHM_KEYS)) {
+            logger.info("Algorithm configuration changed, restarting engine with its current state.");
+            start(engineTask.zones, engineTask.snapshot());
+            return;
+        }
+        engineTask.iterationInterval = current.getInt(ConfigurationService.Keys.ANALYSE_INTERVAL_MS);
+        engineTask.algorithm.applyConfiguration(current);
     }
 
     /**
@@ -117,15 +158,44 @@ public class Engine {
     /**
      * Startet eine neue Instanz des Algorithmus. Sollte aktuell ein Algorithmus laufen, wird dieser abgebrochen {@link #cancel()}.
      * Es wird nicht auf den Abbruch gewartet, es wird sofort eine neue Instanz gestartet.
+     * Ist das Layout unverändert, läuft der aktuelle Algorithmus weiter. Für unverändert definierte Zonen wird der Zustand des vorherigen Algorithmus übernommen.
      * @param zones Die auszuwertenden Zonen.
      */
     public static void start(Zone[] zones) {
+        start(zones, null);
+    }
+
+    /**
+     * Setzt die Auswertung mit dem zuletzt gespeicherten Zustand fort, sollte einer vorhanden sein.
+     */
+    public static void resume() {
+        StateService.load().ifPresent(state -> {
+            logger.info("Resuming engine from persisted state with " + state.zones().length + " zones.");
+            start(state.zones(), state);
+        });
+    }
+
+    /**
+     * Startet eine neue Instanz des Algorithmus.
+     * @param zones Die auszuwertenden Zonen.
+     * @param restoredState Ein optionaler Zustand, mit dem die neue Instanz fortgesetzt wird.
+     */
+    private static void start(Zone[] zones, @Nullable StateService.State restoredState) {
         threadModificationLock.lock();
         long startTimestamp = System.currentTimeMillis();
+        final EngineTask previousTask = isRunning() ? Engine.engineTask : null;
+        if (restoredState == null && previousTask != null && previousTask.isSameLayout(zones)) {
+            threadModificationLock.unlock();
+            logger.info("Layout is unchanged, engine keeps running.");
+            return;
+        }
+        final StateService.State state = restoredState != null
+                ? restoredState
+                : previousTask != null ? previousTask.snapshot() : null;
         awaitCanceled(5000);
         // Setze neue Engine auf.
         final CancelHock engineCancelHook = new CancelHock();
-        final EngineTask engineTask = new EngineTask(zones, engineCancelHook);
+        final EngineTask engineTask = new EngineTask(zones, engineCancelHook, state);
         final Thread engineThread =  new Thread(engineTask);
         engineThread.setDaemon(false);
         engineThread.start();
@@ -137,6 +207,7 @@ public class Engine {
         threadModificationLock.unlock();
         long endTimestamp = System.currentTimeMillis();
         logger.info("Engine restarted in " + (endTimestamp - startTimestamp) + "ms.");
+        StateService.submit(engineTask.snapshot());
 
         if (debugFrame != null)
             debugFrame.updateZones(zones);
@@ -154,12 +225,76 @@ public class Engine {
                 : new BufferedImage(1,1, BufferedImage.TYPE_INT_RGB);
     }
 
+    /**
+     * Übergibt das aktuelle Bild des laufenden Algorithmus an {@code reader}, siehe {@link Algorithm#computeImage(Function)}.
+     * Sollte aktuell kein Algorithmus laufen, wird ein leeres Bild mit einer Größe von 1x1 übergeben.
+     * @param reader Liest das Bild aus, solange es gültig ist.
+     * @return Gibt das Ergebnis von {@code reader} zurück.
+     */
+    public static <T> T readGeneratedImage(@NotNull Function<? super BufferedImage, T> reader){
+        final EngineTask engineTask = Engine.engineTask;
+        return isRunning() && engineTask != null
+                ? engineTask.algorithm.computeImage(reader)
+                : reader.apply(new BufferedImage(1,1, BufferedImage.TYPE_INT_RGB));
+    }
+
+    /**
+     * Liest einen Ausschnitt des aktuellen Bildes aus dem laufenden Algorithmus aus, siehe {@link Algorithm#computeImage(Outline, int)}.
+     * Sollte aktuell kein Algorithmus laufen, wird ein leeres Bild mit einer Größe von 1x1 ausgegeben.
+     * @param region Der Ausschnitt in absoluten Koordinaten.
+     * @param maxWidth Die maximale Breite des Bildes, bei {@code 0} wird nicht skaliert.
+     * @return Gibt den Ausschnitt zurück.
+     */
+    public static BufferedImage getGeneratedImage(@NotNull Outline region, int maxWidth){
+        final EngineTask engineTask = Engine.engineTask;
+        return isRunning() && engineTask != null
+                ? engineTask.algorithm.computeImage(region, maxWidth)
+                : new BufferedImage(1,1, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Liest die Zonen des laufenden Algorithmus aus.
+     * @return Gibt die Zonen zurück oder ein leeres Array, sollte kein Algorithmus laufen.
+     */
+    public static @NotNull Zone[] getZones(){
+        final EngineTask engineTask = Engine.engineTask;
+        return isRunning() && engineTask != null
+                ? engineTask.zones.clone()
+                : new Zone[0];
+    }
+
+    /**
+     * Liest das Ergebnis der letzten abgeschlossenen Iteration des laufenden Algorithmus aus.
+     * @return Gibt das Ergebnis zurück oder {@link AnalysisSnapshot#EMPTY}, sollte kein Algorithmus laufen.
+     */
+    public static @NotNull AnalysisSnapshot getSnapshot(){
+        final EngineTask engineTask = Engine.engineTask;
+        return isRunning() && engineTask != null
+                ? engineTask.algorithm.snapshot()
+                : AnalysisSnapshot.EMPTY;
+    }
+
     /**
      * Abstrahierung für einen Thread.
      */
     private static class EngineTask implements Runnable {
 
-        private final long iterationInterval;
+        /**
+         * Maximaler Abstand zwischen zwei Speicherungen des Zustands, sollten sich die aktiven Zonen nicht verändern.
+         */
+        private static final long PERSIST_INTERVAL_MS = 5000;
+
+        private volatile long iterationInterval;
+
+        /**
+         * Die ausgewerteten Zonen.
+         */
+        private final @NotNull Zone[] zones;
+
+        /**
+         * Zeitpunkt der letzten Speicherung des Zustands.
+         */
+        private long lastPersistTimestamp = System.currentTimeMillis();
 
         /**
          * Callback um zu prüfen, ob dieser Task abgebrochen wurde.
@@ -183,11 +318,70 @@ public class Engine {
         private final Collection<? extends Zone>[] activeZonesStack =
                 (Collection<? extends Zone>[]) IntStream.range(0, calculateHistorySize()).boxed().map(it -> List.of()).toArray(Collection[]::new);
 
+        /**
+         * Zeitpunkt der Aufnahme des ersten Frames, in dem eine noch nicht gemeldete Zone ununterbrochen erkannt wurde. Schlüssel ist die Nummer der Zone.
+         */
+        private final Map<Integer, Long> firstDetectionTimestamps = new HashMap<>();
+
 
-        private EngineTask(@NotNull Zone[] zones, @NotNull BooleanSupplier isCanceled) {
+        private EngineTask(@NotNull Zone[] zones, @NotNull BooleanSupplier isCanceled, @Nullable StateService.State state) {
             this.iterationInterval = ConfigurationService.getInt(ConfigurationService.Keys.ANALYSE_INTERVAL_MS);
             this.isCanceled = isCanceled;
+            this.zones = zones;
             this.algorithm = Algorithm.create(zones);
+            if (state != null)
+                restore(state);
+            OccupancyService.reset(zones, activeZones);
+        }
+
+        /**
+         * Übernimmt die aktiven Zonen und den Verlauf aus einem vorherigen Zustand. Es werden nur Zonen übernommen, die unverändert definiert sind.
+         * @param state Der zu übernehmende Zustand.
+         */
+        private void restore(@NotNull StateService.State state) {
+            final Map<Integer, Zone> unchangedZones = new HashMap<>();
+            for (Zone zone : zones)
+                for (Zone previousZone : state.zones())
+                    if (zone.isSameDefinition(previousZone))
+                        unchangedZones.put(zone.nr(), zone);
+
+            this.activeZones = Collections.unmodifiableSet(toZones(state.activeZoneNrs(), unchangedZones));
+            final int[][] history = state.historyZoneNrs();
+            final int offset = activeZonesStack.length - history.length;
+            for (int i = Math.max(0, -offset); i < history.length; i++)
+                activeZonesStack[i + offset] = toZones(history[i], unchangedZones);
+        }
+
+        private static Set<Zone> toZones(int[] zoneNrs, Map<Integer, Zone> zones) {
+            return Arrays.stream(zoneNrs)
+                    .mapToObj(zones::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+        }
+
+        private static int[] toZoneNrs(Collection<? extends Zone> zones) {
+            return zones.stream().mapToInt(Zone::nr).toArray();
+        }
+
+        /**
+         * Erstellt eine Momentaufnahme des Zustands dieses Tasks.
+         * @return Gibt den aktuellen Zustand zurück.
+         */
+        private synchronized StateService.State snapshot() {
+            return new StateService.State(
+                    zones,
+                    toZoneNrs(activeZones),
+                    Arrays.stream(activeZonesStack).map(EngineTask::toZoneNrs).toArray(int[][]::new));
+        }
+
+        /**
+         * Prüft, ob dieser Task dieselben Zonen auswertet.
+         * @param zones Die zu vergleichenden Zonen.
+         * @return Gibt {@code true} zurück, wenn alle Zonen identisch definiert sind.
+         */
+        private boolean isSameLayout(@NotNull Zone[] zones) {
+            if (zones.length != this.zones.length) return false;
+            return Arrays.stream(zones).allMatch(zone -> Arrays.stream(this.zones).anyMatch(zone::isSameDefinition));
         }
 
         private static int calculateHistorySize(){
@@ -225,8 +419,43 @@ public class Engine {
                     .filter(isInStack)
                     .collect(Collectors.toSet());
 
-            if(!isEqual(newActiveZones, activeZones)){
-                HttpService.sendActiveZones(newActiveZones.stream().mapToInt(Zone::nr).toArray());
+            final long frameId = FrameTrace.frameId();
+            final long captureTimestamp = FrameTrace.captureTimestamp();
+            firstDetectionTimestamps.keySet().removeIf(nr -> newZones.stream().noneMatch(zone -> zone.nr() == nr));
+            for (Zone zone : newZones)
+                firstDetectionTimestamps.putIfAbsent(zone.nr(), captureTimestamp);
+
+            final boolean isChanged = !isEqual(newActiveZones, activeZones);
+            if(isChanged){
+                commitZoneStateEvents(newActiveZones, activeZones, true, frameId, captureTimestamp);
+                commitZoneStateEvents(activeZones, newActiveZones, false, frameId, captureTimestamp);
+                OccupancyService.update(newActiveZones, frameId, captureTimestamp);
+
+                // Wechsel vor dem Senden im Journal ablegen, damit sie bei einem nicht erreichbaren Backend erneut gesendet werden können.
+                final Journal journal = OccupancyJournal.journal();
+                final long journalOffset = journal != null ? journal.position() : 0;
+                if (journal != null) {
+                    appendToJournal(journal, newActiveZones, activeZones, true, frameId, captureTimestamp);
+                    appendToJournal(journal, activeZones, newActiveZones, false, frameId, captureTimestamp);
+                }
+
+                // Gesendet wird auf einem eigenen Thread, damit ein langsames Backend die Auswertung nicht aufhält.
+                final int[] activatedZoneNrs = newActiveZones.stream()
+                        .filter(zone -> !activeZones.contains(zone))
+                        .mapToInt(Zone::nr)
+                        .toArray();
+                final long[] detectionTimestamps = Arrays.stream(activatedZoneNrs)
+                        .mapToLong(nr -> firstDetectionTimestamps.getOrDefault(nr, captureTimestamp))
+                        .toArray();
+                PublishService.submit(new PublishService.Update(
+                        toZoneNrs(newActiveZones),
+                        toZoneNrs(activeZones),
+                        journalOffset,
+                        journal != null ? journal.position() : 0,
+                        frameId,
+                        captureTimestamp,
+                        activatedZoneNrs,
+                        detectionTimestamps));
                 this.activeZones = Collections.unmodifiableSet(newActiveZones);
             }
 
@@ -234,18 +463,79 @@ public class Engine {
             for (int i = 0; i < activeZonesStack.length - 1; i++)
                 activeZonesStack[i] = activeZonesStack[i+1];
             activeZonesStack[activeZonesStack.length-1] = newZones;
+
+            final long timestamp = System.currentTimeMillis();
+            if(isChanged || timestamp - lastPersistTimestamp >= PERSIST_INTERVAL_MS){
+                lastPersistTimestamp = timestamp;
+                StateService.submit(snapshot());
+            }
+        }
+
+        /**
+         * Erfasst für jede Zone aus {@code zones}, die nicht in {@code previousZones} enthalten ist, einen Zustandswechsel.
+         * @param zones Die Zonen nach dem Wechsel.
+         * @param previousZones Die Zonen vor dem Wechsel.
+         * @param isActive Der neue Zustand der Zonen.
+         * @param frameId Die Nummer des auslösenden Frames.
+         * @param captureTimestamp Der Zeitpunkt der Aufnahme des auslösenden Frames.
+         */
+        private static void commitZoneStateEvents(Collection<? extends Zone> zones, Collection<? extends Zone> previousZones, boolean isActive, long frameId, long captureTimestamp){
+            for (Zone zone : zones) {
+                if (previousZones.contains(zone))
+                    continue;
+                final FrameEvents.ZoneStateEvent event = new FrameEvents.ZoneStateEvent();
+                if (!event.shouldCommit())
+                    return;
+                event.frameId = frameId;
+                event.zoneNr = zone.nr();
+                event.isActive = isActive;
+                event.captureTimestamp = captureTimestamp;
+                event.commit();
+            }
+        }
+
+        /**
+         * Legt für jede Zone aus {@code zones}, die nicht in {@code previousZones} enthalten ist, einen Wechsel im Journal ab.
+         * @param journal Das Journal.
+         * @param zones Die Zonen nach dem Wechsel.
+         * @param previousZones Die Zonen vor dem Wechsel.
+         * @param isActive Der neue Zustand der Zonen.
+         * @param frameId Die Nummer des auslösenden Frames.
+         * @param captureTimestamp Der Zeitpunkt der Aufnahme des auslösenden Frames.
+         */
+        private static void appendToJournal(Journal journal, Collection<? extends Zone> zones, Collection<? extends Zone> previousZones, boolean isActive, long frameId, long captureTimestamp){
+            for (Zone zone : zones)
+                if (!previousZones.contains(zone))
+                    journal.append(zone.nr(), isActive, frameId, captureTimestamp);
         }
 
         public BufferedImage getImage(){
             return algorithm.computeImage();
         }
 
+        private void commitAnalysisEvent(FrameEvents.AnalysisEvent event, long frameId, String stage){
+            event.end();
+            if(!event.shouldCommit())
+                return;
+            event.frameId = frameId;
+            event.stage = stage;
+            event.algorithm = algorithm.getClass().getSimpleName();
+            event.commit();
+        }
+
         @Override
         public void run() throws RuntimeException {
             while (!isCanceled.getAsBoolean()){
                 final long analyseBeginnTimestamp = System.currentTimeMillis();
+                final long frameId = FrameTrace.beginFrame();
+                final FrameEvents.AnalysisEvent computeEvent = new FrameEvents.AnalysisEvent();
+                computeEvent.begin();
                 final Collection<? extends Zone> newZones = algorithm.compute();
+                commitAnalysisEvent(computeEvent, frameId, "compute");
+                final FrameEvents.AnalysisEvent debounceEvent = new FrameEvents.AnalysisEvent();
+                debounceEvent.begin();
                 updateActiveZones(newZones);
+                commitAnalysisEvent(debounceEvent, frameId, "debounce");
                 final long analyseFinishedTimestamp = System.currentTimeMillis();
                 final long analyseDurationMillis = analyseFinishedTimestamp - analyseBeginnTimestamp;
 
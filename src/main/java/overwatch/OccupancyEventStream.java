@@ -0,0 +1,133 @@
+package overwatch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import overwatch.dto.OccupancyDto;
+import overwatch.dto.ZoneChangeDto;
+import overwatch.dto.ZoneStateDto;
+import overwatch.service.OccupancyService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Server-Sent-Events mit den Wechseln aus dem {@link OccupancyService} als endloser Datenstrom.
+ * Jeder Wechsel wird als Ereignis {@code zone} mit seiner Sequenznummer als {@code id} gesendet.
+ * Können Wechsel nicht mehr lückenlos nachgeliefert werden, folgt stattdessen ein Ereignis {@code snapshot} mit dem Zustand aller Zonen.
+ */
+class OccupancyEventStream extends InputStream {
+
+    /**
+     * Maximale Zeit ohne Daten, bevor ein Kommentar gesendet wird. Dadurch werden geschlossene Verbindungen erkannt.
+     */
+    private static final long HEARTBEAT_INTERVAL_MS = 15000;
+
+    private static final byte[] HEARTBEAT = ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Die Sequenznummer des zuletzt gesendeten Wechsels.
+     */
+    private long sequence;
+
+    private byte[] buffer = new byte[0];
+
+    private int position;
+
+    private volatile boolean isClosed;
+
+    /**
+     * @param lastSequence Die zuletzt erhaltene Sequenznummer oder {@code -1}, um mit dem Zustand aller Zonen zu beginnen.
+     */
+    OccupancyEventStream(long lastSequence) {
+        if (lastSequence < 0)
+            buffer = createSnapshotEvent();
+        else
+            sequence = lastSequence;
+    }
+
+    /**
+     * Erstellt den Zustand aller Zonen als Transportobjekt.
+     * @param snapshot Der Zustand aus dem {@link OccupancyService}.
+     * @return Gibt das Transportobjekt zurück.
+     */
+    static OccupancyDto createOccupancyDto(OccupancyService.Snapshot snapshot) {
+        return new OccupancyDto(
+                Engine.getSnapshot().frameNumber(),
+                snapshot.sequence(),
+                Arrays.stream(snapshot.states()).map(ZoneStateDto::new).toList());
+    }
+
+    private byte[] createSnapshotEvent() {
+        final OccupancyService.Snapshot snapshot = OccupancyService.snapshot();
+        sequence = snapshot.sequence();
+        return createEvent(sequence, "snapshot", createOccupancyDto(snapshot)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String createEvent(long id, String name, Object data) {
+        try {
+            return "id: " + id + "\nevent: " + name + "\ndata: " + mapper.writeValueAsString(data) + "\n\n";
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Wartet auf neue Wechsel und legt diese in {@link #buffer} ab.
+     */
+    private void fill() throws IOException {
+        final OccupancyService.ZoneChange[] changes;
+        try {
+            changes = OccupancyService.awaitChanges(sequence, HEARTBEAT_INTERVAL_MS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        position = 0;
+        if (changes == null) {
+            buffer = createSnapshotEvent();
+            return;
+        }
+        if (changes.length == 0) {
+            buffer = HEARTBEAT;
+            return;
+        }
+        final StringBuilder events = new StringBuilder();
+        for (OccupancyService.ZoneChange change : changes)
+            events.append(createEvent(change.sequence(), "zone", new ZoneChangeDto(change)));
+        sequence = changes[changes.length - 1].sequence();
+        buffer = events.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) throws IOException {
+        if (length == 0)
+            return 0;
+        while (position >= buffer.length) {
+            if (isClosed)
+                return -1;
+            fill();
+        }
+        final int count = Math.min(length, buffer.length - position);
+        System.arraycopy(buffer, position, target, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() {
+        isClosed = true;
+    }
+}
@@ -0,0 +1,274 @@
+package overwatch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fi.iki.elonen.NanoHTTPD;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.jetbrains.annotations.NotNull;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+import overwatch.service.ConfigurationService;
+import overwatch.service.HttpService;
+import overwatch.simulation.SimulatedLot;
+import overwatch.simulation.Simulator;
+import overwatch.trace.FrameEvents;
+import overwatch.trace.FrameTrace;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Durchsatz- und Latenztest der gesamten Kette aus {@link Engine}, {@link overwatch.algorithm.Algorithm} und {@link overwatch.service.HttpService}.
+ * Die Bilder stammen aus dem {@link Simulator} oder den mitgelieferten Bildern einer virtuellen Capture, Meldungen gehen an ein Backend im selben Prozess.
+ * Anders als {@link SimulationApplication} läuft die Engine in Echtzeit mit {@code analyse-interval-ms}, für den maximalen Durchsatz z.B. {@code analyse-interval-ms=1} setzen.
+ * Das Ergebnis wird als JSON nach {@code benchmark-output-path} geschrieben, sodass Läufe verschiedener Versionen verglichen werden können.
+ * Argumente in der Form key=value überschreiben die Konfiguration, z.B. {@code benchmark-duration-seconds=60 simulation-algorithm=dongle}.
+ */
+public class PipelineBenchmarkApplication {
+
+    private static final Logger logger = Logger.getLogger(PipelineBenchmarkApplication.class.getName());
+
+    /**
+     * Abstand zwischen zwei Messungen des Speichers und Weiterschaltungen des {@link Simulator}.
+     */
+    private static final long SAMPLE_INTERVAL_MS = 50;
+
+    /**
+     * Name der {@link FrameEvents.AnalysisEvent} in der Aufzeichnung.
+     */
+    private static final String ANALYSIS_EVENT = "overwatch.FrameAnalysis";
+
+    /**
+     * Name der {@link FrameEvents.PublishEvent} in der Aufzeichnung.
+     */
+    private static final String PUBLISH_EVENT = "overwatch.BackendPublish";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // Ein Lauf darf weder den Zustand noch das Journal einer Installation verändern.
+        ConfigurationService.override(ConfigurationService.Keys.DEBUG_FRAME_ENABLE, "false");
+        ConfigurationService.override(ConfigurationService.Keys.STATE_PATH, "");
+        ConfigurationService.override(ConfigurationService.Keys.JOURNAL_PATH, "");
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0)
+                ConfigurationService.override(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        final ConfigurationService.Snapshot configuration = ConfigurationService.snapshot();
+        final long warmupMillis = configuration.getLong(ConfigurationService.Keys.BENCHMARK_WARMUP_SECONDS) * 1000;
+        final long durationMillis = Math.max(1, configuration.getLong(ConfigurationService.Keys.BENCHMARK_DURATION_SECONDS)) * 1000;
+        final int speedup = Math.max(1, configuration.getInt(ConfigurationService.Keys.BENCHMARK_SPEEDUP));
+        final boolean isSimulated = !"virtual".equals(configuration.getString(ConfigurationService.Keys.BENCHMARK_SOURCE));
+        final String outputPath = configuration.getString(ConfigurationService.Keys.BENCHMARK_OUTPUT_PATH);
+
+        final Zone[] zones = isSimulated
+                ? Simulator.createLayout(
+                        configuration.getInt(ConfigurationService.Keys.SIMULATION_CAPTURES),
+                        configuration.getInt(ConfigurationService.Keys.SIMULATION_ZONES_PER_CAPTURE),
+                        configuration.getString(ConfigurationService.Keys.SIMULATION_ALGORITHM))
+                : createVirtualLayout();
+        if (isSimulated)
+            Simulator.register(zones, SimulatedLot.Parameters.fromConfiguration(), 1);
+
+        final StubBackend backend = new StubBackend();
+        backend.start();
+        ConfigurationService.override(ConfigurationService.Keys.SERVICE_UPDATE_ENDPOINT, "http://127.0.0.1:" + backend.getListeningPort() + "/update");
+
+        final Recording recording = new Recording();
+        recording.setName("overwatch-benchmark");
+        recording.enable(FrameEvents.AnalysisEvent.class).withoutThreshold();
+        recording.enable(FrameEvents.PublishEvent.class).withoutThreshold();
+        recording.start();
+
+        final MemorySampler memory = new MemorySampler();
+        final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "benchmark-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long[] lastAdvance = { System.currentTimeMillis() };
+        final AtomicBoolean isMeasuring = new AtomicBoolean();
+        sampler.scheduleAtFixedRate(() -> {
+            final long timestamp = System.currentTimeMillis();
+            if (isSimulated) {
+                Simulator.advance((timestamp - lastAdvance[0]) * speedup);
+                lastAdvance[0] = timestamp;
+            }
+            if (isMeasuring.get())
+                memory.sample();
+        }, SAMPLE_INTERVAL_MS, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        logger.info("Benchmarking " + zones.length + " zones (" + (isSimulated ? "simulated" : "virtual") + ") for "
+                + durationMillis / 1000 + "s after " + warmupMillis / 1000 + "s warmup.");
+        Engine.start(zones);
+        Thread.sleep(warmupMillis);
+        final Instant measureBegin = Instant.now();
+        isMeasuring.set(true);
+        Thread.sleep(durationMillis);
+        isMeasuring.set(false);
+        final Instant measureEnd = Instant.now();
+        Engine.awaitCanceled(10_000);
+        sampler.shutdownNow();
+        backend.stop();
+        recording.stop();
+
+        final Path recordingFile = Files.createTempFile("overwatch-benchmark", ".jfr");
+        final Map<Long, long[]> frames = new HashMap<>();
+        final Map<Long, Long> updates = new HashMap<>();
+        try (recording) {
+            recording.dump(recordingFile);
+            for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+                if (event.getStartTime().isBefore(measureBegin) || event.getEndTime().isAfter(measureEnd))
+                    continue;
+                final String name = event.getEventType().getName();
+                if (ANALYSIS_EVENT.equals(name)) {
+                    // Pro Frame: Dauer der Auswertung und der Entprellung in Mikrosekunden. Gemeldet wird auf dem Thread des PublishService.
+                    final long[] durations = frames.computeIfAbsent(event.getLong("frameId"), it -> new long[2]);
+                    durations["compute".equals(event.getString("stage")) ? 0 : 1] += event.getDuration().toNanos() / 1000;
+                }
+                else if (PUBLISH_EVENT.equals(name) && HttpService.isSuccessful(event.getInt("status"))) {
+                    // Pro Frame zählt nur die erste bestätigte Meldung, erneute Versuche desselben Zustands sind keine neue Meldung.
+                    final long latencyMicros = Duration.between(event.getInstant("captureTimestamp"), event.getEndTime()).toNanos() / 1000;
+                    updates.merge(event.getLong("frameId"), latencyMicros, Math::min);
+                }
+            }
+        }
+        finally {
+            Files.deleteIfExists(recordingFile);
+        }
+
+        final long[] computeMicros = frames.values().stream().filter(it -> it[0] > 0).mapToLong(it -> it[0]).sorted().toArray();
+        final long[] iterationMicros = frames.values().stream().filter(it -> it[0] > 0 && it[1] > 0).mapToLong(it -> it[0] + it[1]).sorted().toArray();
+        final long[] updateMicros = updates.values().stream().mapToLong(Long::longValue).sorted().toArray();
+        final double measuredSeconds = (measureEnd.toEpochMilli() - measureBegin.toEpochMilli()) / 1000.0;
+
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timestamp", measureBegin.toString());
+        result.put("source", isSimulated ? "simulated" : "virtual");
+        result.put("algorithm", isSimulated ? configuration.getString(ConfigurationService.Keys.SIMULATION_ALGORITHM) : configuration.getString(ConfigurationService.Keys.ANALYSE_ALGORITHM));
+        result.put("captures", Arrays.stream(zones).map(Zone::capture).distinct().count());
+        result.put("zones", zones.length);
+        result.put("intervalMs", configuration.getInt(ConfigurationService.Keys.ANALYSE_INTERVAL_MS));
+        result.put("durationSeconds", measuredSeconds);
+        result.put("frames", iterationMicros.length);
+        result.put("framesPerSecond", iterationMicros.length / measuredSeconds);
+        result.put("iterationMillis", summarize(iterationMicros));
+        result.put("computeMillis", summarize(computeMicros));
+        result.put("updates", updateMicros.length);
+        result.put("updateLatencyMillis", summarize(updateMicros));
+        result.put("memory", memory.summarize());
+
+        final String json = new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(result);
+        if (!outputPath.isEmpty()) {
+            Files.writeString(Path.of(outputPath), json);
+            logger.info("Benchmark result written to: '" + outputPath + "'");
+        }
+        logger.info("Benchmark finished:\n" + json);
+    }
+
+    /**
+     * Die virtuelle Capture mit den mitgelieferten Bildern, zwei Zeilen zu je vier Zonen.
+     * @return Gibt die Zonen zurück.
+     */
+    private static @NotNull Zone[] createVirtualLayout() {
+        final Capture capture = new Capture(0, 0, 880, 480, Capture.VIRTUAL_CAMERA_NAME);
+        final Zone[] zones = new Zone[8];
+        for (int i = 0; i < zones.length; i++)
+            zones[i] = new Zone(i + 1, capture, (i % 4) * 220, (i / 4) * 240, 220, 240);
+        return zones;
+    }
+
+    /**
+     * Fasst aufsteigend sortierte Dauern zusammen.
+     * @param sortedMicros Die Dauern in Mikrosekunden.
+     * @return Gibt Mittelwert, Perzentile und Maximum in Millisekunden zurück.
+     */
+    private static @NotNull Map<String, Double> summarize(long @NotNull [] sortedMicros) {
+        final Map<String, Double> summary = new LinkedHashMap<>();
+        if (sortedMicros.length == 0)
+            return summary;
+        summary.put("mean", Arrays.stream(sortedMicros).average().orElse(0) / 1000);
+        summary.put("p50", FrameTrace.percentile(sortedMicros, 50) / 1000.0);
+        summary.put("p90", FrameTrace.percentile(sortedMicros, 90) / 1000.0);
+        summary.put("p99", FrameTrace.percentile(sortedMicros, 99) / 1000.0);
+        summary.put("max", sortedMicros[sortedMicros.length - 1] / 1000.0);
+        return summary;
+    }
+
+    /**
+     * Backend im selben Prozess, nimmt jede Meldung an.
+     * Die Latenz wird nicht hier gemessen, da der {@link overwatch.service.PublishService} auf einem eigenen Thread meldet und
+     * {@link FrameTrace#captureTimestamp()} beim Empfang bereits zu einem späteren Frame gehören kann.
+     * Stattdessen trägt jede {@link FrameEvents.PublishEvent} den Zeitpunkt der Aufnahme ihres Frames.
+     */
+    private static final class StubBackend extends NanoHTTPD {
+
+        private StubBackend() {
+            super("127.0.0.1", 0);
+        }
+
+        @Override
+        public Response serve(IHTTPSession session) {
+            return newFixedLengthResponse(Response.Status.OK, MIME_PLAINTEXT, "");
+        }
+    }
+
+    /**
+     * Misst den Speicher während der Messung. Nativer Speicher wird über die Puffer der JVM und, falls verfügbar, den residenten Speicher des Prozesses erfasst.
+     */
+    private static final class MemorySampler {
+
+        private static final Path PROCESS_STATUS = Path.of("/proc/self/status");
+
+        private long heapUsedMax, heapCommittedMax, nonHeapUsedMax, bufferPoolMax, residentMax = -1;
+
+        private long heapUsed, bufferPool, resident = -1;
+
+        private synchronized void sample() {
+            heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            heapUsedMax = Math.max(heapUsedMax, heapUsed);
+            heapCommittedMax = Math.max(heapCommittedMax, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getCommitted());
+            nonHeapUsedMax = Math.max(nonHeapUsedMax, ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage().getUsed());
+            bufferPool = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream().mapToLong(BufferPoolMXBean::getMemoryUsed).sum();
+            bufferPoolMax = Math.max(bufferPoolMax, bufferPool);
+            resident = readResidentBytes();
+            residentMax = Math.max(residentMax, resident);
+        }
+
+        private static long readResidentBytes() {
+            if (!Files.isReadable(PROCESS_STATUS))
+                return -1;
+            try {
+                for (String line : Files.readAllLines(PROCESS_STATUS))
+                    if (line.startsWith("VmRSS:"))
+                        return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+            }
+            catch (IOException | NumberFormatException ignored) {}
+            return -1;
+        }
+
+        private synchronized @NotNull Map<String, Long> summarize() {
+            final Map<String, Long> summary = new LinkedHashMap<>();
+            summary.put("heapUsedBytes", heapUsed);
+            summary.put("heapUsedMaxBytes", heapUsedMax);
+            summary.put("heapCommittedMaxBytes", heapCommittedMax);
+            summary.put("nonHeapUsedMaxBytes", nonHeapUsedMax);
+            summary.put("bufferPoolBytes", bufferPool);
+            summary.put("bufferPoolMaxBytes", bufferPoolMax);
+            summary.put("residentBytes", resident);
+            summary.put("residentMaxBytes", residentMax);
+            return summary;
+        }
+    }
+}
@@ -3,10 +3,22 @@ package overwatch;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import fi.iki.elonen.NanoHTTPD;
+import overwatch.algorithm.NativeMemoryMonitor;
+import overwatch.cluster.ClusterCoordinator;
 import overwatch.dto.InitDto;
+import overwatch.dto.StatisticsDto;
+import overwatch.model.Zone;
 import overwatch.service.ConfigurationService;
+import overwatch.service.OccupancyService;
+import overwatch.service.StatisticsService;
+import overwatch.skeleton.Outline;
+import overwatch.trace.FrameTrace;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.*;
@@ -16,6 +28,13 @@ public class Server extends NanoHTTPD {
 
     private static final Logger logger = Logger.getLogger(Server.class.getName());
 
+    private static final String EVENT_STREAM_MIME_TYPE = "text/event-stream";
+
+    /**
+     * Die maximale Größe eines frei angegebenen Ausschnitts der Vorschau in Pixeln.
+     */
+    private static final long MAX_PREVIEW_PIXELS = 1L << 24;
+
     @Override
     public Response serve(IHTTPSession session) {
         if(!session.getHeaders().getOrDefault("key", "").equals(ConfigurationService.getString(ConfigurationService.Keys.OVERWATCH_KEY)))
@@ -24,8 +43,29 @@ public class Server extends NanoHTTPD {
         if(session.getMethod() == Method.POST)
             return serveInit(session);
 
+        if (session.getMethod() == Method.GET && "/health".equals(session.getUri()))
+            return createSuccessful();
+
+        if (session.getMethod() == Method.GET && "/metrics".equals(session.getUri()))
+            return serveMetrics();
+
+        if (session.getMethod() == Method.GET && "/occupancy".equals(session.getUri()))
+            return serveOccupancy();
+
+        if (session.getMethod() == Method.GET && "/occupancy/events".equals(session.getUri()))
+            return serveOccupancyEvents(session);
+
+        if (session.getMethod() == Method.GET && "/statistics".equals(session.getUri()))
+            return serveStatistics(session);
+
+        if ("/trace".equals(session.getUri()) && (session.getMethod() == Method.GET || session.getMethod() == Method.PUT))
+            return serveTrace(session);
+
         if (session.getMethod() == Method.GET)
-            return serveImage();
+            return serveImage(session);
+
+        if (session.getMethod() == Method.PUT && ClusterCoordinator.isEnabled())
+            return serveWorkerUpdate(session);
 
         return createError(Response.Status.METHOD_NOT_ALLOWED, "Method Not Allowed");
     }
@@ -35,27 +75,250 @@ public class Server extends NanoHTTPD {
         if(requestOptional.isEmpty())
             return createError(Response.Status.CONFLICT, "Empty data");
         InitDto request = requestOptional.get();
-        Engine.start(request.toZones());
+        if (ClusterCoordinator.isEnabled())
+            ClusterCoordinator.assign(request);
+        else
+            Engine.start(request.toZones());
         return createSuccessful();
     }
 
-    private Response serveImage() {
-        final BufferedImage image = Engine.getGeneratedImage();
-        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private Response serveWorkerUpdate(IHTTPSession session){
+        final String node = session.getHeaders().get("node");
+        if(node == null)
+            return createError(Response.Status.BAD_REQUEST, "Missing node");
+        final int[] zoneNrs;
+        try {
+            zoneNrs = readQueryParameters(session, "zones").stream().mapToInt(Integer::parseInt).toArray();
+        }
+        catch (NumberFormatException e){
+            return createError(Response.Status.BAD_REQUEST, "Illegal zones");
+        }
+        ClusterCoordinator.acceptWorkerUpdate(node, zoneNrs);
+        return createSuccessful();
+    }
 
+    /**
+     * Gibt die grafische Auswertung als JPEG aus. Über Query-Parameter lässt sich die Ausgabe eingrenzen:
+     * {@code capture} (Name des Geräts), {@code zone} (Nummer) oder {@code region} ({@code x,y,width,height} in absoluten Koordinaten)
+     * wählen den Ausschnitt, {@code width} begrenzt die Breite und {@code quality} ({@code 1} bis {@code 100}) die Qualität der Kodierung.
+     * Ohne Parameter wird das vollständige Bild ausgegeben.
+     */
+    private Response serveImage(IHTTPSession session) {
+        final byte[] jpeg;
         try {
-            ImageIO.write(image, "JPEG",output);
+            final int maxWidth = readIntParameter(session, "width", 0);
+            final int qualityPercent = readIntParameter(session, "quality", 0);
+            if (maxWidth < 0 || qualityPercent < 0 || qualityPercent > 100)
+                return createError(Response.Status.BAD_REQUEST, "Illegal preview");
+            final float quality = qualityPercent / 100f;
+            final Optional<Outline> region = readPreviewRegion(session);
+            if (region.isEmpty() && maxWidth == 0)
+                // Das vollständige Bild wird noch während seiner Darstellung kodiert und danach verworfen.
+                jpeg = Engine.readGeneratedImage(it -> encodeJpeg(it, quality));
+            else {
+                final Zone[] zones = Engine.getZones();
+                final Optional<Outline> fullRegion = zones.length == 0
+                        ? Optional.empty()
+                        : Optional.of(Outline.compose(Arrays.stream(zones).map(Zone::capture).distinct().toArray(Outline[]::new)));
+                jpeg = region.or(() -> fullRegion)
+                        .map(it -> encodeJpeg(Engine.getGeneratedImage(it, maxWidth), quality))
+                        .orElseGet(() -> Engine.readGeneratedImage(it -> encodeJpeg(it, quality)));
+            }
         }
-        catch (IOException e) {
+        catch (NumberFormatException e) {
+            return createError(Response.Status.BAD_REQUEST, "Illegal preview");
+        }
+        catch (NoSuchElementException e) {
+            return createError(Response.Status.NOT_FOUND, e.getMessage());
+        }
+        catch (UncheckedIOException e) {
             return createError(Response.Status.INTERNAL_ERROR, "Error during image serving.");
         }
-        final ByteArrayInputStream input = new ByteArrayInputStream(output.toByteArray());
+        final ByteArrayInputStream input = new ByteArrayInputStream(jpeg);
 
-        Response response = newFixedLengthResponse(Response.Status.OK, "/image/jpeg", input, output.size());
+        Response response = newFixedLengthResponse(Response.Status.OK, "/image/jpeg", input, jpeg.length);
         response.addHeader("content-type", "image/jpeg");
         return response;
     }
 
+    /**
+     * Liest den angefragten Ausschnitt einer Vorschau.
+     * Ein frei angegebener Ausschnitt wird auf den Rahmen um alle Captures beschränkt, da die Größe der Vorschau von ihm abhängt.
+     * @param session Die Anfrage.
+     * @return Gibt den Ausschnitt in absoluten Koordinaten zurück oder ein leeres Optional, sollte keiner angefragt sein.
+     * @throws NumberFormatException Sollte ein Parameter keine Zahl sein oder der Ausschnitt außerhalb aller Captures liegen.
+     * @throws NoSuchElementException Sollte die angefragte Capture oder Zone nicht ausgewertet werden.
+     */
+    private static Optional<Outline> readPreviewRegion(IHTTPSession session) {
+        final List<String> region = readQueryParameters(session, "region");
+        if (!region.isEmpty()) {
+            final String[] values = region.get(0).split(",");
+            if (values.length != 4)
+                throw new NumberFormatException("Illegal region: '" + region.get(0) + "'");
+            final long x = Long.parseLong(values[0].trim()), y = Long.parseLong(values[1].trim());
+            final long width = Long.parseLong(values[2].trim()), height = Long.parseLong(values[3].trim());
+            if (width <= 0 || height <= 0)
+                throw new NumberFormatException("Illegal region: '" + region.get(0) + "'");
+            final Zone[] zones = Engine.getZones();
+            if (zones.length == 0)
+                return Optional.empty();
+            final Outline bounds = Outline.compose(Arrays.stream(zones).map(Zone::capture).distinct().toArray(Outline[]::new));
+            final long fromX = Math.max(x, bounds.x()), fromY = Math.max(y, bounds.y());
+            final long toX = Math.min(x + width - 1, bounds.endX()), toY = Math.min(y + height - 1, bounds.endY());
+            if (fromX > toX || fromY > toY || (toX - fromX + 1) * (toY - fromY + 1) > MAX_PREVIEW_PIXELS)
+                throw new NumberFormatException("Illegal region: '" + region.get(0) + "'");
+            return Optional.of(Outline.of((int) fromX, (int) fromY, (int) (toX - fromX + 1), (int) (toY - fromY + 1)));
+        }
+        final List<String> zone = readQueryParameters(session, "zone");
+        if (!zone.isEmpty()) {
+            final int zoneNr = Integer.parseInt(zone.get(0));
+            return Optional.of(Arrays.stream(Engine.getZones())
+                    .filter(it -> it.nr() == zoneNr)
+                    .findFirst()
+                    .orElseThrow(() -> new NoSuchElementException("Unknown zone")));
+        }
+        final List<String> capture = readQueryParameters(session, "capture");
+        if (!capture.isEmpty())
+            return Optional.of(Arrays.stream(Engine.getZones())
+                    .map(Zone::capture)
+                    .filter(it -> it.deviceName().equals(capture.get(0)))
+                    .findFirst()
+                    .orElseThrow(() -> new NoSuchElementException("Unknown capture")));
+        return Optional.empty();
+    }
+
+    private static int readIntParameter(IHTTPSession session, String key, int defaultValue) {
+        final List<String> values = readQueryParameters(session, key);
+        return values.isEmpty() ? defaultValue : Integer.parseInt(values.get(0));
+    }
+
+    /**
+     * Kodiert ein Bild als JPEG, siehe {@link #writeJpeg(BufferedImage, float, OutputStream)}.
+     * @param image Das zu kodierende Bild.
+     * @param quality Die Qualität zwischen {@code 0} und {@code 1}. Bei {@code 0} wird die Standardqualität verwendet.
+     * @return Gibt das kodierte Bild zurück.
+     * @throws UncheckedIOException Sollte die Kodierung fehlschlagen.
+     */
+    private static byte[] encodeJpeg(BufferedImage image, float quality) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            writeJpeg(image, quality, output);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Kodiert ein Bild als JPEG.
+     * @param image Das zu kodierende Bild.
+     * @param quality Die Qualität zwischen {@code 0} und {@code 1}. Bei {@code 0} wird die Standardqualität verwendet.
+     * @param output Die Ausgabe.
+     */
+    private static void writeJpeg(BufferedImage image, float quality, OutputStream output) throws IOException {
+        if (quality <= 0) {
+            ImageIO.write(image, "JPEG", output);
+            return;
+        }
+        final ImageWriter writer = ImageIO.getImageWritersByFormatName("JPEG").next();
+        final ImageWriteParam parameters = writer.getDefaultWriteParam();
+        parameters.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        parameters.setCompressionQuality(quality);
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), parameters);
+        }
+        finally {
+            writer.dispose();
+        }
+    }
+
+    private Response serveMetrics() {
+        final StringBuilder metrics = new StringBuilder();
+        NativeMemoryMonitor.appendMetrics(metrics);
+        Engine.getSnapshot().occupancy().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> metrics.append("overwatch_zone_occupancy_ratio{zone=\"").append(entry.getKey()).append("\"} ").append(entry.getValue()).append('\n'));
+        return newFixedLengthResponse(Response.Status.OK, NanoHTTPD.MIME_PLAINTEXT, metrics.toString());
+    }
+
+    /**
+     * Schaltet die Aufzeichnung der Frames mit {@code PUT /trace?recording=on|off} um und gibt den Bericht von {@link FrameTrace#report()} aus.
+     */
+    private Response serveTrace(IHTTPSession session) {
+        if (session.getMethod() == Method.PUT) {
+            final List<String> recording = readQueryParameters(session, "recording");
+            if (recording.equals(List.of("on")))
+                FrameTrace.start();
+            else if (recording.equals(List.of("off")))
+                FrameTrace.stop();
+            else
+                return createError(Response.Status.BAD_REQUEST, "Illegal recording");
+        }
+        return newFixedLengthResponse(Response.Status.OK, NanoHTTPD.MIME_PLAINTEXT, FrameTrace.report());
+    }
+
+    @Override
+    protected boolean useGzipWhenAccepted(Response response) {
+        // Komprimierung würde Ereignisse bis zum Ende des Datenstroms zurückhalten.
+        return super.useGzipWhenAccepted(response) && !EVENT_STREAM_MIME_TYPE.equals(response.getMimeType());
+    }
+
+    private Response serveOccupancy() {
+        try {
+            final String body = new ObjectMapper().writeValueAsString(OccupancyEventStream.createOccupancyDto(OccupancyService.snapshot()));
+            return newFixedLengthResponse(Response.Status.OK, "application/json", body);
+        }
+        catch (JsonProcessingException e) {
+            return createError(Response.Status.INTERNAL_ERROR, "Error during occupancy serving.");
+        }
+    }
+
+    /**
+     * Gibt die Statistiken aller Zonen aus dem {@link StatisticsService} aus.
+     * Der Query-Parameter {@code hours} begrenzt die Anzahl der stündlichen Intervalle bis einschließlich der aktuellen Stunde.
+     */
+    private Response serveStatistics(IHTTPSession session) {
+        final int hours;
+        try {
+            hours = readIntParameter(session, "hours", 24);
+        }
+        catch (NumberFormatException e) {
+            return createError(Response.Status.BAD_REQUEST, "Illegal hours");
+        }
+        if (hours <= 0)
+            return createError(Response.Status.BAD_REQUEST, "Illegal hours");
+        try {
+            final String body = new ObjectMapper().writeValueAsString(new StatisticsDto(StatisticsService.report(hours, System.currentTimeMillis())));
+            return newFixedLengthResponse(Response.Status.OK, "application/json", body);
+        }
+        catch (JsonProcessingException e) {
+            return createError(Response.Status.INTERNAL_ERROR, "Error during statistics serving.");
+        }
+    }
+
+    /**
+     * Abonniert die Wechsel der Zonen als Server-Sent-Events, siehe {@link OccupancyEventStream}.
+     * Fortgesetzt wird nach der Sequenznummer aus dem Header {@code Last-Event-ID} oder dem Query-Parameter {@code since}.
+     */
+    private Response serveOccupancyEvents(IHTTPSession session) {
+        final long lastSequence;
+        try {
+            final String lastEventId = session.getHeaders().get("last-event-id");
+            final List<String> since = readQueryParameters(session, "since");
+            lastSequence = lastEventId != null
+                    ? Long.parseLong(lastEventId.trim())
+                    : since.isEmpty() ? -1 : Long.parseLong(since.get(0));
+        }
+        catch (NumberFormatException e) {
+            return createError(Response.Status.BAD_REQUEST, "Illegal sequence");
+        }
+        final Response response = newChunkedResponse(Response.Status.OK, EVENT_STREAM_MIME_TYPE, new OccupancyEventStream(lastSequence));
+        response.addHeader("cache-control", "no-cache");
+        return response;
+    }
+
     private static Optional<InitDto> readInitRequestFromSession(IHTTPSession session){
         return readPayloadFromSession(session)
                 .flatMap(payload -> {
@@ -69,6 +332,20 @@ public class Server extends NanoHTTPD {
                 });
     }
 
+    /**
+     * Liest alle Werte eines Query-Parameters aus. Im Gegensatz zu {@link IHTTPSession#getParms()} werden mehrfach vorkommende Parameter nicht verworfen.
+     * @param session Die Anfrage.
+     * @param key Der Name des Parameters.
+     * @return Gibt alle Werte des Parameters in ihrer Reihenfolge zurück.
+     */
+    private static List<String> readQueryParameters(IHTTPSession session, String key){
+        // NanoHTTPD behält den Query-String der vorherigen Anfrage einer Keep-Alive-Verbindung, wenn die aktuelle keinen hat.
+        // Die Parameter werden dagegen pro Anfrage neu gelesen, etwa für die leere Meldung eines Workers ohne aktive Zonen.
+        if (session.getParms().isEmpty())
+            return List.of();
+        return decodeParameters(session.getQueryParameterString()).getOrDefault(key, List.of());
+    }
+
     private static Optional<String> readPayloadFromSession(IHTTPSession session) {
         Map<String, String> map = new HashMap<>();
         try {
@@ -1,5 +1,6 @@
 package overwatch;
 
+import overwatch.cluster.ClusterCoordinator;
 import overwatch.service.ConfigurationService;
 
 import java.io.IOException;
@@ -8,9 +9,21 @@ public class ServerApplication {
 
     public static void main (String[] args) {
         ConfigurationService.override(ConfigurationService.Keys.DEBUG_FRAME_ENABLE, "false");
+        // Argumente in der Form key=value überschreiben die Konfiguration, z.B. um mehrere Instanzen lokal zu starten.
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0)
+                ConfigurationService.override(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        // Ab hier wird eine über configuration-file gesetzte Datei bei jeder Änderung neu geladen.
+        ConfigurationService.watch();
         Server server = new Server();
         try {
             server.start();
+            if (ClusterCoordinator.isEnabled())
+                ClusterCoordinator.start();
+            else
+                Engine.resume();
         }
         catch (IOException e) {
             e.printStackTrace();
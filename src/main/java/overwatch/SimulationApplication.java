@@ -0,0 +1,51 @@
+package overwatch;
+
+import overwatch.algorithm.Algorithm;
+import overwatch.model.Zone;
+import overwatch.service.ConfigurationService;
+import overwatch.simulation.SimulatedLot;
+import overwatch.simulation.SimulationReport;
+import overwatch.simulation.Simulator;
+import overwatch.trace.FrameTrace;
+
+import java.util.Collection;
+import java.util.logging.Logger;
+
+/**
+ * Lasttest ohne Kameras. Wertet simulierte Parkplätze so schnell wie möglich aus und vergleicht die Ergebnisse mit der Grundwahrheit.
+ * Pro Frame vergeht in der Simulation {@code analyse-interval-ms}, Latenzen sind daher in Zeit der Simulation angegeben.
+ * Argumente in der Form key=value überschreiben die Konfiguration, z.B. {@code simulation-captures=100}.
+ */
+public class SimulationApplication {
+
+    private static final Logger logger = Logger.getLogger(SimulationApplication.class.getName());
+
+    public static void main(String[] args) {
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0)
+                ConfigurationService.override(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        final int captureCount = ConfigurationService.getInt(ConfigurationService.Keys.SIMULATION_CAPTURES);
+        final int zonesPerCapture = ConfigurationService.getInt(ConfigurationService.Keys.SIMULATION_ZONES_PER_CAPTURE);
+        final long durationMillis = ConfigurationService.getLong(ConfigurationService.Keys.SIMULATION_DURATION_SECONDS) * 1000;
+        final long intervalMillis = Math.max(1, ConfigurationService.getInt(ConfigurationService.Keys.ANALYSE_INTERVAL_MS));
+
+        final Zone[] zones = Simulator.createLayout(captureCount, zonesPerCapture, ConfigurationService.getString(ConfigurationService.Keys.SIMULATION_ALGORITHM));
+        Simulator.register(zones, SimulatedLot.Parameters.fromConfiguration(), 1);
+        logger.info("Simulating " + captureCount + " captures with " + zones.length + " zones for " + durationMillis / 1000 + "s.");
+
+        final SimulationReport report = new SimulationReport(zones.length);
+        final Algorithm algorithm = Algorithm.create(zones);
+        while (Simulator.timestamp() < durationMillis) {
+            Simulator.advance(intervalMillis);
+            FrameTrace.beginFrame();
+            final long computeBeginNanos = System.nanoTime();
+            final Collection<? extends Zone> activeZones = algorithm.compute();
+            final long computeNanos = System.nanoTime() - computeBeginNanos;
+            report.record(Simulator.timestamp(), Simulator.occupancy(), activeZones, computeNanos);
+        }
+        algorithm.close();
+        logger.info("Simulation finished:\n" + report.format(Simulator.arrivalCount()));
+    }
+}
@@ -3,18 +3,19 @@ package overwatch.algorithm;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.UnmodifiableView;
 import overwatch.algorithm.dongle.DongleAlgorithm;
+import overwatch.model.Capture;
 import overwatch.model.Zone;
 import overwatch.service.ConfigurationService;
 import overwatch.skeleton.Outline;
+import overwatch.skeleton.OutlineBuffer;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Objects;
-import java.util.function.BiPredicate;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.logging.Logger;
 
 import static overwatch.skeleton.Outline.isIntersecting;
 
@@ -58,16 +59,102 @@ public abstract class Algorithm {
      */
     protected static final Color ACTIVE_ZONE_COLOR = Color.green;
 
+    /**
+     * Zeitraum nach einer angeforderten Darstellung, in dem die Maske der modifizierten Pixel in {@link AnalysisSnapshot}s erfasst wird.
+     */
+    private static final long PREVIEW_MASK_TIMEOUT_MS = 5000;
+
+    private static final Logger logger = Logger.getLogger(Algorithm.class.getName());
+
+    /**
+     * Das Ergebnis der letzten abgeschlossenen Iteration.
+     */
+    private final @NotNull AtomicReference<AnalysisSnapshot> snapshot = new AtomicReference<>(AnalysisSnapshot.EMPTY);
+
+    /**
+     * Zeitpunkt der letzten angeforderten Darstellung.
+     */
+    private volatile long previewRequestTimestamp;
+
+    /**
+     * Alle per {@link ServiceLoader} gefundenen Algorithmen, nach Namen.
+     */
+    private static final Map<String, AlgorithmProvider> providers = loadProviders();
+
+    private static Map<String, AlgorithmProvider> loadProviders(){
+        final Map<String, AlgorithmProvider> providers = new LinkedHashMap<>();
+        for (AlgorithmProvider provider : ServiceLoader.load(AlgorithmProvider.class))
+            providers.put(provider.name(), provider);
+        return Collections.unmodifiableMap(providers);
+    }
+
     /**
      * Erstellt eine neue Instanz des Algorithmus.
+     * Jede Capture kann über {@link Capture#algorithm()} einen eigenen Algorithmus wählen, ansonsten gilt {@link #defaultAlgorithmName()}.
+     * Wählen alle Captures denselben Algorithmus, wird dieser direkt zurückgegeben, andernfalls ein {@link CompositeAlgorithm}.
      * @param zones Die auszuwertenden Zonen.
-     * @return Gibt eine neue Instanz von {@link DongleAlgorithm} oder {@link OpenCvAlgorithm} zurück.
+     * @return Gibt eine neue Instanz zurück.
+     * @throws IllegalArgumentException Sollte ein gewählter Algorithmus nicht vorhanden sein.
      */
     public static Algorithm create(@NotNull Zone[] zones){
-        boolean isOpenCvEnabled = ConfigurationService.getBoolean(ConfigurationService.Keys.ANALYSE_OPENCV_ENABLE);
-        return isOpenCvEnabled
-                ? new OpenCvAlgorithm(zones)
-                : new DongleAlgorithm(zones);
+        final Map<String, Zone[]> groups = groupByAlgorithm(zones);
+        if(groups.size() == 1) {
+            final Map.Entry<String, Zone[]> group = groups.entrySet().iterator().next();
+            return create(group.getKey(), group.getValue());
+        }
+        final Algorithm[] algorithms = groups.entrySet().stream()
+                .map(group -> create(group.getKey(), group.getValue()))
+                .toArray(Algorithm[]::new);
+        return new CompositeAlgorithm(zones, algorithms);
+    }
+
+    /**
+     * Ordnet alle Zonen dem Algorithmus ihrer Capture zu.
+     * @param zones Die zuzuordnenden Zonen.
+     * @return Gibt die Zonen pro Name eines Algorithmus zurück, in der Reihenfolge des ersten Auftretens.
+     * @throws IllegalArgumentException Sollte ein gewählter Algorithmus nicht vorhanden sein.
+     */
+    static @NotNull Map<String, Zone[]> groupByAlgorithm(@NotNull Zone[] zones){
+        final String defaultName = defaultAlgorithmName();
+        final Map<String, List<Zone>> groups = new LinkedHashMap<>();
+        for (Zone zone : zones) {
+            final String name = zone.capture().algorithm().isEmpty() ? defaultName : zone.capture().algorithm().toLowerCase();
+            if(!providers.containsKey(name))
+                throw new IllegalArgumentException("Unknown algorithm: '" + name + "'");
+            groups.computeIfAbsent(name, it -> new ArrayList<>()).add(zone);
+        }
+        final Map<String, Zone[]> result = new LinkedHashMap<>();
+        groups.forEach((name, group) -> result.put(name, group.toArray(Zone[]::new)));
+        return result;
+    }
+
+    /**
+     * Liest den Namen des standardmäßig verwendeten Algorithmus aus {@code analyse-algorithm}.
+     * Ist dieser Schlüssel leer, entscheidet {@code analyse-opencv-enable} zwischen {@code opencv} und {@code dongle}.
+     * @return Gibt den Namen zurück.
+     */
+    static @NotNull String defaultAlgorithmName(){
+        final String name = ConfigurationService.getString(ConfigurationService.Keys.ANALYSE_ALGORITHM);
+        if(!name.isEmpty())
+            return name.toLowerCase();
+        return ConfigurationService.getBoolean(ConfigurationService.Keys.ANALYSE_OPENCV_ENABLE) ? "opencv" : "dongle";
+    }
+
+    /**
+     * Erstellt eine Instanz eines Algorithmus. Dies ist die einzige Stelle, an der OpenCv-Klassen geladen werden.
+     * Ist OpenCv nicht im Classpath vorhanden (Build-Profil {@code dongle}), wird auf den {@link DongleAlgorithm} ausgewichen.
+     * @param name Der Name des Algorithmus.
+     * @param zones Die auszuwertenden Zonen.
+     * @return Gibt die erstellte Instanz zurück.
+     */
+    private static Algorithm create(@NotNull String name, @NotNull Zone[] zones){
+        try {
+            return providers.get(name).create(zones);
+        }
+        catch (NoClassDefFoundError e) {
+            logger.severe("Algorithm '" + name + "' is not available in this build, falling back to DongleAlgorithm.");
+            return new DongleAlgorithm(zones);
+        }
     }
 
     /**
@@ -75,6 +162,13 @@ public abstract class Algorithm {
      */
     public abstract void close();
 
+    /**
+     * Übernimmt Schwellwerte aus einer neu geladenen Konfiguration, ohne gelernte Hintergründe zu verwerfen.
+     * Werte, die den Aufbau des Algorithmus betreffen, werden erst mit einer neuen Instanz übernommen. Standardmäßig passiert nichts.
+     * @param configuration Die neue Konfiguration.
+     */
+    public void applyConfiguration(@NotNull ConfigurationService.Snapshot configuration) {}
+
     /**
      * Berechnet alle aktiven Zonen im aktuellen Frame und gibt diese zurück.
      * @return Eine Collection mit allen aktiven Zonen.
@@ -83,69 +177,187 @@ public abstract class Algorithm {
 
     /**
      * Berechnet eine grafische Auswertung des aktuellen Frames.
+     * Implementierungen dürfen dafür ausschließlich {@link #requestPreview()} verwenden und weder Frames aufnehmen noch die Auswertung blockieren.
      * @return Gibt die Grafische Auswertung zurück.
      */
     public abstract @NotNull BufferedImage computeImage();
 
     /**
-     * Template um die grafische Ausgabe zu rendern.
-     * @param image Die Bildgrundlage, auf die gerendert werden soll.
-     * @param isPixelModified Predicate welches angibt, ob ein Pixel modifiziert ist.
+     * Berechnet eine grafische Auswertung des aktuellen Frames und übergibt sie an {@code reader}.
+     * Das Bild ist nur während des Aufrufs gültig, sodass es danach verworfen werden kann, sobald etwa ein JPEG daraus kodiert wurde.
+     * Die Standardimplementierung übergibt das Ergebnis von {@link #computeImage()}.
+     * @param reader Liest das Bild aus.
+     * @return Gibt das Ergebnis von {@code reader} zurück.
+     */
+    public <T> T computeImage(@NotNull Function<? super BufferedImage, T> reader) {
+        return reader.apply(computeImage());
+    }
+
+    /**
+     * Berechnet eine grafische Auswertung eines Ausschnitts des aktuellen Frames.
+     * Die Standardimplementierung schneidet {@link #computeImage()} zu, Implementierungen sollten nur den Ausschnitt über
+     * {@link #renderImage(AnalysisSnapshot, Zone[], Outline, int)} zeichnen.
+     * @param region Der Ausschnitt in absoluten Koordinaten.
+     * @param maxWidth Die maximale Breite der Ausgabe. Breitere Ausschnitte werden verkleinert, bei {@code 0} wird nicht skaliert.
+     * @return Gibt ein neues Bild des Ausschnitts zurück.
+     */
+    public @NotNull BufferedImage computeImage(@NotNull Outline region, int maxWidth) {
+        final BufferedImage source = computeImage();
+        final float scale = calculatePreviewScale(region, maxWidth);
+        final BufferedImage image = createPreviewImage(region, scale);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setColor(UNMODIFIED_PIXEL_COLOR);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, image.getWidth(), image.getHeight(), region.x(), region.y(), region.x() + region.width(), region.y() + region.height(), null);
+        graphics.dispose();
+        return image;
+    }
+
+    private static float calculatePreviewScale(@NotNull Outline region, int maxWidth) {
+        return maxWidth > 0 && maxWidth < region.width() ? (float) maxWidth / (float) region.width() : 1f;
+    }
+
+    private static @NotNull BufferedImage createPreviewImage(@NotNull Outline region, float scale) {
+        return new BufferedImage(
+                Math.max(1, Math.round(region.width() * scale)),
+                Math.max(1, Math.round(region.height() * scale)),
+                BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Liest das Ergebnis der letzten abgeschlossenen Iteration aus.
+     * @return Gibt das Ergebnis zurück.
+     */
+    public @NotNull AnalysisSnapshot snapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Liest das Ergebnis der letzten abgeschlossenen Iteration für eine Darstellung aus.
+     * Dadurch wird für die folgenden Iterationen auch die Maske der modifizierten Pixel erfasst.
+     * @return Gibt das Ergebnis zurück.
+     */
+    protected @NotNull AnalysisSnapshot requestPreview() {
+        previewRequestTimestamp = System.currentTimeMillis();
+        return snapshot.get();
+    }
+
+    /**
+     * Prüft, ob in letzter Zeit eine Darstellung angefordert wurde und die Maske der modifizierten Pixel erfasst werden soll.
+     * @return Gibt {@code true} zurück, wenn die Maske erfasst werden soll.
+     */
+    protected boolean isPreviewRequested() {
+        return System.currentTimeMillis() - previewRequestTimestamp < PREVIEW_MASK_TIMEOUT_MS;
+    }
+
+    /**
+     * Veröffentlicht das Ergebnis einer abgeschlossenen Iteration.
+     * @param mask Die Maske der modifizierten Pixel.
+     * @param objects Die erkannten Objekte. Die Collection darf danach nicht mehr verändert werden.
+     * @param activeZones Die aktiven Zonen. Die Collection darf danach nicht mehr verändert werden.
+     */
+    protected void publish(@NotNull AnalysisSnapshot.PixelMask mask, @NotNull @UnmodifiableView Collection<Outline> objects, @NotNull @UnmodifiableView Collection<? extends Zone> activeZones) {
+        publish(mask, objects, activeZones, Map.of());
+    }
+
+    /**
+     * Veröffentlicht das Ergebnis einer abgeschlossenen Iteration inklusive der Belegung der Zonen.
+     * @param mask Die Maske der modifizierten Pixel.
+     * @param objects Die erkannten Objekte. Die Collection darf danach nicht mehr verändert werden.
+     * @param activeZones Die aktiven Zonen. Die Collection darf danach nicht mehr verändert werden.
+     * @param occupancy Der Anteil an Vordergrundpixeln pro Nummer einer Zone. Die Map darf danach nicht mehr verändert werden.
+     */
+    protected void publish(@NotNull AnalysisSnapshot.PixelMask mask, @NotNull @UnmodifiableView Collection<Outline> objects, @NotNull @UnmodifiableView Collection<? extends Zone> activeZones, @NotNull @UnmodifiableView Map<Integer, Float> occupancy) {
+        final AnalysisSnapshot previous = snapshot.get();
+        snapshot.set(new AnalysisSnapshot(previous.frameNumber() + 1, System.currentTimeMillis(), mask, objects, activeZones, occupancy));
+    }
+
+    /**
+     * Template um einen Ausschnitt der grafischen Ausgabe zu rendern. Gezeichnet werden nur Zonen und Objekte im Ausschnitt,
+     * die Maske wird nur für die Pixel der Ausgabe abgetastet. Der Aufwand hängt dadurch von der Größe der Ausgabe ab, nicht von der Größe aller Captures.
+     * @param snapshot Das darzustellende Ergebnis.
      * @param zones Die ausgewerteten Zonen.
-     * @param activeZones Die aktiven Zonen.
-     * @param objects Alle Umrisse von erkannten Objekten.
+     * @param region Der Ausschnitt in absoluten Koordinaten.
+     * @param maxWidth Die maximale Breite der Ausgabe. Breitere Ausschnitte werden verkleinert, bei {@code 0} wird nicht skaliert.
+     * @return Gibt ein neues Bild des Ausschnitts zurück.
      */
-    protected static void renderImage(final @NotNull BufferedImage image, final @NotNull  BiPredicate<Integer, Integer> isPixelModified,  final @NotNull Zone[] zones, final @NotNull @UnmodifiableView Collection<? extends Zone> activeZones, final @NotNull @UnmodifiableView Collection<Outline> objects ){
-        final Graphics graphics = image.getGraphics();
+    protected static @NotNull BufferedImage renderImage(final @NotNull AnalysisSnapshot snapshot, final @NotNull Zone[] zones, final @NotNull Outline region, int maxWidth){
+        final float scale = calculatePreviewScale(region, maxWidth);
+        final BufferedImage image = createPreviewImage(region, scale);
+        final Graphics2D graphics = image.createGraphics();
         graphics.setColor(UNMODIFIED_PIXEL_COLOR);
         graphics.fillRect(0,0,image.getWidth(), image.getHeight());
+        graphics.scale(scale, scale);
+        graphics.translate(-region.x(), -region.y());
 
         graphics.setColor(ACTIVE_ZONE_COLOR);
-        activeZones.forEach(it -> graphics.fillRect(it.x(), it.y(), it.width(), it.height()));
+        snapshot.activeZones().stream()
+                .filter(it -> isIntersecting(region, it))
+                .forEach(it -> graphics.fillRect(it.x(), it.y(), it.width(), it.height()));
 
-        graphics.setColor(MODIFIED_PIXEL_COLOR);
-        objects.forEach(it -> IntStream.rangeClosed(it.x(), it.endX())
-                .forEach(x ->
-                        IntStream.rangeClosed(it.y(), it.endY())
-                                .filter(y -> isPixelModified.test(x,y))
-                                .forEach(y -> graphics.fillRect(x,y,1,1))
-                ));
+        // Die Maske wird je Pixel der Ausgabe in der Mitte des abgedeckten Bereichs abgetastet.
+        final int modifiedColor = MODIFIED_PIXEL_COLOR.getRGB();
+        for (Outline object : snapshot.objects()) {
+            if (!isIntersecting(region, object))
+                continue;
+            final int fromX = (int) ((Math.max(object.x(), region.x()) - region.x()) * scale);
+            final int toX = Math.min(image.getWidth() - 1, (int) Math.ceil((Math.min(object.endX(), region.endX()) + 1 - region.x()) * scale) - 1);
+            final int fromY = (int) ((Math.max(object.y(), region.y()) - region.y()) * scale);
+            final int toY = Math.min(image.getHeight() - 1, (int) Math.ceil((Math.min(object.endY(), region.endY()) + 1 - region.y()) * scale) - 1);
+            for (int imageY = fromY; imageY <= toY; imageY++) {
+                final int y = region.y() + (int) ((imageY + 0.5f) / scale);
+                if (y < object.y() || y > object.endY())
+                    continue;
+                for (int imageX = fromX; imageX <= toX; imageX++) {
+                    final int x = region.x() + (int) ((imageX + 0.5f) / scale);
+                    if (x >= object.x() && x <= object.endX() && snapshot.mask().isModified(x, y))
+                        image.setRGB(imageX, imageY, modifiedColor);
+                }
+            }
+        }
 
         graphics.setColor(OBJECT_OUTLINE_COLOR);
-        objects.forEach(it -> graphics.drawRect(it.x(), it.y(), it.width(), it.height()));
+        snapshot.objects().stream()
+                .filter(it -> isIntersecting(region, it))
+                .forEach(it -> graphics.drawRect(it.x(), it.y(), it.width(), it.height()));
 
         graphics.setColor(ZONE_BOUNDS_COLOR);
-        Arrays.stream(zones).forEach(it -> {
-            graphics.drawRect(it.x(), it.y(), it.width(), it.height());
-            graphics.drawString(Integer.toString(it.nr()), it.x() + 5, it.y() + 10);
-        });
+        Arrays.stream(zones)
+                .filter(it -> isIntersecting(region, it))
+                .forEach(it -> {
+                    graphics.drawRect(it.x(), it.y(), it.width(), it.height());
+                    graphics.drawString(Integer.toString(it.nr()), it.x() + 5, it.y() + 10);
+                });
         graphics.dispose();
+        return image;
     }
 
     /**
      * Findet alle aktiven Zonen. Eine Zone ist aktiv, wenn mindestens ein Objekt in ihr liegt.
+     * Jedes Objekt wird der Zone mit der größten Überschneidung zugeordnet.
      * @param zones Die zu prüfenden Zonen.
      * @param objects Die erkannten Objekte.
-     * @return Gibt einen Stream mit aktiven Zonen zurück,.
+     * @return Gibt eine unveränderliche Liste mit aktiven Zonen zurück, in der Reihenfolge der Objekte.
      * @param <E> Der Typ Zone.
      */
-    protected static @NotNull <E extends Outline> Stream<E> findActiveZones(final E[] zones, Collection<Outline> objects){
-        return objects.parallelStream()
-                .map(object -> {
-                    E maxZone = null;
-                    int maxOverlap = 0;
-                    for (E zone : zones){
-                        if(isIntersecting(zone, object)) {
-                            int overlap = Outline.intersectionArea(zone, object);
-                            if (overlap > maxOverlap){
-                                maxOverlap = overlap;
-                                maxZone = zone;
-                            }
-                        }
+    protected static @NotNull <E extends Outline> List<E> findActiveZones(final E[] zones, @NotNull OutlineBuffer objects){
+        final List<E> activeZones = new ArrayList<>();
+        for (int i = 0; i < objects.size(); i++) {
+            E maxZone = null;
+            int maxOverlap = 0;
+            for (E zone : zones){
+                if(objects.isIntersecting(i, zone)) {
+                    int overlap = objects.intersectionArea(i, zone);
+                    if (overlap > maxOverlap){
+                        maxOverlap = overlap;
+                        maxZone = zone;
                     }
-                    return maxZone;
-                })
-                .filter(Objects::nonNull)
-                .distinct();
+                }
+            }
+            if(maxZone != null && !activeZones.contains(maxZone))
+                activeZones.add(maxZone);
+        }
+        return Collections.unmodifiableList(activeZones);
     }
 }
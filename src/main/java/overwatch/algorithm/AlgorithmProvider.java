@@ -0,0 +1,24 @@
+package overwatch.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.model.Zone;
+
+/**
+ * Schnittstelle, über welche Implementationen von {@link Algorithm} per {@link java.util.ServiceLoader} gefunden werden.
+ * Implementationen werden in {@code META-INF/services/overwatch.algorithm.AlgorithmProvider} eingetragen.
+ */
+public interface AlgorithmProvider {
+
+    /**
+     * Der Name, über welchen der Algorithmus in der Konfiguration und pro {@link overwatch.model.Capture} ausgewählt wird.
+     * @return Gibt den Namen in Kleinbuchstaben zurück.
+     */
+    @NotNull String name();
+
+    /**
+     * Erstellt eine neue Instanz des Algorithmus.
+     * @param zones Die auszuwertenden Zonen. Alle Zonen gehören zu Captures, welche diesen Algorithmus gewählt haben.
+     * @return Gibt die erstellte Instanz zurück.
+     */
+    @NotNull Algorithm create(@NotNull Zone[] zones);
+}
@@ -0,0 +1,54 @@
+package overwatch.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.UnmodifiableView;
+import overwatch.model.Zone;
+import overwatch.skeleton.Outline;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unveränderliches Ergebnis einer abgeschlossenen Iteration eines {@link Algorithm}.
+ * Wird nach jeder Iteration atomar veröffentlicht, sodass Darstellungen weder die Auswertung blockieren noch selbst Frames aufnehmen.
+ * @param frameNumber Die fortlaufende Nummer der Iteration.
+ * @param timestamp Der Zeitpunkt, an dem die Iteration abgeschlossen wurde, in Millisekunden.
+ * @param mask Die modifizierten Pixel. Diese werden nur erfasst, solange Darstellungen angefordert werden.
+ * @param objects Die erkannten Objekte.
+ * @param activeZones Die aktiven Zonen.
+ * @param occupancy Der Anteil an Vordergrundpixeln pro Nummer einer Zone. Nur im {@link OccupancyMode#INTEGRAL} befüllt.
+ */
+public record AnalysisSnapshot(
+        long frameNumber,
+        long timestamp,
+        @NotNull PixelMask mask,
+        @NotNull @UnmodifiableView Collection<Outline> objects,
+        @NotNull @UnmodifiableView Collection<? extends Zone> activeZones,
+        @NotNull @UnmodifiableView Map<Integer, Float> occupancy) {
+
+    /**
+     * Zustand vor der ersten Iteration.
+     */
+    public static final AnalysisSnapshot EMPTY = new AnalysisSnapshot(0, 0, PixelMask.EMPTY, List.of(), List.of(), Map.of());
+
+    /**
+     * Unveränderliche Maske der modifizierten Pixel in absoluten Koordinaten.
+     */
+    @FunctionalInterface
+    public interface PixelMask {
+
+        /**
+         * Maske ohne modifizierte Pixel.
+         */
+        PixelMask EMPTY = (x, y) -> false;
+
+        /**
+         * Prüft, ob ein Pixel modifiziert ist.
+         * @param x Die absolute Position auf der x-Achse.
+         * @param y Die absolute Position auf der y-Achse.
+         * @return Gibt {@code true} zurück, wenn der Pixel modifiziert ist.
+         */
+        boolean isModified(int x, int y);
+    }
+}
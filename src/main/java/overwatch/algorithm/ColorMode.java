@@ -0,0 +1,29 @@
+package overwatch.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.service.ConfigurationService;
+
+/**
+ * Farbraum, in dem ein {@link Algorithm} Frames auswertet.
+ */
+public enum ColorMode {
+
+    /**
+     * Frames werden mit allen Farbkanälen ausgewertet.
+     */
+    COLOR,
+
+    /**
+     * Frames werden einmalig in ein Byte Helligkeit pro Pixel umgewandelt, alle weiteren Vergleiche erfolgen nur auf diesem Kanal.
+     * Liefert die Quelle bereits ein Graustufenbild, wird dieses ohne Umrechnung übernommen.
+     */
+    LUMA;
+
+    /**
+     * Liest den konfigurierten Farbraum aus {@code analyse-color-mode}. Standard ist {@link #COLOR}, auch bei einem unbekannten Wert.
+     * @return Gibt den konfigurierten Farbraum zurück.
+     */
+    public static @NotNull ColorMode fromConfiguration() {
+        return ConfigurationService.getEnum(ConfigurationService.Keys.ANALYSE_COLOR_MODE, COLOR);
+    }
+}
@@ -0,0 +1,101 @@
+package overwatch.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.UnmodifiableView;
+import overwatch.model.Zone;
+import overwatch.service.ConfigurationService;
+import overwatch.skeleton.Outline;
+
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Führt für jede Gruppe von Captures einen eigenen {@link Algorithm} aus und fasst deren Ergebnisse zusammen.
+ * Wird von {@link Algorithm#create(Zone[])} verwendet, sobald Captures unterschiedliche Algorithmen gewählt haben.
+ */
+final class CompositeAlgorithm extends Algorithm {
+
+    /**
+     * Die Algorithmen der einzelnen Gruppen.
+     */
+    private final @NotNull Algorithm[] algorithms;
+
+    /**
+     * Alle ausgewerteten Zonen.
+     */
+    private final @NotNull Zone[] zones;
+
+    /**
+     * Zeichenfläche für die grafische Auswertung.
+     */
+    private final @NotNull PreviewCanvas canvas;
+
+    CompositeAlgorithm(@NotNull Zone[] zones, @NotNull Algorithm[] algorithms) {
+        super();
+        this.zones = zones;
+        this.algorithms = algorithms;
+        this.canvas = new PreviewCanvas(zones);
+    }
+
+    @Override
+    public void close() {
+        for (Algorithm algorithm : algorithms)
+            algorithm.close();
+        canvas.flush();
+    }
+
+    @Override
+    public void applyConfiguration(@NotNull ConfigurationService.Snapshot configuration) {
+        for (Algorithm algorithm : algorithms)
+            algorithm.applyConfiguration(configuration);
+    }
+
+    @Override
+    public synchronized @NotNull @UnmodifiableView Collection<? extends Zone> compute() {
+        final List<Zone> activeZones = new ArrayList<>();
+        for (Algorithm algorithm : algorithms)
+            activeZones.addAll(algorithm.compute());
+
+        final List<Outline> objects = new ArrayList<>();
+        final Map<Integer, Float> occupancy = new HashMap<>();
+        final List<AnalysisSnapshot.PixelMask> masks = new ArrayList<>(algorithms.length);
+        for (Algorithm algorithm : algorithms) {
+            final AnalysisSnapshot snapshot = algorithm.snapshot();
+            objects.addAll(snapshot.objects());
+            occupancy.putAll(snapshot.occupancy());
+            masks.add(snapshot.mask());
+        }
+        final AnalysisSnapshot.PixelMask mask = (x, y) -> {
+            for (AnalysisSnapshot.PixelMask it : masks)
+                if (it.isModified(x, y))
+                    return true;
+            return false;
+        };
+        final List<Zone> result = Collections.unmodifiableList(activeZones);
+        publish(mask, Collections.unmodifiableList(objects), result, Collections.unmodifiableMap(occupancy));
+        return result;
+    }
+
+    @Override
+    public @NotNull BufferedImage computeImage() {
+        // Die einzelnen Algorithmen erfassen die Maske nur, solange bei ihnen eine Darstellung angefordert wird.
+        for (Algorithm algorithm : algorithms)
+            algorithm.requestPreview();
+        return canvas.render(requestPreview(), zones);
+    }
+
+    @Override
+    public <T> T computeImage(@NotNull Function<? super BufferedImage, T> reader) {
+        for (Algorithm algorithm : algorithms)
+            algorithm.requestPreview();
+        return canvas.render(requestPreview(), zones, reader);
+    }
+
+    @Override
+    public @NotNull BufferedImage computeImage(@NotNull Outline region, int maxWidth) {
+        for (Algorithm algorithm : algorithms)
+            algorithm.requestPreview();
+        return renderImage(requestPreview(), zones, region, maxWidth);
+    }
+}
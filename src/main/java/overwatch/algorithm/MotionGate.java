@@ -0,0 +1,135 @@
+package overwatch.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.service.ConfigurationService;
+
+/**
+ * Entscheidet pro {@link overwatch.model.Capture} anhand eines stark verkleinerten Graustufenbildes, ob ein Frame vollständig ausgewertet werden muss.
+ * Ändert sich über {@link #idleAfterMillis} nichts, gilt die Capture als ruhend und wird nur noch alle {@link #idleIntervalMillis} ausgewertet.
+ * Sobald eine Bewegung erkannt wird, wird wieder jedes Frame ausgewertet.
+ */
+public final class MotionGate {
+
+    /**
+     * Die Breite des Vorschaubildes.
+     */
+    public static final int THUMBNAIL_WIDTH = 32;
+
+    /**
+     * Die Höhe des Vorschaubildes.
+     */
+    public static final int THUMBNAIL_HEIGHT = 24;
+
+    /**
+     * Mindestanzahl an veränderten Bildpunkten im Vorschaubild, damit eine Bewegung erkannt wird.
+     */
+    private static final int MIN_CHANGED_CELLS = 2;
+
+    /**
+     * Helligkeitswerte des aktuellen Vorschaubildes, werden vom Aufrufer befüllt.
+     */
+    private final int[] luma = new int[THUMBNAIL_WIDTH * THUMBNAIL_HEIGHT];
+
+    /**
+     * Helligkeitswerte des Vorschaubildes der letzten vollständigen Auswertung.
+     */
+    private final int[] reference = new int[THUMBNAIL_WIDTH * THUMBNAIL_HEIGHT];
+
+    /**
+     * Minimale Helligkeitsdifferenz eines Bildpunktes, damit dieser als verändert gilt.
+     */
+    private int threshold;
+
+    private long idleAfterMillis;
+
+    private long idleIntervalMillis;
+
+    private boolean hasReference = false;
+
+    private long lastMotionTimestamp;
+
+    private long lastAnalyseTimestamp;
+
+    public MotionGate(int threshold, long idleAfterMillis, long idleIntervalMillis) {
+        this.threshold = threshold;
+        this.idleAfterMillis = idleAfterMillis;
+        this.idleIntervalMillis = idleIntervalMillis;
+    }
+
+    /**
+     * Erstellt eine neue Instanz anhand der Konfiguration.
+     * @return Gibt die erstellte Instanz zurück.
+     */
+    public static @NotNull MotionGate create() {
+        final MotionGate gate = new MotionGate(0, 0, 0);
+        gate.applyConfiguration(ConfigurationService.snapshot());
+        return gate;
+    }
+
+    /**
+     * Übernimmt Schwellwert und Intervalle aus einer Konfiguration. Das Vorschaubild der letzten Auswertung bleibt erhalten.
+     * @param configuration Die Konfiguration.
+     */
+    public void applyConfiguration(@NotNull ConfigurationService.Snapshot configuration) {
+        this.threshold = configuration.getInt(ConfigurationService.Keys.ANALYSE_MOTION_THRESHOLD);
+        this.idleAfterMillis = configuration.getLong(ConfigurationService.Keys.ANALYSE_IDLE_AFTER_MS);
+        this.idleIntervalMillis = configuration.getLong(ConfigurationService.Keys.ANALYSE_IDLE_INTERVAL_MS);
+    }
+
+    /**
+     * Prüft, ob dieses Gate aktiv ist. Ein inaktives Gate lässt jedes Frame zur Auswertung zu.
+     * @return Gibt {@code true} zurück, wenn das Gate aktiv ist.
+     */
+    public boolean isEnabled() {
+        return idleIntervalMillis > 0;
+    }
+
+    /**
+     * Berechnet die Helligkeit eines Farbwertes.
+     * @param r Der Rotanteil.
+     * @param g Der Grünanteil.
+     * @param b Der Blauanteil.
+     * @return Gibt die Helligkeit zwischen 0 und 255 zurück.
+     */
+    public static int luma(int r, int g, int b) {
+        return (77 * r + 150 * g + 29 * b) >> 8;
+    }
+
+    /**
+     * Der Puffer für das aktuelle Vorschaubild. Dieser muss vor {@link #update(long)} zeilenweise mit Helligkeitswerten befüllt werden.
+     * @return Gibt den Puffer zurück.
+     */
+    public int[] luma() {
+        return luma;
+    }
+
+    /**
+     * Vergleicht das aktuelle Vorschaubild mit dem der letzten Auswertung und entscheidet, ob das Frame ausgewertet werden soll.
+     * @param timestamp Der aktuelle Zeitpunkt in Millisekunden.
+     * @return Gibt {@code true} zurück, wenn das Frame vollständig ausgewertet werden soll.
+     */
+    public boolean update(long timestamp) {
+        if (!isEnabled()) return true;
+
+        if (!hasReference || isMotion())
+            lastMotionTimestamp = timestamp;
+
+        final boolean isIdle = timestamp - lastMotionTimestamp >= idleAfterMillis;
+        if (isIdle && timestamp - lastAnalyseTimestamp < idleIntervalMillis)
+            return false;
+
+        System.arraycopy(luma, 0, reference, 0, luma.length);
+        hasReference = true;
+        lastAnalyseTimestamp = timestamp;
+        return true;
+    }
+
+    private boolean isMotion() {
+        int changedCells = 0;
+        for (int i = 0; i < luma.length; i++) {
+            if (Math.abs(luma[i] - reference[i]) > threshold && ++changedCells >= MIN_CHANGED_CELLS)
+                return true;
+        }
+        return false;
+    }
+}
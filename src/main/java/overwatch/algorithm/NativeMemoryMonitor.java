@@ -0,0 +1,80 @@
+package overwatch.algorithm;
+
+import org.bytedeco.javacpp.Pointer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.logging.Logger;
+
+/**
+ * Erfasst den von JavaCPP verwalteten nativen Speicher des {@link OpenCvAlgorithm} und erkennt mögliche Speicherlecks.
+ * Ein Leck wird vermutet, wenn die Anzahl der nativen Objekte über mehrere aufeinanderfolgende Messfenster stetig wächst.
+ * Die zuletzt gemessenen Werte werden zwischengespeichert, sodass beim Auslesen keine nativen Bibliotheken geladen werden.
+ */
+public final class NativeMemoryMonitor {
+
+    /**
+     * Anzahl an Iterationen pro Messfenster der Leckerkennung.
+     */
+    private static final int LEAK_WINDOW_ITERATIONS = 500;
+
+    /**
+     * Anzahl an aufeinanderfolgenden wachsenden Messfenstern, ab denen ein Leck vermutet wird.
+     */
+    private static final int LEAK_WINDOWS = 5;
+
+    private static final Logger logger = Logger.getLogger(NativeMemoryMonitor.class.getName());
+
+    private static volatile long iterations;
+
+    private static volatile long totalBytes;
+
+    private static volatile long totalCount;
+
+    private static volatile long physicalBytes;
+
+    private static volatile long maxTotalBytes;
+
+    private static volatile boolean isLeakSuspected;
+
+    private static long lastWindowCount = -1;
+
+    private static int growingWindows;
+
+    private NativeMemoryMonitor() {}
+
+    /**
+     * Erfasst den nativen Speicher nach einer Iteration des Algorithmus.
+     */
+    static synchronized void record() {
+        final long totalBytes = Pointer.totalBytes();
+        final long totalCount = Pointer.totalCount();
+        NativeMemoryMonitor.totalBytes = totalBytes;
+        NativeMemoryMonitor.totalCount = totalCount;
+        NativeMemoryMonitor.physicalBytes = Pointer.physicalBytes();
+        NativeMemoryMonitor.maxTotalBytes = Math.max(maxTotalBytes, totalBytes);
+        if (++iterations % LEAK_WINDOW_ITERATIONS != 0) return;
+
+        growingWindows = lastWindowCount >= 0 && totalCount > lastWindowCount ? growingWindows + 1 : 0;
+        lastWindowCount = totalCount;
+        if (growingWindows >= LEAK_WINDOWS && !isLeakSuspected) {
+            isLeakSuspected = true;
+            logger.warning("Possible native memory leak: pointer count grew for " + growingWindows + " windows to '" + totalCount
+                    + "', tracked bytes: '" + Pointer.formatBytes(totalBytes) + "'.");
+        }
+        else if (growingWindows == 0)
+            isLeakSuspected = false;
+    }
+
+    /**
+     * Hängt die zuletzt gemessenen Werte im Textformat von Prometheus an.
+     * @param metrics Die Ausgabe.
+     */
+    public static void appendMetrics(@NotNull StringBuilder metrics) {
+        metrics.append("overwatch_native_iterations ").append(iterations).append('\n')
+                .append("overwatch_native_tracked_bytes ").append(totalBytes).append('\n')
+                .append("overwatch_native_tracked_bytes_max ").append(maxTotalBytes).append('\n')
+                .append("overwatch_native_tracked_pointers ").append(totalCount).append('\n')
+                .append("overwatch_native_physical_bytes ").append(physicalBytes).append('\n')
+                .append("overwatch_native_leak_suspected ").append(isLeakSuspected ? 1 : 0).append('\n');
+    }
+}
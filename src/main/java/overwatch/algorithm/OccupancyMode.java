@@ -0,0 +1,72 @@
+package overwatch.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+import overwatch.service.ConfigurationService;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Verfahren, nach welchem ein {@link Algorithm} entscheidet, ob eine Zone aktiv ist.
+ */
+public enum OccupancyMode {
+
+    /**
+     * Objekte werden extrahiert und zusammengeführt. Eine Zone ist aktiv, wenn ein Objekt überwiegend in ihr liegt.
+     */
+    OBJECTS,
+
+    /**
+     * Pro Capture wird eine {@link SummedAreaTable} über die Vordergrundmaske erstellt. Eine Zone ist aktiv,
+     * wenn ihr Anteil an Vordergrundpixeln {@code analyse-occupancy-threshold-percent} erreicht. Objekte werden nicht extrahiert.
+     */
+    INTEGRAL;
+
+    /**
+     * Liest das konfigurierte Verfahren aus. Standard ist {@link #OBJECTS}, auch bei einem unbekannten Wert.
+     * @return Gibt das konfigurierte Verfahren zurück.
+     */
+    public static @NotNull OccupancyMode fromConfiguration() {
+        return ConfigurationService.getEnum(ConfigurationService.Keys.ANALYSE_OCCUPANCY_MODE, OBJECTS);
+    }
+
+    /**
+     * Liest den Mindestanteil an Vordergrundpixeln aus, ab dem eine Zone im Modus {@link #INTEGRAL} aktiv ist.
+     * @return Gibt den Anteil zwischen {@code 0} und {@code 1} zurück.
+     */
+    public static float readThreshold() {
+        return readThreshold(ConfigurationService.snapshot());
+    }
+
+    /**
+     * Liest den Mindestanteil an Vordergrundpixeln aus einer Konfiguration aus, siehe {@link #readThreshold()}.
+     * @param configuration Die Konfiguration.
+     * @return Gibt den Anteil zwischen {@code 0} und {@code 1} zurück.
+     */
+    public static float readThreshold(@NotNull ConfigurationService.Snapshot configuration) {
+        return configuration.getInt(ConfigurationService.Keys.ANALYSE_OCCUPANCY_THRESHOLD_PERCENT) / 100f;
+    }
+
+    /**
+     * Berechnet den Anteil der Vordergrundpixel aller Zonen einer Capture und sammelt die aktiven Zonen.
+     * @param zones Alle Zonen, nur Zonen von {@code capture} werden ausgewertet.
+     * @param capture Die Capture der Tabelle.
+     * @param table Die Tabelle der Capture.
+     * @param threshold Der Mindestanteil, ab dem eine Zone aktiv ist.
+     * @param occupancy Die Ausgabe für den Anteil pro Nummer der Zone.
+     * @param activeZones Die Ausgabe für die aktiven Zonen.
+     * @param <E> Der Typ Zone.
+     */
+    public static <E extends Zone> void collect(@NotNull E[] zones, @NotNull Capture capture, @NotNull SummedAreaTable table, float threshold,
+                                                @NotNull Map<Integer, Float> occupancy, @NotNull Collection<E> activeZones) {
+        for (E zone : zones) {
+            if (!zone.capture().equals(capture)) continue;
+            final float ratio = table.ratio(zone);
+            occupancy.put(zone.nr(), ratio);
+            if (ratio >= threshold)
+                activeZones.add(zone);
+        }
+    }
+}
@@ -1,33 +1,65 @@
 package overwatch.algorithm;
 
 import org.bytedeco.opencv.opencv_core.Mat;
-import org.bytedeco.opencv.opencv_core.MatVector;
-import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.Size;
 import org.bytedeco.opencv.opencv_video.BackgroundSubtractor;
 import org.bytedeco.opencv.opencv_videoio.VideoCapture;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnmodifiableView;
 import overwatch.model.Capture;
 import overwatch.model.Zone;
+import overwatch.service.ConfigurationService;
+import overwatch.simulation.Simulator;
 import overwatch.skeleton.Outline;
+import overwatch.skeleton.OutlineBuffer;
+import overwatch.trace.FrameEvents;
+import overwatch.trace.FrameTrace;
 
+import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.function.BiPredicate;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.logging.Logger;
 
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC3;
 import static org.bytedeco.opencv.global.opencv_imgproc.*;
 import static org.bytedeco.opencv.global.opencv_video.createBackgroundSubtractorMOG2;
-import static overwatch.skeleton.Outline.isIntersecting;
 
 /**
  * Objekterkennung auf Basis von OpenCv.
+ * Physische Kameras werden über {@link VideoCapture} gelesen. Bilder virtueller und simulierter Captures werden stattdessen in jeder Iteration
+ * in das Frame übertragen, diese Umwandlung tritt in Messungen an die Stelle des Dekodierens einer Kamera.
  */
 public final class OpenCvAlgorithm extends Algorithm {
 
+    private static final Logger logger = Logger.getLogger(OpenCvAlgorithm.class.getName());
+
+    /**
+     * Das Bild, welches virtuelle Captures in jeder Iteration liefern.
+     */
+    private static final String VIRTUAL_IMAGE_PATH = "src/main/resources/ImageCurrent.png";
+
+    /**
+     * Mindestlänge der kürzeren Seite der kleinsten Zone in der Arbeitsauflösung, wenn diese automatisch bestimmt wird.
+     */
+    private static final int MIN_WORKING_ZONE_SIDE = 48;
+
+    /**
+     * Die Anzahl der Frames, über welche MOG2 den Hintergrund lernt. Die Lernrate eines Frames beträgt standardmäßig deren Kehrwert.
+     */
+    private static final int MOG2_HISTORY = 1000;
+
     /**
      * Die Auszuwertenden Zonen.
      */
@@ -39,15 +71,40 @@ public final class OpenCvAlgorithm extends Algorithm {
     private final @NotNull OpenCvRessource[] openCvResources;
 
     /**
-     * Grundlage für das zu rendernde Bild.
+     * Das Verfahren zur Extraktion von Objekten aus dem Vordergrund-Frame.
      */
-    private final @NotNull BufferedImage image;
+    private final @NotNull OpenCvDetection detection = OpenCvDetection.fromConfiguration();
+
+    /**
+     * Das Verfahren, nach welchem aktive Zonen bestimmt werden.
+     */
+    private final @NotNull OccupancyMode occupancyMode = OccupancyMode.fromConfiguration();
+
+    /**
+     * Der Farbraum, in dem Frames ausgewertet werden.
+     */
+    private final @NotNull ColorMode colorMode = ColorMode.fromConfiguration();
+
+    /**
+     * Der Mindestanteil an Vordergrundpixeln einer aktiven Zone im {@link OccupancyMode#INTEGRAL}.
+     */
+    private float occupancyThreshold = OccupancyMode.readThreshold();
+
+    /**
+     * Zeichenfläche für die grafische Auswertung.
+     */
+    private final @NotNull PreviewCanvas canvas;
 
     /**
      * Collection mit allen erkannten Objekten im aktuellen Frame.
      */
     private volatile @NotNull @UnmodifiableView Collection<Outline> objects = List.of();
 
+    /**
+     * Die zusammengeführten Objekte aller Ressourcen, wird in jeder Iteration wiederverwendet.
+     */
+    private final @NotNull OutlineBuffer outlines = new OutlineBuffer();
+
     /**
      * Collection mit allen aktiven Zonen. Eine Zone ist aktiv, wenn mindestens ein Objekt in ihr liegt.
      */
@@ -56,122 +113,456 @@ public final class OpenCvAlgorithm extends Algorithm {
     public OpenCvAlgorithm(@NotNull Zone[] zones){
         this.zones = zones;
         final @NotNull Capture[] captures = Arrays.stream(zones).map(Zone::capture).distinct().toArray(Capture[]::new);
-        final @NotNull Outline outerBounds = Outline.compose(captures);
         this.openCvResources = Arrays.stream(captures)
-                .filter(it -> !it.isVirtual())
-                .map(this::createRessource)
+                .map(it -> createRessource(it, zones))
                 .toArray(OpenCvRessource[]::new);
-        this.image = new BufferedImage(outerBounds.width(), outerBounds.height(), BufferedImage.TYPE_INT_RGB);
+        this.canvas = new PreviewCanvas(captures);
     }
 
     /**
      * Erstellt eine neue {@link OpenCvRessource} für eine Capture.
      * @param capture Die Capture für die Ressourcen erstellt werden soll.
+     * @param zones Alle Zonen, aus diesen wird die Arbeitsauflösung abgeleitet.
      * @return Gibt die erstellten Ressourcen zurück.
      */
-    private OpenCvRessource createRessource(Capture capture){
+    private OpenCvRessource createRessource(Capture capture, Zone[] zones){
         return new OpenCvRessource(
                 capture,
-                new VideoCapture(Integer.parseInt(capture.deviceName().substring(capture.deviceName().lastIndexOf("o")+1))),
-                new Mat(),
-                new Mat(),
-                createBackgroundSubtractorMOG2(1000,150,true));
+                capture.isVirtual() || capture.isSimulated()
+                        ? null
+                        : new VideoCapture(Integer.parseInt(capture.deviceName().substring(capture.deviceName().lastIndexOf("o")+1))),
+                capture.isVirtual() ? readVirtualImage(capture) : null,
+                createBackgroundSubtractorMOG2(MOG2_HISTORY,150,true),
+                calculateWorkingWidth(capture, zones),
+                colorMode == ColorMode.LUMA);
     }
 
-    @Override
-    public void close() {
-        Arrays.stream(openCvResources).forEach(it -> {
-            it.captureDevice.close();
-            it.subtract.close();
-            it.foregroundFrame.close();
-            it.sourceFrame.close();
-        });
-        image.flush();
+    /**
+     * Liest das Bild einer virtuellen Capture. Sollte dieses nicht lesbar sein, wird ein schwarzes Bild in der Größe der Capture verwendet.
+     * @param capture Die virtuelle Capture.
+     * @return Gibt das Bild zurück.
+     */
+    private static @NotNull BufferedImage readVirtualImage(Capture capture){
+        try {
+            return ImageIO.read(new File(VIRTUAL_IMAGE_PATH));
+        }
+        catch (IOException e) {
+            logger.severe("Could not read virtual image: " + e.getMessage());
+            return new BufferedImage(capture.width(), capture.height(), BufferedImage.TYPE_INT_RGB);
+        }
     }
 
-    @Override
-    public synchronized @NotNull @UnmodifiableView Collection<Zone> compute() {
-        final List<Outline> outlines = Arrays.stream(openCvResources).parallel().flatMap(it -> {
-            it.captureDevice.read(it.sourceFrame);
-            it.subtract.apply(it.sourceFrame, it.foregroundFrame);
+    /**
+     * Bestimmt die Breite, auf die Frames einer Capture vor der Auswertung herunterskaliert werden.
+     * Vorrang hat die Breite der Capture, danach die Konfiguration. Ist beides nicht gesetzt, wird die Breite so gewählt,
+     * dass die kleinste Zone der Capture noch {@link #MIN_WORKING_ZONE_SIDE} Pixel auf ihrer kürzeren Seite besitzt.
+     * @param capture Die Capture.
+     * @param zones Alle Zonen.
+     * @return Gibt die Arbeitsbreite in Pixeln zurück. Ein Wert kleiner als 1 steht für die native Auflösung.
+     */
+    static int calculateWorkingWidth(Capture capture, Zone[] zones){
+        if(capture.workingWidth() != 0)
+            return capture.workingWidth();
+        final int configuredWidth = ConfigurationService.getInt(ConfigurationService.Keys.ANALYSE_OPENCV_WORKING_WIDTH);
+        if(configuredWidth != 0)
+            return configuredWidth;
 
-            final MatVector contours = new MatVector();
+        final int smallestSide = Arrays.stream(zones)
+                .filter(it -> it.capture().equals(capture))
+                .mapToInt(it -> Math.min(it.width(), it.height()))
+                .min()
+                .orElse(capture.width());
+        final float scale = Math.min(1f, (float) MIN_WORKING_ZONE_SIDE / (float) Math.max(smallestSide, 1));
+        return Math.max(1, Math.round(capture.width() * scale));
+    }
 
-            findContours(it.foregroundFrame, contours, CV_RETR_EXTERNAL, CV_CHAIN_APPROX_NONE);
+    /**
+     * Bestimmt die Lernrate von MOG2 für ein ausgewertetes Frame. Hält das {@link MotionGate} Frames zurück, hat sich die Szene in dieser Zeit
+     * nicht bewegt. Das nächste ausgewertete Frame lernt daher zusätzlich für jedes zurückgehaltene Frame, als wäre es mehrfach angewendet worden.
+     * Ein ruhender Hintergrund wird so unabhängig vom Gate im selben Tempo gelernt, etwa bei langsamen Lichtwechseln.
+     * @param skippedFrames Die Anzahl der seit der letzten Auswertung zurückgehaltenen Frames.
+     * @return Gibt die Lernrate zurück, {@code -1} steht für die Standardrate von MOG2.
+     */
+    static double learningRate(int skippedFrames){
+        if(skippedFrames <= 0)
+            return -1;
+        return Math.min(1.0, (skippedFrames + 1) / (double) MOG2_HISTORY);
+    }
 
-            final float scaleX = (float) it.sourceFrame.cols() / (float) it.capture.width();
-            final float scaleY = (float) it.sourceFrame.rows() / (float) it.capture.height();
-            final Collection<Outline> outlinesPerRessource = new ArrayList<>((int) contours.size());
-            for (int i = 0; i < contours.size(); i++){
-                Rect contour = boundingRect(contours.get(i));
+    @Override
+    public synchronized void applyConfiguration(@NotNull ConfigurationService.Snapshot configuration) {
+        for (OpenCvRessource it : openCvResources)
+            it.motionGate.applyConfiguration(configuration);
+        occupancyThreshold = OccupancyMode.readThreshold(configuration);
+    }
 
-                int x = (int) ((float) contour.x() / scaleX);
-                int y = (int) ((float)contour.y() / scaleY);
-                int width = (int) ((float) contour.width() / scaleX);
-                int height = (int) ((float) contour.height() / scaleY);
-                int area = width * height;
+    @Override
+    public void close() {
+        Arrays.stream(openCvResources).forEach(OpenCvRessource::close);
+        canvas.flush();
+    }
 
-                if(area > SIGNIFICANT_AREA_TO_DETECT)
-                    outlinesPerRessource.add(Outline.of(x, y, width, height));
+    @Override
+    public synchronized @NotNull @UnmodifiableView Collection<Zone> compute() {
+        final long timestamp = System.currentTimeMillis();
+        final boolean isPreviewRequested = isPreviewRequested();
+        final boolean isIntegral = occupancyMode == OccupancyMode.INTEGRAL;
+        Arrays.stream(openCvResources).parallel().forEach(it -> {
+            final FrameEvents.CaptureEvent captureEvent = new FrameEvents.CaptureEvent();
+            captureEvent.begin();
+            it.readFrame();
+            if(captureEvent.shouldCommit()) {
+                captureEvent.frameId = FrameTrace.frameId();
+                captureEvent.deviceName = it.capture.deviceName();
+                captureEvent.commit();
             }
-            return outlinesPerRessource.stream();
-        }).collect(Collectors.toList());
-
-        for (int i = 0; i < outlines.size(); i++){
-            Outline a = outlines.get(i);
-            for (int y = i; y < outlines.size(); y++) {
-                Outline b = outlines.get(y);
-                if(a == b)
-                    continue;
-                if(!isIntersecting(a, b, INTERSECTION_THRESHOLD))
-                    continue;
-                a = Outline.compose(a, b);
-                outlines.remove(y--);
+            final boolean isAnalysed = it.isAnalyseRequired(timestamp);
+            if(isAnalysed) {
+                it.subtract.apply(it.prepareFrame(), it.foregroundFrame, learningRate(it.skippedFrames));
+                it.skippedFrames = 0;
+                if(isIntegral)
+                    it.updateTable();
+                else
+                    findOutlines(it);
             }
-            outlines.set(i, a);
+            else
+                it.skippedFrames++;
+            it.updateMask(isPreviewRequested, isAnalysed);
+        });
+
+        outlines.clear();
+        for (OpenCvRessource it : openCvResources)
+            outlines.addAll(it.outlines);
+        outlines.mergeIntersecting(INTERSECTION_THRESHOLD);
+        this.objects = Collections.unmodifiableList(outlines.toList());
+        if(isIntegral) {
+            final Map<Integer, Float> occupancy = new HashMap<>();
+            final List<Zone> activeZones = new ArrayList<>();
+            for (OpenCvRessource it : openCvResources)
+                if(it.table != null)
+                    OccupancyMode.collect(zones, it.capture, it.table, occupancyThreshold, occupancy, activeZones);
+            this.activeZones = Collections.unmodifiableList(activeZones);
+            publish(createPixelMask(), objects, this.activeZones, Collections.unmodifiableMap(occupancy));
+        }
+        else {
+            this.activeZones = findActiveZones(zones, outlines);
+            publish(createPixelMask(), objects, activeZones);
         }
-        this.objects = outlines;
-        this.activeZones = findActiveZones(zones, outlines).toList();
+        NativeMemoryMonitor.record();
         return activeZones;
     }
 
-    @Override
-    public synchronized @NotNull BufferedImage computeImage() {
-        final @NotNull @UnmodifiableView Collection<Outline> outlines = this.objects;
-        final @NotNull @UnmodifiableView Collection<Zone> zonesWithObjects = this.activeZones;
-        final BiPredicate<Integer, Integer> isPixelModified = (x, y) -> {
-            OpenCvRessource ressource = findRessourceForPosition(x,y);
-            final float scaleX = (float) ressource.sourceFrame.cols() / (float) ressource.capture.width();
-            final float scaleY = (float) ressource.sourceFrame.rows() / (float) ressource.capture.height();
-            return ressource.foregroundFrame.ptr((int)(y * scaleY),(int)(x * scaleX)).get() > 0;
+    /**
+     * Findet alle Objekte im aktuellen Vordergrund-Frame einer Ressource mit dem konfigurierten {@link OpenCvDetection}-Verfahren
+     * und legt deren Umrisse in absoluten Koordinaten in {@link OpenCvRessource#outlines} ab.
+     * @param it Die auszuwertende Ressource.
+     */
+    private void findOutlines(OpenCvRessource it){
+        final float scaleX = (float) it.foregroundFrame.cols() / (float) it.capture.width();
+        final float scaleY = (float) it.foregroundFrame.rows() / (float) it.capture.height();
+        it.outlines.clear();
+        detection.extract(it.foregroundFrame, it.detectionBuffers, scaleX, scaleY, it.outlines);
+        // Umrechnung in absolute Koordinaten.
+        it.outlines.translate(it.capture.x(), it.capture.y());
+    }
+
+    /**
+     * Erstellt eine unveränderliche Maske aus den zuletzt kopierten Vordergrund-Frames aller Ressourcen.
+     * @return Gibt die Maske zurück.
+     */
+    private @NotNull AnalysisSnapshot.PixelMask createPixelMask(){
+        final ForegroundMask[] masks = Arrays.stream(openCvResources)
+                .map(it -> it.mask)
+                .filter(Objects::nonNull)
+                .toArray(ForegroundMask[]::new);
+        if(masks.length == 0)
+            return AnalysisSnapshot.PixelMask.EMPTY;
+        return (x, y) -> {
+            for (ForegroundMask mask : masks)
+                if(mask.contains(x, y))
+                    return mask.isModified(x, y);
+            return false;
         };
+    }
+
+    @Override
+    public @NotNull BufferedImage computeImage() {
+        return canvas.render(requestPreview(), zones);
+    }
 
-        renderImage(image, isPixelModified, zones, zonesWithObjects, outlines);
-        return image;
+    @Override
+    public <T> T computeImage(@NotNull Function<? super BufferedImage, T> reader) {
+        return canvas.render(requestPreview(), zones, reader);
+    }
+
+    @Override
+    public @NotNull BufferedImage computeImage(@NotNull Outline region, int maxWidth) {
+        return renderImage(requestPreview(), zones, region, maxWidth);
     }
 
     /**
-     * Findet zu einer Position eine {@link OpenCvRessource}.
-     * @param x Die Position auf der x-Achse.
-     * @param y Die Position auf der y-Achse.
-     * @return Gibt die gefundene Ressource zurück.
+     * Unveränderliche Kopie eines Vordergrund-Frames.
+     * @param capture Die zugehörige Capture.
+     * @param cols Die Breite des Frames.
+     * @param rows Die Höhe des Frames.
+     * @param data Die Pixel des Frames, zeilenweise.
      */
-    private @NotNull OpenCvRessource findRessourceForPosition(final int x, final int y) {
-        for (OpenCvRessource openCvResource : openCvResources) {
-            final Capture capture = openCvResource.capture;
-            if (capture.x() <= x && x <= capture.endX() && capture.y() <= y && y <= capture.endY())
-                return openCvResource;
+    private record ForegroundMask(Capture capture, int cols, int rows, byte[] data) {
+
+        private boolean contains(int x, int y) {
+            return capture.x() <= x && x <= capture.endX() && capture.y() <= y && y <= capture.endY();
+        }
+
+        private boolean isModified(int x, int y) {
+            final int col = (int) ((long) (x - capture.x()) * cols / capture.width());
+            final int row = (int) ((long) (y - capture.y()) * rows / capture.height());
+            return data[col + row * cols] != 0;
         }
-        throw new IllegalStateException("Pixel is not in any capture. Please take a look at the calling code.");
     }
 
     /**
      * Wrapper für native OpenCv Ressourcen. Diese Ressourcen werden pro {@link Capture} erstellt und müssen wieder freigegeben werden nach Verwendung.
-     * @param capture Die Capture.
-     * @param captureDevice Das OpenCv VideoCapture.
-     * @param sourceFrame Das aktuelle Frame.
-     * @param foregroundFrame Das aktuelle Vordergrund-Frame.
-     * @param subtract Der verwendete Algorithmus für die Hintergrundsubtraktion.
      */
-    private record OpenCvRessource(Capture capture, VideoCapture captureDevice, Mat sourceFrame, Mat foregroundFrame, BackgroundSubtractor subtract) {}
+    private static final class OpenCvRessource {
+
+        /**
+         * Die Capture.
+         */
+        private final Capture capture;
+
+        /**
+         * Das OpenCv VideoCapture, {@code null} für virtuelle und simulierte Captures.
+         */
+        private final @Nullable VideoCapture captureDevice;
+
+        /**
+         * Das Bild einer virtuellen Capture, sonst {@code null}.
+         */
+        private final @Nullable BufferedImage virtualImage;
+
+        /**
+         * Puffer für die Pixel eines Bildes virtueller und simulierter Captures, als RGB und als BGR für OpenCv.
+         */
+        private int[] imagePixels = new int[0];
+
+        private byte[] imageBytes = new byte[0];
+
+        /**
+         * Das aktuelle Frame in nativer Auflösung.
+         */
+        private final Mat sourceFrame = new Mat();
+
+        /**
+         * Das aktuelle Frame in Arbeitsauflösung. Wird über alle Iterationen wiederverwendet.
+         */
+        private final Mat workingFrame = new Mat();
+
+        /**
+         * Das aktuelle Frame in Arbeitsauflösung als Graustufen im {@link ColorMode#LUMA}. Wird über alle Iterationen wiederverwendet.
+         */
+        private final Mat lumaFrame = new Mat();
+
+        /**
+         * Das aktuelle Vordergrund-Frame in Arbeitsauflösung.
+         */
+        private final Mat foregroundFrame = new Mat();
+
+        /**
+         * Der verwendete Algorithmus für die Hintergrundsubtraktion.
+         */
+        private final BackgroundSubtractor subtract;
+
+        /**
+         * Die Puffer für die Objekterkennung. Werden über alle Iterationen wiederverwendet.
+         */
+        private final OpenCvDetection.Buffers detectionBuffers = new OpenCvDetection.Buffers();
+
+        /**
+         * Verkleinertes Frame für {@link #motionGate}.
+         */
+        private final Mat thumbnailFrame = new Mat();
+
+        private final Size thumbnailSize = new Size(MotionGate.THUMBNAIL_WIDTH, MotionGate.THUMBNAIL_HEIGHT);
+
+        private final byte[] thumbnailBytes = new byte[MotionGate.THUMBNAIL_WIDTH * MotionGate.THUMBNAIL_HEIGHT * 3];
+
+        private final MotionGate motionGate = MotionGate.create();
+
+        /**
+         * Die Anzahl der von {@link #motionGate} seit der letzten Auswertung zurückgehaltenen Frames, siehe {@link #learningRate(int)}.
+         */
+        private int skippedFrames;
+
+        /**
+         * Summenflächentabelle des Vordergrund-Frames im {@link OccupancyMode#INTEGRAL}, wird mit dem ersten Frame angelegt.
+         */
+        private @Nullable SummedAreaTable table;
+
+        /**
+         * Puffer für das Vordergrund-Frame im {@link OccupancyMode#INTEGRAL}.
+         */
+        private byte[] foregroundBytes = new byte[0];
+
+        /**
+         * Die erkannten Objekte der letzten vollständigen Auswertung in absoluten Koordinaten.
+         */
+        private final OutlineBuffer outlines = new OutlineBuffer();
+
+        /**
+         * Kopie des Vordergrund-Frames der letzten Auswertung, solange Darstellungen angefordert werden.
+         */
+        private volatile @Nullable ForegroundMask mask;
+
+        /**
+         * Die gewünschte Breite der Arbeitsauflösung. Ein Wert kleiner als 1 steht für die native Auflösung.
+         */
+        private final int workingWidth;
+
+        /**
+         * Gibt an, ob Frames vor der Hintergrundsubtraktion in Graustufen umgewandelt werden.
+         */
+        private final boolean isLuma;
+
+        /**
+         * Die Arbeitsauflösung, wird mit dem ersten Frame bestimmt.
+         */
+        private @Nullable Size workingSize;
+
+        private OpenCvRessource(Capture capture, @Nullable VideoCapture captureDevice, @Nullable BufferedImage virtualImage,
+                                BackgroundSubtractor subtract, int workingWidth, boolean isLuma) {
+            this.capture = capture;
+            this.captureDevice = captureDevice;
+            this.virtualImage = virtualImage;
+            this.subtract = subtract;
+            this.workingWidth = workingWidth;
+            this.isLuma = isLuma;
+        }
+
+        /**
+         * Liest das aktuelle Frame in {@link #sourceFrame}. Virtuelle und simulierte Captures liefern ein {@link BufferedImage},
+         * welches in ein Frame mit drei Kanälen in BGR übertragen wird.
+         */
+        private void readFrame() {
+            if(captureDevice != null) {
+                captureDevice.read(sourceFrame);
+                return;
+            }
+            final BufferedImage image = virtualImage != null ? virtualImage : Simulator.render(capture, false);
+            final int cols = image.getWidth();
+            final int rows = image.getHeight();
+            final int length = cols * rows;
+            if(imageBytes.length < length * 3)
+                imageBytes = new byte[length * 3];
+            final int[] pixels;
+            if(image.getType() == BufferedImage.TYPE_INT_RGB && image.getRaster().getDataBuffer() instanceof DataBufferInt buffer
+                    && buffer.getData().length == length)
+                pixels = buffer.getData();
+            else {
+                if(imagePixels.length < length)
+                    imagePixels = new int[length];
+                pixels = image.getRGB(0, 0, cols, rows, imagePixels, 0, cols);
+            }
+            for (int i = 0; i < length; i++) {
+                final int pixel = pixels[i];
+                imageBytes[i * 3] = (byte) pixel;
+                imageBytes[i * 3 + 1] = (byte) (pixel >> 8);
+                imageBytes[i * 3 + 2] = (byte) (pixel >> 16);
+            }
+            sourceFrame.create(rows, cols, CV_8UC3);
+            sourceFrame.data().put(imageBytes, 0, length * 3);
+        }
+
+        /**
+         * Skaliert das aktuelle Frame auf die Arbeitsauflösung herunter und wandelt es im {@link ColorMode#LUMA} in Graustufen um.
+         * Skaliert wird vor der Umwandlung, sodass diese nur auf der Arbeitsauflösung erfolgt.
+         * @return Gibt das auszuwertende Frame zurück. Ist keine Umwandlung notwendig, ist dies {@link #sourceFrame}.
+         */
+        private Mat prepareFrame() {
+            final Mat frame = scaleFrame();
+            if(!isLuma || frame.channels() == 1)
+                return frame;
+            cvtColor(frame, lumaFrame, COLOR_BGR2GRAY);
+            return lumaFrame;
+        }
+
+        private Mat scaleFrame() {
+            final int cols = sourceFrame.cols();
+            final int rows = sourceFrame.rows();
+            if(workingWidth < 1 || workingWidth >= cols || cols == 0)
+                return sourceFrame;
+            if(workingSize == null)
+                workingSize = new Size(workingWidth, Math.max(1, Math.round((float) rows * workingWidth / cols)));
+            resize(sourceFrame, workingFrame, workingSize, 0, 0, INTER_AREA);
+            return workingFrame;
+        }
+
+        /**
+         * Prüft anhand von {@link #motionGate}, ob das aktuelle Frame vollständig ausgewertet werden muss.
+         * @param timestamp Der aktuelle Zeitpunkt in Millisekunden.
+         * @return Gibt {@code true} zurück, wenn das Frame ausgewertet werden muss.
+         */
+        private boolean isAnalyseRequired(long timestamp) {
+            if(!motionGate.isEnabled() || sourceFrame.empty())
+                return true;
+            resize(sourceFrame, thumbnailFrame, thumbnailSize, 0, 0, INTER_AREA);
+            final int[] luma = motionGate.luma();
+            final int channels = Math.min(thumbnailFrame.channels(), 3);
+            thumbnailFrame.data().get(thumbnailBytes, 0, luma.length * channels);
+            for (int i = 0; i < luma.length; i++) {
+                // OpenCv speichert Farben als BGR.
+                luma[i] = channels == 3
+                        ? MotionGate.luma(thumbnailBytes[i * 3 + 2] & 0xff, thumbnailBytes[i * 3 + 1] & 0xff, thumbnailBytes[i * 3] & 0xff)
+                        : thumbnailBytes[i] & 0xff;
+            }
+            return motionGate.update(timestamp);
+        }
+
+        /**
+         * Aktualisiert {@link #mask}. Das Vordergrund-Frame wird nur kopiert, wenn Darstellungen angefordert werden und es neu berechnet wurde.
+         * @param isPreviewRequested Gibt an, ob Darstellungen angefordert werden.
+         * @param isAnalysed Gibt an, ob das Vordergrund-Frame in dieser Iteration neu berechnet wurde.
+         */
+        private void updateMask(boolean isPreviewRequested, boolean isAnalysed) {
+            if(!isPreviewRequested || foregroundFrame.empty()) {
+                mask = null;
+                return;
+            }
+            if(!isAnalysed && mask != null)
+                return;
+            final int cols = foregroundFrame.cols();
+            final int rows = foregroundFrame.rows();
+            final byte[] data = new byte[cols * rows];
+            foregroundFrame.data().get(data);
+            mask = new ForegroundMask(capture, cols, rows, data);
+        }
+
+        /**
+         * Berechnet {@link #table} aus dem aktuellen Vordergrund-Frame. Schatten (Wert 127 bei MOG2) zählen nicht zum Vordergrund.
+         */
+        private void updateTable() {
+            final int cols = foregroundFrame.cols();
+            final int rows = foregroundFrame.rows();
+            if(table == null || table.width() != cols || table.height() != rows) {
+                table = new SummedAreaTable(cols, rows);
+                foregroundBytes = new byte[cols * rows];
+            }
+            foregroundFrame.data().get(foregroundBytes);
+            table.update(foregroundBytes, 255);
+        }
+
+        private void close() {
+            if(captureDevice != null)
+                captureDevice.close();
+            thumbnailFrame.close();
+            thumbnailSize.close();
+            detectionBuffers.close();
+            subtract.close();
+            foregroundFrame.close();
+            lumaFrame.close();
+            workingFrame.close();
+            sourceFrame.close();
+            if(workingSize != null)
+                workingSize.close();
+        }
+    }
 }
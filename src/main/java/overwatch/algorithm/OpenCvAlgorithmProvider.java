@@ -0,0 +1,21 @@
+package overwatch.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.model.Zone;
+
+/**
+ * Stellt den {@link OpenCvAlgorithm} unter dem Namen {@code opencv} bereit.
+ * OpenCv-Klassen werden erst beim Erstellen einer Instanz geladen.
+ */
+public final class OpenCvAlgorithmProvider implements AlgorithmProvider {
+
+    @Override
+    public @NotNull String name() {
+        return "opencv";
+    }
+
+    @Override
+    public @NotNull Algorithm create(@NotNull Zone[] zones) {
+        return new OpenCvAlgorithm(zones);
+    }
+}
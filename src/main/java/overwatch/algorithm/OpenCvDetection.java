@@ -0,0 +1,114 @@
+package overwatch.algorithm;
+
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.javacpp.PointerScope;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.MatVector;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.jetbrains.annotations.NotNull;
+import overwatch.service.ConfigurationService;
+import overwatch.skeleton.OutlineBuffer;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_32S;
+import static org.bytedeco.opencv.global.opencv_imgproc.*;
+
+/**
+ * Verfahren, mit denen der {@link OpenCvAlgorithm} Objekte aus einem Vordergrund-Frame extrahiert.
+ */
+enum OpenCvDetection {
+
+    /**
+     * Findet die äußeren Konturen aller Objekte und bestimmt deren Umrisse einzeln über {@code boundingRect}.
+     */
+    CONTOURS {
+        @Override
+        @SuppressWarnings("try")
+        void extract(@NotNull Mat foreground, @NotNull Buffers buffers, float scaleX, float scaleY, @NotNull OutlineBuffer outlines) {
+            // Der Bereich wird nur geöffnet, damit die in der Schleife erzeugten Zeiger an seinem Ende freigegeben werden.
+            try (PointerScope ignored = new PointerScope()) {
+                findContours(foreground, buffers.contours, CV_RETR_EXTERNAL, CV_CHAIN_APPROX_NONE);
+
+                final long size = buffers.contours.size();
+                for (long i = 0; i < size; i++) {
+                    Rect contour = boundingRect(buffers.contours.get(i));
+                    addIfSignificant(contour.x(), contour.y(), contour.width(), contour.height(), scaleX, scaleY, outlines);
+                }
+            }
+        }
+    },
+
+    /**
+     * Bestimmt alle zusammenhängenden Komponenten inklusive ihrer Umrisse in einem einzigen nativen Aufruf.
+     * Die Statistiken werden als Block ausgelesen und in Java gefiltert.
+     */
+    COMPONENTS {
+        @Override
+        void extract(@NotNull Mat foreground, @NotNull Buffers buffers, float scaleX, float scaleY, @NotNull OutlineBuffer outlines) {
+            final int count = connectedComponentsWithStats(foreground, buffers.labels, buffers.stats, buffers.centroids, 8, CV_32S);
+            final int length = count * CC_STAT_MAX;
+            if (buffers.statsBuffer.length < length)
+                buffers.statsBuffer = new int[length];
+            final int[] stats = buffers.statsBuffer;
+            try (IntPointer pointer = new IntPointer(buffers.stats.data())) {
+                pointer.get(stats, 0, length);
+            }
+
+            // Label 0 ist der Hintergrund.
+            for (int i = 1; i < count; i++) {
+                final int offset = i * CC_STAT_MAX;
+                addIfSignificant(stats[offset + CC_STAT_LEFT], stats[offset + CC_STAT_TOP], stats[offset + CC_STAT_WIDTH], stats[offset + CC_STAT_HEIGHT], scaleX, scaleY, outlines);
+            }
+        }
+    };
+
+    /**
+     * Extrahiert alle signifikanten Objekte aus einem Vordergrund-Frame.
+     * @param foreground Das Vordergrund-Frame.
+     * @param buffers Die wiederzuverwendenden Puffer der Capture.
+     * @param scaleX Das Verhältnis von Frame-Breite zu Capture-Breite.
+     * @param scaleY Das Verhältnis von Frame-Höhe zu Capture-Höhe.
+     * @param outlines Die Ausgabe für die gefundenen Umrisse in Koordinaten der Capture.
+     */
+    abstract void extract(@NotNull Mat foreground, @NotNull Buffers buffers, float scaleX, float scaleY, @NotNull OutlineBuffer outlines);
+
+    /**
+     * Liest das konfigurierte Verfahren aus. Standard ist {@link #CONTOURS}, auch bei einem unbekannten Wert.
+     * @return Gibt das konfigurierte Verfahren zurück.
+     */
+    static @NotNull OpenCvDetection fromConfiguration() {
+        return ConfigurationService.getEnum(ConfigurationService.Keys.ANALYSE_OPENCV_DETECTION, CONTOURS);
+    }
+
+    private static void addIfSignificant(int x, int y, int width, int height, float scaleX, float scaleY, OutlineBuffer outlines) {
+        x = (int) ((float) x / scaleX);
+        y = (int) ((float) y / scaleY);
+        width = (int) ((float) width / scaleX);
+        height = (int) ((float) height / scaleY);
+        if (width * height > Algorithm.SIGNIFICANT_AREA_TO_DETECT)
+            outlines.add(x, y, width, height);
+    }
+
+    /**
+     * Native Puffer, welche pro Capture einmal angelegt und in jeder Iteration wiederverwendet werden.
+     */
+    static final class Buffers implements AutoCloseable {
+
+        private final MatVector contours = new MatVector();
+
+        private final Mat labels = new Mat();
+
+        private final Mat stats = new Mat();
+
+        private final Mat centroids = new Mat();
+
+        private int[] statsBuffer = new int[0];
+
+        @Override
+        public void close() {
+            contours.close();
+            labels.close();
+            stats.close();
+            centroids.close();
+        }
+    }
+}
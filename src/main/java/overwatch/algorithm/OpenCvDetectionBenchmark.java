@@ -0,0 +1,69 @@
+package overwatch.algorithm;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Point;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.openjdk.jmh.annotations.*;
+import overwatch.skeleton.OutlineBuffer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.bytedeco.opencv.global.opencv_imgproc.rectangle;
+
+/**
+ * Vergleicht die Verfahren aus {@link OpenCvDetection} auf einer synthetischen 1080p-Vordergrundmaske mit Fahrzeugen und Rauschen.
+ * Ausführung über {@link overwatch.BenchmarkRunner} mit dem Argument {@code OpenCvDetectionBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenCvDetectionBenchmark {
+
+    @Param({"CONTOURS", "COMPONENTS"})
+    public String detection;
+
+    private Mat foreground;
+
+    private OpenCvDetection.Buffers buffers;
+
+    private OpenCvDetection method;
+
+    private final OutlineBuffer outlines = new OutlineBuffer();
+
+    @Setup
+    public void setup() {
+        method = OpenCvDetection.valueOf(detection);
+        buffers = new OpenCvDetection.Buffers();
+        foreground = new Mat(1080, 1920, CV_8UC1, new Scalar(0.0));
+        final Random random = new Random(42);
+        final Scalar white = new Scalar(255.0);
+        // Fahrzeuge
+        for (int i = 0; i < 40; i++) {
+            int x = random.nextInt(1700), y = random.nextInt(900);
+            rectangle(foreground, new Point(x, y), new Point(x + 120 + random.nextInt(80), y + 60 + random.nextInt(80)), white, -1, 8, 0);
+        }
+        // Rauschen
+        for (int i = 0; i < 2000; i++) {
+            int x = random.nextInt(1916), y = random.nextInt(1076);
+            rectangle(foreground, new Point(x, y), new Point(x + random.nextInt(3), y + random.nextInt(3)), white, -1, 8, 0);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffers.close();
+        foreground.close();
+    }
+
+    @Benchmark
+    public int extract() {
+        outlines.clear();
+        method.extract(foreground, buffers, 1f, 1f, outlines);
+        return outlines.size();
+    }
+}
@@ -0,0 +1,151 @@
+package overwatch.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+import overwatch.skeleton.Outline;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import static overwatch.algorithm.Algorithm.*;
+import static overwatch.skeleton.Outline.isIntersecting;
+
+/**
+ * Zeichenfläche für die grafische Auswertung mit einem eigenen Puffer pro Capture.
+ * Die Puffer werden erst mit der ersten angeforderten Darstellung angelegt, das Gesamtbild wird bei jeder Anfrage aus diesen zusammengesetzt
+ * und danach wieder verworfen.
+ * Der dauerhaft belegte Speicher hängt dadurch von der Anzahl der Kamerapixel ab, nicht von der Ausdehnung der Anordnung aller Captures.
+ */
+public final class PreviewCanvas {
+
+    /**
+     * Die dargestellten Captures.
+     */
+    private final @NotNull Capture[] captures;
+
+    /**
+     * Die Puffer der Captures, gleicher Index wie {@link #captures}. Ein Eintrag ist {@code null}, solange nichts gezeichnet wurde.
+     */
+    private final @Nullable BufferedImage[] buffers;
+
+    /**
+     * Der Rahmen um alle Captures.
+     */
+    private final @NotNull Outline outerBounds;
+
+    /**
+     * Erstellt eine Zeichenfläche, ohne Puffer anzulegen.
+     * @param captures Die darzustellenden Captures.
+     */
+    public PreviewCanvas(@NotNull Capture[] captures) {
+        this.captures = captures;
+        this.buffers = new BufferedImage[captures.length];
+        this.outerBounds = Outline.compose(captures);
+    }
+
+    /**
+     * Erstellt eine Zeichenfläche für die Captures aller Zonen.
+     * @param zones Die darzustellenden Zonen.
+     */
+    public PreviewCanvas(@NotNull Zone[] zones) {
+        this(Arrays.stream(zones).map(Zone::capture).distinct().toArray(Capture[]::new));
+    }
+
+    /**
+     * Zeichnet ein Ergebnis in die Puffer aller Captures und setzt daraus ein neues Gesamtbild zusammen.
+     * Wie bisher entsprechen die Koordinaten im Bild den absoluten Koordinaten, das Bild ist so groß wie der Rahmen um alle Captures.
+     * @param snapshot Das darzustellende Ergebnis.
+     * @param zones Die ausgewerteten Zonen.
+     * @return Gibt ein neues Bild zurück.
+     */
+    public @NotNull BufferedImage render(@NotNull AnalysisSnapshot snapshot, @NotNull Zone[] zones) {
+        return render(snapshot, zones, image -> image);
+    }
+
+    /**
+     * Zeichnet ein Ergebnis in die Puffer aller Captures, setzt daraus das Gesamtbild zusammen und übergibt es an {@code reader}.
+     * Das Gesamtbild wird nur für diesen Aufruf angelegt, sodass nach der Rückkehr nur die Puffer der Captures belegt bleiben,
+     * sofern {@code reader} es nicht selbst behält.
+     * @param snapshot Das darzustellende Ergebnis.
+     * @param zones Die ausgewerteten Zonen.
+     * @param reader Liest das Gesamtbild aus, etwa zum Kodieren oder Zeichnen.
+     * @return Gibt das Ergebnis von {@code reader} zurück.
+     */
+    public synchronized <T> T render(@NotNull AnalysisSnapshot snapshot, @NotNull Zone[] zones, @NotNull Function<? super BufferedImage, T> reader) {
+        final BufferedImage image = new BufferedImage(outerBounds.width(), outerBounds.height(), BufferedImage.TYPE_INT_RGB);
+        final Graphics graphics = image.getGraphics();
+        graphics.setColor(UNMODIFIED_PIXEL_COLOR);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        for (int i = 0; i < captures.length; i++)
+            graphics.drawImage(render(i, snapshot, zones), captures[i].x(), captures[i].y(), null);
+        graphics.dispose();
+        return reader.apply(image);
+    }
+
+    /**
+     * Zeichnet ein Ergebnis in den Puffer einer Capture. Der Puffer wird beim ersten Aufruf angelegt.
+     * @param index Der Index der Capture.
+     * @param snapshot Das darzustellende Ergebnis.
+     * @param zones Die ausgewerteten Zonen.
+     * @return Gibt den Puffer zurück.
+     */
+    private @NotNull BufferedImage render(int index, @NotNull AnalysisSnapshot snapshot, @NotNull Zone[] zones) {
+        final Capture capture = captures[index];
+        BufferedImage buffer = buffers[index];
+        if (buffer == null)
+            buffer = buffers[index] = new BufferedImage(capture.width(), capture.height(), BufferedImage.TYPE_INT_RGB);
+
+        final Graphics2D graphics = buffer.createGraphics();
+        graphics.setColor(UNMODIFIED_PIXEL_COLOR);
+        graphics.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
+        graphics.translate(-capture.x(), -capture.y());
+
+        graphics.setColor(ACTIVE_ZONE_COLOR);
+        snapshot.activeZones().stream()
+                .filter(it -> isIntersecting(capture, it))
+                .forEach(it -> graphics.fillRect(it.x(), it.y(), it.width(), it.height()));
+
+        final int modifiedColor = MODIFIED_PIXEL_COLOR.getRGB();
+        for (Outline object : snapshot.objects()) {
+            if (!isIntersecting(capture, object))
+                continue;
+            final int endX = Math.min(object.endX(), capture.endX());
+            final int endY = Math.min(object.endY(), capture.endY());
+            for (int y = Math.max(object.y(), capture.y()); y <= endY; y++)
+                for (int x = Math.max(object.x(), capture.x()); x <= endX; x++)
+                    if (snapshot.mask().isModified(x, y))
+                        buffer.setRGB(x - capture.x(), y - capture.y(), modifiedColor);
+        }
+
+        graphics.setColor(OBJECT_OUTLINE_COLOR);
+        snapshot.objects().stream()
+                .filter(it -> isIntersecting(capture, it))
+                .forEach(it -> graphics.drawRect(it.x(), it.y(), it.width(), it.height()));
+
+        graphics.setColor(ZONE_BOUNDS_COLOR);
+        Arrays.stream(zones)
+                .filter(it -> isIntersecting(capture, it))
+                .forEach(it -> {
+                    graphics.drawRect(it.x(), it.y(), it.width(), it.height());
+                    graphics.drawString(Integer.toString(it.nr()), it.x() + 5, it.y() + 10);
+                });
+        graphics.dispose();
+        return buffer;
+    }
+
+    /**
+     * Gibt alle Puffer frei. Diese werden mit der nächsten Darstellung erneut angelegt.
+     */
+    public synchronized void flush() {
+        for (int i = 0; i < buffers.length; i++) {
+            final BufferedImage buffer = buffers[i];
+            if (buffer != null)
+                buffer.flush();
+            buffers[i] = null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package overwatch.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.model.Zone;
+
+/**
+ * Summenflächentabelle über einer Vordergrundmaske. Die Anzahl der Vordergrundpixel eines beliebigen Rechtecks
+ * wird mit vier Zugriffen bestimmt, unabhängig von dessen Größe und der Anzahl der Objekte.
+ */
+public final class SummedAreaTable {
+
+    private final int width;
+
+    private final int height;
+
+    /**
+     * Die Summen mit einer zusätzlichen Zeile und Spalte aus Nullen, zeilenweise mit der Breite {@code width + 1}.
+     */
+    private final int[] sums;
+
+    /**
+     * Erstellt eine leere Tabelle.
+     * @param width Die Breite der Maske.
+     * @param height Die Höhe der Maske.
+     */
+    public SummedAreaTable(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.sums = new int[(width + 1) * (height + 1)];
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Berechnet die Tabelle aus einer Maske neu.
+     * @param mask Die Maske, zeilenweise mit der Breite dieser Tabelle.
+     * @param minValue Der vorzeichenlose Mindestwert, ab dem ein Pixel zum Vordergrund zählt.
+     */
+    public void update(byte @NotNull [] mask, int minValue) {
+        final int stride = width + 1;
+        for (int y = 0; y < height; y++) {
+            int rowSum = 0;
+            final int offset = (y + 1) * stride;
+            for (int x = 0; x < width; x++) {
+                if ((mask[x + y * width] & 0xff) >= minValue)
+                    rowSum++;
+                sums[offset + x + 1] = sums[offset - stride + x + 1] + rowSum;
+            }
+        }
+    }
+
+    /**
+     * Zählt die Vordergrundpixel innerhalb eines Rechtecks. Teile außerhalb der Maske werden ignoriert.
+     * @param x Die Position auf der x-Achse.
+     * @param y Die Position auf der y-Achse.
+     * @param width Die Breite.
+     * @param height Die Höhe.
+     * @return Gibt die Anzahl der Vordergrundpixel zurück.
+     */
+    public int sum(int x, int y, int width, int height) {
+        final int x0 = Math.max(0, x), y0 = Math.max(0, y);
+        final int x1 = Math.min(this.width, x + width), y1 = Math.min(this.height, y + height);
+        if (x0 >= x1 || y0 >= y1) return 0;
+        final int stride = this.width + 1;
+        return sums[y1 * stride + x1] - sums[y0 * stride + x1] - sums[y1 * stride + x0] + sums[y0 * stride + x0];
+    }
+
+    /**
+     * Berechnet den Anteil der Vordergrundpixel einer Zone. Die Maske deckt die gesamte Capture der Zone ab, darf aber herunterskaliert sein.
+     * @param zone Die Zone.
+     * @return Gibt den Anteil zwischen {@code 0} und {@code 1} zurück.
+     */
+    public float ratio(@NotNull Zone zone) {
+        final float scaleX = (float) width / zone.capture().width();
+        final float scaleY = (float) height / zone.capture().height();
+        final int x0 = (int) (zone.offsetX() * scaleX), y0 = (int) (zone.offsetY() * scaleY);
+        final int x1 = Math.max(x0 + 1, (int) Math.ceil((zone.offsetX() + zone.width()) * scaleX));
+        final int y1 = Math.max(y0 + 1, (int) Math.ceil((zone.offsetY() + zone.height()) * scaleY));
+        return (float) sum(x0, y0, x1 - x0, y1 - y0) / ((x1 - x0) * (y1 - y0));
+    }
+}
@@ -0,0 +1,341 @@
+package overwatch.algorithm.dongle;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.skeleton.OutlineBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Max-gepoolte Pyramide der Veränderungen eines Bereichs einer Zone, mit der {@link DongleAlgorithm} Objekte von grob nach fein sucht.
+ * Die unterste Ebene tastet den Bereich in einem Raster ab, dessen Abstand aus der Mindestgröße eines Objekts folgt. Jede weitere Ebene fasst
+ * 2x2 Zellen der vorherigen zusammen und ist verändert, sobald eine davon verändert ist. Die Pyramide endet auf der Ebene, deren Zellen
+ * höchstens {@link #COARSE_CELL_SIZE} Pixel groß sind. Kandidaten sind zusammenhängende veränderte Zellen dieser Ebene, abgestiegen wird
+ * nur in veränderte Zellen. Ein Kandidat kann mehrere nahe beieinander liegende Objekte enthalten, diese werden erst im Raster getrennt.
+ * Die Umrisse werden zuletzt an den Rändern pixelgenau bestimmt.
+ * <p>
+ * Das Raster selbst wird vollständig abgetastet, da nur so jedes Objekt der Mindestgröße getroffen wird. Die Pyramide spart den Aufwand
+ * bei der Suche: Unveränderte Zellen der obersten Ebene werden nicht weiter betrachtet, der übrige Aufwand hängt von der veränderten Fläche ab
+ * und nicht von der Länge der Wege um ein Objekt.
+ * <p>
+ * Eine Instanz wird für alle Bereiche wiederverwendet, die Ebenen und Arbeitsstapel wachsen nur bei Bedarf. Nicht threadsicher.
+ */
+final class ChangePyramid {
+
+    /**
+     * Prüft, ob ein Pixel modifiziert ist. Wird von {@link DongleProcessableZone} implementiert, sodass pro Zone kein eigenes Objekt entsteht.
+     */
+    @FunctionalInterface
+    interface PixelTest {
+
+        /**
+         * @param x Die Position auf der x-Achse relativ zum Ursprung des Rasters.
+         * @param y Die Position auf der y-Achse relativ zum Ursprung des Rasters.
+         * @return Gibt {@code true} zurück, wenn der Pixel modifiziert ist.
+         */
+        boolean isModified(int x, int y);
+    }
+
+    /**
+     * Die maximale Anzahl an Ebenen, reicht für Bereiche mit bis zu 2^31 Rasterpunkten pro Seite.
+     */
+    private static final int MAX_LEVELS = 32;
+
+    /**
+     * Die maximale Seitenlänge einer Zelle der obersten Ebene in Pixeln. Bei einem Raster von 7 Pixeln entstehen vier Ebenen mit Zellen von 56 Pixeln,
+     * deutlich kleiner als ein Fahrzeug in üblichen Auflösungen, sodass getrennt parkende Fahrzeuge meist getrennte Kandidaten bilden.
+     */
+    static final int COARSE_CELL_SIZE = 64;
+
+    /**
+     * Der abgetastete Bereich in absoluten Koordinaten, jeweils einschließlich.
+     */
+    private int regionX, regionY, regionEndX, regionEndY;
+
+    /**
+     * Der Ursprung des Rasters, auf den sich {@link #test} bezieht.
+     */
+    private int originX, originY;
+
+    /**
+     * Der Abstand der Rasterpunkte.
+     */
+    private int spacing;
+
+    /**
+     * Der erste Rasterpunkt im Bereich.
+     */
+    private int gridX, gridY;
+
+    private @NotNull PixelTest test = (x, y) -> false;
+
+    /**
+     * Die Ebenen, beginnend mit dem Raster. Zellen sind zeilenweise abgelegt, die Arrays können größer als die Ebene sein.
+     */
+    private final boolean[][] levels = new boolean[MAX_LEVELS][];
+
+    private final int[] columns = new int[MAX_LEVELS], rows = new int[MAX_LEVELS];
+
+    /**
+     * Die Anzahl der aktuell aufgebauten Ebenen.
+     */
+    private int levelCount;
+
+    /**
+     * Die bereits besuchten Zellen der obersten Ebene und des Rasters.
+     */
+    private boolean[] visitedCandidates = new boolean[0], visitedCells = new boolean[0];
+
+    /**
+     * Arbeitsstapel: die Zellen eines Kandidaten, die darunterliegenden Zellen des Rasters und ein zusammenhängendes Objekt im Raster.
+     */
+    private final CellStack candidate = new CellStack(), cells = new CellStack(), component = new CellStack();
+
+    /**
+     * Tastet einen Bereich im Raster ab. Ersetzt den zuvor abgetasteten Bereich.
+     * @param x Der Anfang des Bereichs auf der x-Achse in absoluten Koordinaten.
+     * @param y Der Anfang des Bereichs auf der y-Achse in absoluten Koordinaten.
+     * @param endX Das Ende des Bereichs auf der x-Achse, einschließlich.
+     * @param endY Das Ende des Bereichs auf der y-Achse, einschließlich.
+     * @param originX Der Ursprung des Rasters auf der x-Achse, üblicherweise der Anfang der Zone.
+     * @param originY Der Ursprung des Rasters auf der y-Achse.
+     * @param spacing Der Abstand der Rasterpunkte, siehe {@link #spacing(int, int, int)}.
+     * @param test Prüft Pixel innerhalb des Bereichs relativ zum Ursprung.
+     */
+    void sample(int x, int y, int endX, int endY, int originX, int originY, int spacing, @NotNull PixelTest test) {
+        this.regionX = x;
+        this.regionY = y;
+        this.regionEndX = endX;
+        this.regionEndY = endY;
+        this.originX = originX;
+        this.originY = originY;
+        this.spacing = spacing;
+        this.test = test;
+        this.gridX = DongleTile.firstGridPoint(originX, x, spacing);
+        this.gridY = DongleTile.firstGridPoint(originY, y, spacing);
+
+        final int columns = gridX > endX ? 0 : (endX - gridX) / spacing + 1;
+        final int rows = gridY > endY ? 0 : (endY - gridY) / spacing + 1;
+        final boolean[] grid = level(0, columns, rows);
+        for (int row = 0; row < rows; row++)
+            for (int column = 0; column < columns; column++)
+                grid[column + row * columns] = test.isModified(gridX - originX + column * spacing, gridY - originY + row * spacing);
+        levelCount = 1;
+    }
+
+    /**
+     * Fasst das Raster zu gröberen Ebenen zusammen, bis eine Zelle der nächsten Ebene größer als {@link #COARSE_CELL_SIZE} wäre
+     * oder die Ebene nur noch aus einer Zelle besteht.
+     */
+    private void pool() {
+        levelCount = 1;
+        int cellSize = spacing;
+        while (cellSize * 2 <= COARSE_CELL_SIZE && levelCount < MAX_LEVELS && (columns[levelCount - 1] > 1 || rows[levelCount - 1] > 1)) {
+            final int finerColumns = columns[levelCount - 1], finerRows = rows[levelCount - 1];
+            final boolean[] finer = levels[levelCount - 1];
+            final int coarserColumns = (finerColumns + 1) / 2, coarserRows = (finerRows + 1) / 2;
+            final boolean[] coarser = level(levelCount, coarserColumns, coarserRows);
+            Arrays.fill(coarser, 0, coarserColumns * coarserRows, false);
+            for (int row = 0; row < finerRows; row++)
+                for (int column = 0; column < finerColumns; column++)
+                    if (finer[column + row * finerColumns])
+                        coarser[column / 2 + row / 2 * coarserColumns] = true;
+            levelCount++;
+            cellSize *= 2;
+        }
+    }
+
+    /**
+     * Legt die Größe einer Ebene fest.
+     * @return Gibt das Array der Ebene zurück, welches mindestens die angegebene Größe hat.
+     */
+    private boolean @NotNull [] level(int level, int columns, int rows) {
+        this.columns[level] = columns;
+        this.rows[level] = rows;
+        if (levels[level] == null || levels[level].length < columns * rows)
+            levels[level] = new boolean[Math.max(columns * rows, levels[level] == null ? 0 : levels[level].length * 2)];
+        return levels[level];
+    }
+
+    /**
+     * Bestimmt den Abstand der Rasterpunkte. Jedes Quadrat mit der Mindestfläche eines Objekts enthält mindestens einen Rasterpunkt,
+     * kleine Zonen werden zusätzlich mit mindestens vier Rasterpunkten pro Seite abgetastet.
+     * @param significantArea Die Mindestfläche eines Objekts in Pixeln.
+     * @param zoneWidth Die Breite der Zone.
+     * @param zoneHeight Die Höhe der Zone.
+     * @return Gibt den Abstand in Pixeln zurück, mindestens {@code 1}.
+     */
+    static int spacing(int significantArea, int zoneWidth, int zoneHeight) {
+        final int objectSide = (int) Math.sqrt(significantArea);
+        return Math.max(1, Math.min(objectSide, Math.min(zoneWidth, zoneHeight) / 4));
+    }
+
+    /**
+     * Findet alle Objekte im zuletzt abgetasteten Bereich. Zusammenhängende veränderte Rasterpunkte bilden ein Objekt.
+     * Objekte, die den Rand des Bereichs berühren, werden unabhängig von ihrer Größe ausgegeben, da sie in benachbarten Bereichen fortgesetzt sein können.
+     * @param significantArea Die Mindestfläche eines Objekts in Pixeln.
+     * @param objects Die Ausgabe für die Umrisse der Objekte.
+     */
+    void findObjects(int significantArea, @NotNull OutlineBuffer objects) {
+        pool();
+        final int top = levelCount - 1;
+        final int candidates = columns[top] * rows[top];
+        visitedCandidates = cleared(visitedCandidates, candidates);
+        visitedCells = cleared(visitedCells, columns[0] * rows[0]);
+        for (int start = 0; start < candidates; start++) {
+            if (!levels[top][start] || visitedCandidates[start])
+                continue;
+            // Zusammenhängende veränderte Zellen der obersten Ebene bilden einen Kandidaten, welcher bis zum Raster verfeinert wird.
+            flood(top, start, visitedCandidates, candidate);
+            if (top == 0) {
+                refineAndFilter(candidate, significantArea, objects);
+                continue;
+            }
+            cells.clear();
+            for (int i = 0; i < candidate.size; i++)
+                collectCells(top, candidate.values[i], cells);
+            for (int i = 0; i < cells.size; i++) {
+                if (visitedCells[cells.values[i]])
+                    continue;
+                flood(0, cells.values[i], visitedCells, component);
+                refineAndFilter(component, significantArea, objects);
+            }
+        }
+    }
+
+    /**
+     * @return Gibt die Anzahl der Ebenen der letzten Suche zurück, einschließlich des Rasters. Nur für Tests.
+     */
+    int levelCount() {
+        return levelCount;
+    }
+
+    private void refineAndFilter(@NotNull CellStack cells, int significantArea, @NotNull OutlineBuffer objects) {
+        final int object = refine(cells, objects);
+        if (objects.area(object) < significantArea && !isTouchingRegion(objects, object))
+            objects.remove(object);
+    }
+
+    private static boolean @NotNull [] cleared(boolean @NotNull [] visited, int size) {
+        if (visited.length < size)
+            return new boolean[Math.max(size, visited.length * 2)];
+        Arrays.fill(visited, 0, size, false);
+        return visited;
+    }
+
+    /**
+     * Sammelt alle veränderten Zellen des Rasters unterhalb einer Zelle.
+     * @param level Die Ebene der Zelle.
+     * @param cell Der Index der Zelle.
+     * @param cells Die Ausgabe für die Indizes im Raster.
+     */
+    private void collectCells(int level, int cell, @NotNull CellStack cells) {
+        if (level == 0) {
+            cells.push(cell);
+            return;
+        }
+        final int column = cell % columns[level], row = cell / columns[level];
+        final int finer = level - 1;
+        for (int childRow = row * 2; childRow <= row * 2 + 1 && childRow < rows[finer]; childRow++)
+            for (int childColumn = column * 2; childColumn <= column * 2 + 1 && childColumn < columns[finer]; childColumn++)
+                if (levels[finer][childColumn + childRow * columns[finer]])
+                    collectCells(finer, childColumn + childRow * columns[finer], cells);
+    }
+
+    /**
+     * Sammelt alle über Kanten oder Ecken zusammenhängenden veränderten Zellen einer Ebene.
+     * @param level Die Ebene.
+     * @param start Die erste Zelle, muss verändert sein.
+     * @param visited Die bereits gesammelten Zellen der Ebene, wird ergänzt.
+     * @param component Die Ausgabe für die Indizes der Zellen, wird zuvor geleert.
+     */
+    private void flood(int level, int start, boolean @NotNull [] visited, @NotNull CellStack component) {
+        final boolean[] cells = levels[level];
+        final int columns = this.columns[level], rows = this.rows[level];
+        component.clear();
+        visited[start] = true;
+        component.push(start);
+        for (int i = 0; i < component.size; i++) {
+            final int column = component.values[i] % columns, row = component.values[i] / columns;
+            for (int neighbourRow = Math.max(0, row - 1); neighbourRow <= Math.min(rows - 1, row + 1); neighbourRow++)
+                for (int neighbourColumn = Math.max(0, column - 1); neighbourColumn <= Math.min(columns - 1, column + 1); neighbourColumn++) {
+                    final int neighbour = neighbourColumn + neighbourRow * columns;
+                    if (cells[neighbour] && !visited[neighbour]) {
+                        visited[neighbour] = true;
+                        component.push(neighbour);
+                    }
+                }
+        }
+    }
+
+    /**
+     * Bestimmt den pixelgenauen Umriss zusammenhängender Zellen des Rasters. Ausgehend von den Rasterpunkten wird jeder Rand so lange
+     * um einen Pixel erweitert, wie die angrenzende Spalte oder Zeile modifizierte Pixel enthält, höchstens bis kurz vor den nächsten Rasterpunkt.
+     * @param cells Die Indizes der Zellen im Raster.
+     * @param objects Die Ausgabe, an welche der Umriss angehängt wird.
+     * @return Gibt den Index des Umrisses in der Ausgabe zurück.
+     */
+    private int refine(@NotNull CellStack cells, @NotNull OutlineBuffer objects) {
+        int minColumn = Integer.MAX_VALUE, maxColumn = -1, minRow = Integer.MAX_VALUE, maxRow = -1;
+        for (int i = 0; i < cells.size; i++) {
+            final int cell = cells.values[i];
+            minColumn = Math.min(minColumn, cell % columns[0]);
+            maxColumn = Math.max(maxColumn, cell % columns[0]);
+            minRow = Math.min(minRow, cell / columns[0]);
+            maxRow = Math.max(maxRow, cell / columns[0]);
+        }
+        int minX = gridX + minColumn * spacing, maxX = gridX + maxColumn * spacing;
+        int minY = gridY + minRow * spacing, maxY = gridY + maxRow * spacing;
+        final int fromX = Math.max(regionX, minX - spacing + 1), toX = Math.min(regionEndX, maxX + spacing - 1);
+        final int fromY = Math.max(regionY, minY - spacing + 1), toY = Math.min(regionEndY, maxY + spacing - 1);
+
+        boolean isGrown = true;
+        while (isGrown) {
+            isGrown = false;
+            if (minX > fromX && isModifiedColumn(minX - 1, minY, maxY)) { minX--; isGrown = true; }
+            if (maxX < toX && isModifiedColumn(maxX + 1, minY, maxY)) { maxX++; isGrown = true; }
+            if (minY > fromY && isModifiedRow(minY - 1, minX, maxX)) { minY--; isGrown = true; }
+            if (maxY < toY && isModifiedRow(maxY + 1, minX, maxX)) { maxY++; isGrown = true; }
+        }
+        objects.add(minX, minY, maxX - minX + 1, maxY - minY + 1);
+        return objects.size() - 1;
+    }
+
+    private boolean isModifiedColumn(int x, int fromY, int toY) {
+        for (int y = fromY; y <= toY; y++)
+            if (test.isModified(x - originX, y - originY))
+                return true;
+        return false;
+    }
+
+    private boolean isModifiedRow(int y, int fromX, int toX) {
+        for (int x = fromX; x <= toX; x++)
+            if (test.isModified(x - originX, y - originY))
+                return true;
+        return false;
+    }
+
+    private boolean isTouchingRegion(@NotNull OutlineBuffer objects, int index) {
+        return objects.x(index) == regionX || objects.endX(index) == regionEndX
+                || objects.y(index) == regionY || objects.endY(index) == regionEndY;
+    }
+
+    /**
+     * Wachsender Stapel von Zellindizes, wird über alle Suchen hinweg wiederverwendet.
+     */
+    private static final class CellStack {
+
+        private int[] values = new int[64];
+
+        private int size;
+
+        private void clear() {
+            size = 0;
+        }
+
+        private void push(int cell) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = cell;
+        }
+    }
+}
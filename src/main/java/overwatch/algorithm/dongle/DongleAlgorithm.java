@@ -4,37 +4,112 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnmodifiableView;
 import overwatch.algorithm.Algorithm;
+import overwatch.algorithm.AnalysisSnapshot;
+import overwatch.algorithm.ColorMode;
+import overwatch.algorithm.MotionGate;
+import overwatch.algorithm.PreviewCanvas;
+import overwatch.algorithm.OccupancyMode;
 import overwatch.model.Capture;
 import overwatch.model.Zone;
+import overwatch.service.ConfigurationService;
 import overwatch.skeleton.Outline;
+import overwatch.skeleton.OutlineBuffer;
 
 import java.awt.image.BufferedImage;
 import java.util.*;
-import java.util.function.BiPredicate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static overwatch.skeleton.Outline.isIntersecting;
-import static overwatch.skeleton.Outline.of;
 
 public final class DongleAlgorithm extends Algorithm {
 
+    /**
+     * Abstand der Rasterpunkte bei der Suche über {@link DongleSearch#WALK}.
+     */
     private static final int SKIP_PIXELS = 25;
 
+    private static final Logger logger = Logger.getLogger(DongleAlgorithm.class.getName());
+
+    /**
+     * Pool, auf welchem die Ausschnitte ausgewertet werden. Wird ausschließlich von diesem Algorithmus verwendet.
+     */
+    private final @NotNull ForkJoinPool pool;
+
+    /**
+     * Alle Ausschnitte der Captures, welche mindestens eine Zone enthalten.
+     */
+    private final @NotNull DongleTile[] tiles;
+
+    /**
+     * Die Signaturen der Ausschnitte aus deren letzter Auswertung. Gleicher Index wie {@link #tiles}.
+     */
+    private final @NotNull DongleTile.Signature[] tileSignatures;
+
+    /**
+     * Gibt an, ob sich ein Ausschnitt in der aktuellen Iteration verändert hat. Gleicher Index wie {@link #tiles}.
+     */
+    private final boolean[] changedTiles;
+
+    /**
+     * Die zuletzt in einem Ausschnitt gefundenen Objekte. Gleicher Index wie {@link #tiles}.
+     */
+    private final OutlineBuffer[] tileObjects;
+
+    /**
+     * Die Differenz der Helligkeit eines Blocks, ab welcher ein Ausschnitt als verändert gilt.
+     */
+    private int tileThreshold;
+
+    /**
+     * Das Verfahren, mit dem Objekte in veränderten Ausschnitten gesucht werden.
+     */
+    private volatile @NotNull DongleSearch search;
+
+    /**
+     * Puffer für die Pixel eines Ausschnitts pro Thread.
+     */
+    private final ThreadLocal<int[]> tilePixels = ThreadLocal.withInitial(() -> new int[DongleTile.TILE_SIZE * DongleTile.TILE_SIZE]);
+
+    /**
+     * Pyramide für {@link DongleSearch#PYRAMID} pro Thread, deren Ebenen und Arbeitsstapel über alle Zonen wiederverwendet werden.
+     */
+    private final ThreadLocal<ChangePyramid> pyramids = ThreadLocal.withInitial(ChangePyramid::new);
+
+    /**
+     * Puffer für den Umriss eines verfolgten Objekts als {@code minX, minY, maxX, maxY} pro Thread, siehe {@link #findObjectBounds}.
+     */
+    private final ThreadLocal<int[]> walkBounds = ThreadLocal.withInitial(() -> new int[4]);
+
+    /**
+     * Die Anzahl der in der letzten Iteration durchsuchten Ausschnitte.
+     */
+    private volatile int evaluatedTiles;
+
     /**
      * Die Auszuwertenden Captures.
      */
     private final @NotNull Capture[] captures;
 
+    /**
+     * Entscheidet pro Capture, ob diese in der aktuellen Iteration ausgewertet wird. Gleicher Index wie {@link #captures}.
+     */
+    private final @NotNull MotionGate[] motionGates;
+
     /**
      * Die Auszuwertenden Zonen.
      */
     private final @NotNull DongleProcessableZone[] zones;
 
     /**
-     * Grundlage für das zu rendernde Bild.
+     * Zeichenfläche für die grafische Auswertung.
      */
-    private final @NotNull BufferedImage image;
+    private final @NotNull PreviewCanvas canvas;
 
     /**
      * Der auszuwertende Rahmen.
@@ -46,79 +121,210 @@ public final class DongleAlgorithm extends Algorithm {
      */
     private volatile @NotNull @UnmodifiableView Collection<Outline> objects = List.of();
 
+    /**
+     * Die zusammengeführten Objekte der letzten Auswertung, wird in jeder Auswertung wiederverwendet.
+     */
+    private final @NotNull OutlineBuffer objectBuffer = new OutlineBuffer();
+
     /**
      * Collection mit allen aktiven Zonen. Eine Zone ist aktiv, wenn mindestens ein Objekt in ihr liegt.
      */
     private volatile @NotNull @UnmodifiableView Collection<? extends Zone> activeZones = List.of();
 
     public DongleAlgorithm(@NotNull Zone[] zones) {
+        this(zones, ConfigurationService.getInt(ConfigurationService.Keys.ANALYSE_DONGLE_PARALLELISM));
+    }
+
+    /**
+     * Erstellt einen Algorithmus mit einer festen Anzahl an Threads.
+     * @param zones Die auszuwertenden Zonen.
+     * @param parallelism Die Anzahl der Threads. Ist diese kleiner als 1, wird die Anzahl der verfügbaren Prozessoren verwendet.
+     */
+    DongleAlgorithm(@NotNull Zone[] zones, int parallelism) {
         super();
         this.zones = Arrays.stream(zones)
-                .map(DongleProcessableZone::new)
+                .map(it -> new DongleProcessableZone(it, ColorMode.fromConfiguration()))
                 .toArray(DongleProcessableZone[]::new);
         this.captures = Arrays.stream(zones).map(Zone::capture).distinct().toArray(Capture[]::new);
+        this.motionGates = Arrays.stream(captures).map(it -> MotionGate.create()).toArray(MotionGate[]::new);
         this.outerBounds = Outline.compose(captures);
-        this.image = new BufferedImage(outerBounds.width(), outerBounds.height(), BufferedImage.TYPE_INT_RGB);
+        this.canvas = new PreviewCanvas(captures);
+        this.tiles = Arrays.stream(captures)
+                .flatMap(capture -> DongleTile.create(capture, this.zones).stream())
+                .toArray(DongleTile[]::new);
+        this.tileSignatures = Arrays.stream(tiles).map(DongleTile.Signature::new).toArray(DongleTile.Signature[]::new);
+        this.changedTiles = new boolean[tiles.length];
+        this.tileObjects = new OutlineBuffer[tiles.length];
+        this.tileThreshold = ConfigurationService.getInt(ConfigurationService.Keys.ANALYSE_MOTION_THRESHOLD);
+        this.search = DongleSearch.fromConfiguration(ConfigurationService.snapshot());
+        if(OccupancyMode.fromConfiguration() == OccupancyMode.INTEGRAL)
+            logger.warning("DongleAlgorithm has no full foreground mask, occupancy mode '" + OccupancyMode.INTEGRAL + "' is ignored.");
+        this.pool = new ForkJoinPool(parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism);
 
         // ImageService sollte Quelldaten neu laden.
         Arrays.stream(captures).forEach(DongleImageService::updateSourceImage);
     }
 
 
+    @Override
+    public synchronized void applyConfiguration(@NotNull ConfigurationService.Snapshot configuration) {
+        for (MotionGate motionGate : motionGates)
+            motionGate.applyConfiguration(configuration);
+        tileThreshold = configuration.getInt(ConfigurationService.Keys.ANALYSE_MOTION_THRESHOLD);
+        search = DongleSearch.fromConfiguration(configuration);
+    }
+
     @Override
     public void close() {
-        Arrays.stream(zones).parallel().forEach(DongleProcessableZone::reset);
-        image.flush();
+        pool.shutdown();
+        Arrays.stream(zones).forEach(DongleProcessableZone::reset);
+        canvas.flush();
     }
 
     @Override
     public synchronized @NotNull @UnmodifiableView Collection<? extends Zone> compute() {
-        Arrays.stream(zones).parallel().forEach(DongleProcessableZone::reset);
-        updateObjects();
-        updateActiveZones();
+        final long timestamp = System.currentTimeMillis();
+        Arrays.stream(captures).parallel().forEach(DongleImageService::updateCurrentImage);
+        final Set<Capture> analysedCaptures = IntStream.range(0, captures.length)
+                .filter(i -> isAnalyseRequired(i, timestamp))
+                .mapToObj(i -> captures[i])
+                .collect(Collectors.toSet());
+        if(!analysedCaptures.isEmpty()) {
+            updateObjects(analysedCaptures);
+            updateActiveZones();
+        }
+        publish(isPreviewRequested() ? createPixelMask() : AnalysisSnapshot.PixelMask.EMPTY, objects, activeZones);
         return activeZones;
     }
 
+    /**
+     * Erstellt eine unveränderliche Maske der modifizierten Pixel innerhalb aller erkannten Objekte.
+     * @return Gibt die Maske zurück.
+     */
+    private @NotNull AnalysisSnapshot.PixelMask createPixelMask(){
+        final List<ObjectMask> masks = objects.parallelStream()
+                .map(object -> {
+                    final BitSet bits = new BitSet(object.area());
+                    for (int y = 0; y < object.height(); y++)
+                        for (int x = 0; x < object.width(); x++)
+                            if(calculatePixelState(object.x() + x, object.y() + y, null).isModified)
+                                bits.set(x + y * object.width());
+                    return new ObjectMask(object, bits);
+                })
+                .toList();
+        return (x, y) -> {
+            for (ObjectMask mask : masks)
+                if(mask.isModified(x, y))
+                    return true;
+            return false;
+        };
+    }
+
+    /**
+     * Unveränderliche Maske der modifizierten Pixel eines Objekts.
+     * @param object Das Objekt.
+     * @param bits Die modifizierten Pixel relativ zum Objekt, zeilenweise.
+     */
+    private record ObjectMask(Outline object, BitSet bits) {
+
+        private boolean isModified(int x, int y) {
+            return object.x() <= x && x <= object.endX() && object.y() <= y && y <= object.endY()
+                    && bits.get(x - object.x() + (y - object.y()) * object.width());
+        }
+    }
+
+    /**
+     * Prüft anhand eines verkleinerten Abbilds des aktuellen Bildes, ob eine Capture in dieser Iteration ausgewertet werden muss.
+     * @param index Der Index der Capture in {@link #captures}.
+     * @param timestamp Der aktuelle Zeitpunkt in Millisekunden.
+     * @return Gibt {@code true} zurück, wenn die Capture ausgewertet werden muss.
+     */
+    private boolean isAnalyseRequired(final int index, final long timestamp){
+        final MotionGate motionGate = motionGates[index];
+        if(!motionGate.isEnabled())
+            return true;
+        final DongleImage image = DongleImageService.readCurrentImage(captures[index]);
+        final int[] luma = motionGate.luma();
+        for (int y = 0; y < MotionGate.THUMBNAIL_HEIGHT; y++) {
+            final int imageY = (2 * y + 1) * image.height() / (2 * MotionGate.THUMBNAIL_HEIGHT);
+            for (int x = 0; x < MotionGate.THUMBNAIL_WIDTH; x++) {
+                final int pixel = image.getPixel((2 * x + 1) * image.width() / (2 * MotionGate.THUMBNAIL_WIDTH), imageY);
+                luma[x + y * MotionGate.THUMBNAIL_WIDTH] = MotionGate.luma((pixel >> 16) & 0xff, (pixel >> 8) & 0xff, pixel & 0xff);
+            }
+        }
+        return motionGate.update(timestamp);
+    }
+
     @Override
-    public synchronized @NotNull BufferedImage computeImage() {
-        final @Nullable @UnmodifiableView Collection<Outline> outlines = this.objects;
-        final @Nullable @UnmodifiableView Collection<? extends Zone> zonesWithObjects = this.activeZones;
-        final BiPredicate<Integer, Integer> isPixelModified = (x,y) -> calculatePixelState(x,y, null).isModified;
+    public @NotNull BufferedImage computeImage() {
+        return canvas.render(requestPreview(), zones);
+    }
 
-        Arrays.stream(captures).parallel().forEach(DongleImageService::updateCurrentImage);
+    @Override
+    public <T> T computeImage(@NotNull Function<? super BufferedImage, T> reader) {
+        return canvas.render(requestPreview(), zones, reader);
+    }
 
-        renderImage(image, isPixelModified, zones, zonesWithObjects, outlines);
-        return image;
+    @Override
+    public @NotNull BufferedImage computeImage(@NotNull Outline region, int maxWidth) {
+        return renderImage(requestPreview(), zones, region, maxWidth);
+    }
+
+    /**
+     * Prüft, ob in einem Bereich einer Zeile kein Pixel modifiziert ist.
+     * @param fromX Die erste zu prüfende Position auf der x-Achse.
+     * @param toX Die letzte zu prüfende Position auf der x-Achse. Ist diese kleiner als {@code fromX}, ist der Bereich leer.
+     * @param y Die Position auf der y-Achse.
+     * @param zoneShortcut Eine optionale Zone, die zuerst durchsucht werden soll.
+     * @return Gibt {@code true} zurück, wenn kein Pixel modifiziert ist.
+     */
+    private boolean isUnmodifiedRange(final int fromX, final int toX, final int y, @Nullable DongleProcessableZone zoneShortcut){
+        for (int x = fromX; x <= toX; x++)
+            if(calculatePixelState(x, y, zoneShortcut).isModified)
+                return false;
+        return true;
     }
 
     private int walkRight(final int startX, final int y, @Nullable DongleProcessableZone zoneShortcut){
-        return IntStream.rangeClosed(startX, outerBounds.endX())
-                .filter(x -> {
-                    PixelState pixelState = calculatePixelState(x, y, zoneShortcut);
-                    return !pixelState.isModified && pixelState.isExisting;
-                })
-                .filter(x-> IntStream.rangeClosed(x+1,Math.min(x+INTERSECTION_THRESHOLD, outerBounds.endX()))
-                        .parallel()
-                        .noneMatch(walkerX->calculatePixelState(walkerX, y, zoneShortcut).isModified)
-                )
-                .findFirst().orElse(startX);
+        for (int x = startX; x <= outerBounds.endX(); x++) {
+            PixelState pixelState = calculatePixelState(x, y, zoneShortcut);
+            if(pixelState.isModified || !pixelState.isExisting)
+                continue;
+            if(isUnmodifiedRange(x + 1, Math.min(x + INTERSECTION_THRESHOLD, outerBounds.endX()), y, zoneShortcut))
+                return x;
+        }
+        return startX;
     }
 
     private int walkLeft(final int startX, final int y, @Nullable DongleProcessableZone zoneShortcut){
-        return IntStream.iterate(startX, x-> x>=outerBounds.x(), x-> x-1)
-                .filter(x -> {
-                    PixelState pixelState = calculatePixelState(x, y, zoneShortcut);
-                    return !pixelState.isModified && pixelState.isExisting;
-                })
-                .filter(x-> IntStream.iterate(x-1, checkX -> checkX >= Math.max(x-INTERSECTION_THRESHOLD, outerBounds.x()), checkX -> checkX-1)
-                        .parallel()
-                        .noneMatch(walkerX->calculatePixelState(walkerX, y, zoneShortcut).isModified)
-                )
-                .findFirst().orElse(startX);
+        for (int x = startX; x >= outerBounds.x(); x--) {
+            PixelState pixelState = calculatePixelState(x, y, zoneShortcut);
+            if(pixelState.isModified || !pixelState.isExisting)
+                continue;
+            if(isUnmodifiedRange(Math.max(x - INTERSECTION_THRESHOLD, outerBounds.x()), x - 1, y, zoneShortcut))
+                return x;
+        }
+        return startX;
     }
 
-    private @NotNull Outline walkDown(int x, int y, @Nullable DongleProcessableZone shortcut){
-        int minX = x, lastMinX = x, maxX = x, lastMaxX = x, minY = y, maxY = y;
+    /**
+     * Sucht in einer Zeile nach einem modifizierten Pixel, an dem ein Walker fortgesetzt werden kann.
+     * @param fromX Die erste zu prüfende Position auf der x-Achse.
+     * @param toX Die letzte zu prüfende Position auf der x-Achse.
+     * @param excludedX Eine auszulassende Position auf der x-Achse.
+     * @param y Die Position auf der y-Achse.
+     * @param shortcut Eine optionale Zone, die zuerst durchsucht werden soll.
+     * @return Gibt die erste gefundene Position zurück oder {@code -1}, sollte keine gefunden werden.
+     */
+    private int findModifiedX(final int fromX, final int toX, final int excludedX, final int y, @Nullable DongleProcessableZone shortcut){
+        for (int x = fromX; x <= toX; x++)
+            if(x != excludedX && calculatePixelState(x, y, shortcut).isModified)
+                return x;
+        return -1;
+    }
+
+    private void walkDown(int x, int y, @Nullable DongleProcessableZone shortcut, int @NotNull [] bounds){
+        int lastMinX = x, lastMaxX = x;
 
         for (; y <= outerBounds.endY(); y++){
             PixelState pixelState = calculatePixelState(x, y, shortcut);
@@ -129,31 +335,23 @@ public final class DongleAlgorithm extends Algorithm {
                 break;
             else if(!pixelState.isModified){
                 // Korrektur X
-                final int finalX = x;
-                final int checkY = y;
-                final @Nullable DongleProcessableZone finalShortcut = shortcut;
-                OptionalInt possibleX = IntStream.rangeClosed(lastMinX, lastMaxX)
-                        .parallel()
-                        .filter(checkX -> finalX != checkX)
-                        .filter(checkX -> calculatePixelState(checkX, checkY, finalShortcut).isModified)
-                        .findAny();
-                if(possibleX.isPresent())
-                    x = possibleX.getAsInt();
+                final int possibleX = findModifiedX(lastMinX, lastMaxX, x, y, shortcut);
+                if(possibleX >= 0)
+                    x = possibleX;
                 else
                     break;
             }
             lastMinX = walkLeft(x, y, shortcut);
             lastMaxX =  walkRight(x, y, shortcut);
-            minX = Math.min(lastMinX, minX);
-            maxX = Math.max(lastMaxX, maxX);
-            maxY = y;
+            bounds[0] = Math.min(lastMinX, bounds[0]);
+            bounds[2] = Math.max(lastMaxX, bounds[2]);
+            bounds[3] = y;
 
         }
-        return Outline.of(minX, minY, maxX - minX, maxY - minY);
     }
 
-    private @NotNull Outline walkUp(int x, int y, @Nullable DongleProcessableZone shortcut){
-        int minX = x, lastMinX = x, maxX = x, lastMaxX =x, minY = y, maxY = y;
+    private void walkUp(int x, int y, @Nullable DongleProcessableZone shortcut, int @NotNull [] bounds){
+        int lastMinX = x, lastMaxX = x;
 
         for (; y >= outerBounds.y(); y--){
             PixelState pixelState = calculatePixelState(x, y, shortcut);
@@ -165,78 +363,248 @@ public final class DongleAlgorithm extends Algorithm {
                 break;
             else if(!pixelState.isModified){
                 // Korrektur X
-                final int finalX = x;
-                final int checkY = y;
-                final @Nullable DongleProcessableZone finalShortcut = shortcut;
-                OptionalInt possibleX = IntStream.rangeClosed(lastMinX, lastMaxX)
-                        .parallel()
-                        .filter(checkX -> finalX != checkX)
-                        .filter(checkX -> calculatePixelState(checkX, checkY, finalShortcut).isModified)
-                        .findAny();
-                if(possibleX.isPresent())
-                    x = possibleX.getAsInt();
+                final int possibleX = findModifiedX(lastMinX, lastMaxX, x, y, shortcut);
+                if(possibleX >= 0)
+                    x = possibleX;
                 else
                     break;
             }
             lastMinX = walkLeft(x, y, shortcut);
             lastMaxX =  walkRight(x, y, shortcut);
-            minX = Math.min(lastMinX, minX);
-            maxX = Math.max(lastMaxX, maxX);
-            minY = y;
+            bounds[0] = Math.min(lastMinX, bounds[0]);
+            bounds[2] = Math.max(lastMaxX, bounds[2]);
+            bounds[1] = y;
 
         }
-        return of(minX, minY, maxX - minX, maxY - minY);
     }
 
     /**
-     * Findet ein Objekt an der angegebenen Position. Sollte an dieser Position kein Objekt liegen, wird ein Objekt mit der Größe 1x1 zurückgegeben.
+     * Findet ein Objekt an der angegebenen Position. Sollte an dieser Position kein Objekt liegen, bleibt der Umriss auf die Position beschränkt.
      * @param x Die Position auf der x-Achse.
      * @param y Die Position auf der y-Achse.
      * @param shortcut Ein optionaler Parameter um schnellere Abfragen durchzuführen.
-     * @return Gibt den Umriss eines Objekts zurück.
+     * @param bounds Die Ausgabe für den Umriss als {@code minX, minY, maxX, maxY}.
      */
-    private @NotNull Outline findObjectBounds(final int x, final int y, @Nullable final DongleProcessableZone shortcut){
-        final Outline upperOutline = walkDown(x, y, shortcut);
-        final Outline lowerOutline = walkUp(x, y, shortcut);
-        return Outline.compose(upperOutline, lowerOutline);
+    private void findObjectBounds(final int x, final int y, @Nullable final DongleProcessableZone shortcut, final int @NotNull [] bounds){
+        bounds[0] = bounds[2] = x;
+        bounds[1] = bounds[3] = y;
+        walkDown(x, y, shortcut, bounds);
+        walkUp(x, y, shortcut, bounds);
     }
 
     /**
      * Aktualisiert atomar alle aktiven Zonen und speichert diese in {@link #activeZones}.
      */
     private void updateActiveZones(){
-        this.activeZones = findActiveZones(this.zones, this.objects).toList();
+        this.activeZones = findActiveZones(this.zones, objectBuffer);
     }
 
     /**
      * Aktualisiert atomar alle Objekte und speichert diese in {@link #objects}.
+     * Objekte von nicht ausgewerteten Captures werden aus der vorherigen Iteration übernommen.
+     * @param analysedCaptures Die in dieser Iteration ausgewerteten Captures.
+     */
+    private void updateObjects(final Set<Capture> analysedCaptures){
+        final int[] analysedTiles = IntStream.range(0, tiles.length)
+                .filter(i -> analysedCaptures.contains(tiles[i].capture()))
+                .toArray();
+        final OutlineBuffer objects = objectBuffer;
+        objects.clear();
+        findObjects(analysedTiles, objects);
+        for (Outline object : this.objects)
+            if(analysedCaptures.stream().noneMatch(capture -> isIntersecting(capture, object)))
+                objects.add(object);
+        objects.mergeIntersecting(INTERSECTION_THRESHOLD);
+        // Teile eines Objekts an den Grenzen von Ausschnitten werden unabhängig von ihrer Größe erfasst und erst hier gefiltert.
+        objects.removeSmallerThan(SIGNIFICANT_AREA_TO_DETECT);
+        this.objects = Collections.unmodifiableList(objects.toList());
+    }
+
+    /**
+     * Findet alle Objekte in den angegebenen Ausschnitten. Die Ausschnitte werden auf {@link #pool} ausgewertet.
+     * Nur Ausschnitte, deren Signatur sich seit der letzten Auswertung verändert hat, werden erneut durchsucht.
+     * Für alle anderen werden die zwischengespeicherten Objekte übernommen, sofern diese keinen veränderten Ausschnitt berühren.
+     * Objekte, welche über die Grenzen eines Ausschnitts hinausgehen, werden vollständig erfasst. Mehrfach gefundene Objekte
+     * werden erst beim Zusammenführen vereint.
+     * Die Reihenfolge des Ergebnisses entspricht der Reihenfolge der Ausschnitte und ist unabhängig von der Anzahl der Threads.
+     * @param tileIndices Die Indizes der auszuwertenden Ausschnitte in {@link #tiles}.
+     * @param objects Die Ausgabe für die gefundenen Objekte.
+     */
+    private void findObjects(final int @NotNull [] tileIndices, @NotNull OutlineBuffer objects){
+        if(tileIndices.length == 0)
+            return;
+        // Veränderte Ausschnitte ermitteln und deren Pixelzustände verwerfen.
+        pool.invoke(new TileAction(tileIndices, 0, tileIndices.length, this::updateTileSignature));
+        final List<DongleTile> changedRegions = Arrays.stream(tileIndices)
+                .filter(i -> changedTiles[i])
+                .mapToObj(i -> tiles[i])
+                .toList();
+
+        // Zwischengespeicherte Objekte, welche in einen veränderten Ausschnitt reichen, sind ungültig.
+        final int[] evaluatedIndices = Arrays.stream(tileIndices)
+                .filter(i -> changedTiles[i] || tileObjects[i] == null || isIntersectingAny(tileObjects[i], changedRegions))
+                .toArray();
+        pool.invoke(new TileAction(evaluatedIndices, 0, evaluatedIndices.length, this::updateTileObjects));
+        evaluatedTiles = evaluatedIndices.length;
+
+        for (int i : tileIndices)
+            objects.addAll(tileObjects[i]);
+    }
+
+    /**
+     * Prüft, ob eines der Objekte einen der Bereiche berührt.
+     * @param objects Die Objekte.
+     * @param regions Die Bereiche.
+     * @return Gibt {@code true} zurück, wenn sich mindestens ein Objekt mit einem Bereich überlappt.
+     */
+    private static boolean isIntersectingAny(@NotNull OutlineBuffer objects, @NotNull List<? extends Outline> regions){
+        for (int i = 0; i < objects.size(); i++)
+            for (Outline region : regions)
+                if(objects.isIntersecting(i, region))
+                    return true;
+        return false;
+    }
+
+    /**
+     * Durchsucht einen Ausschnitt erneut und ersetzt dessen zwischengespeicherte Objekte.
+     * @param index Der Index des Ausschnitts in {@link #tiles}.
      */
-    private void updateObjects(){
-        final List<Outline> objects = Arrays.stream(zones)
-                .parallel()
-                .flatMap(zone -> IntStream.iterate(zone.x(), x -> x + SKIP_PIXELS <= zone.endX(), x -> x + SKIP_PIXELS)
-                        .boxed()
-                        .parallel()
-                        .flatMap(x -> IntStream.iterate(zone.y(), y -> y + SKIP_PIXELS <= zone.endY(), y -> y + SKIP_PIXELS)
-                                .filter(y -> calculatePixelState(x, y, zone).isModified)
-                                .mapToObj(y -> findObjectBounds(x, y, zone))
-                                .filter(outline -> outline.area() >= SIGNIFICANT_AREA_TO_DETECT)
-                        ))
-                .collect(Collectors.toList());
-        for (int i = 0; i < objects.size(); i++){
-            Outline a = objects.get(i);
-            for (int y = i; y < objects.size(); y++) {
-                Outline b = objects.get(y);
-                if(a == b)
-                    continue;
-                if(!isIntersecting(a, b, INTERSECTION_THRESHOLD))
-                    continue;
-                a = Outline.compose(a, b);
-                objects.remove(y--);
+    private void updateTileObjects(final int index){
+        OutlineBuffer objects = tileObjects[index];
+        if(objects == null)
+            objects = tileObjects[index] = new OutlineBuffer();
+        objects.clear();
+        findObjects(tiles[index], objects);
+    }
+
+    /**
+     * Findet alle Objekte in allen Ausschnitten, ohne das aktuelle Bild neu zu laden.
+     * @param isIncremental Gibt an, ob zwischengespeicherte Ergebnisse unveränderter Ausschnitte verwendet werden.
+     * @return Gibt die gefundenen, noch nicht zusammengeführten Objekte zurück.
+     */
+    @NotNull OutlineBuffer findObjects(boolean isIncremental){
+        if(!isIncremental)
+            invalidateTiles();
+        final OutlineBuffer objects = new OutlineBuffer();
+        findObjects(IntStream.range(0, tiles.length).toArray(), objects);
+        return objects;
+    }
+
+    /**
+     * Gibt die Anzahl der in der letzten Iteration durchsuchten Ausschnitte zurück.
+     * @return Gibt die Anzahl zurück.
+     */
+    int evaluatedTiles(){
+        return evaluatedTiles;
+    }
+
+    /**
+     * Verwirft alle Signaturen, zwischengespeicherten Objekte und Pixelzustände.
+     */
+    private void invalidateTiles(){
+        Arrays.stream(tileSignatures).forEach(DongleTile.Signature::invalidate);
+        Arrays.fill(tileObjects, null);
+        Arrays.stream(zones).forEach(DongleProcessableZone::reset);
+    }
+
+    /**
+     * Berechnet die Signatur eines Ausschnitts und vergleicht diese mit der Signatur aus dessen letzter Auswertung.
+     * Hat sich der Ausschnitt verändert, werden die Pixelzustände aller Zonen innerhalb des Ausschnitts zurückgesetzt.
+     * @param index Der Index des Ausschnitts in {@link #tiles}.
+     */
+    private void updateTileSignature(final int index){
+        final DongleTile tile = tiles[index];
+        changedTiles[index] = tileSignatures[index].update(DongleImageService.readCurrentImage(tile.capture()), tilePixels.get(), tileThreshold);
+        if(changedTiles[index])
+            for (DongleProcessableZone zone : tile.zones())
+                zone.reset(tile);
+    }
+
+    /**
+     * Wertet alle Rasterpunkte der Zonen innerhalb eines Ausschnitts aus.
+     * Jeder Rasterpunkt einer Zone liegt in genau einem Ausschnitt.
+     * @param tile Der Ausschnitt.
+     * @param objects Die Ausgabe für die gefundenen Objekte.
+     */
+    private void findObjects(@NotNull DongleTile tile, @NotNull OutlineBuffer objects){
+        if(search == DongleSearch.PYRAMID)
+            findObjectsHierarchical(tile, objects);
+        else
+            findObjectsByWalking(tile, objects);
+    }
+
+    /**
+     * Sucht Objekte pro Zone über eine {@link ChangePyramid}. Der Abstand des Rasters folgt aus {@link #SIGNIFICANT_AREA_TO_DETECT} und der Größe der Zone,
+     * sodass auch kleine Objekte gefunden werden.
+     * @param tile Der Ausschnitt.
+     * @param objects Die Ausgabe für die gefundenen Objekte.
+     */
+    private void findObjectsHierarchical(@NotNull DongleTile tile, @NotNull OutlineBuffer objects){
+        final ChangePyramid pyramid = pyramids.get();
+        for (DongleProcessableZone zone : tile.zones()) {
+            pyramid.sample(Math.max(zone.x(), tile.x()), Math.max(zone.y(), tile.y()), Math.min(zone.endX(), tile.endX()), Math.min(zone.endY(), tile.endY()),
+                    zone.x(), zone.y(), ChangePyramid.spacing(SIGNIFICANT_AREA_TO_DETECT, zone.width(), zone.height()), zone);
+            pyramid.findObjects(SIGNIFICANT_AREA_TO_DETECT, objects);
+        }
+    }
+
+    /**
+     * Sucht Objekte über ein festes Raster von {@link #SKIP_PIXELS} und verfolgt gefundene Objekte in voller Auflösung.
+     * Ein von mehreren Rasterpunkten aus gefundenes Objekt wird nur einmal ausgegeben.
+     * @param tile Der Ausschnitt.
+     * @param objects Die Ausgabe für die gefundenen Objekte.
+     */
+    private void findObjectsByWalking(@NotNull DongleTile tile, @NotNull OutlineBuffer objects){
+        final int[] bounds = walkBounds.get();
+        for (DongleProcessableZone zone : tile.zones()) {
+            final int endX = Math.min(tile.endX(), zone.endX() - SKIP_PIXELS);
+            final int endY = Math.min(tile.endY(), zone.endY() - SKIP_PIXELS);
+            for (int x = DongleTile.firstGridPoint(zone.x(), tile.x(), SKIP_PIXELS); x <= endX; x += SKIP_PIXELS) {
+                for (int y = DongleTile.firstGridPoint(zone.y(), tile.y(), SKIP_PIXELS); y <= endY; y += SKIP_PIXELS) {
+                    if(!calculatePixelState(x, y, zone).isModified)
+                        continue;
+                    findObjectBounds(x, y, zone, bounds);
+                    final int width = bounds[2] - bounds[0], height = bounds[3] - bounds[1];
+                    if(width * height >= SIGNIFICANT_AREA_TO_DETECT && !objects.contains(bounds[0], bounds[1], width, height))
+                        objects.add(bounds[0], bounds[1], width, height);
+                }
+            }
+        }
+    }
+
+    /**
+     * Teilt eine Folge von Ausschnitten rekursiv auf, bis jede Aufgabe genau einen Ausschnitt bearbeitet.
+     * Ergebnisse werden pro Ausschnitt abgelegt, sodass deren Reihenfolge nicht von der Ausführung abhängt.
+     * Wird nie serialisiert, {@link RecursiveAction} ist nur aus historischen Gründen {@link java.io.Serializable}.
+     */
+    @SuppressWarnings("serial")
+    private static final class TileAction extends RecursiveAction {
+
+        private final int[] tileIndices;
+
+        private final int from;
+
+        private final int to;
+
+        private final IntConsumer action;
+
+        private TileAction(int[] tileIndices, int from, int to, IntConsumer action) {
+            this.tileIndices = tileIndices;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= 1) {
+                if(to > from)
+                    action.accept(tileIndices[from]);
+                return;
             }
-            objects.set(i, a);
+            final int middle = (from + to) >>> 1;
+            invokeAll(new TileAction(tileIndices, from, middle, action), new TileAction(tileIndices, middle, to, action));
         }
-        this.objects = Collections.unmodifiableList(objects);
     }
 
     /**
@@ -0,0 +1,52 @@
+package overwatch.algorithm.dongle;
+
+import org.openjdk.jmh.annotations.*;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst die Skalierung der Objekterkennung von {@link DongleAlgorithm} über die Anzahl der Threads.
+ * Grundlage ist die virtuelle Capture mit zwei Zeilen zu je vier Zonen.
+ * {@code findObjectsIncremental} entspricht dem eingeschwungenen Zustand ohne Bewegung.
+ * Ausführung über {@link overwatch.BenchmarkRunner} mit dem Argument {@code DongleAlgorithmBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DongleAlgorithmBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private DongleAlgorithm algorithm;
+
+    @Setup
+    public void setup() {
+        final Capture capture = new Capture(0, 0, 880, 480, Capture.VIRTUAL_CAMERA_NAME);
+        final Zone[] zones = new Zone[8];
+        for (int i = 0; i < zones.length; i++)
+            zones[i] = new Zone(i + 1, capture, (i % 4) * 220, (i / 4) * 240, 220, 240);
+        algorithm = new DongleAlgorithm(zones, parallelism);
+        DongleImageService.updateCurrentImage(capture);
+    }
+
+    @TearDown
+    public void tearDown() {
+        algorithm.close();
+    }
+
+    @Benchmark
+    public int findObjects() {
+        return algorithm.findObjects(false).size();
+    }
+
+    @Benchmark
+    public int findObjectsIncremental() {
+        return algorithm.findObjects(true).size();
+    }
+}
@@ -0,0 +1,22 @@
+package overwatch.algorithm.dongle;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.algorithm.Algorithm;
+import overwatch.algorithm.AlgorithmProvider;
+import overwatch.model.Zone;
+
+/**
+ * Stellt den {@link DongleAlgorithm} unter dem Namen {@code dongle} bereit.
+ */
+public final class DongleAlgorithmProvider implements AlgorithmProvider {
+
+    @Override
+    public @NotNull String name() {
+        return "dongle";
+    }
+
+    @Override
+    public @NotNull Algorithm create(@NotNull Zone[] zones) {
+        return new DongleAlgorithm(zones);
+    }
+}
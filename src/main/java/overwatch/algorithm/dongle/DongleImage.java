@@ -1,9 +1,12 @@
 package overwatch.algorithm.dongle;
 
 import org.jetbrains.annotations.NotNull;
+import overwatch.algorithm.MotionGate;
 import overwatch.skeleton.Size;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 
 /**
  * Interface für Bilder.
@@ -32,6 +35,47 @@ public interface DongleImage extends Size {
      */
     int getPixel(int x, int y);
 
+    /**
+     * Liest einen rechteckigen Bereich zeilenweise aus.
+     * @param x Die Position auf der x-Achse.
+     * @param y Die Position auf der y-Achse.
+     * @param width Die Breite des Bereichs.
+     * @param height Die Höhe des Bereichs.
+     * @param pixels Die Ausgabe für die Farben in {@link BufferedImage#TYPE_INT_RGB}. Muss mindestens {@code width * height} groß sein.
+     */
+    default void getPixels(int x, int y, int width, int height, int[] pixels) {
+        for (int row = 0; row < height; row++)
+            for (int column = 0; column < width; column++)
+                pixels[column + row * width] = getPixel(x + column, y + row);
+    }
+
+    /**
+     * Liest die Helligkeit eines Pixels aus.
+     * @param x Die Position auf der x-Achse.
+     * @param y Die Position auf der y-Achse.
+     * @return Gibt die Helligkeit zwischen 0 und 255 aus, siehe {@link MotionGate#luma(int, int, int)}.
+     */
+    default int getLuma(int x, int y) {
+        final int pixel = getPixel(x, y);
+        return MotionGate.luma((pixel >> 16) & 0xff, (pixel >> 8) & 0xff, pixel & 0xff);
+    }
+
+    /**
+     * Liest die Helligkeit eines rechteckigen Bereichs zeilenweise aus.
+     * @param x Die Position auf der x-Achse.
+     * @param y Die Position auf der y-Achse.
+     * @param width Die Breite des Bereichs.
+     * @param height Die Höhe des Bereichs.
+     * @param lumas Die Ausgabe für die Helligkeit zwischen 0 und 255. Muss mindestens {@code width * height} groß sein.
+     */
+    default void getLumas(int x, int y, int width, int height, int[] lumas) {
+        getPixels(x, y, width, height, lumas);
+        for (int i = 0, count = width * height; i < count; i++) {
+            final int pixel = lumas[i];
+            lumas[i] = MotionGate.luma((pixel >> 16) & 0xff, (pixel >> 8) & 0xff, pixel & 0xff);
+        }
+    }
+
     /**
      * Ein leeres Bild mit einer festen Größe. Alle Pixel sind einfarbig Schwarz.
      * @param width Die Breite des Bildes.
@@ -80,6 +124,85 @@ public interface DongleImage extends Size {
         public int getPixel(int x, int y) {
             return source.getRGB(x,y);
         }
+
+        @Override
+        public void getPixels(int x, int y, int width, int height, int[] pixels) {
+            if (source.getType() != BufferedImage.TYPE_INT_RGB) {
+                source.getRGB(x, y, width, height, pixels, 0, width);
+                return;
+            }
+            final int[] data = ((DataBufferInt) source.getRaster().getDataBuffer()).getData();
+            for (int row = 0; row < height; row++)
+                System.arraycopy(data, x + (y + row) * source.getWidth(), pixels, row * width, width);
+        }
     }
 
+    /**
+     * Ein Bild mit einem Byte Helligkeit pro Pixel. Farben werden als Graustufen ausgegeben.
+     */
+    final class LumaImage implements DongleImage {
+
+        private final int width;
+
+        private final int height;
+
+        private final byte @NotNull [] luma;
+
+        /**
+         * Übernimmt ein Bild als Helligkeitswerte. Graustufenbilder werden direkt übernommen, alle übrigen einmalig umgerechnet.
+         * @param source Das Bild, wird danach nicht mehr benötigt.
+         */
+        public LumaImage(@NotNull BufferedImage source) {
+            this.width = source.getWidth();
+            this.height = source.getHeight();
+            if (source.getType() == BufferedImage.TYPE_BYTE_GRAY && source.getRaster().getDataBuffer() instanceof DataBufferByte buffer
+                    && buffer.getData().length == width * height) {
+                this.luma = buffer.getData();
+                return;
+            }
+            this.luma = new byte[width * height];
+            final int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                source.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    final int pixel = row[x];
+                    luma[x + y * width] = (byte) MotionGate.luma((pixel >> 16) & 0xff, (pixel >> 8) & 0xff, pixel & 0xff);
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+
+        }
+
+        @Override
+        public int width() {
+            return width;
+        }
+
+        @Override
+        public int height() {
+            return height;
+        }
+
+        @Override
+        public int getPixel(int x, int y) {
+            return (luma[x + y * width] & 0xff) * 0x010101;
+        }
+
+        @Override
+        public int getLuma(int x, int y) {
+            return luma[x + y * width] & 0xff;
+        }
+
+        @Override
+        public void getLumas(int x, int y, int width, int height, int[] lumas) {
+            for (int row = 0; row < height; row++) {
+                final int offset = x + (y + row) * this.width;
+                for (int column = 0; column < width; column++)
+                    lumas[column + row * width] = luma[offset + column] & 0xff;
+            }
+        }
+    }
 }
@@ -1,7 +1,11 @@
 package overwatch.algorithm.dongle;
 
+import overwatch.algorithm.ColorMode;
 import overwatch.model.Capture;
 import overwatch.service.ConfigurationService;
+import overwatch.simulation.Simulator;
+import overwatch.trace.FrameEvents;
+import overwatch.trace.FrameTrace;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
@@ -23,6 +27,9 @@ class DongleImageService {
     private DongleImageService() {}
 
     static DongleImage readImageFromIO(Capture capture, boolean isSourceImage) throws Exception {
+        if(capture.isSimulated())
+            return wrap(Simulator.render(capture, isSourceImage));
+
         boolean isVirtual = capture.isVirtual();
         final var imagePath = !isVirtual
                 ? ConfigurationService.getString(ConfigurationService.Keys.IMAGE_BASE_PATH) + "/" +  capture.deviceName().replace("/", "_") + ".png"
@@ -39,11 +46,16 @@ class DongleImageService {
 
         BufferedImage image = ImageIO.read(new File(imagePath));
 
-        if(image.getWidth() != capture.width() || image.getHeight() != capture.height()) {
-            if (isSourceImage)
-                logger.warning("DongleImage-Dimension of device: '" + capture.deviceName() +"' does not match size of capture. Picture will be scaled.");
+        final boolean isScaled = image.getWidth() != capture.width() || image.getHeight() != capture.height();
+        if(isScaled && isSourceImage)
+            logger.warning("DongleImage-Dimension of device: '" + capture.deviceName() +"' does not match size of capture. Picture will be scaled.");
+        // Graustufenbilder der Kamera werden im ColorMode.LUMA ohne Umweg über RGB übernommen.
+        if(!isScaled && ColorMode.fromConfiguration() == ColorMode.LUMA)
+            return new DongleImage.LumaImage(image);
 
-            BufferedImage scaled = new BufferedImage(capture.width(), capture.height(), image.getType());
+        // Einheitlich TYPE_INT_RGB, damit Pixel ohne Umrechnung über das ColorModel gelesen werden können.
+        if(isScaled || image.getType() != BufferedImage.TYPE_INT_RGB) {
+            BufferedImage scaled = new BufferedImage(capture.width(), capture.height(), BufferedImage.TYPE_INT_RGB);
             Graphics2D g = scaled.createGraphics();
             g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
                     RenderingHints.VALUE_INTERPOLATION_BILINEAR);
@@ -53,7 +65,20 @@ class DongleImageService {
             image.flush();
             image = scaled;
         }
-        return new DongleImage.BackedImage(image);
+        return wrap(image);
+    }
+
+    /**
+     * Übernimmt ein Bild in {@link BufferedImage#TYPE_INT_RGB}. Im {@link ColorMode#LUMA} wird dieses einmalig in Helligkeitswerte umgerechnet.
+     * @param image Das Bild.
+     * @return Gibt das Bild für den {@link DongleAlgorithm} zurück.
+     */
+    private static DongleImage wrap(BufferedImage image) {
+        if(ColorMode.fromConfiguration() != ColorMode.LUMA)
+            return new DongleImage.BackedImage(image);
+        final DongleImage luma = new DongleImage.LumaImage(image);
+        image.flush();
+        return luma;
     }
 
     private static DongleImage createBlank(int width, int height) {
@@ -84,10 +109,17 @@ class DongleImageService {
      * @param capture Das Videogerät für den Einlesevorgang.
      */
     static void updateCurrentImage(Capture capture) {
+        final FrameEvents.CaptureEvent captureEvent = new FrameEvents.CaptureEvent();
+        captureEvent.begin();
         try {
             DongleImage oldImage = currentImageMap.put(capture.deviceName(), readImageFromIO(capture, false));
             if(oldImage != null)
                 oldImage.flush();
+            if(captureEvent.shouldCommit()) {
+                captureEvent.frameId = FrameTrace.frameId();
+                captureEvent.deviceName = capture.deviceName();
+                captureEvent.commit();
+            }
         }
         catch (Exception e){
             logger.severe(e.getMessage());
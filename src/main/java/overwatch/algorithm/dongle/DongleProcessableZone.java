@@ -1,5 +1,6 @@
 package overwatch.algorithm.dongle;
 
+import overwatch.algorithm.ColorMode;
 import overwatch.model.Zone;
 import overwatch.skeleton.Outline;
 
@@ -13,7 +14,7 @@ import static overwatch.algorithm.dongle.DongleImageService.readSourceImage;
 /**
  * Eine spezialisierte Variante von {@link Zone}, welche Pixeldaten inne hat.
  */
-final class DongleProcessableZone extends Zone implements Outline {
+final class DongleProcessableZone extends Zone implements Outline, ChangePyramid.PixelTest {
 
     /**
      * Wichtig: Muss null entsprechen, weil null als default für shorts gilt und auf diese Logik zurückgegriffen wird.
@@ -30,14 +31,35 @@ final class DongleProcessableZone extends Zone implements Outline {
      */
     private static final short UNMODIFIED = 2;
 
+    /**
+     * Minimale Farbdistanz, damit ein Pixel als modifiziert gilt.
+     */
+    private static final double SIGNIFICANT_COLOR_DISTANCE = 150;
+
+    /**
+     * Minimale Differenz der Helligkeit im {@link ColorMode#LUMA}, damit ein Pixel als modifiziert gilt.
+     * Eine gleichmäßige Änderung aller Kanäle um {@code d} ergibt die Farbdistanz {@code 3 * d}, daher entspricht dieser Wert {@link #SIGNIFICANT_COLOR_DISTANCE}.
+     */
+    private static final int SIGNIFICANT_LUMA_DIFFERENCE = 50;
+
     /**
      * Die aktuellen Status der Pixel.
      */
     private final short [] pixelStates;
 
+    /**
+     * Gibt an, ob Pixel nur anhand ihrer Helligkeit verglichen werden.
+     */
+    private final boolean isLuma;
+
     DongleProcessableZone(Zone zone) {
+        this(zone, ColorMode.COLOR);
+    }
+
+    DongleProcessableZone(Zone zone, ColorMode colorMode) {
         super(zone);
         this.pixelStates = new short[zone.width() * zone.height()];
+        this.isLuma = colorMode == ColorMode.LUMA;
     }
 
     /**
@@ -47,13 +69,26 @@ final class DongleProcessableZone extends Zone implements Outline {
         Arrays.fill(pixelStates, (short) 0);
     }
 
+    /**
+     * Setzt die Pixeldaten innerhalb eines Bereichs zurück. Sie nehmen den Zustand {@link #UNSET} an.
+     * @param region Der Bereich in absoluten Koordinaten.
+     */
+    void reset(Outline region){
+        final int fromX = Math.max(region.x(), x()) - x();
+        final int toX = Math.min(region.endX(), endX()) - x();
+        for (int y = Math.max(region.y(), y()) - y(), endY = Math.min(region.endY(), endY()) - y(); y <= endY; y++)
+            if (fromX <= toX)
+                Arrays.fill(pixelStates, fromX + y * width(), toX + 1 + y * width(), UNSET);
+    }
+
     /**
      * Prüft, ob ein Pixel modifiziert wurde.
      * @param relativeX Die Position auf der x-Achse.
      * @param relativeY Die Position auf der y-Achse.
      * @return Gibt {@code true} zurück, sollte der Pixel modifiziert sein, andernfalls {@code false}.
      */
-    boolean isModified(int relativeX, int relativeY){
+    @Override
+    public boolean isModified(int relativeX, int relativeY){
         int index = relativeX + relativeY * width();
         if (pixelStates[index] == UNSET){
             return processPixel(relativeX,relativeY,index);
@@ -78,10 +113,11 @@ final class DongleProcessableZone extends Zone implements Outline {
 
         int offsetX = this.offsetX + x;
         int offsetY = this.offsetY + y;
-        int sourcePixel = sourceImage.getPixel(offsetX, offsetY);
-        int currentPixel = currentImage.getPixel(offsetX, offsetY);
+        final boolean isDifferent = isLuma
+                ? Math.abs(sourceImage.getLuma(offsetX, offsetY) - currentImage.getLuma(offsetX, offsetY)) > SIGNIFICANT_LUMA_DIFFERENCE
+                : isPixelDifferent(sourceImage.getPixel(offsetX, offsetY), currentImage.getPixel(offsetX, offsetY));
 
-        short pixelState = isPixelDifferent(sourcePixel, currentPixel)
+        short pixelState = isDifferent
                 ? MODIFIED
                 :UNMODIFIED;
         pixelStates[index] = pixelState;
@@ -90,8 +126,6 @@ final class DongleProcessableZone extends Zone implements Outline {
     }
 
     private boolean isPixelDifferent(int source, int current){
-        final double SIGNIFICANT = 150;
-
         int sR = (source & 0xff0000) >> 16;
         int sB = source & 0xff;
         int sG = (source & 0xff00) >> 8;
@@ -102,7 +136,7 @@ final class DongleProcessableZone extends Zone implements Outline {
         int r = sR - cR;
         int g = sG - cG;
         int b = sB - cB;
-        return Math.sqrt((((512+rMean)*r*r)>>8) + 4*g*g + (((767-rMean)*b*b)>>8)) > SIGNIFICANT;
+        return Math.sqrt((((512+rMean)*r*r)>>8) + 4*g*g + (((767-rMean)*b*b)>>8)) > SIGNIFICANT_COLOR_DISTANCE;
     }
 
     @Override
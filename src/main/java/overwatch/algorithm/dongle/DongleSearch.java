@@ -0,0 +1,29 @@
+package overwatch.algorithm.dongle;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.service.ConfigurationService;
+
+/**
+ * Verfahren, mit dem {@link DongleAlgorithm} Objekte in veränderten Ausschnitten sucht.
+ */
+enum DongleSearch {
+
+    /**
+     * Von grob nach fein über eine {@link ChangePyramid} pro Zone. Der Aufwand hängt von der veränderten Fläche ab.
+     */
+    PYRAMID,
+
+    /**
+     * Festes Raster, gefundene Objekte werden in voller Auflösung umlaufen. Objekte kleiner als der Abstand des Rasters können übersehen werden.
+     */
+    WALK;
+
+    /**
+     * Liest das konfigurierte Verfahren aus {@code analyse-dongle-search}. Standard ist {@link #PYRAMID}, auch bei einem unbekannten Wert.
+     * @param configuration Die Konfiguration.
+     * @return Gibt das Verfahren zurück.
+     */
+    static @NotNull DongleSearch fromConfiguration(@NotNull ConfigurationService.Snapshot configuration) {
+        return configuration.getEnum(ConfigurationService.Keys.ANALYSE_DONGLE_SEARCH, PYRAMID);
+    }
+}
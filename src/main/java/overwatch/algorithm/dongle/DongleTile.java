@@ -0,0 +1,162 @@
+package overwatch.algorithm.dongle;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.model.Capture;
+import overwatch.skeleton.Outline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ein fester Ausschnitt einer {@link Capture}, welcher von {@link DongleAlgorithm} als eigenständige Aufgabe ausgewertet wird.
+ * @param capture Die Capture, zu welcher der Ausschnitt gehört.
+ * @param x Die Position auf der x-Achse.
+ * @param y Die Position auf der y-Achse.
+ * @param width Die Breite des Ausschnitts.
+ * @param height Die Höhe des Ausschnitts.
+ * @param zones Alle Zonen, welche den Ausschnitt schneiden.
+ */
+record DongleTile(@NotNull Capture capture, int x, int y, int width, int height, @NotNull DongleProcessableZone[] zones) implements Outline {
+
+    /**
+     * Die Kantenlänge eines Ausschnitts in Pixeln.
+     */
+    static final int TILE_SIZE = 128;
+
+    /**
+     * Die Kantenlänge eines Blocks der Signatur in Pixeln.
+     */
+    static final int BLOCK_SIZE = 8;
+
+    /**
+     * Zerlegt eine Capture in Ausschnitte. Ausschnitte ohne Zonen werden verworfen.
+     * Die Reihenfolge ist zeilenweise und damit deterministisch.
+     * @param capture Die zu zerlegende Capture.
+     * @param zones Alle Zonen.
+     * @return Gibt die Ausschnitte zurück.
+     */
+    static @NotNull List<DongleTile> create(@NotNull Capture capture, @NotNull DongleProcessableZone[] zones) {
+        final DongleProcessableZone[] captureZones = Arrays.stream(zones)
+                .filter(it -> it.capture().equals(capture))
+                .toArray(DongleProcessableZone[]::new);
+        final List<DongleTile> tiles = new ArrayList<>();
+        for (int y = capture.y(); y <= capture.endY(); y += TILE_SIZE) {
+            for (int x = capture.x(); x <= capture.endX(); x += TILE_SIZE) {
+                final Outline bounds = Outline.of(x, y, Math.min(TILE_SIZE, capture.endX() - x + 1), Math.min(TILE_SIZE, capture.endY() - y + 1));
+                final DongleProcessableZone[] tileZones = Arrays.stream(captureZones)
+                        .filter(it -> Outline.isIntersecting(it, bounds))
+                        .toArray(DongleProcessableZone[]::new);
+                if (tileZones.length > 0)
+                    tiles.add(new DongleTile(capture, bounds.x(), bounds.y(), bounds.width(), bounds.height(), tileZones));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Erstellt einen Puffer für die Signatur dieses Ausschnitts.
+     * @return Gibt den Puffer zurück.
+     */
+    int @NotNull [] createSignature() {
+        return new int[((width + BLOCK_SIZE - 1) / BLOCK_SIZE) * ((height + BLOCK_SIZE - 1) / BLOCK_SIZE)];
+    }
+
+    /**
+     * Berechnet eine grobe Signatur des Ausschnitts aus der mittleren Helligkeit jedes Blocks von {@link #BLOCK_SIZE} Pixeln.
+     * Im Gegensatz zu einer Prüfsumme ist diese unempfindlich gegenüber Rauschen der Kamera.
+     * @param image Das Bild der Capture.
+     * @param pixels Ein Puffer für die Pixel mit mindestens {@code TILE_SIZE * TILE_SIZE} Einträgen.
+     * @param signature Die Ausgabe für die Signatur, siehe {@link #createSignature()}.
+     */
+    void updateSignature(@NotNull DongleImage image, int @NotNull [] pixels, int @NotNull [] signature) {
+        image.getLumas(x - capture.x(), y - capture.y(), width, height, pixels);
+        final int blocksX = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        Arrays.fill(signature, 0);
+        for (int row = 0; row < height; row++) {
+            final int blockOffset = (row / BLOCK_SIZE) * blocksX;
+            for (int column = 0; column < width; column++)
+                signature[blockOffset + column / BLOCK_SIZE] += pixels[column + row * width];
+        }
+        for (int i = 0; i < signature.length; i++) {
+            final int blockWidth = Math.min(BLOCK_SIZE, width - (i % blocksX) * BLOCK_SIZE);
+            final int blockHeight = Math.min(BLOCK_SIZE, height - (i / blocksX) * BLOCK_SIZE);
+            signature[i] /= blockWidth * blockHeight;
+        }
+    }
+
+    /**
+     * Prüft, ob sich zwei Signaturen eines Ausschnitts unterscheiden.
+     * @param previous Die vorherige Signatur.
+     * @param current Die aktuelle Signatur.
+     * @param threshold Die Differenz der Helligkeit eines Blocks, ab welcher dieser als verändert gilt.
+     * @return Gibt {@code true} zurück, sollte mindestens ein Block verändert sein.
+     */
+    static boolean isChanged(int @NotNull [] previous, int @NotNull [] current, int threshold) {
+        for (int i = 0; i < current.length; i++)
+            if (Math.abs(previous[i] - current[i]) > threshold)
+                return true;
+        return false;
+    }
+
+    /**
+     * Die Signatur eines Ausschnitts aus dessen letzter Auswertung. Neue Bilder werden stets mit dieser Referenz verglichen,
+     * nicht mit dem vorherigen Bild, sodass auch langsame Änderungen unterhalb des Schwellwerts pro Bild erkannt werden.
+     * Die Referenz wird erst ersetzt, wenn der Ausschnitt als verändert gilt und damit erneut ausgewertet wird.
+     * Beide Puffer werden einmalig angelegt und wiederverwendet.
+     */
+    static final class Signature {
+
+        private final @NotNull DongleTile tile;
+
+        private int[] reference;
+
+        private int[] current;
+
+        private boolean hasReference;
+
+        Signature(@NotNull DongleTile tile) {
+            this.tile = tile;
+            this.reference = tile.createSignature();
+            this.current = tile.createSignature();
+        }
+
+        /**
+         * Berechnet die Signatur des aktuellen Bildes und vergleicht diese mit der Referenz.
+         * Ist der Ausschnitt verändert, wird die aktuelle Signatur zur neuen Referenz.
+         * @param image Das Bild der Capture.
+         * @param pixels Ein Puffer für die Pixel mit mindestens {@code TILE_SIZE * TILE_SIZE} Einträgen.
+         * @param threshold Die Differenz der Helligkeit eines Blocks, ab welcher dieser als verändert gilt.
+         * @return Gibt {@code true} zurück, wenn der Ausschnitt verändert ist oder noch keine Referenz besteht.
+         */
+        boolean update(@NotNull DongleImage image, int @NotNull [] pixels, int threshold) {
+            tile.updateSignature(image, pixels, current);
+            if (hasReference && !isChanged(reference, current, threshold))
+                return false;
+            final int[] previous = reference;
+            reference = current;
+            current = previous;
+            hasReference = true;
+            return true;
+        }
+
+        /**
+         * Verwirft die Referenz. Die nächste Signatur gilt als verändert.
+         */
+        void invalidate() {
+            hasReference = false;
+        }
+    }
+
+    /**
+     * Berechnet den ersten Startpunkt eines Rasters, welcher nicht vor einer Position liegt.
+     * @param origin Der Ursprung des Rasters.
+     * @param position Die Position.
+     * @param step Der Abstand der Rasterpunkte.
+     * @return Gibt den ersten Rasterpunkt ab {@code position} zurück.
+     */
+    static int firstGridPoint(int origin, int position, int step) {
+        if (position <= origin) return origin;
+        return origin + (position - origin + step - 1) / step * step;
+    }
+}
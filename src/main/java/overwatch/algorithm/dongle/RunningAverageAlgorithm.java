@@ -0,0 +1,206 @@
+package overwatch.algorithm.dongle;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.UnmodifiableView;
+import overwatch.algorithm.Algorithm;
+import overwatch.algorithm.AnalysisSnapshot;
+import overwatch.algorithm.OccupancyMode;
+import overwatch.algorithm.PreviewCanvas;
+import overwatch.algorithm.SummedAreaTable;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+import overwatch.service.ConfigurationService;
+import overwatch.skeleton.Outline;
+import overwatch.skeleton.OutlineBuffer;
+
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Leichtgewichtige Bewegungserkennung für schwache Geräte ohne OpenCv.
+ * Pro Capture wird ein gleitender Mittelwert als Hintergrund in Festkommaarithmetik geführt, siehe {@link RunningAverageBackground}.
+ * Initialisiert wird dieser mit dem Quellbild des {@link DongleAlgorithm}, danach folgt er Änderungen der Beleuchtung.
+ * Da auch der Vordergrund langsam angelernt wird, eignet sich der Algorithmus nur für Standzeiten unterhalb der Dauer,
+ * die {@code analyse-average-foreground-learning-shift} vorgibt.
+ */
+public final class RunningAverageAlgorithm extends Algorithm {
+
+    /**
+     * Standardwert für {@code analyse-average-threshold}.
+     */
+    private static final int DEFAULT_THRESHOLD = 30;
+
+    /**
+     * Standardwert für {@code analyse-average-learning-shift}, entspricht einer Lernrate von 1/64.
+     */
+    private static final int DEFAULT_LEARNING_SHIFT = 6;
+
+    /**
+     * Standardwert für {@code analyse-average-foreground-learning-shift}, entspricht einer Lernrate von 1/4096.
+     * Damit ist ein stehendes Fahrzeug nach etwa 4096 Frames Teil des Hintergrunds und seine Zone wird inaktiv,
+     * bei {@code analyse-interval-ms=200} also nach rund 14 Minuten. Jede weitere Stufe verdoppelt diese Dauer.
+     */
+    private static final int DEFAULT_FOREGROUND_LEARNING_SHIFT = 12;
+
+    /**
+     * Die auszuwertenden Captures.
+     */
+    private final @NotNull Capture[] captures;
+
+    /**
+     * Die Hintergrundmodelle. Gleicher Index wie {@link #captures}.
+     */
+    private final @NotNull RunningAverageBackground[] backgrounds;
+
+    /**
+     * Die Summenflächentabellen im {@link OccupancyMode#INTEGRAL}, sonst leer. Gleicher Index wie {@link #captures}.
+     */
+    private final @NotNull SummedAreaTable[] tables;
+
+    /**
+     * Der Mindestanteil an Vordergrundpixeln einer aktiven Zone im {@link OccupancyMode#INTEGRAL}.
+     */
+    private float occupancyThreshold = OccupancyMode.readThreshold();
+
+    /**
+     * Die auszuwertenden Zonen.
+     */
+    private final @NotNull Zone[] zones;
+
+    /**
+     * Puffer für die Pixel einer Capture.
+     */
+    private int[] pixels = new int[0];
+
+    /**
+     * Die Objekte der aktuellen Iteration, wird in jeder Iteration wiederverwendet.
+     */
+    private final @NotNull OutlineBuffer objects = new OutlineBuffer();
+
+    /**
+     * Zeichenfläche für die grafische Auswertung.
+     */
+    private final @NotNull PreviewCanvas canvas;
+
+    public RunningAverageAlgorithm(@NotNull Zone[] zones) {
+        super();
+        this.zones = zones;
+        this.captures = Arrays.stream(zones).map(Zone::capture).distinct().toArray(Capture[]::new);
+        final ConfigurationService.Snapshot configuration = ConfigurationService.snapshot();
+        final int threshold = readInt(configuration, ConfigurationService.Keys.ANALYSE_AVERAGE_THRESHOLD, DEFAULT_THRESHOLD);
+        final int learningShift = readInt(configuration, ConfigurationService.Keys.ANALYSE_AVERAGE_LEARNING_SHIFT, DEFAULT_LEARNING_SHIFT);
+        final int foregroundLearningShift = readInt(configuration, ConfigurationService.Keys.ANALYSE_AVERAGE_FOREGROUND_LEARNING_SHIFT, DEFAULT_FOREGROUND_LEARNING_SHIFT);
+        this.backgrounds = Arrays.stream(captures)
+                .map(it -> new RunningAverageBackground(it.width(), it.height(), threshold, learningShift, foregroundLearningShift))
+                .toArray(RunningAverageBackground[]::new);
+        this.tables = OccupancyMode.fromConfiguration() == OccupancyMode.INTEGRAL
+                ? Arrays.stream(captures).map(it -> new SummedAreaTable(it.width(), it.height())).toArray(SummedAreaTable[]::new)
+                : new SummedAreaTable[0];
+        this.canvas = new PreviewCanvas(captures);
+
+        // Quellbild als Ausgangspunkt des Hintergrunds.
+        for (int i = 0; i < captures.length; i++) {
+            DongleImageService.updateSourceImage(captures[i]);
+            backgrounds[i].reset(readPixels(DongleImageService.readSourceImage(captures[i]), captures[i]));
+        }
+    }
+
+    private static int readInt(ConfigurationService.Snapshot configuration, String key, int defaultValue) {
+        final int value = configuration.getInt(key);
+        return value > 0 ? value : defaultValue;
+    }
+
+    @Override
+    public synchronized void applyConfiguration(@NotNull ConfigurationService.Snapshot configuration) {
+        final int threshold = readInt(configuration, ConfigurationService.Keys.ANALYSE_AVERAGE_THRESHOLD, DEFAULT_THRESHOLD);
+        final int learningShift = readInt(configuration, ConfigurationService.Keys.ANALYSE_AVERAGE_LEARNING_SHIFT, DEFAULT_LEARNING_SHIFT);
+        final int foregroundLearningShift = readInt(configuration, ConfigurationService.Keys.ANALYSE_AVERAGE_FOREGROUND_LEARNING_SHIFT, DEFAULT_FOREGROUND_LEARNING_SHIFT);
+        for (RunningAverageBackground background : backgrounds)
+            background.configure(threshold, learningShift, foregroundLearningShift);
+        occupancyThreshold = OccupancyMode.readThreshold(configuration);
+    }
+
+    /**
+     * Liest alle Pixel einer Capture in {@link #pixels}.
+     * @param image Das Bild der Capture.
+     * @param capture Die Capture.
+     * @return Gibt den Puffer zurück.
+     */
+    private int[] readPixels(@NotNull DongleImage image, @NotNull Capture capture) {
+        if (pixels.length < capture.area())
+            pixels = new int[capture.area()];
+        image.getPixels(0, 0, capture.width(), capture.height(), pixels);
+        return pixels;
+    }
+
+    @Override
+    public void close() {
+        canvas.flush();
+    }
+
+    @Override
+    public synchronized @NotNull @UnmodifiableView Collection<? extends Zone> compute() {
+        if (tables.length > 0)
+            return computeOccupancy();
+        objects.clear();
+        for (int i = 0; i < captures.length; i++) {
+            DongleImageService.updateCurrentImage(captures[i]);
+            if (backgrounds[i].update(readPixels(DongleImageService.readCurrentImage(captures[i]), captures[i])) > 0)
+                backgrounds[i].extract(captures[i].x(), captures[i].y(), SIGNIFICANT_AREA_TO_DETECT, objects);
+        }
+        objects.mergeIntersecting(INTERSECTION_THRESHOLD);
+        final List<Zone> activeZones = findActiveZones(zones, objects);
+        publish(isPreviewRequested() ? createPixelMask() : AnalysisSnapshot.PixelMask.EMPTY, Collections.unmodifiableList(objects.toList()), activeZones);
+        return activeZones;
+    }
+
+    /**
+     * Bestimmt die aktiven Zonen im {@link OccupancyMode#INTEGRAL} ohne Objekte zu extrahieren.
+     * @return Gibt die aktiven Zonen zurück.
+     */
+    private @NotNull @UnmodifiableView Collection<? extends Zone> computeOccupancy() {
+        final Map<Integer, Float> occupancy = new HashMap<>();
+        final List<Zone> activeZones = new ArrayList<>();
+        for (int i = 0; i < captures.length; i++) {
+            DongleImageService.updateCurrentImage(captures[i]);
+            backgrounds[i].update(readPixels(DongleImageService.readCurrentImage(captures[i]), captures[i]));
+            backgrounds[i].updateTable(tables[i]);
+            OccupancyMode.collect(zones, captures[i], tables[i], occupancyThreshold, occupancy, activeZones);
+        }
+        final List<Zone> result = Collections.unmodifiableList(activeZones);
+        publish(isPreviewRequested() ? createPixelMask() : AnalysisSnapshot.PixelMask.EMPTY, List.of(), result, Collections.unmodifiableMap(occupancy));
+        return result;
+    }
+
+    /**
+     * Erstellt eine unveränderliche Maske der Vordergrundpixel aller Captures.
+     * @return Gibt die Maske zurück.
+     */
+    private @NotNull AnalysisSnapshot.PixelMask createPixelMask() {
+        final byte[][] masks = Arrays.stream(backgrounds).map(RunningAverageBackground::copyForeground).toArray(byte[][]::new);
+        return (x, y) -> {
+            for (int i = 0; i < captures.length; i++) {
+                final Capture capture = captures[i];
+                if (capture.x() <= x && x <= capture.endX() && capture.y() <= y && y <= capture.endY())
+                    return masks[i][x - capture.x() + (y - capture.y()) * capture.width()] != 0;
+            }
+            return false;
+        };
+    }
+
+    @Override
+    public @NotNull BufferedImage computeImage() {
+        return canvas.render(requestPreview(), zones);
+    }
+
+    @Override
+    public <T> T computeImage(@NotNull Function<? super BufferedImage, T> reader) {
+        return canvas.render(requestPreview(), zones, reader);
+    }
+
+    @Override
+    public @NotNull BufferedImage computeImage(@NotNull Outline region, int maxWidth) {
+        return renderImage(requestPreview(), zones, region, maxWidth);
+    }
+}
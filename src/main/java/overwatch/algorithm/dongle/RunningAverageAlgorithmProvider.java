@@ -0,0 +1,22 @@
+package overwatch.algorithm.dongle;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.algorithm.Algorithm;
+import overwatch.algorithm.AlgorithmProvider;
+import overwatch.model.Zone;
+
+/**
+ * Stellt den {@link RunningAverageAlgorithm} unter dem Namen {@code average} bereit.
+ */
+public final class RunningAverageAlgorithmProvider implements AlgorithmProvider {
+
+    @Override
+    public @NotNull String name() {
+        return "average";
+    }
+
+    @Override
+    public @NotNull Algorithm create(@NotNull Zone[] zones) {
+        return new RunningAverageAlgorithm(zones);
+    }
+}
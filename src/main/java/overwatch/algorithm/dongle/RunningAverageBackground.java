@@ -0,0 +1,236 @@
+package overwatch.algorithm.dongle;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.algorithm.MotionGate;
+import overwatch.algorithm.SummedAreaTable;
+import overwatch.skeleton.OutlineBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Exponentiell gleitender Mittelwert der Helligkeit einer Capture als Hintergrundmodell.
+ * Alle Werte werden als Festkommazahlen mit {@link #FRACTION_BITS} Nachkommabits in primitiven Arrays gehalten.
+ * Pixel im Vordergrund werden deutlich langsamer angelernt, damit gerade eingeparkte Fahrzeuge erkannt bleiben,
+ * während langsame Änderungen der Beleuchtung in den Hintergrund übergehen. Angehalten wird das Lernen nicht:
+ * Auch ein stehendes Fahrzeug geht nach etwa {@code 2^foregroundLearningShift} Frames in den Hintergrund über.
+ */
+final class RunningAverageBackground {
+
+    /**
+     * Anzahl der Nachkommabits des Hintergrundmodells.
+     */
+    private static final int FRACTION_BITS = 8;
+
+    /**
+     * Die Kantenlänge einer Zelle in Pixeln. Objekte werden auf Zellen statt auf einzelnen Pixeln gesucht.
+     */
+    static final int CELL_SIZE = 4;
+
+    /**
+     * Mindestanzahl an Vordergrundpixeln, damit eine Zelle zum Vordergrund gehört.
+     */
+    private static final int MIN_CELL_PIXELS = CELL_SIZE * CELL_SIZE / 2;
+
+    private final int width;
+
+    private final int height;
+
+    private final int cellsX;
+
+    private final int cellsY;
+
+    /**
+     * Der Hintergrund pro Pixel als Festkommazahl.
+     */
+    private final int[] background;
+
+    /**
+     * Gibt pro Pixel an, ob dieser im aktuellen Frame zum Vordergrund gehört.
+     */
+    private final byte[] foreground;
+
+    /**
+     * Anzahl der Vordergrundpixel pro Zelle.
+     */
+    private final short[] cellCounts;
+
+    /**
+     * Union-Find über die Zellen. Jede Zelle im Vordergrund verweist auf eine Zelle desselben Objekts.
+     */
+    private final int[] parents;
+
+    /**
+     * Umrisse der Objekte in Zellen, indiziert über die Wurzel im Union-Find.
+     */
+    private final int[] minX, minY, maxX, maxY;
+
+    /**
+     * Minimale Differenz der Helligkeit als Festkommazahl, damit ein Pixel zum Vordergrund gehört.
+     */
+    private int threshold;
+
+    private int learningShift;
+
+    private int foregroundLearningShift;
+
+    private boolean hasBackground = false;
+
+    /**
+     * Erstellt ein leeres Hintergrundmodell.
+     * @param width Die Breite der Capture.
+     * @param height Die Höhe der Capture.
+     * @param threshold Minimale Differenz der Helligkeit, damit ein Pixel zum Vordergrund gehört.
+     * @param learningShift Die Lernrate des Hintergrunds als Zweierpotenz, der Hintergrund nähert sich pro Frame um {@code 1 / 2^learningShift} an.
+     * @param foregroundLearningShift Die Lernrate für Pixel im Vordergrund als Zweierpotenz.
+     */
+    RunningAverageBackground(int width, int height, int threshold, int learningShift, int foregroundLearningShift) {
+        this.width = width;
+        this.height = height;
+        this.cellsX = (width + CELL_SIZE - 1) / CELL_SIZE;
+        this.cellsY = (height + CELL_SIZE - 1) / CELL_SIZE;
+        this.background = new int[width * height];
+        this.foreground = new byte[width * height];
+        this.cellCounts = new short[cellsX * cellsY];
+        this.parents = new int[cellsX * cellsY];
+        this.minX = new int[cellsX * cellsY];
+        this.minY = new int[cellsX * cellsY];
+        this.maxX = new int[cellsX * cellsY];
+        this.maxY = new int[cellsX * cellsY];
+        this.threshold = threshold << FRACTION_BITS;
+        this.learningShift = learningShift;
+        this.foregroundLearningShift = foregroundLearningShift;
+    }
+
+    /**
+     * Ändert Schwellwert und Lernraten, der bisher gelernte Hintergrund bleibt erhalten.
+     * @param threshold Minimale Differenz der Helligkeit, damit ein Pixel zum Vordergrund gehört.
+     * @param learningShift Die Lernrate des Hintergrunds als Zweierpotenz.
+     * @param foregroundLearningShift Die Lernrate für Pixel im Vordergrund als Zweierpotenz.
+     */
+    void configure(int threshold, int learningShift, int foregroundLearningShift) {
+        this.threshold = threshold << FRACTION_BITS;
+        this.learningShift = learningShift;
+        this.foregroundLearningShift = foregroundLearningShift;
+    }
+
+    /**
+     * Übernimmt ein Bild vollständig als Hintergrund.
+     * @param pixels Die Pixel in {@link java.awt.image.BufferedImage#TYPE_INT_RGB}, zeilenweise.
+     */
+    void reset(int @NotNull [] pixels) {
+        for (int i = 0; i < background.length; i++)
+            background[i] = luma(pixels[i]) << FRACTION_BITS;
+        hasBackground = true;
+    }
+
+    /**
+     * Vergleicht ein Frame mit dem Hintergrund und passt diesen in einem Durchlauf an.
+     * Ohne Hintergrund wird das Frame als Hintergrund übernommen.
+     * @param pixels Die Pixel in {@link java.awt.image.BufferedImage#TYPE_INT_RGB}, zeilenweise.
+     * @return Gibt die Anzahl der Pixel im Vordergrund zurück.
+     */
+    int update(int @NotNull [] pixels) {
+        Arrays.fill(cellCounts, (short) 0);
+        if (!hasBackground) {
+            reset(pixels);
+            Arrays.fill(foreground, (byte) 0);
+            return 0;
+        }
+        int count = 0;
+        for (int y = 0; y < height; y++) {
+            final int cellOffset = (y / CELL_SIZE) * cellsX;
+            for (int x = 0, i = y * width; x < width; x++, i++) {
+                final int difference = (luma(pixels[i]) << FRACTION_BITS) - background[i];
+                final boolean isForeground = Math.abs(difference) > threshold;
+                background[i] += difference >> (isForeground ? foregroundLearningShift : learningShift);
+                foreground[i] = isForeground ? (byte) 1 : 0;
+                if (isForeground) {
+                    cellCounts[cellOffset + x / CELL_SIZE]++;
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Berechnet eine Summenflächentabelle über die Vordergrundpixel des letzten Frames.
+     * @param table Die Tabelle mit der Größe dieses Modells.
+     */
+    void updateTable(@NotNull SummedAreaTable table) {
+        table.update(foreground, 1);
+    }
+
+    /**
+     * Erstellt eine Kopie der Vordergrundpixel.
+     * @return Gibt die Kopie zurück, zeilenweise.
+     */
+    byte @NotNull [] copyForeground() {
+        return foreground.clone();
+    }
+
+    /**
+     * Sucht zusammenhängende Zellen im Vordergrund (8er-Nachbarschaft) und gibt deren Umrisse aus.
+     * @param offsetX Die Position der Capture auf der x-Achse.
+     * @param offsetY Die Position der Capture auf der y-Achse.
+     * @param minArea Die Mindestgröße eines Objekts in Pixeln.
+     * @param outlines Die Ausgabe für die Umrisse in absoluten Koordinaten.
+     */
+    void extract(int offsetX, int offsetY, int minArea, @NotNull OutlineBuffer outlines) {
+        for (int cy = 0; cy < cellsY; cy++) {
+            for (int cx = 0; cx < cellsX; cx++) {
+                final int cell = cx + cy * cellsX;
+                if (!isForegroundCell(cx, cy)) continue;
+                parents[cell] = cell;
+                minX[cell] = maxX[cell] = cx;
+                minY[cell] = maxY[cell] = cy;
+                if (isForegroundCell(cx - 1, cy)) union(cell, cell - 1);
+                if (isForegroundCell(cx - 1, cy - 1)) union(cell, cell - 1 - cellsX);
+                if (isForegroundCell(cx, cy - 1)) union(cell, cell - cellsX);
+                if (isForegroundCell(cx + 1, cy - 1)) union(cell, cell + 1 - cellsX);
+            }
+        }
+        for (int cell = 0; cell < cellCounts.length; cell++) {
+            if (cellCounts[cell] < MIN_CELL_PIXELS) continue;
+            final int root = find(cell);
+            if (root == cell) continue;
+            final int cx = cell % cellsX, cy = cell / cellsX;
+            minX[root] = Math.min(minX[root], cx);
+            minY[root] = Math.min(minY[root], cy);
+            maxX[root] = Math.max(maxX[root], cx);
+            maxY[root] = Math.max(maxY[root], cy);
+        }
+        for (int cell = 0; cell < cellCounts.length; cell++) {
+            if (cellCounts[cell] < MIN_CELL_PIXELS || parents[cell] != cell) continue;
+            final int x = minX[cell] * CELL_SIZE, y = minY[cell] * CELL_SIZE;
+            final int outlineWidth = Math.min((maxX[cell] + 1) * CELL_SIZE, width) - x;
+            final int outlineHeight = Math.min((maxY[cell] + 1) * CELL_SIZE, height) - y;
+            if (outlineWidth * outlineHeight >= minArea)
+                outlines.add(offsetX + x, offsetY + y, outlineWidth, outlineHeight);
+        }
+    }
+
+    private boolean isForegroundCell(int cx, int cy) {
+        return cx >= 0 && cy >= 0 && cx < cellsX && cy < cellsY && cellCounts[cx + cy * cellsX] >= MIN_CELL_PIXELS;
+    }
+
+    private int find(int cell) {
+        while (parents[cell] != cell) {
+            parents[cell] = parents[parents[cell]];
+            cell = parents[cell];
+        }
+        return cell;
+    }
+
+    private void union(int a, int b) {
+        final int rootA = find(a), rootB = find(b);
+        if (rootA == rootB) return;
+        // Die kleinere Zelle wird Wurzel, damit die Reihenfolge der Ausgabe deterministisch bleibt.
+        if (rootA < rootB) parents[rootB] = rootA;
+        else parents[rootA] = rootB;
+    }
+
+    private static int luma(int pixel) {
+        return MotionGate.luma((pixel >> 16) & 0xff, (pixel >> 8) & 0xff, pixel & 0xff);
+    }
+}
@@ -0,0 +1,328 @@
+package overwatch.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import overwatch.dto.InitDto;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+import overwatch.service.ConfigurationService;
+import overwatch.service.HttpService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Koordinator, welcher ein Layout anhand der {@link Capture}s auf mehrere Overwatch-Worker verteilt und deren aktive Zonen zu einem
+ * gemeinsamen Stream für das Backend zusammenführt.
+ * <p>
+ * Worker sind gewöhnliche Overwatch-Instanzen. Ihr {@code service-update-endpoint} zeigt auf den Koordinator, ihr {@code service-key}
+ * entspricht dem {@code overwatch-key} des Koordinators und ihre {@code cluster-node-id} entspricht ihrer Basis-URL aus {@code cluster-workers}.
+ * Alle Knoten teilen sich denselben {@code overwatch-key}.
+ * <p>
+ * Der Zustand wird unter {@link #stateLock} nur gelesen und geschrieben, Anfragen an Worker und Backend laufen außerhalb davon auf einer Kopie.
+ * Verteilungen des Layouts sind über {@link #rebalanceLock} und Meldungen an das Backend über {@link #forwardLock} untereinander geordnet,
+ * sodass ein langsamer Worker weder Meldungen anderer Worker noch die Prüfung der Worker aufhält.
+ */
+public class ClusterCoordinator {
+
+    /**
+     * Wert für {@code cluster-role}, mit dem eine Instanz als Koordinator arbeitet.
+     */
+    public static final String ROLE_COORDINATOR = "coordinator";
+
+    private static final Logger logger = Logger.getLogger(ClusterCoordinator.class.getName());
+
+    private static final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Schützt den Zustand des Koordinators. Wird nie während einer Anfrage gehalten.
+     */
+    private static final Object stateLock = new Object();
+
+    /**
+     * Ordnet Verteilungen des Layouts, wird während der Anfragen an die Worker gehalten.
+     */
+    private static final Object rebalanceLock = new Object();
+
+    /**
+     * Ordnet Meldungen an das Backend, wird während der Anfrage an das Backend gehalten.
+     */
+    private static final Object forwardLock = new Object();
+
+    /**
+     * Alle konfigurierten Worker, unabhängig von ihrem Zustand.
+     */
+    private static @NotNull List<String> workers = readWorkers();
+
+    /**
+     * Die zuletzt von den Workern gemeldeten aktiven Zonen.
+     */
+    private static final Map<String, int[]> reportedZones = new HashMap<>();
+
+    /**
+     * Die aktuelle Verteilung der Videogeräte auf die erreichbaren Worker.
+     */
+    private static @NotNull Map<String, Set<String>> assignments = Map.of();
+
+    /**
+     * Das zuletzt vom Backend übermittelte Layout.
+     */
+    private static @Nullable InitDto layout;
+
+    /**
+     * Die zuletzt an das Backend gesendeten aktiven Zonen.
+     */
+    private static int @Nullable [] forwardedZones;
+
+    private static @Nullable ScheduledExecutorService heartbeatExecutor;
+
+    private ClusterCoordinator() {}
+
+    /**
+     * Prüft, ob diese Instanz als Koordinator konfiguriert ist.
+     * @return Gibt {@code true} zurück, wenn diese Instanz Koordinator ist.
+     */
+    public static boolean isEnabled() {
+        return ROLE_COORDINATOR.equals(ConfigurationService.getString(ConfigurationService.Keys.CLUSTER_ROLE));
+    }
+
+    /**
+     * Startet die periodische Prüfung der Worker. Fällt ein Worker aus oder kommt einer hinzu, wird das Layout neu verteilt.
+     */
+    public static void start() {
+        synchronized (stateLock) {
+            if (heartbeatExecutor != null) return;
+            final long interval = Math.max(ConfigurationService.getLong(ConfigurationService.Keys.CLUSTER_HEARTBEAT_MS), 100L);
+            heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cluster-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            heartbeatExecutor.scheduleWithFixedDelay(ClusterCoordinator::heartbeat, 0L, interval, TimeUnit.MILLISECONDS);
+            logger.info("ClusterCoordinator started with workers: " + workers);
+        }
+    }
+
+    /**
+     * Übernimmt ein neues Layout und verteilt dieses auf alle erreichbaren Worker.
+     * @param layout Das neue Layout.
+     */
+    public static void assign(@NotNull InitDto layout) {
+        synchronized (rebalanceLock) {
+            final List<String> liveWorkers;
+            synchronized (stateLock) {
+                ClusterCoordinator.layout = layout;
+                liveWorkers = new ArrayList<>(assignments.isEmpty() ? workers : assignments.keySet());
+            }
+            rebalance(liveWorkers, true);
+        }
+    }
+
+    /**
+     * Übernimmt die aktiven Zonen eines Workers und leitet den zusammengeführten Zustand bei Änderungen an das Backend weiter.
+     * @param node Die Id des Workers.
+     * @param zoneNrs Die aktiven Zonen des Workers.
+     */
+    public static void acceptWorkerUpdate(@NotNull String node, int @NotNull [] zoneNrs) {
+        synchronized (stateLock) {
+            if (!assignments.containsKey(node)) {
+                logger.warning("Ignoring update from unassigned worker: '" + node + "'.");
+                return;
+            }
+            reportedZones.put(node, zoneNrs);
+        }
+        forward();
+    }
+
+    /**
+     * Verteilt die Videogeräte auf die Worker. Videogeräte werden absteigend nach ihrer Fläche dem Worker mit der geringsten Last zugewiesen.
+     * @param captures Die zu verteilenden Videogeräte.
+     * @param workers Die verfügbaren Worker.
+     * @return Gibt für jeden Worker die zugewiesenen Gerätenamen zurück.
+     */
+    static @NotNull Map<String, Set<String>> partition(@NotNull Capture[] captures, @NotNull List<String> workers) {
+        final Map<String, Set<String>> partitions = new LinkedHashMap<>();
+        final long[] loads = new long[workers.size()];
+        for (String worker : workers)
+            partitions.put(worker, new TreeSet<>());
+        if (workers.isEmpty()) return partitions;
+
+        final Capture[] sorted = captures.clone();
+        Arrays.sort(sorted, Comparator.comparingInt(Capture::area).reversed().thenComparing(Capture::deviceName));
+        for (Capture capture : sorted) {
+            int target = 0;
+            for (int i = 1; i < loads.length; i++)
+                if (loads[i] < loads[target])
+                    target = i;
+            loads[target] += capture.area();
+            partitions.get(workers.get(target)).add(capture.deviceName());
+        }
+        return partitions;
+    }
+
+    /**
+     * Verteilt das aktuelle Layout auf die angegebenen Worker. Worker, die nicht erreichbar sind, werden ausgelassen und die Verteilung wiederholt.
+     * Der Aufrufer muss {@link #rebalanceLock} halten. Die Anfragen an die Worker laufen auf einer Kopie der Zuweisungen außerhalb von {@link #stateLock}.
+     * @param liveWorkers Die als erreichbar angenommenen Worker.
+     * @param isForced Gibt an, ob auch Worker mit unveränderter Zuweisung das Layout erneut erhalten.
+     */
+    private static void rebalance(@NotNull List<String> liveWorkers, boolean isForced) {
+        final InitDto layout;
+        final Map<String, Set<String>> previous;
+        synchronized (stateLock) {
+            layout = ClusterCoordinator.layout;
+            if (layout == null) {
+                assignments = toEmptyAssignments(liveWorkers);
+                return;
+            }
+            previous = assignments;
+        }
+        final Capture[] captures = Arrays.stream(layout.toZones()).map(Zone::capture).distinct().toArray(Capture[]::new);
+
+        while (true) {
+            final Map<String, Set<String>> next = partition(captures, liveWorkers);
+            final Optional<String> failedWorker = next.entrySet().stream()
+                    .filter(it -> isForced || !it.getValue().equals(previous.get(it.getKey())))
+                    .filter(it -> !sendLayout(it.getKey(), layout.subset(it.getValue())))
+                    .map(Map.Entry::getKey)
+                    .findFirst();
+            if (failedWorker.isPresent()) {
+                liveWorkers.remove(failedWorker.get());
+                continue;
+            }
+            synchronized (stateLock) {
+                next.forEach((worker, deviceNames) -> {
+                    if (isForced || !deviceNames.equals(previous.get(worker)))
+                        reportedZones.remove(worker);
+                });
+                reportedZones.keySet().retainAll(next.keySet());
+                assignments = next;
+            }
+            if (next.isEmpty())
+                logger.severe("No worker available, layout is not analysed.");
+            else
+                logger.info("Layout distributed: " + next);
+            forward();
+            return;
+        }
+    }
+
+    private static @NotNull Map<String, Set<String>> toEmptyAssignments(@NotNull List<String> workers) {
+        final Map<String, Set<String>> assignments = new LinkedHashMap<>();
+        workers.forEach(it -> assignments.put(it, Set.of()));
+        return assignments;
+    }
+
+    /**
+     * Prüft alle Worker und verteilt das Layout neu, wenn sich die Menge der erreichbaren Worker verändert hat.
+     * Die Prüfungen laufen ohne Sperre, eine gleichzeitige Verteilung des Layouts wird dadurch nicht aufgehalten.
+     */
+    static void heartbeat() {
+        final List<String> configuredWorkers;
+        synchronized (stateLock) {
+            configuredWorkers = workers;
+        }
+        final List<String> liveWorkers = configuredWorkers.stream()
+                .filter(ClusterCoordinator::isAlive)
+                .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        synchronized (rebalanceLock) {
+            final Set<String> assignedWorkers;
+            synchronized (stateLock) {
+                assignedWorkers = assignments.keySet();
+            }
+            if (liveWorkers.equals(new ArrayList<>(assignedWorkers))) return;
+            logger.warning("Worker set changed from: " + assignedWorkers + " to: " + liveWorkers + ".");
+            rebalance(liveWorkers, false);
+        }
+    }
+
+    /**
+     * Sendet die Vereinigung aller gemeldeten Zonen an das Backend, sollte diese sich verändert haben.
+     * Die Vereinigung wird unter {@link #forwardLock} gebildet, sodass das Backend die Zustände in derselben Reihenfolge erhält.
+     */
+    private static void forward() {
+        synchronized (forwardLock) {
+            final int[] zones;
+            synchronized (stateLock) {
+                zones = reportedZones.values().stream()
+                        .flatMapToInt(Arrays::stream)
+                        .distinct()
+                        .sorted()
+                        .toArray();
+                if (Arrays.equals(zones, forwardedZones)) return;
+                forwardedZones = zones;
+            }
+            HttpService.sendActiveZones(zones);
+        }
+    }
+
+    /**
+     * Setzt den Koordinator auf einen leeren Zustand mit den angegebenen Workern zurück. Nur für Tests, die periodische Prüfung wird nicht gestartet.
+     * @param workers Die Basis-URLs der Worker.
+     */
+    static void reset(@NotNull List<String> workers) {
+        synchronized (rebalanceLock) {
+            synchronized (stateLock) {
+                ClusterCoordinator.workers = List.copyOf(workers);
+                reportedZones.clear();
+                assignments = Map.of();
+                layout = null;
+                forwardedZones = null;
+            }
+        }
+    }
+
+    private static boolean isAlive(@NotNull String worker) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(worker + "/health"))
+                    .timeout(Duration.ofSeconds(1))
+                    .header("key", ConfigurationService.getString(ConfigurationService.Keys.OVERWATCH_KEY))
+                    .GET()
+                    .build();
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        }
+        catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static boolean sendLayout(@NotNull String worker, @NotNull InitDto layout) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(worker))
+                    .timeout(Duration.ofSeconds(5))
+                    .header("key", ConfigurationService.getString(ConfigurationService.Keys.OVERWATCH_KEY))
+                    .header("content-type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(layout)))
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 200) return true;
+            logger.severe("Worker: '" + worker + "' rejected layout. Response-Status: '" + response.statusCode() + "'.");
+        }
+        catch (Exception e) {
+            logger.severe("Could not send layout to worker: '" + worker + "'.");
+        }
+        return false;
+    }
+
+    private static @NotNull List<String> readWorkers() {
+        return Arrays.stream(ConfigurationService.getString(ConfigurationService.Keys.CLUSTER_WORKERS).split(","))
+                .map(String::trim)
+                .filter(it -> !it.isEmpty())
+                .toList();
+    }
+}
@@ -16,7 +16,7 @@ public class DebugFrame extends JFrame {
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
 
-           g.drawImage(Engine.getGeneratedImage(),0,0, null);
+           Engine.readGeneratedImage(image -> g.drawImage(image, 0, 0, null));
         }
     }
 
@@ -14,6 +14,10 @@ public class CaptureDto {
     private int width;
     @JsonProperty(required = true)
     private int height;
+    @JsonProperty
+    private int workingWidth;
+    @JsonProperty
+    private String algorithm;
 
     public CaptureDto() {
     }
@@ -40,4 +44,12 @@ public class CaptureDto {
     public int getHeight() {
         return height;
     }
+
+    public int getWorkingWidth() {
+        return workingWidth;
+    }
+
+    public String getAlgorithm() {
+        return algorithm == null ? "" : algorithm;
+    }
 }
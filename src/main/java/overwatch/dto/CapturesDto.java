@@ -1,5 +1,6 @@
 package overwatch.dto;
 
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
 
 import java.util.HashMap;
@@ -13,6 +14,7 @@ public class CapturesDto {
         captures.put(key, capture);
     }
 
+    @JsonAnyGetter
     public Map<String, CaptureDto> getCaptures() {
         return captures;
     }
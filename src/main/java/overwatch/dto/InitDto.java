@@ -6,6 +6,7 @@ import overwatch.model.Capture;
 import overwatch.model.Zone;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -35,7 +36,7 @@ public class InitDto {
         for (Map.Entry<String, CaptureDto> entry : this.captures.getCaptures().entrySet()) {
             final String deviceName = entry.getKey();
             final CaptureDto dto = entry.getValue();
-            captures.add(new Capture(dto.getX(), dto.getY(), dto.getWidth(), dto.getHeight(), deviceName));
+            captures.add(new Capture(dto.getX(), dto.getY(), dto.getWidth(), dto.getHeight(), deviceName, dto.getWorkingWidth(), dto.getAlgorithm()));
         }
         final List<Zone> zones = new ArrayList<>();
         for (Map.Entry<Integer, ZoneDto> entry : this.zones.getZones().entrySet()) {
@@ -54,4 +55,21 @@ public class InitDto {
 
         return zones.toArray(Zone[]::new);
     }
+
+    /**
+     * Erstellt ein DTO, welches nur die angegebenen Videogeräte und deren Zonen enthält.
+     * @param deviceNames Die Namen der zu übernehmenden Videogeräte.
+     * @return Gibt das reduzierte DTO zurück.
+     */
+    public @NotNull InitDto subset(@NotNull Collection<String> deviceNames) {
+        final CapturesDto captures = new CapturesDto();
+        for (Map.Entry<String, CaptureDto> entry : this.captures.getCaptures().entrySet())
+            if (deviceNames.contains(entry.getKey()))
+                captures.addCapture(entry.getKey(), entry.getValue());
+        final ZonesDto zones = new ZonesDto();
+        for (Map.Entry<Integer, ZoneDto> entry : this.zones.getZones().entrySet())
+            if (deviceNames.contains(entry.getValue().getDeviceName()))
+                zones.addZone(Integer.toString(entry.getKey()), entry.getValue());
+        return new InitDto(captures, zones);
+    }
 }
@@ -0,0 +1,38 @@
+package overwatch.dto;
+
+import java.util.List;
+
+/**
+ * Transportobjekt für den Zustand aller Zonen.
+ */
+public class OccupancyDto {
+
+    private final long frame;
+
+    private final long sequence;
+
+    private final List<ZoneStateDto> zones;
+
+    /**
+     * @param frame Die Nummer der letzten abgeschlossenen Iteration.
+     * @param sequence Die Sequenznummer des letzten Wechsels, ab welcher Änderungen abonniert werden können.
+     * @param zones Die Zustände aller Zonen.
+     */
+    public OccupancyDto(long frame, long sequence, List<ZoneStateDto> zones) {
+        this.frame = frame;
+        this.sequence = sequence;
+        this.zones = zones;
+    }
+
+    public long getFrame() {
+        return frame;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public List<ZoneStateDto> getZones() {
+        return zones;
+    }
+}
@@ -0,0 +1,53 @@
+package overwatch.dto;
+
+import overwatch.service.StatisticsService;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transportobjekt für die Statistiken aller Zonen.
+ */
+public class StatisticsDto {
+
+    private final long from;
+
+    private final long to;
+
+    private final long[] dwellBucketBounds;
+
+    private final List<ZoneStatisticsDto> zones;
+
+    /**
+     * @param report Die Statistiken aus dem {@link StatisticsService}.
+     */
+    public StatisticsDto(StatisticsService.Report report) {
+        this.from = report.firstHourTimestamp();
+        this.to = report.timestamp();
+        this.dwellBucketBounds = StatisticsService.DWELL_BUCKET_BOUNDS_SECONDS.clone();
+        final long hourMillis = TimeUnit.HOURS.toMillis(1);
+        final int hours = report.zones().length == 0 ? 0 : report.zones()[0].occupiedMillis().length;
+        // Die aktuelle Stunde wird nur bis zum Zeitpunkt der Abfrage gewertet.
+        final long[] elapsed = new long[hours];
+        for (int i = 0; i < hours; i++)
+            elapsed[i] = Math.max(0, Math.min(hourMillis, to - (from + i * hourMillis)));
+        this.zones = Arrays.stream(report.zones()).map(it -> new ZoneStatisticsDto(it, elapsed)).toList();
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public long[] getDwellBucketBounds() {
+        return dwellBucketBounds;
+    }
+
+    public List<ZoneStatisticsDto> getZones() {
+        return zones;
+    }
+}
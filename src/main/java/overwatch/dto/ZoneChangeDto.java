@@ -0,0 +1,47 @@
+package overwatch.dto;
+
+import overwatch.service.OccupancyService;
+
+/**
+ * Transportobjekt für einen Wechsel des Zustands einer Zone.
+ */
+public class ZoneChangeDto {
+
+    private final long sequence;
+
+    private final long frame;
+
+    private final int nr;
+
+    private final boolean active;
+
+    private final long timestamp;
+
+    public ZoneChangeDto(OccupancyService.ZoneChange change) {
+        this.sequence = change.sequence();
+        this.frame = change.frameId();
+        this.nr = change.nr();
+        this.active = change.isActive();
+        this.timestamp = change.timestamp();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getFrame() {
+        return frame;
+    }
+
+    public int getNr() {
+        return nr;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
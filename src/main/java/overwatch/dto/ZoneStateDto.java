@@ -0,0 +1,33 @@
+package overwatch.dto;
+
+import overwatch.service.OccupancyService;
+
+/**
+ * Transportobjekt für den Zustand einer Zone.
+ */
+public class ZoneStateDto {
+
+    private final int nr;
+
+    private final boolean active;
+
+    private final long lastChange;
+
+    public ZoneStateDto(OccupancyService.ZoneState state) {
+        this.nr = state.nr();
+        this.active = state.isActive();
+        this.lastChange = state.lastChangeTimestamp();
+    }
+
+    public int getNr() {
+        return nr;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public long getLastChange() {
+        return lastChange;
+    }
+}
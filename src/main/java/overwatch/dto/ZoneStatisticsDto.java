@@ -0,0 +1,78 @@
+package overwatch.dto;
+
+import overwatch.service.StatisticsService;
+
+/**
+ * Transportobjekt für die Statistiken einer Zone.
+ */
+public class ZoneStatisticsDto {
+
+    private final int nr;
+
+    private final long arrivals;
+
+    private final long departures;
+
+    private final double averageDwellSeconds;
+
+    private final long[] dwellHistogram;
+
+    private final double utilisation;
+
+    private final double[] hourlyUtilisation;
+
+    private final int[] hourlyArrivals;
+
+    /**
+     * @param statistics Die Statistiken der Zone.
+     * @param hourMillis Die erfasste Zeit je Stunde, gegen welche die aktive Zeit gerechnet wird.
+     */
+    public ZoneStatisticsDto(StatisticsService.ZoneStatistics statistics, long[] hourMillis) {
+        this.nr = statistics.nr();
+        this.arrivals = statistics.arrivals();
+        this.departures = statistics.departures();
+        this.averageDwellSeconds = statistics.averageDwellSeconds();
+        this.dwellHistogram = statistics.dwellHistogram();
+        this.hourlyUtilisation = new double[hourMillis.length];
+        long occupiedTotal = 0, total = 0;
+        for (int i = 0; i < hourMillis.length; i++) {
+            occupiedTotal += statistics.occupiedMillis()[i];
+            total += hourMillis[i];
+            hourlyUtilisation[i] = hourMillis[i] == 0 ? 0 : (double) statistics.occupiedMillis()[i] / hourMillis[i];
+        }
+        this.utilisation = total == 0 ? 0 : (double) occupiedTotal / total;
+        this.hourlyArrivals = statistics.hourlyArrivals();
+    }
+
+    public int getNr() {
+        return nr;
+    }
+
+    public long getArrivals() {
+        return arrivals;
+    }
+
+    public long getDepartures() {
+        return departures;
+    }
+
+    public double getAverageDwellSeconds() {
+        return averageDwellSeconds;
+    }
+
+    public long[] getDwellHistogram() {
+        return dwellHistogram;
+    }
+
+    public double getUtilisation() {
+        return utilisation;
+    }
+
+    public double[] getHourlyUtilisation() {
+        return hourlyUtilisation;
+    }
+
+    public int[] getHourlyArrivals() {
+        return hourlyArrivals;
+    }
+}
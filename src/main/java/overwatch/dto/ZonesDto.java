@@ -1,5 +1,6 @@
 package overwatch.dto;
 
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
 
 import java.util.HashMap;
@@ -14,6 +15,7 @@ public class ZonesDto {
         zones.put(Integer.parseInt(key), zone);
     }
 
+    @JsonAnyGetter
     public Map<Integer, ZoneDto> getZones() {
         return zones;
     }
@@ -0,0 +1,425 @@
+package overwatch.journal;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Journal für Wechsel des Zustands von Zonen, abgelegt in Segmentdateien, welche in den Speicher abgebildet werden.
+ * Jeder Eintrag erhält einen fortlaufenden Offset, welcher auch über Neustarts hinweg eindeutig bleibt.
+ * <p>
+ * {@link #append(int, boolean, long, long)} legt Einträge nur in einem Ringpuffer ab und erzeugt dabei keine Objekte.
+ * Ein eigener Thread überträgt diese in das aktuelle Segment, beginnt bei Bedarf ein neues und entfernt abgelaufene Segmente.
+ * Es darf immer nur ein Thread gleichzeitig {@link #append(int, boolean, long, long)} aufrufen.
+ */
+public final class Journal implements AutoCloseable {
+
+    /**
+     * Callback für gelesene Einträge. Die Werte werden einzeln übergeben, damit beim Lesen keine Objekte entstehen.
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+
+        /**
+         * @param offset Der Offset des Eintrags.
+         * @param timestamp Zeitpunkt der Aufnahme des auslösenden Frames in Millisekunden.
+         * @param frameId Die Nummer des auslösenden Frames.
+         * @param zoneNr Die Nummer der Zone.
+         * @param isActive {@code true}, wenn die Zone aktiv wurde, {@code false}, wenn sie inaktiv wurde.
+         */
+        void accept(long offset, long timestamp, long frameId, int zoneNr, boolean isActive);
+    }
+
+    private static final Logger logger = Logger.getLogger(Journal.class.getName());
+
+    /**
+     * Kennung und Version des Dateiformats.
+     */
+    private static final int FORMAT_VERSION = 0x4f4a0001;
+
+    /**
+     * Aufbau des Kopfes: Version (int), Anzahl der Einträge (int), Offset des ersten Eintrags (long).
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * Aufbau eines Eintrags: Zeitpunkt (long), Frame (long), Zone (int), Zustand (int).
+     */
+    static final int RECORD_SIZE = 24;
+
+    private static final int COUNT_POSITION = 4;
+
+    private static final int BASE_OFFSET_POSITION = 8;
+
+    private static final String SEGMENT_PREFIX = "segment-", SEGMENT_SUFFIX = ".journal";
+
+    private static final String ACKNOWLEDGED_FILE_NAME = "acknowledged";
+
+    /**
+     * Größe des Ringpuffers, muss eine Zweierpotenz sein.
+     */
+    private static final int BUFFER_CAPACITY = 8192;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Ein Segment mit seinem abgebildeten Speicher.
+     */
+    private record Segment(long baseOffset, @NotNull Path path, @NotNull MappedByteBuffer buffer) {
+
+        private int count() {
+            return buffer.getInt(COUNT_POSITION);
+        }
+
+        private int capacity() {
+            return (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        }
+
+        private long lastTimestamp() {
+            final int count = count();
+            return count == 0 ? Long.MIN_VALUE : buffer.getLong(HEADER_SIZE + (count - 1) * RECORD_SIZE);
+        }
+    }
+
+    private final @NotNull Path directory;
+
+    private final int segmentRecords;
+
+    private final long retentionMillis;
+
+    /**
+     * Alle vorhandenen Segmente nach ihrem ersten Offset.
+     */
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final MappedByteBuffer acknowledgedBuffer;
+
+    private final long[] bufferTimestamps = new long[BUFFER_CAPACITY];
+    private final long[] bufferFrameIds = new long[BUFFER_CAPACITY];
+    private final int[] bufferZoneNrs = new int[BUFFER_CAPACITY];
+    private final boolean[] bufferStates = new boolean[BUFFER_CAPACITY];
+
+    /**
+     * Anzahl der in den Ringpuffer gelegten Einträge. Wird nur von dem schreibenden Thread verändert.
+     */
+    private volatile long appended;
+
+    /**
+     * Anzahl der in Segmente übertragenen Einträge. Wird nur von {@link #writer} verändert.
+     */
+    private volatile long written;
+
+    /**
+     * Anzahl der verworfenen Einträge, weil der Ringpuffer voll war.
+     */
+    private volatile long dropped;
+
+    /**
+     * Offset des ersten Eintrags in diesem Journal, alle davor wurden vor dem Öffnen geschrieben.
+     */
+    private final long initialOffset;
+
+    private final @NotNull Thread writer;
+
+    private volatile boolean isClosed;
+
+    /**
+     * Öffnet ein Journal. Vorhandene Segmente werden fortgesetzt.
+     * @param directory Das Verzeichnis der Segmente, wird bei Bedarf angelegt.
+     * @param segmentRecords Die Anzahl der Einträge pro Segment.
+     * @param retentionMillis Die Zeit, nach der ein vollständiges Segment entfernt wird. Bei {@code 0} werden Segmente nie entfernt.
+     * @throws IOException Sollte das Verzeichnis nicht lesbar sein.
+     */
+    public Journal(@NotNull Path directory, int segmentRecords, long retentionMillis) throws IOException {
+        this.directory = directory;
+        this.segmentRecords = Math.max(1, segmentRecords);
+        this.retentionMillis = retentionMillis;
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                final Segment segment = openSegment(file);
+                if (segment != null)
+                    segments.put(segment.baseOffset(), segment);
+            }
+        }
+        final Map.Entry<Long, Segment> last = segments.lastEntry();
+        this.initialOffset = last == null ? 0 : last.getKey() + last.getValue().count();
+        this.acknowledgedBuffer = map(directory.resolve(ACKNOWLEDGED_FILE_NAME), Long.BYTES);
+        this.writer = new Thread(this::write, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private Segment openSegment(Path file) {
+        try {
+            final int size = (int) Files.size(file);
+            if (size < HEADER_SIZE)
+                return null;
+            final MappedByteBuffer buffer = map(file, size);
+            if (buffer.getInt(0) != FORMAT_VERSION) {
+                logger.warning("Ignoring journal segment with unknown format: '" + file + "'");
+                return null;
+            }
+            return new Segment(buffer.getLong(BASE_OFFSET_POSITION), file, buffer);
+        }
+        catch (IOException e) {
+            logger.severe("Could not open journal segment '" + file + "': " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Segment createSegment(long baseOffset) throws IOException {
+        final Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, baseOffset, SEGMENT_SUFFIX));
+        final MappedByteBuffer buffer = map(file, HEADER_SIZE + segmentRecords * RECORD_SIZE);
+        buffer.putInt(0, FORMAT_VERSION);
+        buffer.putInt(COUNT_POSITION, 0);
+        buffer.putLong(BASE_OFFSET_POSITION, baseOffset);
+        final Segment segment = new Segment(baseOffset, file, buffer);
+        segments.put(baseOffset, segment);
+        return segment;
+    }
+
+    /**
+     * Legt einen Wechsel im Ringpuffer ab. Ist dieser voll, wird der Eintrag verworfen.
+     * @param zoneNr Die Nummer der Zone.
+     * @param isActive Der neue Zustand der Zone.
+     * @param frameId Die Nummer des auslösenden Frames.
+     * @param timestamp Zeitpunkt der Aufnahme des auslösenden Frames.
+     * @return Gibt den Offset des Eintrags zurück oder {@code -1}, sollte er verworfen worden sein.
+     */
+    public long append(int zoneNr, boolean isActive, long frameId, long timestamp) {
+        final long index = appended;
+        if (index - written >= BUFFER_CAPACITY || isClosed) {
+            dropped++;
+            return -1;
+        }
+        final int slot = (int) (index & (BUFFER_CAPACITY - 1));
+        bufferTimestamps[slot] = timestamp;
+        bufferFrameIds[slot] = frameId;
+        bufferZoneNrs[slot] = zoneNr;
+        bufferStates[slot] = isActive;
+        appended = index + 1;
+        LockSupport.unpark(writer);
+        return initialOffset + index;
+    }
+
+    /**
+     * Der Offset, den der nächste Eintrag erhält.
+     * @return Gibt den Offset zurück.
+     */
+    public long position() {
+        return initialOffset + appended;
+    }
+
+    /**
+     * Der Offset nach dem letzten in ein Segment übertragenen Eintrag.
+     * @return Gibt den Offset zurück.
+     */
+    public long writtenPosition() {
+        return initialOffset + written;
+    }
+
+    /**
+     * Wartet, bis alle Einträge bis zu einem Offset in Segmente übertragen wurden.
+     * @param offset Der exklusive Offset.
+     * @param timeoutMillis Die maximale Wartezeit.
+     * @return Gibt {@code true} zurück, wenn alle Einträge übertragen wurden.
+     */
+    public boolean awaitWritten(long offset, long timeoutMillis) {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (writtenPosition() < offset) {
+            if (System.nanoTime() >= deadline || !writer.isAlive())
+                return false;
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    /**
+     * Der Offset nach dem letzten vom Backend bestätigten Eintrag.
+     * @return Gibt den Offset zurück.
+     */
+    public long acknowledged() {
+        synchronized (acknowledgedBuffer) {
+            return acknowledgedBuffer.getLong(0);
+        }
+    }
+
+    /**
+     * Bestätigt alle Einträge vor einem Offset. Kleinere Offsets als der bisher bestätigte werden ignoriert.
+     * @param offset Der exklusive Offset.
+     */
+    public void acknowledge(long offset) {
+        synchronized (acknowledgedBuffer) {
+            if (offset > acknowledgedBuffer.getLong(0))
+                acknowledgedBuffer.putLong(0, offset);
+        }
+    }
+
+    /**
+     * Anzahl der verworfenen Einträge, weil der Ringpuffer voll war.
+     * @return Gibt die Anzahl zurück.
+     */
+    public long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Liest alle übertragenen Einträge in einem Bereich von Offsets. Einträge aus entfernten Segmenten werden übersprungen.
+     * @param fromOffset Der erste zu lesende Offset.
+     * @param toOffset Der exklusive letzte Offset.
+     * @param consumer Erhält die Einträge in ihrer Reihenfolge.
+     * @return Gibt die Anzahl der gelesenen Einträge zurück.
+     */
+    public int read(long fromOffset, long toOffset, @NotNull RecordConsumer consumer) {
+        final long end = Math.min(toOffset, writtenPosition());
+        int count = 0;
+        final Long firstKey = segments.floorKey(fromOffset);
+        for (Segment segment : segments.tailMap(firstKey == null ? fromOffset : firstKey).values()) {
+            if (segment.baseOffset() >= end)
+                break;
+            final int from = (int) Math.max(0, fromOffset - segment.baseOffset());
+            final int to = (int) Math.min(segment.count(), end - segment.baseOffset());
+            for (int i = from; i < to; i++, count++)
+                accept(segment, i, consumer);
+        }
+        return count;
+    }
+
+    /**
+     * Liest alle übertragenen Einträge in einem Zeitraum.
+     * @param fromTimestamp Der erste zu lesende Zeitpunkt in Millisekunden.
+     * @param toTimestamp Der exklusive letzte Zeitpunkt in Millisekunden.
+     * @param consumer Erhält die Einträge in ihrer Reihenfolge.
+     * @return Gibt die Anzahl der gelesenen Einträge zurück.
+     */
+    public int replay(long fromTimestamp, long toTimestamp, @NotNull RecordConsumer consumer) {
+        final long end = writtenPosition();
+        int count = 0;
+        for (Segment segment : segments.values()) {
+            if (segment.baseOffset() >= end)
+                break;
+            final int size = (int) Math.min(segment.count(), end - segment.baseOffset());
+            if (size == 0 || segment.buffer().getLong(HEADER_SIZE + (size - 1) * RECORD_SIZE) < fromTimestamp)
+                continue;
+            // Zeitpunkte sind aufsteigend, daher kann der Anfang binär gesucht werden.
+            int low = 0, high = size;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (segment.buffer().getLong(HEADER_SIZE + middle * RECORD_SIZE) < fromTimestamp)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            for (int i = low; i < size; i++, count++) {
+                if (segment.buffer().getLong(HEADER_SIZE + i * RECORD_SIZE) >= toTimestamp)
+                    return count;
+                accept(segment, i, consumer);
+            }
+        }
+        return count;
+    }
+
+    private static void accept(Segment segment, int index, RecordConsumer consumer) {
+        final ByteBuffer buffer = segment.buffer();
+        final int position = HEADER_SIZE + index * RECORD_SIZE;
+        consumer.accept(
+                segment.baseOffset() + index,
+                buffer.getLong(position),
+                buffer.getLong(position + 8),
+                buffer.getInt(position + 16),
+                buffer.getInt(position + 20) != 0);
+    }
+
+    /**
+     * Schleife von {@link #writer}.
+     */
+    private void write() {
+        Segment segment = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        while (!isClosed || written < appended) {
+            if (written == appended) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                if (segment == null || segment.count() >= segment.capacity()) {
+                    segment = createSegment(initialOffset + written);
+                    removeExpiredSegments(segment);
+                }
+            }
+            catch (IOException e) {
+                logger.severe("Could not create journal segment: " + e.getMessage());
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            final long index = written;
+            final int slot = (int) (index & (BUFFER_CAPACITY - 1));
+            final int count = segment.count();
+            final int position = HEADER_SIZE + count * RECORD_SIZE;
+            final MappedByteBuffer buffer = segment.buffer();
+            buffer.putLong(position, bufferTimestamps[slot]);
+            buffer.putLong(position + 8, bufferFrameIds[slot]);
+            buffer.putInt(position + 16, bufferZoneNrs[slot]);
+            buffer.putInt(position + 20, bufferStates[slot] ? 1 : 0);
+            // Die Anzahl wird erst nach dem Eintrag erhöht, damit nach einem Absturz nur vollständige Einträge gelesen werden.
+            buffer.putInt(COUNT_POSITION, count + 1);
+            written = index + 1;
+        }
+    }
+
+    private void removeExpiredSegments(Segment current) {
+        if (retentionMillis <= 0)
+            return;
+        final long limit = System.currentTimeMillis() - retentionMillis;
+        for (Segment segment : segments.values()) {
+            if (segment == current || segment.lastTimestamp() >= limit)
+                continue;
+            segments.remove(segment.baseOffset());
+            try {
+                Files.deleteIfExists(segment.path());
+            }
+            catch (IOException e) {
+                logger.warning("Could not remove journal segment '" + segment.path() + "': " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Überträgt alle ausstehenden Einträge und beendet {@link #writer}.
+     */
+    @Override
+    public void close() {
+        isClosed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Segment segment : segments.values())
+            segment.buffer().force();
+        acknowledgedBuffer.force();
+        if (dropped > 0)
+            logger.warning("Journal dropped " + dropped + " records because the writer could not keep up.");
+    }
+}
@@ -0,0 +1,125 @@
+package overwatch.journal;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Die ältesten unbestätigten Frames eines {@link Journal}s mit dem damaligen Zustand aller Zonen.
+ * Der Zustand vor dem ersten Eintrag wird aus dem Zustand nach dem letzten Eintrag hergeleitet: Eine Zone, deren erster Eintrag im Bereich
+ * einen Wechsel beschreibt, hatte vorher den entgegengesetzten Zustand. Danach werden die Frames vorwärts nachgespielt.
+ * Dadurch wird jeder Eintrag nur zweimal gelesen und unabhängig von der Länge des Bereichs höchstens {@code limit} Frames gehalten.
+ */
+public final class JournalBacklog {
+
+    private final int[][] zoneNrs;
+
+    private final long[] endOffsets, timestamps;
+
+    private int size;
+
+    private boolean isComplete = true;
+
+    private JournalBacklog(int limit) {
+        this.zoneNrs = new int[limit][];
+        this.endOffsets = new long[limit];
+        this.timestamps = new long[limit];
+    }
+
+    /**
+     * Liest die ältesten Frames aus einem Bereich des Journals.
+     * @param journal Das Journal.
+     * @param fromOffset Der erste zu lesende Offset.
+     * @param toOffset Der exklusive letzte Offset.
+     * @param activeZoneNrs Die Nummern der aktiven Zonen nach dem Eintrag vor {@code toOffset}.
+     * @param limit Die maximale Anzahl an Frames, mindestens {@code 1}.
+     * @return Gibt die gelesenen Frames zurück.
+     */
+    public static @NotNull JournalBacklog read(@NotNull Journal journal, long fromOffset, long toOffset, int @NotNull [] activeZoneNrs, int limit) {
+        final Set<Integer> state = new HashSet<>();
+        for (int zoneNr : activeZoneNrs)
+            state.add(zoneNr);
+        final Set<Integer> changedZoneNrs = new HashSet<>();
+        journal.read(fromOffset, toOffset, (offset, timestamp, frameId, zoneNr, isActive) -> {
+            if (changedZoneNrs.add(zoneNr)) {
+                if (isActive)
+                    state.remove(zoneNr);
+                else
+                    state.add(zoneNr);
+            }
+        });
+
+        final JournalBacklog backlog = new JournalBacklog(Math.max(1, limit));
+        final long[] frame = { -1, 0, 0 };
+        final boolean[] hasFrame = { false };
+        journal.read(fromOffset, toOffset, (offset, timestamp, frameId, zoneNr, isActive) -> {
+            if (!backlog.isComplete)
+                return;
+            if (hasFrame[0] && frameId != frame[0]) {
+                backlog.add(state, frame[1], frame[2]);
+                hasFrame[0] = false;
+                if (backlog.size == backlog.zoneNrs.length) {
+                    backlog.isComplete = false;
+                    return;
+                }
+            }
+            if (isActive)
+                state.add(zoneNr);
+            else
+                state.remove(zoneNr);
+            frame[0] = frameId;
+            frame[1] = offset + 1;
+            frame[2] = timestamp;
+            hasFrame[0] = true;
+        });
+        if (hasFrame[0])
+            backlog.add(state, frame[1], frame[2]);
+        return backlog;
+    }
+
+    private void add(Set<Integer> state, long endOffset, long timestamp) {
+        zoneNrs[size] = state.stream().mapToInt(Integer::intValue).sorted().toArray();
+        endOffsets[size] = endOffset;
+        timestamps[size] = timestamp;
+        size++;
+    }
+
+    /**
+     * @return Gibt die Anzahl der gelesenen Frames zurück.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Gibt {@code false} zurück, wenn weitere Frames wegen der maximalen Anzahl nicht gelesen wurden.
+     */
+    public boolean isComplete() {
+        return isComplete;
+    }
+
+    /**
+     * @param frame Der Index des Frames, ältester zuerst.
+     * @return Gibt die Nummern der aktiven Zonen nach dem Frame zurück, aufsteigend.
+     */
+    public int @NotNull [] zoneNrs(int frame) {
+        return zoneNrs[frame];
+    }
+
+    /**
+     * @param frame Der Index des Frames.
+     * @return Gibt den exklusiven Offset nach dem letzten Eintrag des Frames zurück.
+     */
+    public long endOffset(int frame) {
+        return endOffsets[frame];
+    }
+
+    /**
+     * @param frame Der Index des Frames.
+     * @return Gibt den Zeitpunkt der Aufnahme des Frames zurück.
+     */
+    public long timestamp(int frame) {
+        return timestamps[frame];
+    }
+}
@@ -0,0 +1,48 @@
+package overwatch.journal;
+
+import org.jetbrains.annotations.Nullable;
+import overwatch.service.ConfigurationService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Das {@link Journal} dieses Prozesses, eingerichtet über {@code journal-path}. Ist dieser Schlüssel leer, wird kein Journal geführt.
+ */
+public final class OccupancyJournal {
+
+    private static final Logger logger = Logger.getLogger(OccupancyJournal.class.getName());
+
+    private static final @Nullable Journal journal = open();
+
+    private OccupancyJournal() {}
+
+    private static @Nullable Journal open() {
+        final String path = ConfigurationService.getString(ConfigurationService.Keys.JOURNAL_PATH);
+        if (path.isEmpty())
+            return null;
+        try {
+            final Journal journal = new Journal(
+                    Path.of(path),
+                    ConfigurationService.getInt(ConfigurationService.Keys.JOURNAL_SEGMENT_RECORDS),
+                    TimeUnit.HOURS.toMillis(ConfigurationService.getInt(ConfigurationService.Keys.JOURNAL_RETENTION_HOURS)));
+            Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "journal-shutdown"));
+            logger.info("Journal opened at '" + path + "', position " + journal.position() + ", acknowledged " + journal.acknowledged() + ".");
+            return journal;
+        }
+        catch (IOException e) {
+            logger.severe("Could not open journal: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Das Journal dieses Prozesses.
+     * @return Gibt das Journal zurück oder {@code null}, sollte keines geführt werden.
+     */
+    public static @Nullable Journal journal() {
+        return journal;
+    }
+}
@@ -14,15 +14,49 @@ public record Capture(
         int endX,
         int endY,
         int area,
-        @NotNull String deviceName) implements Outline {
+        @NotNull String deviceName,
+        int workingWidth,
+        @NotNull String algorithm) implements Outline {
 
     /**
      * Name für Captures, welche als virtuell angesehen werden sollen.
      */
     public static String VIRTUAL_CAMERA_NAME = "Virtual";
 
+    /**
+     * Präfix für Captures, deren Bilder von {@link overwatch.simulation.Simulator} erzeugt werden.
+     */
+    public static final String SIMULATED_CAMERA_PREFIX = "Simulated:";
+
     public Capture(int x, int y, int width, int height, @NotNull String deviceName){
-        this(x, y, width, height, x + width - 1, y + height -1, width * height, deviceName);
+        this(x, y, width, height, deviceName, 0);
+    }
+
+    /**
+     * Erstellt ein Videogerät mit einer eigenen Arbeitsauflösung.
+     * @param x Die Position auf der x-Achse.
+     * @param y Die Position auf der y-Achse.
+     * @param width Die Breite des Videogeräts.
+     * @param height Die Höhe des Videogeräts.
+     * @param deviceName Der Name des Videogeräts.
+     * @param workingWidth Die Breite in Pixeln, auf welche Frames vor der Auswertung herunterskaliert werden. Bei {@code 0} wird die Konfiguration verwendet.
+     */
+    public Capture(int x, int y, int width, int height, @NotNull String deviceName, int workingWidth){
+        this(x, y, width, height, deviceName, workingWidth, "");
+    }
+
+    /**
+     * Erstellt ein Videogerät mit einer eigenen Arbeitsauflösung und einem eigenen Algorithmus.
+     * @param x Die Position auf der x-Achse.
+     * @param y Die Position auf der y-Achse.
+     * @param width Die Breite des Videogeräts.
+     * @param height Die Höhe des Videogeräts.
+     * @param deviceName Der Name des Videogeräts.
+     * @param workingWidth Die Breite in Pixeln, auf welche Frames vor der Auswertung herunterskaliert werden. Bei {@code 0} wird die Konfiguration verwendet.
+     * @param algorithm Der Name des auszuführenden Algorithmus, siehe {@link overwatch.algorithm.AlgorithmProvider#name()}. Bei einem leeren String wird die Konfiguration verwendet.
+     */
+    public Capture(int x, int y, int width, int height, @NotNull String deviceName, int workingWidth, @NotNull String algorithm){
+        this(x, y, width, height, x + width - 1, y + height -1, width * height, deviceName, workingWidth, algorithm);
     }
 
     /**
@@ -33,6 +67,14 @@ public record Capture(
         return VIRTUAL_CAMERA_NAME.equals(deviceName);
     }
 
+    /**
+     * Prüft, ob die Bilder dieses Geräts von einem simulierten Parkplatz stammen.
+     * @return {@code true}, wenn diese Kamera simuliert wird.
+     */
+    public boolean isSimulated(){
+        return deviceName.startsWith(SIMULATED_CAMERA_PREFIX);
+    }
+
     @Override
     public int endX() {
         return endX;
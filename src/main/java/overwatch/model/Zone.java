@@ -49,6 +49,28 @@ public class Zone implements Outline {
         return capture;
     }
 
+    public int offsetX(){
+        return offsetX;
+    }
+
+    public int offsetY(){
+        return offsetY;
+    }
+
+    /**
+     * Prüft, ob zwei Zonen identisch definiert sind. Im Gegensatz zu {@link #equals(Object)} werden auch Capture, Position und Größe verglichen.
+     * @param other Die zu vergleichende Zone.
+     * @return Gibt {@code true} zurück, wenn beide Zonen identisch definiert sind.
+     */
+    public boolean isSameDefinition(@NotNull Zone other){
+        return nr == other.nr
+                && capture.equals(other.capture)
+                && offsetX == other.offsetX
+                && offsetY == other.offsetY
+                && width == other.width
+                && height == other.height;
+    }
+
     @Override
     public int endX() {
         return endX;
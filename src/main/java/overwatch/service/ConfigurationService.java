@@ -1,12 +1,21 @@
 package overwatch.service;
 
-import java.io.FileReader;
+import org.jetbrains.annotations.NotNull;
+
 import java.io.IOException;
-import java.util.Properties;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 /**
  * Simpler Zugriff auf Konfigurationen.
+ * <p>
+ * Die Werte liegen in einem unveränderlichen {@link Snapshot}, in dem Zahlen bereits beim Laden ausgewertet werden.
+ * Ist {@code configuration-file} gesetzt, überschreibt diese Datei die mitgelieferte Konfiguration und wird nach {@link #watch()} bei jeder Änderung neu geladen.
+ * Über {@link #subscribe(Listener)} werden Komponenten über einen neuen Snapshot benachrichtigt.
  */
 public class ConfigurationService {
 
@@ -16,29 +25,269 @@ public class ConfigurationService {
     public interface Keys {
         String SERVER_PORT = "server-port";
 
+        String CONFIGURATION_FILE = "configuration-file";
+
         String IMAGE_BASE_PATH = "image-base-path";
 
         String ANALYSE_INTERVAL_MS = "analyse-interval-ms";
 
+        String ANALYSE_ALGORITHM = "analyse-algorithm";
+
         String ANALYSE_OPENCV_ENABLE = "analyse-opencv-enable";
 
+        String ANALYSE_OPENCV_WORKING_WIDTH = "analyse-opencv-working-width";
+
+        String ANALYSE_OPENCV_DETECTION = "analyse-opencv-detection";
+
+        String ANALYSE_DONGLE_PARALLELISM = "analyse-dongle-parallelism";
+
+        String ANALYSE_DONGLE_SEARCH = "analyse-dongle-search";
+
+        String ANALYSE_AVERAGE_THRESHOLD = "analyse-average-threshold";
+
+        String ANALYSE_AVERAGE_LEARNING_SHIFT = "analyse-average-learning-shift";
+
+        String ANALYSE_AVERAGE_FOREGROUND_LEARNING_SHIFT = "analyse-average-foreground-learning-shift";
+
+        String ANALYSE_OCCUPANCY_MODE = "analyse-occupancy-mode";
+
+        String ANALYSE_COLOR_MODE = "analyse-color-mode";
+
+        String ANALYSE_OCCUPANCY_THRESHOLD_PERCENT = "analyse-occupancy-threshold-percent";
+
+        String ANALYSE_MOTION_THRESHOLD = "analyse-motion-threshold";
+
+        String ANALYSE_IDLE_AFTER_MS = "analyse-idle-after-ms";
+
+        String ANALYSE_IDLE_INTERVAL_MS = "analyse-idle-interval-ms";
+
         String DEBUG_FRAME_ENABLE = "debug-frame";
 
+        String STATE_PATH = "state-path";
+
+        String JOURNAL_PATH = "journal-path";
+
+        String JOURNAL_SEGMENT_RECORDS = "journal-segment-records";
+
+        String JOURNAL_RETENTION_HOURS = "journal-retention-hours";
+
+        String JOURNAL_RESEND_LIMIT = "journal-resend-limit";
+
+        String STATISTICS_HOURS = "statistics-hours";
+
+        String TRACE_ENABLE = "trace-enable";
+
+        String TRACE_PATH = "trace-path";
+
+        String SIMULATION_CAPTURES = "simulation-captures";
+
+        String SIMULATION_ZONES_PER_CAPTURE = "simulation-zones-per-capture";
+
+        String SIMULATION_ARRIVALS_PER_HOUR = "simulation-arrivals-per-hour";
+
+        String SIMULATION_MEAN_DWELL_SECONDS = "simulation-mean-dwell-seconds";
+
+        String SIMULATION_LIGHTING_DRIFT_PERCENT = "simulation-lighting-drift-percent";
+
+        String SIMULATION_NOISE = "simulation-noise";
+
+        String SIMULATION_DURATION_SECONDS = "simulation-duration-seconds";
+
+        String SIMULATION_ALGORITHM = "simulation-algorithm";
+
+        String BENCHMARK_SOURCE = "benchmark-source";
+
+        String BENCHMARK_DURATION_SECONDS = "benchmark-duration-seconds";
+
+        String BENCHMARK_WARMUP_SECONDS = "benchmark-warmup-seconds";
+
+        String BENCHMARK_SPEEDUP = "benchmark-speedup";
+
+        String BENCHMARK_OUTPUT_PATH = "benchmark-output-path";
+
         String SERVICE_UPDATE_ENDPOINT = "service-update-endpoint";
         String SERVICE_KEY = "service-key";
 
+        String SERVICE_TIMEOUT_MS = "service-timeout-ms";
+
         String OVERWATCH_KEY = "overwatch-key";
+
+        String CLUSTER_ROLE = "cluster-role";
+
+        String CLUSTER_NODE_ID = "cluster-node-id";
+
+        String CLUSTER_WORKERS = "cluster-workers";
+
+        String CLUSTER_HEARTBEAT_MS = "cluster-heartbeat-ms";
     }
 
-    private static final String CONFIGURATION_PATH = "src/main/resources/application.properties";
+    /**
+     * Callback für einen neu geladenen {@link Snapshot}.
+     */
+    @FunctionalInterface
+    public interface Listener {
 
-    private static final java.util.Properties properties = new Properties();
+        /**
+         * @param previous Der bisherige Snapshot.
+         * @param current Der neue Snapshot.
+         */
+        void onChange(@NotNull Snapshot previous, @NotNull Snapshot current);
+    }
+
+    /**
+     * Unveränderlicher Stand der Konfiguration. Zahlen werden einmalig beim Erstellen ausgewertet.
+     */
+    public static final class Snapshot {
+
+        private final @NotNull Map<String, String> values;
+
+        private final @NotNull Map<String, Long> integers = new HashMap<>();
+
+        private final @NotNull Map<String, Float> decimals = new HashMap<>();
+
+        private Snapshot(@NotNull Map<String, String> values) {
+            this.values = Map.copyOf(values);
+            this.values.forEach((key, value) -> {
+                try {
+                    integers.put(key, Long.parseLong(value.trim()));
+                }
+                catch (NumberFormatException ignored) {}
+                try {
+                    decimals.put(key, Float.parseFloat(value.trim()));
+                }
+                catch (NumberFormatException ignored) {}
+            });
+        }
+
+        /**
+         * Liest eine Eigenschaft anhand eines Schlüssels.
+         * @param key Der zu lesende Schlüssel.
+         * @return Gibt den verknüpften Wert oder einen leeren String zurück.
+         */
+        public @NotNull String getString(String key) {
+            return values.getOrDefault(key, "");
+        }
+
+        /**
+         * Liest eine Eigenschaft anhand eines Schlüssels als integer.
+         * @param key Der zu lesende Schlüssel.
+         * @return Gibt den verknüpften Wert zurück. Sollte der Wert nicht vorhanden sein, wird per Default 0 übergeben.
+         * @throws NumberFormatException Sollte der Wert keine Zahl sein.
+         */
+        public int getInt(String key) {
+            final Long value = integers.get(key);
+            if (value != null && value == value.intValue())
+                return value.intValue();
+            final String text = values.get(key);
+            return text == null ? 0 : Integer.parseInt(text);
+        }
+
+        /**
+         * Liest eine Eigenschaft anhand eines Schlüssels als long.
+         * @param key Der zu lesende Schlüssel.
+         * @return Gibt den verknüpften Wert zurück. Sollte der Wert nicht vorhanden sein, wird per Default 0 übergeben.
+         * @throws NumberFormatException Sollte der Wert keine Zahl sein.
+         */
+        public long getLong(String key) {
+            final Long value = integers.get(key);
+            if (value != null)
+                return value;
+            final String text = values.get(key);
+            return text == null ? 0 : Long.parseLong(text);
+        }
+
+        /**
+         * Liest eine Eigenschaft anhand eines Schlüssels als float.
+         * @param key Der zu lesende Schlüssel.
+         * @return Gibt den verknüpften Wert zurück. Sollte der Wert nicht vorhanden sein, wird per Default 0 übergeben.
+         * @throws NumberFormatException Sollte der Wert keine Zahl sein.
+         */
+        public float getFloat(String key) {
+            final Float value = decimals.get(key);
+            if (value != null)
+                return value;
+            final String text = values.get(key);
+            return text == null ? 0 : Float.parseFloat(text);
+        }
+
+        /**
+         * Liest eine Eigenschaft anhand eines Schlüssels als boolean.
+         * @param key Der zu lesende Schlüssel.
+         * @return Gibt den verknüpften Wert zurück. Sollte der Wert nicht vorhanden sein, wird per Default false übergeben.
+         */
+        public boolean getBoolean(String key) {
+            return Boolean.parseBoolean(values.get(key));
+        }
+
+        /**
+         * Liest eine Eigenschaft anhand eines Schlüssels als Konstante einer Aufzählung, ohne Beachtung der Groß- und Kleinschreibung.
+         * Ein unbekannter Wert wird mit einer Warnung ignoriert, damit ein Tippfehler in der Konfiguration die Auswertung nicht beendet.
+         * @param key Der zu lesende Schlüssel.
+         * @param defaultValue Der Wert, sollte die Eigenschaft leer oder unbekannt sein.
+         * @return Gibt die verknüpfte Konstante oder {@code defaultValue} zurück.
+         * @param <E> Der Typ der Aufzählung.
+         */
+        public <E extends Enum<E>> @NotNull E getEnum(String key, @NotNull E defaultValue) {
+            final String value = getString(key).trim();
+            if (value.isEmpty())
+                return defaultValue;
+            try {
+                return Enum.valueOf(defaultValue.getDeclaringClass(), value.toUpperCase());
+            }
+            catch (IllegalArgumentException e) {
+                logger.warning("Unknown value '" + value + "' for '" + key + "', using: " + defaultValue.name().toLowerCase());
+                return defaultValue;
+            }
+        }
+
+        /**
+         * Prüft, ob sich einer der Schlüssel gegenüber einem anderen Snapshot unterscheidet.
+         * @param other Der zu vergleichende Snapshot.
+         * @param keys Die zu prüfenden Schlüssel.
+         * @return Gibt {@code true} zurück, wenn mindestens ein Wert abweicht.
+         */
+        public boolean isChanged(@NotNull Snapshot other, @NotNull Collection<String> keys) {
+            for (String key : keys)
+                if (!Objects.equals(values.get(key), other.values.get(key)))
+                    return true;
+            return false;
+        }
+
+        /**
+         * Ermittelt alle Schlüssel, deren Wert sich gegenüber einem anderen Snapshot unterscheidet.
+         * @param other Der zu vergleichende Snapshot.
+         * @return Gibt die Schlüssel sortiert zurück.
+         */
+        public @NotNull SortedSet<String> changedKeys(@NotNull Snapshot other) {
+            final SortedSet<String> keys = new TreeSet<>(values.keySet());
+            keys.addAll(other.values.keySet());
+            keys.removeIf(key -> Objects.equals(values.get(key), other.values.get(key)));
+            return keys;
+        }
+    }
 
     private static final Logger logger = Logger.getLogger(ConfigurationService.class.getName());
 
+    /**
+     * Die mitgelieferte Konfiguration aus dem Classpath.
+     */
+    private static final Properties defaults = new Properties();
+
+    /**
+     * Über {@link #override(String, String)} gesetzte Werte. Diese bleiben beim Neuladen erhalten.
+     */
+    private static final Map<String, String> overrides = new HashMap<>();
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private static volatile @NotNull Snapshot snapshot;
+
+    private static Thread watcher;
+
     static {
-        try {
-            properties.load(ConfigurationService.class.getClassLoader().getResourceAsStream("application.properties"));
+        try (InputStream input = ConfigurationService.class.getClassLoader().getResourceAsStream("application.properties")) {
+            defaults.load(input);
+            snapshot = load();
             logger.info("ConfigurationService applied");
         }
         catch (IOException e) {
@@ -50,8 +299,135 @@ public class ConfigurationService {
 
     private ConfigurationService(){}
 
+    /**
+     * Setzt den Wert eines Schlüssels, unabhängig von der Konfigurationsdatei.
+     * @param key Der Schlüssel.
+     * @param value Der Wert.
+     */
     public static void override(String key, String value){
-        properties.put(key, value);
+        synchronized (overrides) {
+            overrides.put(key, value);
+            apply(new Snapshot(merge(snapshot.values, Map.of(key, value))));
+        }
+    }
+
+    /**
+     * Der aktuelle Stand der Konfiguration.
+     * @return Gibt den Snapshot zurück.
+     */
+    public static @NotNull Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Registriert einen Callback für neu geladene Snapshots. Dieser wird auf dem Thread aufgerufen, der die Konfiguration verändert hat.
+     * @param listener Der Callback.
+     */
+    public static void subscribe(@NotNull Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Lädt die Konfiguration neu und benachrichtigt alle Abonnenten, sollte sich ein Wert verändert haben.
+     * Kann die Konfigurationsdatei nicht gelesen werden, bleibt der bisherige Snapshot bestehen.
+     * @return Gibt {@code true} zurück, wenn sich die Konfiguration verändert hat.
+     */
+    public static boolean reload() {
+        synchronized (overrides) {
+            try {
+                return apply(load());
+            }
+            catch (IOException e) {
+                logger.severe("Could not reload configuration: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Lädt die Konfiguration neu und überwacht anschließend {@code configuration-file} auf Änderungen.
+     * Ist dieser Schlüssel leer oder die Überwachung bereits gestartet, wird nur neu geladen.
+     */
+    public static void watch() {
+        reload();
+        final String file = snapshot.getString(Keys.CONFIGURATION_FILE);
+        synchronized (overrides) {
+            if (file.isEmpty() || watcher != null)
+                return;
+            final Path path = Path.of(file).toAbsolutePath();
+            watcher = new Thread(() -> watch(path), "configuration-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    private static void watch(Path path) {
+        try (WatchService service = path.getFileSystem().newWatchService()) {
+            path.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            logger.info("Watching configuration file '" + path + "'.");
+            while (!Thread.currentThread().isInterrupted()) {
+                final WatchKey key = service.take();
+                boolean isChanged = false;
+                for (WatchEvent<?> event : key.pollEvents())
+                    isChanged |= path.getFileName().equals(event.context());
+                key.reset();
+                if (isChanged) {
+                    // Editoren schreiben häufig in mehreren Schritten, erst danach wird gelesen.
+                    Thread.sleep(100);
+                    reload();
+                }
+            }
+        }
+        catch (IOException e) {
+            logger.severe("Could not watch configuration file: " + e.getMessage());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fasst die mitgelieferte Konfiguration, die Konfigurationsdatei und alle überschriebenen Werte zusammen.
+     */
+    private static Snapshot load() throws IOException {
+        final Map<String, String> values = new HashMap<>();
+        defaults.stringPropertyNames().forEach(key -> values.put(key, defaults.getProperty(key)));
+        final String file = overrides.getOrDefault(Keys.CONFIGURATION_FILE, values.getOrDefault(Keys.CONFIGURATION_FILE, ""));
+        if (!file.isEmpty() && Files.exists(Path.of(file))) {
+            final Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(Path.of(file))) {
+                properties.load(reader);
+            }
+            properties.stringPropertyNames().forEach(key -> values.put(key, properties.getProperty(key)));
+        }
+        return new Snapshot(merge(values, overrides));
+    }
+
+    private static Map<String, String> merge(Map<String, String> values, Map<String, String> additionalValues) {
+        final Map<String, String> result = new HashMap<>(values);
+        result.putAll(additionalValues);
+        return result;
+    }
+
+    /**
+     * Übernimmt einen neuen Snapshot und benachrichtigt alle Abonnenten. Fehler eines Abonnenten betreffen die übrigen nicht.
+     */
+    private static boolean apply(Snapshot current) {
+        final Snapshot previous = snapshot;
+        final Set<String> changedKeys = current.changedKeys(previous);
+        if (changedKeys.isEmpty())
+            return false;
+        snapshot = current;
+        logger.info("Configuration changed: " + changedKeys);
+        for (Listener listener : listeners) {
+            try {
+                listener.onChange(previous, current);
+            }
+            catch (RuntimeException e) {
+                logger.severe("Could not apply configuration change: " + e);
+            }
+        }
+        return true;
     }
 
     /**
@@ -60,7 +436,7 @@ public class ConfigurationService {
      * @return Gibt den verknüpften Wert oder einen leeren String zurück.
      */
     public static String getString(String key) {
-        return properties.getProperty(key, "");
+        return snapshot.getString(key);
     }
 
     /**
@@ -69,8 +445,7 @@ public class ConfigurationService {
      * @return Gibt den verknüpften Wert zurück. Sollte der Wert nicht vorhanden sein, wird per Default 0 übergeben.
      */
     public static int getInt(String key) {
-        String value = properties.getProperty(key);
-        return value == null ? 0 : Integer.parseInt(value);
+        return snapshot.getInt(key);
     }
 
     /**
@@ -79,8 +454,7 @@ public class ConfigurationService {
      * @return Gibt den verknüpften Wert zurück. Sollte der Wert nicht vorhanden sein, wird per Default 0 übergeben.
      */
     public static long getLong(String key) {
-        String value = properties.getProperty(key);
-        return value == null ? 0 : Long.parseLong(value);
+        return snapshot.getLong(key);
     }
 
     /**
@@ -89,8 +463,7 @@ public class ConfigurationService {
      * @return Gibt den verknüpften Wert zurück. Sollte der Wert nicht vorhanden sein, wird per Default 0 übergeben.
      */
     public static float getFloat(String key) {
-        String value = properties.getProperty(key);
-        return value == null ? 0 : Float.parseFloat(key);
+        return snapshot.getFloat(key);
     }
 
     /**
@@ -99,7 +472,17 @@ public class ConfigurationService {
      * @return Gibt den verknüpften Wert zurück. Sollte der Wert nicht vorhanden sein, wird per Default false übergeben.
      */
     public static boolean getBoolean(String key) {
-        String value = properties.getProperty(key);
-        return Boolean.parseBoolean(value);
+        return snapshot.getBoolean(key);
+    }
+
+    /**
+     * Liest eine Eigenschaft anhand eines Schlüssels als Konstante einer Aufzählung, siehe {@link Snapshot#getEnum(String, Enum)}.
+     * @param key Der zu lesende Schlüssel.
+     * @param defaultValue Der Wert, sollte die Eigenschaft leer oder unbekannt sein.
+     * @return Gibt die verknüpfte Konstante oder {@code defaultValue} zurück.
+     * @param <E> Der Typ der Aufzählung.
+     */
+    public static <E extends Enum<E>> @NotNull E getEnum(String key, @NotNull E defaultValue) {
+        return snapshot.getEnum(key, defaultValue);
     }
 }
@@ -1,9 +1,14 @@
 package overwatch.service;
 
+import org.jetbrains.annotations.NotNull;
+import overwatch.journal.Journal;
+import overwatch.journal.JournalBacklog;
+
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.*;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -15,45 +20,117 @@ public class HttpService {
 
     private static final Logger logger = Logger.getLogger(HttpService.class.getName());
 
-    private static final HttpClient httpClient = HttpClient.newHttpClient();
+    /**
+     * Standardwert für {@code service-timeout-ms}.
+     */
+    private static final int DEFAULT_TIMEOUT_MS = 5000;
 
-    private static final String updateEndpoint = ConfigurationService.getString(ConfigurationService.Keys.SERVICE_UPDATE_ENDPOINT);
+    private static final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(timeout(ConfigurationService.snapshot()))
+            .build();
 
     private HttpService() {}
 
     /**
      * Sendet eine Anfrage an den Service, um die aktiven Zonen zu aktualisieren.
      * @param zoneNrs Die Nummern der aktiven Zonen.
+     * @return Gibt den Status der Antwort zurück oder {@code -1}, sollte die Anfrage fehlgeschlagen sein.
      */
-    public static void sendActiveZones(int[] zoneNrs) {
+    public static int sendActiveZones(int[] zoneNrs) {
+        return sendActiveZones(zoneNrs, 0);
+    }
 
-        final Collection<QueryParam> queryParams = new ArrayList<>(zoneNrs.length);
+    /**
+     * Sendet eine Anfrage an den Service, um die aktiven Zonen zu aktualisieren.
+     * @param zoneNrs Die Nummern der aktiven Zonen.
+     * @param timestamp Zeitpunkt, zu dem diese Zonen aktiv waren. Bei {@code 0} wird dieser nicht übertragen und der Zustand gilt als aktuell.
+     * @return Gibt den Status der Antwort zurück oder {@code -1}, sollte die Anfrage fehlgeschlagen sein.
+     */
+    public static int sendActiveZones(int[] zoneNrs, long timestamp) {
+
+        final Collection<QueryParam> queryParams = new ArrayList<>(zoneNrs.length + 1);
         for (int zoneNr : zoneNrs)
             queryParams.add(new QueryParam("zones", Integer.toString(zoneNr)));
+        if (timestamp > 0)
+            queryParams.add(new QueryParam("timestamp", Long.toString(timestamp)));
 
+        // Alle Werte einer Anfrage stammen aus demselben Stand der Konfiguration, auch wenn diese währenddessen neu geladen wird.
+        final ConfigurationService.Snapshot configuration = ConfigurationService.snapshot();
+        final String nodeId = configuration.getString(ConfigurationService.Keys.CLUSTER_NODE_ID);
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(buildUri(queryParams))
-                    .header("key", ConfigurationService.getString(ConfigurationService.Keys.SERVICE_KEY))
-                    .PUT(HttpRequest.BodyPublishers.noBody())
-                    .build();
+            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+                    .uri(buildUri(configuration.getString(ConfigurationService.Keys.SERVICE_UPDATE_ENDPOINT), queryParams))
+                    .header("key", configuration.getString(ConfigurationService.Keys.SERVICE_KEY))
+                    .timeout(timeout(configuration))
+                    .PUT(HttpRequest.BodyPublishers.noBody());
+            // Worker eines Clusters geben sich gegenüber dem Koordinator zu erkennen.
+            if (!nodeId.isEmpty())
+                requestBuilder.header("node", nodeId);
+            HttpRequest request = requestBuilder.build();
             HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
             if (response.statusCode() > 204)
                 logger.severe("Illegal response from service. Response-Status: '"
                         + response.statusCode()
                         + "', Response-Body: '"
                         + response.body() + "'.");
+            return response.statusCode();
         }
         catch (Exception e){
             logger.severe("Could not send Http-Request to service.");
+            return -1;
         }
     }
 
-    private static URI buildUri(Collection<QueryParam> queryParams) {
+    /**
+     * Prüft, ob der Service eine Anfrage angenommen hat.
+     * @param status Der Status der Antwort, siehe {@link #sendActiveZones(int[])}.
+     * @return Gibt {@code true} zurück, wenn die Anfrage angenommen wurde.
+     */
+    public static boolean isSuccessful(int status) {
+        return status >= 200 && status < 300;
+    }
+
+    /**
+     * Sendet unbestätigte Wechsel aus dem Journal erneut, ältester zuerst. Pro Frame wird der damalige Zustand aller Zonen mit seinem Zeitpunkt gesendet,
+     * siehe {@link JournalBacklog}. Pro Aufruf werden höchstens {@code journal-resend-limit} Frames gesendet.
+     * Jeder angenommene Zustand wird im Journal bestätigt, bei der ersten fehlgeschlagenen Anfrage wird abgebrochen.
+     * Blockiert für die Dauer der Anfragen und darf daher nicht auf dem Thread der Auswertung aufgerufen werden, siehe {@link PublishService}.
+     * @param journal Das Journal.
+     * @param toOffset Der exklusive Offset des letzten zu sendenden Eintrags.
+     * @param activeZoneNrs Die Nummern der aktiven Zonen nach dem Eintrag vor {@code toOffset}.
+     * @return Gibt {@code true} zurück, wenn alle Einträge bis {@code toOffset} bestätigt sind.
+     */
+    public static boolean resendFromJournal(@NotNull Journal journal, long toOffset, int @NotNull [] activeZoneNrs) {
+        final int limit = Math.max(1, ConfigurationService.getInt(ConfigurationService.Keys.JOURNAL_RESEND_LIMIT));
+        final long fromOffset = journal.acknowledged();
+        if (fromOffset >= toOffset)
+            return true;
+        if (!journal.awaitWritten(toOffset, 1000))
+            logger.warning("Journal entries up to " + toOffset + " are not written yet, resending available entries.");
+
+        final JournalBacklog backlog = JournalBacklog.read(journal, fromOffset, toOffset, activeZoneNrs, limit);
+        if (backlog.size() > 0)
+            logger.info("Resending " + backlog.size() + (backlog.isComplete() ? "" : " of more") + " unacknowledged frames from journal.");
+        for (int frame = 0; frame < backlog.size(); frame++) {
+            if (!isSuccessful(sendActiveZones(backlog.zoneNrs(frame), backlog.timestamp(frame))))
+                return false;
+            journal.acknowledge(backlog.endOffset(frame));
+        }
+        if (backlog.isComplete())
+            journal.acknowledge(toOffset);
+        return backlog.isComplete();
+    }
+
+    private static Duration timeout(ConfigurationService.Snapshot configuration) {
+        final int timeout = configuration.getInt(ConfigurationService.Keys.SERVICE_TIMEOUT_MS);
+        return Duration.ofMillis(timeout > 0 ? timeout : DEFAULT_TIMEOUT_MS);
+    }
+
+    private static URI buildUri(String updateEndpoint, Collection<QueryParam> queryParams) {
         final String params = queryParams.stream()
                 .map(queryParam -> queryParam.key + "=" + queryParam.value)
                 .collect(Collectors.joining("&"));
-        return URI.create(HttpService.updateEndpoint + "?" + params);
+        return URI.create(updateEndpoint + "?" + params);
 
     }
 
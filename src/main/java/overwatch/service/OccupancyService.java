@@ -0,0 +1,210 @@
+package overwatch.service;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.model.Zone;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hält den entprellten Zustand aller Zonen im Speicher, damit dieser ohne Darstellung abgefragt werden kann.
+ * Jeder Wechsel erhält eine fortlaufende Sequenznummer und wird in einem Ringpuffer vorgehalten,
+ * sodass Abonnenten nach einem Verbindungsabbruch ab ihrer letzten Sequenznummer fortsetzen können.
+ * Jeder Wechsel wird außerdem an den {@link StatisticsService} weitergegeben.
+ */
+public final class OccupancyService {
+
+    /**
+     * Zustand einer Zone.
+     * @param nr Die Nummer der Zone.
+     * @param isActive Gibt an, ob die Zone aktiv ist.
+     * @param lastChangeTimestamp Zeitpunkt der Aufnahme des Frames, mit dem sich der Zustand zuletzt geändert hat, oder {@code 0}.
+     */
+    public record ZoneState(int nr, boolean isActive, long lastChangeTimestamp) {}
+
+    /**
+     * Ein Wechsel des Zustands einer Zone.
+     * @param sequence Die fortlaufende Sequenznummer, beginnend bei {@code 1}.
+     * @param frameId Die Nummer des auslösenden Frames oder {@link #RESET_FRAME_ID}, sollte der Wechsel durch einen Neustart entstanden sein.
+     * @param nr Die Nummer der Zone.
+     * @param isActive Der neue Zustand.
+     * @param timestamp Zeitpunkt der Aufnahme des auslösenden Frames.
+     */
+    public record ZoneChange(long sequence, long frameId, int nr, boolean isActive, long timestamp) {}
+
+    /**
+     * Zustand aller Zonen.
+     * @param sequence Die Sequenznummer des letzten Wechsels oder {@code 0}, sollte noch kein Wechsel erfasst worden sein.
+     * @param states Die Zustände aufsteigend nach Nummer der Zone.
+     */
+    public record Snapshot(long sequence, @NotNull ZoneState[] states) {}
+
+    /**
+     * Nummer des Frames für Wechsel, die durch einen Neustart des Algorithmus entstehen.
+     */
+    public static final long RESET_FRAME_ID = 0;
+
+    /**
+     * Anzahl der vorgehaltenen Wechsel.
+     */
+    private static final int CHANGE_CAPACITY = 4096;
+
+    private static final Object lock = new Object();
+
+    private static final long[] changeFrameIds = new long[CHANGE_CAPACITY];
+    private static final long[] changeTimestamps = new long[CHANGE_CAPACITY];
+    private static final int[] changeZoneNrs = new int[CHANGE_CAPACITY];
+    private static final boolean[] changeStates = new boolean[CHANGE_CAPACITY];
+
+    /**
+     * Sequenznummer des letzten Wechsels.
+     */
+    private static long sequence;
+
+    private static int[] zoneNrs = new int[0];
+    private static boolean[] states = new boolean[0];
+    private static long[] lastChangeTimestamps = new long[0];
+
+    /**
+     * Index einer Zone in {@link #zoneNrs} nach ihrer Nummer.
+     */
+    private static Map<Integer, Integer> indices = Map.of();
+
+    private OccupancyService() {}
+
+    /**
+     * Übernimmt die Zonen eines neu gestarteten Algorithmus. Zonen, die bereits bekannt sind und ihren Zustand behalten, behalten auch den Zeitpunkt ihres letzten Wechsels.
+     * Für jede Zone, deren Zustand sich dadurch ändert, wird ein Wechsel mit {@link #RESET_FRAME_ID} erfasst, sodass Abonnenten ohne vollständigen Zustand
+     * auf dem aktuellen Stand bleiben. Unbekannte und entfernte Zonen gelten dabei als nicht aktiv.
+     * @param zones Alle ausgewerteten Zonen.
+     * @param activeZones Die aktiven Zonen.
+     */
+    public static void reset(@NotNull Zone[] zones, @NotNull Collection<? extends Zone> activeZones) {
+        synchronized (lock) {
+            final long timestamp = System.currentTimeMillis();
+            final int[] nrs = Arrays.stream(zones).mapToInt(Zone::nr).distinct().sorted().toArray();
+            final boolean[] newStates = new boolean[nrs.length];
+            final long[] newTimestamps = new long[nrs.length];
+            final Map<Integer, Integer> newIndices = new HashMap<>();
+            for (int i = 0; i < nrs.length; i++) {
+                newIndices.put(nrs[i], i);
+                final Integer previous = indices.get(nrs[i]);
+                if (previous != null)
+                    newTimestamps[i] = lastChangeTimestamps[previous];
+            }
+            for (Zone zone : activeZones) {
+                final Integer index = newIndices.get(zone.nr());
+                if (index != null)
+                    newStates[index] = true;
+            }
+            int changeCount = 0;
+            for (int i = 0; i < zoneNrs.length; i++)
+                if (states[i] && !newIndices.containsKey(zoneNrs[i])) {
+                    recordChange(RESET_FRAME_ID, zoneNrs[i], false, timestamp);
+                    changeCount++;
+                }
+            for (int i = 0; i < nrs.length; i++) {
+                final Integer previous = indices.get(nrs[i]);
+                if (newStates[i] == (previous != null && states[previous]))
+                    continue;
+                newTimestamps[i] = timestamp;
+                recordChange(RESET_FRAME_ID, nrs[i], newStates[i], timestamp);
+                changeCount++;
+            }
+            zoneNrs = nrs;
+            states = newStates;
+            lastChangeTimestamps = newTimestamps;
+            indices = newIndices;
+            StatisticsService.reset(nrs, newStates, timestamp);
+            if (changeCount > 0)
+                lock.notifyAll();
+        }
+    }
+
+    /**
+     * Übernimmt die entprellten aktiven Zonen und erfasst für jede Zone mit verändertem Zustand einen Wechsel.
+     * @param activeZones Die aktiven Zonen.
+     * @param frameId Die Nummer des auslösenden Frames.
+     * @param timestamp Zeitpunkt der Aufnahme des auslösenden Frames.
+     * @return Gibt die Anzahl der erfassten Wechsel zurück.
+     */
+    public static int update(@NotNull Collection<? extends Zone> activeZones, long frameId, long timestamp) {
+        synchronized (lock) {
+            final boolean[] newStates = new boolean[states.length];
+            for (Zone zone : activeZones) {
+                final Integer index = indices.get(zone.nr());
+                if (index != null)
+                    newStates[index] = true;
+            }
+            int changeCount = 0;
+            for (int i = 0; i < states.length; i++) {
+                if (states[i] == newStates[i])
+                    continue;
+                states[i] = newStates[i];
+                lastChangeTimestamps[i] = timestamp;
+                recordChange(frameId, zoneNrs[i], newStates[i], timestamp);
+                StatisticsService.recordChange(i, newStates[i], timestamp);
+                changeCount++;
+            }
+            if (changeCount > 0)
+                lock.notifyAll();
+            return changeCount;
+        }
+    }
+
+    /**
+     * Legt einen Wechsel mit der nächsten Sequenznummer im Ringpuffer ab. Der Aufrufer muss {@link #lock} halten.
+     */
+    private static void recordChange(long frameId, int zoneNr, boolean isActive, long timestamp) {
+        final int slot = (int) (++sequence % CHANGE_CAPACITY);
+        changeFrameIds[slot] = frameId;
+        changeTimestamps[slot] = timestamp;
+        changeZoneNrs[slot] = zoneNr;
+        changeStates[slot] = isActive;
+    }
+
+    /**
+     * Liest den Zustand aller Zonen aus.
+     * @return Gibt die Zustände aufsteigend nach Nummer mit der Sequenznummer des letzten Wechsels zurück.
+     */
+    public static @NotNull Snapshot snapshot() {
+        synchronized (lock) {
+            final ZoneState[] result = new ZoneState[zoneNrs.length];
+            for (int i = 0; i < result.length; i++)
+                result[i] = new ZoneState(zoneNrs[i], states[i], lastChangeTimestamps[i]);
+            return new Snapshot(sequence, result);
+        }
+    }
+
+    /**
+     * Liest alle Wechsel nach einer Sequenznummer aus. Ist noch kein neuerer Wechsel vorhanden, wird bis zum Ablauf des Timeouts gewartet.
+     * @param afterSequence Die zuletzt erhaltene Sequenznummer.
+     * @param timeoutMillis Die maximale Wartezeit.
+     * @return Gibt die Wechsel in ihrer Reihenfolge zurück oder {@code null}, sollten Wechsel nach {@code afterSequence} nicht mehr vorgehalten werden oder die Sequenznummer unbekannt sein.
+     * @throws InterruptedException Sollte der Thread während des Wartens unterbrochen werden.
+     */
+    public static ZoneChange[] awaitChanges(long afterSequence, long timeoutMillis) throws InterruptedException {
+        synchronized (lock) {
+            if (afterSequence > sequence)
+                return null;
+            final long deadline = System.currentTimeMillis() + timeoutMillis;
+            long remaining = timeoutMillis;
+            while (sequence <= afterSequence && remaining > 0) {
+                lock.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            if (afterSequence < sequence - CHANGE_CAPACITY)
+                return null;
+            final int count = (int) Math.max(0, sequence - afterSequence);
+            final ZoneChange[] changes = new ZoneChange[count];
+            for (int i = 0; i < count; i++) {
+                final long changeSequence = afterSequence + 1 + i;
+                final int slot = (int) (changeSequence % CHANGE_CAPACITY);
+                changes[i] = new ZoneChange(changeSequence, changeFrameIds[slot], changeZoneNrs[slot], changeStates[slot], changeTimestamps[slot]);
+            }
+            return changes;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package overwatch.service;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import overwatch.journal.Journal;
+import overwatch.journal.OccupancyJournal;
+import overwatch.trace.FrameEvents;
+import overwatch.trace.FrameTrace;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Meldet Wechsel der aktiven Zonen auf einem eigenen Thread an das Backend, damit ein langsames oder nicht erreichbares Backend die Auswertung nicht aufhält.
+ * Dieser Thread ist der einzige, der unbestätigte Einträge aus dem {@link Journal} erneut sendet und dessen Bestätigung fortschreibt.
+ * <p>
+ * Es wird immer nur der neueste Zustand gesendet. Wird ein Zustand vor seinem Versand durch einen neueren ersetzt, stammen dessen Wechsel
+ * aus unbestätigten Einträgen des Journals und werden mit diesen erneut gesendet. Schlägt eine Anfrage fehl,
+ * wird der Zustand nach {@link #RETRY_DELAY_MILLIS} erneut gesendet, sofern bis dahin kein neuerer vorliegt.
+ */
+public final class PublishService {
+
+    private static final Logger logger = Logger.getLogger(PublishService.class.getName());
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    /**
+     * Ein zu meldender Zustand.
+     * @param zoneNrs Die Nummern der aktiven Zonen.
+     * @param previousZoneNrs Die Nummern der aktiven Zonen vor diesem Wechsel.
+     * @param journalOffset Der Offset des ersten Eintrags dieses Wechsels im Journal.
+     * @param journalEndOffset Der exklusive Offset nach dem letzten Eintrag dieses Wechsels im Journal.
+     * @param frameId Die Nummer des auslösenden Frames.
+     * @param captureTimestamp Der Zeitpunkt der Aufnahme des auslösenden Frames.
+     * @param activatedZoneNrs Die Nummern der mit diesem Wechsel aktiv gewordenen Zonen.
+     * @param detectionTimestamps Der Zeitpunkt der ersten Erkennung pro aktiv gewordener Zone, gleicher Index wie {@code activatedZoneNrs}.
+     */
+    public record Update(int @NotNull [] zoneNrs, int @NotNull [] previousZoneNrs, long journalOffset, long journalEndOffset,
+                         long frameId, long captureTimestamp, int @NotNull [] activatedZoneNrs, long @NotNull [] detectionTimestamps) {
+
+        /**
+         * @return Gibt denselben Zustand ohne aktiv gewordene Zonen zurück, deren Latenz bereits erfasst wurde.
+         */
+        private @NotNull Update withoutLatencies() {
+            return new Update(zoneNrs, previousZoneNrs, journalOffset, journalEndOffset, frameId, captureTimestamp, new int[0], new long[0]);
+        }
+    }
+
+    private static final AtomicReference<Update> pending = new AtomicReference<>();
+
+    private static final Thread sender = start();
+
+    private PublishService() {}
+
+    private static Thread start() {
+        final Thread thread = new Thread(PublishService::run, "publish-sender");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Übergibt einen Zustand zum Versand. Kehrt sofort zurück, ein noch nicht gesendeter Zustand wird ersetzt.
+     * @param update Der neue Zustand.
+     */
+    public static void submit(@NotNull Update update) {
+        pending.set(update);
+        LockSupport.unpark(sender);
+    }
+
+    /**
+     * Schleife von {@link #sender}.
+     */
+    private static void run() {
+        while (true) {
+            final Update update = pending.getAndSet(null);
+            if (update == null) {
+                LockSupport.park(PublishService.class);
+                continue;
+            }
+            Update retry = update;
+            try {
+                retry = send(update);
+                if (retry == null)
+                    continue;
+            }
+            catch (RuntimeException e) {
+                logger.severe("Could not publish active zones: " + e.getMessage());
+            }
+            // Nur erneut senden, solange kein neuerer Zustand vorliegt.
+            pending.compareAndSet(null, retry);
+            LockSupport.parkNanos(PublishService.class, TimeUnit.MILLISECONDS.toNanos(RETRY_DELAY_MILLIS));
+        }
+    }
+
+    /**
+     * Sendet zunächst unbestätigte Einträge aus dem Journal und danach den Zustand selbst.
+     * @param update Der zu sendende Zustand.
+     * @return Gibt {@code null} zurück, wenn der Zustand und alle vorherigen Einträge bestätigt sind, ansonsten den erneut zu sendenden Zustand.
+     */
+    private static @Nullable Update send(@NotNull Update update) {
+        final Journal journal = OccupancyJournal.journal();
+        final FrameEvents.PublishEvent publishEvent = new FrameEvents.PublishEvent();
+        publishEvent.begin();
+        final boolean isJournalAcknowledged = journal == null
+                || HttpService.resendFromJournal(journal, update.journalOffset(), update.previousZoneNrs());
+        final int status = HttpService.sendActiveZones(update.zoneNrs());
+        final boolean isSuccessful = HttpService.isSuccessful(status);
+        if (journal != null && isJournalAcknowledged && isSuccessful)
+            journal.acknowledge(update.journalEndOffset());
+        publishEvent.end();
+        if (publishEvent.shouldCommit()) {
+            publishEvent.frameId = update.frameId();
+            publishEvent.zoneCount = update.zoneNrs().length;
+            publishEvent.status = status;
+            publishEvent.captureTimestamp = update.captureTimestamp();
+            publishEvent.commit();
+        }
+        if (!isSuccessful)
+            return update;
+
+        final long publishTimestamp = System.currentTimeMillis();
+        for (int i = 0; i < update.activatedZoneNrs().length; i++)
+            FrameTrace.recordLatency(update.activatedZoneNrs()[i], publishTimestamp - update.detectionTimestamps()[i]);
+        return isJournalAcknowledged ? null : update.withoutLatencies();
+    }
+}
@@ -0,0 +1,189 @@
+package overwatch.service;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Speichert das zuletzt angenommene Layout und den Zustand der Engine in einer kompakten Binärdatei,
+ * damit die Auswertung nach einem Neustart sofort fortgesetzt werden kann.
+ * Ist {@code state-path} leer, wird kein Zustand gespeichert.
+ * <p>
+ * Geschrieben wird auf einem eigenen Thread, damit die Auswertung nicht auf das Dateisystem wartet. Dabei wird immer nur der neueste Zustand gespeichert,
+ * ein noch nicht geschriebener wird ersetzt. Beim Beenden der JVM wird ein ausstehender Zustand noch geschrieben.
+ */
+public class StateService {
+
+    private static final Logger logger = Logger.getLogger(StateService.class.getName());
+
+    /**
+     * Kennung und Version des Dateiformats.
+     */
+    private static final int FORMAT_VERSION = 0x4f570002;
+
+    private static final AtomicReference<State> pending = new AtomicReference<>();
+
+    private static final Thread writer = start();
+
+    private StateService() {}
+
+    private static Thread start() {
+        final Thread thread = new Thread(StateService::run, "state-writer");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(StateService::flush, "state-shutdown"));
+        return thread;
+    }
+
+    /**
+     * Der Zustand der Engine.
+     * @param zones Die ausgewerteten Zonen.
+     * @param activeZoneNrs Die Nummern der zuletzt gemeldeten aktiven Zonen.
+     * @param historyZoneNrs Die Nummern der aktiven Zonen der letzten Iterationen, älteste zuerst.
+     */
+    public record State(@NotNull Zone[] zones, int @NotNull [] activeZoneNrs, int @NotNull [][] historyZoneNrs) {}
+
+    private static Optional<Path> readPath() {
+        final String path = ConfigurationService.getString(ConfigurationService.Keys.STATE_PATH);
+        return path.isEmpty() ? Optional.empty() : Optional.of(Path.of(path));
+    }
+
+    /**
+     * Übergibt einen Zustand zum Speichern. Kehrt sofort zurück, ein noch nicht geschriebener Zustand wird ersetzt.
+     * @param state Der zu speichernde Zustand.
+     */
+    public static void submit(@NotNull State state) {
+        pending.set(state);
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Schreibt einen ausstehenden Zustand sofort. Entnahme und Schreiben erfolgen unter derselben Sperre,
+     * sodass ein älterer Zustand nie einen neueren überschreibt.
+     */
+    public static synchronized void flush() {
+        final State state = pending.getAndSet(null);
+        if (state != null)
+            save(state);
+    }
+
+    /**
+     * Schleife von {@link #writer}.
+     */
+    private static void run() {
+        while (true) {
+            if (pending.get() == null)
+                LockSupport.park(StateService.class);
+            else
+                flush();
+        }
+    }
+
+    /**
+     * Speichert einen Zustand. Die Datei wird atomar ersetzt, sodass nach einem Absturz immer ein vollständiger Zustand vorliegt.
+     * @param state Der zu speichernde Zustand.
+     */
+    private static void save(@NotNull State state) {
+        final Optional<Path> path = readPath();
+        if (path.isEmpty()) return;
+        final Path temporaryPath = path.get().resolveSibling(path.get().getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+            write(output, state);
+        }
+        catch (IOException e) {
+            logger.severe("Could not write state: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(temporaryPath, path.get(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            logger.severe("Could not replace state: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Liest den zuletzt gespeicherten Zustand.
+     * @return Gibt den Zustand zurück oder ein leeres Optional, sollte keiner vorhanden oder dieser unlesbar sein.
+     */
+    public static synchronized Optional<State> load() {
+        final Optional<Path> path = readPath();
+        if (path.isEmpty() || !Files.isRegularFile(path.get())) return Optional.empty();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path.get())))) {
+            return Optional.of(read(input));
+        }
+        catch (IOException | RuntimeException e) {
+            logger.severe("Could not read state: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    static void write(@NotNull DataOutputStream output, @NotNull State state) throws IOException {
+        final Capture[] captures = Arrays.stream(state.zones()).map(Zone::capture).distinct().toArray(Capture[]::new);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(captures.length);
+        for (Capture capture : captures) {
+            output.writeUTF(capture.deviceName());
+            output.writeInt(capture.x());
+            output.writeInt(capture.y());
+            output.writeInt(capture.width());
+            output.writeInt(capture.height());
+            output.writeInt(capture.workingWidth());
+            output.writeUTF(capture.algorithm());
+        }
+        output.writeInt(state.zones().length);
+        for (Zone zone : state.zones()) {
+            output.writeInt(zone.nr());
+            output.writeInt(Arrays.asList(captures).indexOf(zone.capture()));
+            output.writeInt(zone.offsetX());
+            output.writeInt(zone.offsetY());
+            output.writeInt(zone.width());
+            output.writeInt(zone.height());
+        }
+        writeInts(output, state.activeZoneNrs());
+        output.writeInt(state.historyZoneNrs().length);
+        for (int[] zoneNrs : state.historyZoneNrs())
+            writeInts(output, zoneNrs);
+    }
+
+    static @NotNull State read(@NotNull DataInputStream input) throws IOException {
+        if (input.readInt() != FORMAT_VERSION)
+            throw new IOException("Unsupported state format.");
+        final Capture[] captures = new Capture[input.readInt()];
+        for (int i = 0; i < captures.length; i++) {
+            final String deviceName = input.readUTF();
+            final int x = input.readInt(), y = input.readInt(), width = input.readInt(), height = input.readInt(), workingWidth = input.readInt();
+            captures[i] = new Capture(x, y, width, height, deviceName, workingWidth, input.readUTF());
+        }
+        final Zone[] zones = new Zone[input.readInt()];
+        for (int i = 0; i < zones.length; i++)
+            zones[i] = new Zone(input.readInt(), captures[input.readInt()], input.readInt(), input.readInt(), input.readInt(), input.readInt());
+        final int[] activeZoneNrs = readInts(input);
+        final int[][] historyZoneNrs = new int[input.readInt()][];
+        for (int i = 0; i < historyZoneNrs.length; i++)
+            historyZoneNrs[i] = readInts(input);
+        return new State(zones, activeZoneNrs, historyZoneNrs);
+    }
+
+    private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+        output.writeInt(values.length);
+        for (int value : values)
+            output.writeInt(value);
+    }
+
+    private static int[] readInts(DataInputStream input) throws IOException {
+        final int[] values = new int[input.readInt()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = input.readInt();
+        return values;
+    }
+}
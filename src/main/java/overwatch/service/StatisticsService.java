@@ -0,0 +1,288 @@
+package overwatch.service;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fortlaufende Statistiken je Zone: Verweildauern als Histogramm, Auslastung und Wechsel in stündlichen Intervallen.
+ * Die Werte werden bei jedem Wechsel aus dem {@link OccupancyService} fortgeschrieben und liegen in primitiven Arrays,
+ * sodass eine Abfrage die Wechsel nicht erneut auswerten muss.
+ * <p>
+ * Stündliche Intervalle werden in einem Ring über {@code statistics-hours} Stunden vorgehalten.
+ * Verweildauern und Summen umfassen dagegen den gesamten Zeitraum seit dem Start des Prozesses.
+ */
+public final class StatisticsService {
+
+    /**
+     * Statistiken einer Zone.
+     * @param nr Die Nummer der Zone.
+     * @param arrivals Anzahl der Wechsel zu aktiv.
+     * @param departures Anzahl der Wechsel zu inaktiv.
+     * @param dwellCount Anzahl der vollständig erfassten Verweildauern.
+     * @param dwellTotalMillis Summe der vollständig erfassten Verweildauern.
+     * @param dwellHistogram Anzahl der Verweildauern je Intervall aus {@link #DWELL_BUCKET_BOUNDS_SECONDS}, das letzte Intervall ist nach oben offen.
+     * @param occupiedMillis Aktive Zeit je Stunde, beginnend bei {@link Report#firstHourTimestamp()}.
+     * @param hourlyArrivals Anzahl der Wechsel zu aktiv je Stunde, beginnend bei {@link Report#firstHourTimestamp()}.
+     */
+    public record ZoneStatistics(int nr, long arrivals, long departures, long dwellCount, long dwellTotalMillis,
+                                 @NotNull long[] dwellHistogram, @NotNull long[] occupiedMillis, @NotNull int[] hourlyArrivals) {
+
+        /**
+         * @return Gibt die durchschnittliche Verweildauer in Sekunden zurück oder {@code 0}, sollte noch keine erfasst worden sein.
+         */
+        public double averageDwellSeconds() {
+            return dwellCount == 0 ? 0 : dwellTotalMillis / 1000.0 / dwellCount;
+        }
+    }
+
+    /**
+     * Statistiken aller Zonen.
+     * @param firstHourTimestamp Der Beginn der ersten Stunde in Millisekunden.
+     * @param timestamp Der Zeitpunkt der Abfrage, bis zu dem aktive Zonen eingerechnet sind.
+     * @param zones Die Statistiken aufsteigend nach Nummer der Zone.
+     */
+    public record Report(long firstHourTimestamp, long timestamp, @NotNull ZoneStatistics[] zones) {}
+
+    /**
+     * Obere Grenzen der Intervalle des Histogramms der Verweildauern in Sekunden.
+     */
+    public static final long[] DWELL_BUCKET_BOUNDS_SECONDS = { 60, 300, 900, 1800, 3600, 7200, 14400, 28800 };
+
+    private static final int DWELL_BUCKETS = DWELL_BUCKET_BOUNDS_SECONDS.length + 1;
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Anzahl der vorgehaltenen Stunden, sollte {@code statistics-hours} nicht gesetzt sein.
+     */
+    private static final int DEFAULT_HOURS = 7 * 24;
+
+    private static final int HOURS = ConfigurationService.getInt(ConfigurationService.Keys.STATISTICS_HOURS) > 0
+            ? ConfigurationService.getInt(ConfigurationService.Keys.STATISTICS_HOURS)
+            : DEFAULT_HOURS;
+
+    private static final Object lock = new Object();
+
+    private static int[] zoneNrs = new int[0];
+
+    private static boolean[] states = new boolean[0];
+
+    /**
+     * Beginn der aktuellen Belegung je Zone.
+     */
+    private static long[] activeSince = new long[0];
+
+    /**
+     * Gibt an, ob der Beginn der aktuellen Belegung beobachtet wurde. Nur dann wird die Verweildauer in das Histogramm übernommen.
+     */
+    private static boolean[] isArrivalObserved = new boolean[0];
+
+    private static long[] arrivals = new long[0];
+    private static long[] departures = new long[0];
+    private static long[] dwellCounts = new long[0];
+    private static long[] dwellTotals = new long[0];
+
+    /**
+     * Histogramm je Zone, {@link #DWELL_BUCKETS} Einträge hintereinander.
+     */
+    private static long[] dwellHistograms = new long[0];
+
+    /**
+     * Aktive Zeit je Zone und Stunde, {@link #HOURS} Einträge hintereinander. Die Stunde {@code h} liegt im Eintrag {@code h % HOURS}.
+     */
+    private static long[] occupiedMillis = new long[0];
+
+    /**
+     * Wechsel zu aktiv je Zone und Stunde, aufgebaut wie {@link #occupiedMillis}.
+     */
+    private static int[] hourlyArrivals = new int[0];
+
+    /**
+     * Die neueste Stunde seit Beginn der Epoche, für welche Einträge im Ring vorhanden sind.
+     */
+    private static long latestHour = Long.MIN_VALUE;
+
+    private StatisticsService() {}
+
+    /**
+     * Übernimmt die Zonen eines neu gestarteten Algorithmus. Bekannte Zonen behalten ihre Statistiken und, sofern sie aktiv bleiben, den Beginn ihrer Belegung.
+     * @param nrs Die Nummern der Zonen, aufsteigend. Die Reihenfolge bestimmt den Index für {@link #recordChange(int, boolean, long)}.
+     * @param activeStates Der Zustand je Zone.
+     * @param timestamp Der aktuelle Zeitpunkt.
+     */
+    static void reset(@NotNull int[] nrs, @NotNull boolean[] activeStates, long timestamp) {
+        synchronized (lock) {
+            advanceTo(hourOf(timestamp));
+            final int count = nrs.length;
+            final boolean[] newStates = new boolean[count];
+            final long[] newActiveSince = new long[count];
+            final boolean[] newIsArrivalObserved = new boolean[count];
+            final long[] newArrivals = new long[count], newDepartures = new long[count], newDwellCounts = new long[count], newDwellTotals = new long[count];
+            final long[] newHistograms = new long[count * DWELL_BUCKETS];
+            final long[] newOccupied = new long[count * HOURS];
+            final int[] newHourlyArrivals = new int[count * HOURS];
+            for (int i = 0; i < count; i++) {
+                final int previous = Arrays.binarySearch(zoneNrs, nrs[i]);
+                if (previous >= 0) {
+                    // Eine Belegung, die über den Neustart hinweg anhält, wird nicht unterbrochen.
+                    if (states[previous] && !activeStates[i])
+                        addOccupied(previous, activeSince[previous], timestamp);
+                    newArrivals[i] = arrivals[previous];
+                    newDepartures[i] = departures[previous];
+                    newDwellCounts[i] = dwellCounts[previous];
+                    newDwellTotals[i] = dwellTotals[previous];
+                    System.arraycopy(dwellHistograms, previous * DWELL_BUCKETS, newHistograms, i * DWELL_BUCKETS, DWELL_BUCKETS);
+                    System.arraycopy(occupiedMillis, previous * HOURS, newOccupied, i * HOURS, HOURS);
+                    System.arraycopy(hourlyArrivals, previous * HOURS, newHourlyArrivals, i * HOURS, HOURS);
+                    if (states[previous] && activeStates[i]) {
+                        newActiveSince[i] = activeSince[previous];
+                        newIsArrivalObserved[i] = isArrivalObserved[previous];
+                    }
+                }
+                newStates[i] = activeStates[i];
+                if (activeStates[i] && (previous < 0 || !states[previous]))
+                    newActiveSince[i] = timestamp;
+            }
+            zoneNrs = nrs.clone();
+            states = newStates;
+            activeSince = newActiveSince;
+            isArrivalObserved = newIsArrivalObserved;
+            arrivals = newArrivals;
+            departures = newDepartures;
+            dwellCounts = newDwellCounts;
+            dwellTotals = newDwellTotals;
+            dwellHistograms = newHistograms;
+            occupiedMillis = newOccupied;
+            hourlyArrivals = newHourlyArrivals;
+        }
+    }
+
+    /**
+     * Verwirft alle Zonen, Statistiken und die Position des Rings. Nur für Tests, damit diese unabhängig von ihrer Reihenfolge beliebige Zeitpunkte verwenden können.
+     */
+    static void clear() {
+        synchronized (lock) {
+            reset(new int[0], new boolean[0], 0);
+            latestHour = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Schreibt die Statistiken einer Zone mit einem Wechsel fort. Erzeugt keine Objekte.
+     * @param index Der Index der Zone aus {@link #reset(int[], boolean[], long)}.
+     * @param isActive Der neue Zustand.
+     * @param timestamp Zeitpunkt der Aufnahme des auslösenden Frames.
+     */
+    static void recordChange(int index, boolean isActive, long timestamp) {
+        synchronized (lock) {
+            if (index < 0 || index >= states.length || states[index] == isActive)
+                return;
+            final long hour = hourOf(timestamp);
+            advanceTo(hour);
+            states[index] = isActive;
+            if (isActive) {
+                activeSince[index] = timestamp;
+                isArrivalObserved[index] = true;
+                arrivals[index]++;
+                if (hour > latestHour - HOURS)
+                    hourlyArrivals[index * HOURS + slotOf(hour)]++;
+                return;
+            }
+            departures[index]++;
+            addOccupied(index, activeSince[index], timestamp);
+            if (isArrivalObserved[index]) {
+                final long dwell = Math.max(0, timestamp - activeSince[index]);
+                dwellCounts[index]++;
+                dwellTotals[index] += dwell;
+                dwellHistograms[index * DWELL_BUCKETS + dwellBucketOf(dwell)]++;
+            }
+        }
+    }
+
+    /**
+     * Liest die Statistiken aller Zonen aus. Aktive Zonen werden bis zu {@code timestamp} als belegt eingerechnet, ohne die Statistiken zu verändern.
+     * @param hours Die Anzahl der auszugebenden Stunden bis einschließlich der aktuellen, höchstens {@code statistics-hours}.
+     * @param timestamp Der aktuelle Zeitpunkt.
+     * @return Gibt die Statistiken zurück.
+     */
+    public static @NotNull Report report(int hours, long timestamp) {
+        synchronized (lock) {
+            final long currentHour = Math.max(hourOf(timestamp), latestHour);
+            final int count = Math.max(1, Math.min(hours, HOURS));
+            final long firstHour = currentHour - count + 1;
+            final ZoneStatistics[] result = new ZoneStatistics[zoneNrs.length];
+            for (int i = 0; i < zoneNrs.length; i++) {
+                final long[] occupied = new long[count];
+                final int[] zoneArrivals = new int[count];
+                for (int h = 0; h < count; h++) {
+                    final long hour = firstHour + h;
+                    // Stunden, für die der Ring noch keine oder keine gültigen Einträge enthält, bleiben leer.
+                    if (hour > latestHour || hour <= latestHour - HOURS)
+                        continue;
+                    occupied[h] = occupiedMillis[i * HOURS + slotOf(hour)];
+                    zoneArrivals[h] = hourlyArrivals[i * HOURS + slotOf(hour)];
+                }
+                if (states[i]) {
+                    for (long from = Math.max(activeSince[i], firstHour * HOUR_MILLIS); from < timestamp; ) {
+                        final long hour = hourOf(from);
+                        final long to = Math.min(timestamp, (hour + 1) * HOUR_MILLIS);
+                        occupied[(int) (hour - firstHour)] += to - from;
+                        from = to;
+                    }
+                }
+                result[i] = new ZoneStatistics(zoneNrs[i], arrivals[i], departures[i], dwellCounts[i], dwellTotals[i],
+                        Arrays.copyOfRange(dwellHistograms, i * DWELL_BUCKETS, (i + 1) * DWELL_BUCKETS), occupied, zoneArrivals);
+            }
+            return new Report(firstHour * HOUR_MILLIS, timestamp, result);
+        }
+    }
+
+    /**
+     * Verteilt eine abgeschlossene Belegung auf die betroffenen Stunden. Stunden außerhalb des Rings werden übersprungen.
+     */
+    private static void addOccupied(int index, long from, long to) {
+        from = Math.max(from, (latestHour - HOURS + 1) * HOUR_MILLIS);
+        while (from < to) {
+            final long hour = hourOf(from);
+            final long end = Math.min(to, (hour + 1) * HOUR_MILLIS);
+            if (hour <= latestHour)
+                occupiedMillis[index * HOURS + slotOf(hour)] += end - from;
+            from = end;
+        }
+    }
+
+    /**
+     * Rückt den Ring bis zu einer Stunde vor und leert dabei alle Einträge der neuen Stunden.
+     */
+    private static void advanceTo(long hour) {
+        if (hour <= latestHour)
+            return;
+        final long first = latestHour == Long.MIN_VALUE ? hour : Math.max(latestHour + 1, hour - HOURS + 1);
+        for (long h = first; h <= hour; h++) {
+            final int slot = slotOf(h);
+            for (int i = 0; i < zoneNrs.length; i++) {
+                occupiedMillis[i * HOURS + slot] = 0;
+                hourlyArrivals[i * HOURS + slot] = 0;
+            }
+        }
+        latestHour = hour;
+    }
+
+    private static long hourOf(long timestamp) {
+        return Math.floorDiv(timestamp, HOUR_MILLIS);
+    }
+
+    private static int slotOf(long hour) {
+        return (int) Math.floorMod(hour, (long) HOURS);
+    }
+
+    static int dwellBucketOf(long dwellMillis) {
+        final long seconds = dwellMillis / 1000;
+        for (int i = 0; i < DWELL_BUCKET_BOUNDS_SECONDS.length; i++)
+            if (seconds < DWELL_BUCKET_BOUNDS_SECONDS[i])
+                return i;
+        return DWELL_BUCKET_BOUNDS_SECONDS.length;
+    }
+}
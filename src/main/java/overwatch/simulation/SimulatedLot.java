@@ -0,0 +1,235 @@
+package overwatch.simulation;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+import overwatch.service.ConfigurationService;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Ein simulierter Parkplatz, wie ihn eine einzelne Capture sieht.
+ * Fahrzeuge kommen und fahren als Poisson-Prozess pro Zone, die Beleuchtung schwankt langsam und jedes Bild wird verrauscht.
+ * Der tatsächliche Zustand jeder Zone ist bekannt und dient als Grundwahrheit für die Auswertung.
+ */
+public final class SimulatedLot {
+
+    /**
+     * Parameter eines simulierten Parkplatzes.
+     * @param arrivalsPerHour Erwartete Anzahl ankommender Fahrzeuge pro Stunde und freier Zone.
+     * @param meanDwellSeconds Mittlere Parkdauer eines Fahrzeugs in Sekunden.
+     * @param lightingDriftPercent Maximale Abweichung der Helligkeit in Prozent.
+     * @param noise Maximale Abweichung jedes Farbkanals durch Rauschen.
+     */
+    public record Parameters(double arrivalsPerHour, double meanDwellSeconds, int lightingDriftPercent, int noise) {
+
+        /**
+         * Liest die Parameter aus der Konfiguration.
+         * @return Gibt die Parameter zurück.
+         */
+        public static @NotNull Parameters fromConfiguration() {
+            return new Parameters(
+                    ConfigurationService.getInt(ConfigurationService.Keys.SIMULATION_ARRIVALS_PER_HOUR),
+                    ConfigurationService.getInt(ConfigurationService.Keys.SIMULATION_MEAN_DWELL_SECONDS),
+                    ConfigurationService.getInt(ConfigurationService.Keys.SIMULATION_LIGHTING_DRIFT_PERCENT),
+                    ConfigurationService.getInt(ConfigurationService.Keys.SIMULATION_NOISE));
+        }
+    }
+
+    /**
+     * Periode einer vollständigen Schwankung der Beleuchtung.
+     */
+    private static final long LIGHTING_PERIOD_MS = 120_000;
+
+    /**
+     * Farbe des Asphalts.
+     */
+    private static final int ASPHALT = 0x5a5a5e;
+
+    /**
+     * Farbe der Markierungen.
+     */
+    private static final int MARKING = 0xe6e6e6;
+
+    private static final int[] CAR_COLORS = { 0xb01818, 0x1c3f94, 0xf0f0f0, 0x151515, 0x8a8d91, 0x2f6b2a, 0xd9a400 };
+
+    private final @NotNull Capture capture;
+
+    private final @NotNull Zone[] zones;
+
+    private final @NotNull Parameters parameters;
+
+    private final @NotNull Random random;
+
+    /**
+     * Der leere Parkplatz bei Normalbeleuchtung.
+     */
+    private final int[] background;
+
+    /**
+     * Zeitpunkt der Ankunft des Fahrzeugs pro Zone oder {@code -1}, sollte die Zone frei sein. Gleicher Index wie {@link #zones}.
+     */
+    private final long[] arrivals;
+
+    /**
+     * Das Fahrzeug pro Zone als Farbe und Position innerhalb der Zone. Gleicher Index wie {@link #zones}.
+     */
+    private final int[] carColors, carOffsetsX, carOffsetsY;
+
+    /**
+     * Anzahl aller bisher angekommenen Fahrzeuge.
+     */
+    private long arrivalCount;
+
+    /**
+     * Zustand des Zufallsgenerators für das Rauschen.
+     */
+    private int noiseState;
+
+    /**
+     * Erstellt einen leeren Parkplatz.
+     * @param capture Die simulierte Capture.
+     * @param zones Die Zonen auf dieser Capture.
+     * @param parameters Die Parameter der Simulation.
+     * @param seed Startwert für den Zufallsgenerator, gleiche Startwerte ergeben gleiche Abläufe.
+     */
+    public SimulatedLot(@NotNull Capture capture, @NotNull Zone[] zones, @NotNull Parameters parameters, long seed) {
+        this.capture = capture;
+        this.zones = zones;
+        this.parameters = parameters;
+        this.random = new Random(seed);
+        this.noiseState = (int) seed | 1;
+        this.arrivals = new long[zones.length];
+        this.carColors = new int[zones.length];
+        this.carOffsetsX = new int[zones.length];
+        this.carOffsetsY = new int[zones.length];
+        Arrays.fill(arrivals, -1);
+        this.background = createBackground();
+    }
+
+    private int[] createBackground() {
+        final int width = capture.width();
+        final int[] pixels = new int[capture.area()];
+        Arrays.fill(pixels, ASPHALT);
+        for (Zone zone : zones) {
+            // Markierung am linken, rechten und unteren Rand jeder Zone.
+            fill(pixels, width, zone.offsetX(), zone.offsetY(), 2, zone.height(), MARKING);
+            fill(pixels, width, zone.offsetX() + zone.width() - 2, zone.offsetY(), 2, zone.height(), MARKING);
+            fill(pixels, width, zone.offsetX(), zone.offsetY() + zone.height() - 2, zone.width(), 2, MARKING);
+        }
+        return pixels;
+    }
+
+    private void fill(int[] pixels, int stride, int x, int y, int width, int height, int color) {
+        final int startX = Math.max(0, x), endX = Math.min(capture.width(), x + width);
+        final int startY = Math.max(0, y), endY = Math.min(capture.height(), y + height);
+        for (int row = startY; row < endY; row++)
+            Arrays.fill(pixels, startX + row * stride, endX + row * stride, color);
+    }
+
+    /**
+     * Lässt Fahrzeuge ankommen und abfahren.
+     * @param timestamp Der neue Zeitpunkt der Simulation in Millisekunden.
+     * @param elapsedMillis Die seit dem letzten Aufruf vergangene Zeit.
+     */
+    public synchronized void advance(long timestamp, long elapsedMillis) {
+        final double seconds = elapsedMillis / 1000.0;
+        final double arrivalProbability = 1 - Math.exp(-parameters.arrivalsPerHour() / 3600.0 * seconds);
+        final double departureProbability = parameters.meanDwellSeconds() > 0
+                ? 1 - Math.exp(-seconds / parameters.meanDwellSeconds())
+                : 1;
+        for (int i = 0; i < zones.length; i++) {
+            if (arrivals[i] < 0) {
+                if (random.nextDouble() >= arrivalProbability)
+                    continue;
+                arrivals[i] = timestamp;
+                arrivalCount++;
+                carColors[i] = CAR_COLORS[random.nextInt(CAR_COLORS.length)];
+                carOffsetsX[i] = random.nextInt(5) - 2;
+                carOffsetsY[i] = random.nextInt(5) - 2;
+            }
+            else if (random.nextDouble() < departureProbability)
+                arrivals[i] = -1;
+        }
+    }
+
+    /**
+     * Zeichnet den Parkplatz.
+     * @param timestamp Der Zeitpunkt der Simulation in Millisekunden, bestimmt die Beleuchtung.
+     * @param isEmpty Bei {@code true} wird der leere Parkplatz ohne Schwankung und Rauschen gezeichnet.
+     * @return Gibt ein neues Bild in Größe der Capture im Format {@link BufferedImage#TYPE_INT_RGB} zurück.
+     */
+    public synchronized @NotNull BufferedImage render(long timestamp, boolean isEmpty) {
+        final BufferedImage image = new BufferedImage(capture.width(), capture.height(), BufferedImage.TYPE_INT_RGB);
+        final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        System.arraycopy(background, 0, pixels, 0, pixels.length);
+        if (isEmpty)
+            return image;
+
+        for (int i = 0; i < zones.length; i++) {
+            if (arrivals[i] < 0)
+                continue;
+            final Zone zone = zones[i];
+            final int insetX = zone.width() / 6, insetY = zone.height() / 6;
+            final int x = zone.offsetX() + insetX + carOffsetsX[i], y = zone.offsetY() + insetY + carOffsetsY[i];
+            final int width = zone.width() - 2 * insetX, height = zone.height() - 2 * insetY;
+            fill(pixels, capture.width(), x, y, width, height, carColors[i]);
+            // Windschutzscheibe
+            fill(pixels, capture.width(), x + width / 8, y + height / 5, width - width / 4, height / 5, 0x202830);
+        }
+
+        final double drift = parameters.lightingDriftPercent() / 100.0 * Math.sin(2 * Math.PI * timestamp / LIGHTING_PERIOD_MS);
+        final int[] lighting = new int[256];
+        for (int value = 0; value < lighting.length; value++)
+            lighting[value] = (int) Math.round(value * (1 + drift));
+        final int noise = parameters.noise();
+        int state = noiseState;
+        for (int i = 0; i < pixels.length; i++) {
+            final int pixel = pixels[i];
+            int offset = 0;
+            if (noise > 0) {
+                // xorshift32
+                state ^= state << 13;
+                state ^= state >>> 17;
+                state ^= state << 5;
+                offset = Math.floorMod(state, 2 * noise + 1) - noise;
+            }
+            final int red = clamp(lighting[pixel >> 16 & 0xff] + offset);
+            final int green = clamp(lighting[pixel >> 8 & 0xff] + offset);
+            final int blue = clamp(lighting[pixel & 0xff] + offset);
+            pixels[i] = red << 16 | green << 8 | blue;
+        }
+        noiseState = state;
+        return image;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(value, 255);
+    }
+
+    /**
+     * Überträgt die belegten Zonen mit dem Zeitpunkt der Ankunft ihres Fahrzeugs.
+     * @param occupancy Die Ausgabe, Schlüssel ist die Nummer der Zone.
+     */
+    public synchronized void collectOccupancy(@NotNull Map<Integer, Long> occupancy) {
+        for (int i = 0; i < zones.length; i++)
+            if (arrivals[i] >= 0)
+                occupancy.put(zones[i].nr(), arrivals[i]);
+    }
+
+    /**
+     * Anzahl aller bisher angekommenen Fahrzeuge.
+     * @return Gibt die Anzahl zurück.
+     */
+    public synchronized long arrivalCount() {
+        return arrivalCount;
+    }
+
+    public @NotNull Capture capture() {
+        return capture;
+    }
+}
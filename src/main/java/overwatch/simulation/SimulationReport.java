@@ -0,0 +1,111 @@
+package overwatch.simulation;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.model.Zone;
+
+import java.util.*;
+
+/**
+ * Vergleicht die Ergebnisse eines Algorithmus mit der Grundwahrheit des {@link Simulator} und fasst Durchsatz, Genauigkeit und Latenz zusammen.
+ */
+public final class SimulationReport {
+
+    private final int zoneCount;
+
+    private long frames;
+
+    private long computeNanos;
+
+    private long correctZones, falsePositives, falseNegatives;
+
+    /**
+     * Zeitpunkt der Ankunft, deren Fahrzeug in einer Zone zuletzt erkannt wurde. Schlüssel ist die Nummer der Zone.
+     */
+    private final Map<Integer, Long> detectedArrivals = new HashMap<>();
+
+    /**
+     * Zeit von der Ankunft bis zur ersten Erkennung in Millisekunden der Simulation.
+     */
+    private final List<Long> latencies = new ArrayList<>();
+
+    /**
+     * @param zoneCount Die Anzahl aller ausgewerteten Zonen.
+     */
+    public SimulationReport(int zoneCount) {
+        this.zoneCount = zoneCount;
+    }
+
+    /**
+     * Erfasst ein ausgewertetes Frame.
+     * @param timestamp Der Zeitpunkt der Simulation in Millisekunden.
+     * @param occupancy Die Grundwahrheit, siehe {@link Simulator#occupancy()}.
+     * @param activeZones Die vom Algorithmus erkannten Zonen.
+     * @param computeNanos Die Dauer der Auswertung.
+     */
+    public void record(long timestamp, @NotNull Map<Integer, Long> occupancy, @NotNull Collection<? extends Zone> activeZones, long computeNanos) {
+        frames++;
+        this.computeNanos += computeNanos;
+        int truePositives = 0;
+        for (Zone zone : activeZones) {
+            final Long arrival = occupancy.get(zone.nr());
+            if (arrival == null) {
+                falsePositives++;
+                continue;
+            }
+            truePositives++;
+            if (!arrival.equals(detectedArrivals.put(zone.nr(), arrival)))
+                latencies.add(timestamp - arrival);
+        }
+        falseNegatives += occupancy.size() - truePositives;
+        correctZones += zoneCount - (activeZones.size() - truePositives) - (occupancy.size() - truePositives);
+    }
+
+    /**
+     * Anzahl der erkannten Ankünfte.
+     * @return Gibt die Anzahl zurück.
+     */
+    public int detectedArrivals() {
+        return latencies.size();
+    }
+
+    /**
+     * Anteil der Zonen über alle Frames, deren erkannter Zustand der Grundwahrheit entspricht.
+     * @return Gibt den Anteil zwischen {@code 0} und {@code 1} zurück.
+     */
+    public double accuracy() {
+        return frames == 0 ? 1 : (double) correctZones / ((double) frames * zoneCount);
+    }
+
+    /**
+     * Bestimmt ein Perzentil der Latenzen nach dem Nearest-Rank-Verfahren.
+     * @param percentile Das Perzentil zwischen {@code 1} und {@code 100}.
+     * @return Gibt die Latenz in Millisekunden zurück oder {@code -1}, sollte keine Ankunft erkannt worden sein.
+     */
+    public long latencyPercentile(int percentile) {
+        if (latencies.isEmpty()) return -1;
+        final long[] values = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        return values[Math.max(0, (int) Math.ceil(percentile / 100.0 * values.length) - 1)];
+    }
+
+    /**
+     * Erstellt den Bericht als Text.
+     * @param arrivalCount Die Anzahl aller Ankünfte in der Simulation, siehe {@link Simulator#arrivalCount()}.
+     * @return Gibt den Bericht zurück.
+     */
+    public @NotNull String format(long arrivalCount) {
+        final double computeMillis = computeNanos / 1_000_000.0;
+        return "frames " + frames + '\n'
+                + "zones " + zoneCount + '\n'
+                + String.format(Locale.ROOT, "compute_ms_mean %.2f%n", frames == 0 ? 0 : computeMillis / frames)
+                + String.format(Locale.ROOT, "frames_per_second %.1f%n", computeMillis == 0 ? 0 : frames * 1000 / computeMillis)
+                + String.format(Locale.ROOT, "zones_per_second %.0f%n", computeMillis == 0 ? 0 : frames * zoneCount * 1000 / computeMillis)
+                + String.format(Locale.ROOT, "accuracy %.4f%n", accuracy())
+                + "false_positives " + falsePositives + '\n'
+                + "false_negatives " + falseNegatives + '\n'
+                + "arrivals " + arrivalCount + '\n'
+                + "arrivals_detected " + detectedArrivals() + '\n'
+                + "latency_p50_ms " + latencyPercentile(50) + '\n'
+                + "latency_p90_ms " + latencyPercentile(90) + '\n'
+                + "latency_max_ms " + latencyPercentile(100) + '\n';
+    }
+}
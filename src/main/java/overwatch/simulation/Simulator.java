@@ -0,0 +1,131 @@
+package overwatch.simulation;
+
+import org.jetbrains.annotations.NotNull;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bildquelle für simulierte Captures, siehe {@link Capture#isSimulated()}.
+ * Die Zeit der Simulation läuft unabhängig von der Uhr und wird über {@link #advance(long)} weitergesetzt,
+ * dadurch sind Abläufe bei gleichem Startwert reproduzierbar, egal wie schnell die Auswertung ist.
+ */
+public final class Simulator {
+
+    /**
+     * Größe jeder simulierten Capture.
+     */
+    public static final int CAPTURE_WIDTH = 640, CAPTURE_HEIGHT = 360;
+
+    /**
+     * Die Parkplätze, Schlüssel ist der Name der Capture.
+     */
+    private static final Map<String, SimulatedLot> lots = new ConcurrentHashMap<>();
+
+    private static volatile long timestamp;
+
+    private Simulator() {}
+
+    /**
+     * Erstellt ein Layout mit gleich großen Captures nebeneinander und in einem Raster angeordneten Zonen.
+     * @param captureCount Die Anzahl der Captures.
+     * @param zonesPerCapture Die Anzahl der Zonen pro Capture.
+     * @param algorithm Der Algorithmus der Captures, siehe {@link Capture#algorithm()}.
+     * @return Gibt alle Zonen zurück, fortlaufend ab {@code 1} nummeriert.
+     */
+    public static @NotNull Zone[] createLayout(int captureCount, int zonesPerCapture, @NotNull String algorithm) {
+        final int columns = (int) Math.ceil(Math.sqrt(zonesPerCapture * (double) CAPTURE_WIDTH / CAPTURE_HEIGHT));
+        final int rows = (int) Math.ceil(zonesPerCapture / (double) columns);
+        final int zoneWidth = CAPTURE_WIDTH / Math.max(columns, 1), zoneHeight = CAPTURE_HEIGHT / Math.max(rows, 1);
+        final Zone[] zones = new Zone[captureCount * zonesPerCapture];
+        for (int i = 0; i < captureCount; i++) {
+            final Capture capture = new Capture(i * CAPTURE_WIDTH, 0, CAPTURE_WIDTH, CAPTURE_HEIGHT, Capture.SIMULATED_CAMERA_PREFIX + i, 0, algorithm);
+            for (int j = 0; j < zonesPerCapture; j++) {
+                final int nr = i * zonesPerCapture + j + 1;
+                zones[nr - 1] = new Zone(nr, capture, j % columns * zoneWidth, j / columns * zoneHeight, zoneWidth, zoneHeight);
+            }
+        }
+        return zones;
+    }
+
+    /**
+     * Legt für jede simulierte Capture der Zonen einen leeren Parkplatz an. Bestehende Parkplätze werden ersetzt.
+     * @param zones Die Zonen.
+     * @param parameters Die Parameter aller Parkplätze.
+     * @param seed Startwert für die Zufallsgeneratoren.
+     */
+    public static void register(@NotNull Zone[] zones, @NotNull SimulatedLot.Parameters parameters, long seed) {
+        final Map<Capture, List<Zone>> zonesByCapture = new LinkedHashMap<>();
+        for (Zone zone : zones)
+            if (zone.capture().isSimulated())
+                zonesByCapture.computeIfAbsent(zone.capture(), it -> new ArrayList<>()).add(zone);
+        for (Map.Entry<Capture, List<Zone>> entry : zonesByCapture.entrySet())
+            lots.put(entry.getKey().deviceName(), new SimulatedLot(
+                    entry.getKey(),
+                    entry.getValue().toArray(Zone[]::new),
+                    parameters,
+                    seed + entry.getKey().deviceName().hashCode()));
+    }
+
+    /**
+     * Entfernt alle Parkplätze und setzt die Zeit zurück.
+     */
+    public static void clear() {
+        lots.clear();
+        timestamp = 0;
+    }
+
+    /**
+     * Setzt die Zeit der Simulation weiter.
+     * @param elapsedMillis Die vergangene Zeit in Millisekunden.
+     */
+    public static synchronized void advance(long elapsedMillis) {
+        timestamp += elapsedMillis;
+        for (SimulatedLot lot : lots.values())
+            lot.advance(timestamp, elapsedMillis);
+    }
+
+    /**
+     * Die aktuelle Zeit der Simulation.
+     * @return Gibt die Zeit in Millisekunden zurück.
+     */
+    public static long timestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Zeichnet das Bild einer Capture.
+     * @param capture Die simulierte Capture.
+     * @param isEmpty Bei {@code true} wird der leere Parkplatz als Quellbild gezeichnet.
+     * @return Gibt das Bild zurück.
+     * @throws IllegalStateException Sollte für die Capture kein Parkplatz angelegt worden sein.
+     */
+    public static @NotNull BufferedImage render(@NotNull Capture capture, boolean isEmpty) {
+        final SimulatedLot lot = lots.get(capture.deviceName());
+        if (lot == null)
+            throw new IllegalStateException("No simulated lot for capture: '" + capture.deviceName() + "'");
+        return lot.render(timestamp, isEmpty);
+    }
+
+    /**
+     * Die Grundwahrheit über alle Parkplätze.
+     * @return Gibt die belegten Zonen mit dem Zeitpunkt der Ankunft ihres Fahrzeugs zurück.
+     */
+    public static @NotNull Map<Integer, Long> occupancy() {
+        final Map<Integer, Long> occupancy = new HashMap<>();
+        for (SimulatedLot lot : lots.values())
+            lot.collectOccupancy(occupancy);
+        return occupancy;
+    }
+
+    /**
+     * Anzahl aller bisher angekommenen Fahrzeuge.
+     * @return Gibt die Anzahl zurück.
+     */
+    public static long arrivalCount() {
+        return lots.values().stream().mapToLong(SimulatedLot::arrivalCount).sum();
+    }
+}
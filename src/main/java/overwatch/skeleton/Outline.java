@@ -1,7 +1,5 @@
 package overwatch.skeleton;
 
-import org.bytedeco.opencv.opencv_core.Rect;
-
 import java.util.Arrays;
 
 /**
@@ -39,15 +37,6 @@ public interface Outline extends Position, Size {
         return new Rectangle(x, y, width, height, width * height, x + width - 1, y+ height - 1);
     }
 
-    /**
-     * Erstellt eine neue Outline aus einem OpenCv-Rectangle.
-     * @param rect Das OpenCv-Rectangle.
-     * @return Gibt die erstellte Outline zurück.
-     */
-    static Outline of(Rect rect) {
-        return new Rectangle(rect.x(), rect.y(), rect.width(), rect.height(), rect.width() * rect.height(), rect.x() + rect.width() - 1, rect.y() + rect.height() - 1);
-    }
-
     /**
      * Findet zu einer Position eine passende Outline.
      * @param x Die Position auf der x-Achse.
@@ -109,20 +98,12 @@ public interface Outline extends Position, Size {
      * @return Gibt {@code true} zurück, wenn die Flächen überlappen, ansonsten {@code false}.
      */
     static boolean isIntersecting(Outline a, Outline b, int intersectionThreshold) {
-        a = of(a.x() - intersectionThreshold, a.y() - intersectionThreshold, a.width() + intersectionThreshold * 2, a.height() + intersectionThreshold * 2);
-        b = of(b.x() - intersectionThreshold, b.y() - intersectionThreshold, b.width() + intersectionThreshold * 2, b.height() + intersectionThreshold * 2);
-
-        if(a.x() <= b.x() &&
-                a.endX() >= b.endX() &&
-                a.y() <= b.y() &&
-                a.endY() >= b.endY())
-            return true;
-
-        // Intersecting
-        return a.endY() >= b.y() &&
-                a.y() <= b.endY() &&
-                a.x() <= b.endX() &&
-                a.endX() >= b.x();
+        // Entspricht der Prüfung beider um den Schwellwert vergrößerten Flächen, ohne diese anzulegen.
+        final int gap = intersectionThreshold * 2;
+        return a.endY() + gap >= b.y() &&
+                a.y() <= b.endY() + gap &&
+                a.x() <= b.endX() + gap &&
+                a.endX() + gap >= b.x();
     }
 
     /**
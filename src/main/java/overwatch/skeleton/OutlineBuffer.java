@@ -0,0 +1,293 @@
+package overwatch.skeleton;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Wiederverwendbarer Behälter für Umrisse in parallelen {@code int}-Arrays.
+ * Umrisse werden ohne eigene Objekte abgelegt und an Ort und Stelle zusammengeführt und gefiltert.
+ * Die Algorithmen verwenden ihn für die Objekte einer Iteration und erzeugen erst an den Schnittstellen nach außen,
+ * etwa für die Darstellung, {@link Outline}-Objekte über {@link #toList()}.
+ * Nicht threadsicher.
+ */
+public final class OutlineBuffer {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] x, y, width, height, area;
+
+    /**
+     * Die letzten Positionen, werden mitgeführt, da sie bei jedem Vergleich benötigt werden.
+     */
+    private int[] endX, endY;
+
+    private int size;
+
+    /**
+     * Erstellt einen leeren Behälter.
+     */
+    public OutlineBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Erstellt einen leeren Behälter.
+     * @param capacity Die anfängliche Kapazität, wächst bei Bedarf.
+     */
+    public OutlineBuffer(int capacity) {
+        capacity = Math.max(1, capacity);
+        this.x = new int[capacity];
+        this.y = new int[capacity];
+        this.width = new int[capacity];
+        this.height = new int[capacity];
+        this.area = new int[capacity];
+        this.endX = new int[capacity];
+        this.endY = new int[capacity];
+    }
+
+    /**
+     * @return Gibt die Anzahl der Umrisse zurück.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Gibt {@code true} zurück, wenn der Behälter keine Umrisse enthält.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Entfernt alle Umrisse. Die Arrays bleiben für die nächste Iteration erhalten.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int x(int index) {
+        return x[index];
+    }
+
+    public int y(int index) {
+        return y[index];
+    }
+
+    public int width(int index) {
+        return width[index];
+    }
+
+    public int height(int index) {
+        return height[index];
+    }
+
+    public int area(int index) {
+        return area[index];
+    }
+
+    public int endX(int index) {
+        return endX[index];
+    }
+
+    public int endY(int index) {
+        return endY[index];
+    }
+
+    /**
+     * Fügt einen Umriss hinzu.
+     * @param x Die Position auf der x-Achse.
+     * @param y Die Position auf der y-Achse.
+     * @param width Die Breite.
+     * @param height Die Höhe.
+     */
+    public void add(int x, int y, int width, int height) {
+        if (size == this.x.length)
+            grow();
+        set(size++, x, y, width, height);
+    }
+
+    /**
+     * Fügt einen Umriss hinzu.
+     * @param outline Der zu übernehmende Umriss.
+     */
+    public void add(@NotNull Outline outline) {
+        add(outline.x(), outline.y(), outline.width(), outline.height());
+    }
+
+    /**
+     * Fügt alle Umrisse eines anderen Behälters hinzu.
+     * @param other Der andere Behälter.
+     */
+    public void addAll(@NotNull OutlineBuffer other) {
+        for (int i = 0; i < other.size; i++)
+            add(other.x[i], other.y[i], other.width[i], other.height[i]);
+    }
+
+    /**
+     * Prüft, ob ein gleicher Umriss bereits enthalten ist.
+     * @param x Die Position auf der x-Achse.
+     * @param y Die Position auf der y-Achse.
+     * @param width Die Breite.
+     * @param height Die Höhe.
+     * @return Gibt {@code true} zurück, wenn ein gleicher Umriss enthalten ist.
+     */
+    public boolean contains(int x, int y, int width, int height) {
+        for (int i = 0; i < size; i++)
+            if (this.x[i] == x && this.y[i] == y && this.width[i] == width && this.height[i] == height)
+                return true;
+        return false;
+    }
+
+    /**
+     * Entfernt einen Umriss. Die Reihenfolge der übrigen Umrisse bleibt erhalten.
+     * @param index Der Index des Umrisses.
+     */
+    public void remove(int index) {
+        final int moved = --size - index;
+        if (moved > 0) {
+            System.arraycopy(x, index + 1, x, index, moved);
+            System.arraycopy(y, index + 1, y, index, moved);
+            System.arraycopy(width, index + 1, width, index, moved);
+            System.arraycopy(height, index + 1, height, index, moved);
+            System.arraycopy(area, index + 1, area, index, moved);
+            System.arraycopy(endX, index + 1, endX, index, moved);
+            System.arraycopy(endY, index + 1, endY, index, moved);
+        }
+    }
+
+    /**
+     * Verschiebt alle Umrisse, etwa von Koordinaten einer Capture in absolute Koordinaten.
+     * @param offsetX Die Verschiebung auf der x-Achse.
+     * @param offsetY Die Verschiebung auf der y-Achse.
+     */
+    public void translate(int offsetX, int offsetY) {
+        for (int i = 0; i < size; i++) {
+            x[i] += offsetX;
+            y[i] += offsetY;
+            endX[i] += offsetX;
+            endY[i] += offsetY;
+        }
+    }
+
+    /**
+     * Prüft, ob ein Umriss eine Fläche überlappt, siehe {@link Outline#isIntersecting(Outline, Outline)}.
+     * @param index Der Index des Umrisses.
+     * @param other Die Fläche.
+     * @return Gibt {@code true} zurück, wenn sich beide überlappen.
+     */
+    public boolean isIntersecting(int index, @NotNull Outline other) {
+        return endY[index] >= other.y() && y[index] <= other.endY() && x[index] <= other.endX() && endX[index] >= other.x();
+    }
+
+    /**
+     * Berechnet die überschneidende Fläche eines Umrisses mit einer Fläche, siehe {@link Outline#intersectionArea(Outline, Outline)}.
+     * @param index Der Index des Umrisses.
+     * @param other Die Fläche, muss den Umriss überlappen.
+     * @return Gibt die Größe der überschneidenden Fläche in Pixeln zurück.
+     */
+    public int intersectionArea(int index, @NotNull Outline other) {
+        final int width = Math.min(endX[index], other.endX()) - Math.max(x[index], other.x());
+        final int height = Math.min(endY[index], other.endY()) - Math.max(y[index], other.y());
+        return (width + 1) * (height + 1);
+    }
+
+    /**
+     * Führt alle Umrisse zusammen, deren Abstand höchstens dem doppelten Schwellwert entspricht, siehe {@link Outline#isIntersecting(Outline, Outline, int)}.
+     * Jeder Umriss wächst nacheinander um alle folgenden, die ihn in seiner aktuellen Größe berühren. Diese werden entfernt.
+     * Reihenfolge und Ergebnis entsprechen damit dem Zusammenführen einer Liste mit {@link Outline#compose(Outline, Outline)}.
+     * @param intersectionThreshold Zu ignorierender Abstand zwischen zwei Umrissen.
+     */
+    public void mergeIntersecting(int intersectionThreshold) {
+        final int gap = intersectionThreshold * 2;
+        for (int i = 0; i < size; i++) {
+            int minX = x[i], minY = y[i], maxX = endX[i], maxY = endY[i];
+            boolean isComposed = false;
+            for (int j = i + 1; j < size; j++) {
+                if (maxY + gap < y[j] || minY > endY[j] + gap || minX > endX[j] + gap || maxX + gap < x[j])
+                    continue;
+                minX = Math.min(minX, x[j]);
+                minY = Math.min(minY, y[j]);
+                maxX = Math.max(maxX, endX[j]);
+                maxY = Math.max(maxY, endY[j]);
+                isComposed = true;
+                remove(j--);
+            }
+            if (isComposed)
+                set(i, minX, minY, maxX - minX + 1, maxY - minY + 1);
+        }
+    }
+
+    /**
+     * Entfernt alle Umrisse, deren Fläche kleiner als die angegebene ist. Die Reihenfolge der übrigen Umrisse bleibt erhalten.
+     * @param minArea Die Mindestfläche in Pixeln.
+     */
+    public void removeSmallerThan(int minArea) {
+        int retained = 0;
+        for (int i = 0; i < size; i++) {
+            if (area[i] < minArea)
+                continue;
+            if (retained != i)
+                set(retained, x[i], y[i], width[i], height[i]);
+            retained++;
+        }
+        size = retained;
+    }
+
+    /**
+     * Erstellt ein {@link Outline}-Objekt für einen Umriss.
+     * @param index Der Index des Umrisses.
+     * @return Gibt den Umriss zurück.
+     */
+    public @NotNull Outline get(int index) {
+        return Outline.of(x[index], y[index], width[index], height[index]);
+    }
+
+    /**
+     * Erstellt {@link Outline}-Objekte für alle Umrisse.
+     * @return Gibt eine neue, veränderliche Liste zurück.
+     */
+    public @NotNull List<Outline> toList() {
+        final List<Outline> outlines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            outlines.add(get(i));
+        return outlines;
+    }
+
+    /**
+     * Erstellt einen Behälter mit den angegebenen Umrissen.
+     * @param outlines Die Umrisse.
+     * @return Gibt den neuen Behälter zurück.
+     */
+    public static @NotNull OutlineBuffer of(@NotNull Collection<? extends Outline> outlines) {
+        final OutlineBuffer buffer = new OutlineBuffer(outlines.size());
+        for (Outline outline : outlines)
+            buffer.add(outline);
+        return buffer;
+    }
+
+    private void set(int index, int x, int y, int width, int height) {
+        this.x[index] = x;
+        this.y[index] = y;
+        this.width[index] = width;
+        this.height[index] = height;
+        this.area[index] = width * height;
+        this.endX[index] = x + width - 1;
+        this.endY[index] = y + height - 1;
+    }
+
+    private void grow() {
+        final int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        area = Arrays.copyOf(area, capacity);
+        endX = Arrays.copyOf(endX, capacity);
+        endY = Arrays.copyOf(endY, capacity);
+    }
+}
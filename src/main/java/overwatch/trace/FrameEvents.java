@@ -0,0 +1,110 @@
+package overwatch.trace;
+
+import jdk.jfr.*;
+
+/**
+ * Eigene Ereignisse für den JDK Flight Recorder. Jedes Ereignis trägt die Nummer des Frames aus {@link FrameTrace},
+ * sodass sich der Weg eines Frames von der Aufnahme bis zur Meldung an das Backend nachvollziehen lässt.
+ */
+public final class FrameEvents {
+
+    private FrameEvents() {}
+
+    /**
+     * Aufnahme eines Bildes von einem Videogerät.
+     */
+    @Name("overwatch.FrameCapture")
+    @Label("Frame Capture")
+    @Category("Overwatch")
+    @StackTrace(false)
+    public static final class CaptureEvent extends Event {
+
+        @Label("Frame")
+        public long frameId;
+
+        @Label("Device")
+        public String deviceName;
+    }
+
+    /**
+     * Ein Abschnitt der Auswertung eines Frames.
+     */
+    @Name("overwatch.FrameAnalysis")
+    @Label("Frame Analysis")
+    @Category("Overwatch")
+    @StackTrace(false)
+    public static final class AnalysisEvent extends Event {
+
+        @Label("Frame")
+        public long frameId;
+
+        @Label("Stage")
+        public String stage;
+
+        @Label("Algorithm")
+        public String algorithm;
+    }
+
+    /**
+     * Eine Zone wurde nach der Entprellung aktiv oder inaktiv.
+     */
+    @Name("overwatch.ZoneStateChange")
+    @Label("Zone State Change")
+    @Category("Overwatch")
+    @StackTrace(false)
+    public static final class ZoneStateEvent extends Event {
+
+        @Label("Frame")
+        public long frameId;
+
+        @Label("Zone")
+        public int zoneNr;
+
+        @Label("Active")
+        public boolean isActive;
+
+        @Label("Capture Timestamp")
+        @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+        public long captureTimestamp;
+    }
+
+    /**
+     * Meldung der aktiven Zonen an das Backend.
+     */
+    @Name("overwatch.BackendPublish")
+    @Label("Backend Publish")
+    @Category("Overwatch")
+    @StackTrace(false)
+    public static final class PublishEvent extends Event {
+
+        @Label("Frame")
+        public long frameId;
+
+        @Label("Active Zones")
+        public int zoneCount;
+
+        @Label("Status")
+        public int status;
+
+        @Label("Capture Timestamp")
+        @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+        public long captureTimestamp;
+    }
+
+    /**
+     * Zeit zwischen dem ersten Frame, in dem ein Objekt in einer Zone erkannt wurde, und der Meldung dieser Zone an das Backend.
+     */
+    @Name("overwatch.OccupancyLatency")
+    @Label("Occupancy Latency")
+    @Category("Overwatch")
+    @StackTrace(false)
+    public static final class LatencyEvent extends Event {
+
+        @Label("Zone")
+        public int zoneNr;
+
+        @Label("Latency")
+        @Timespan(Timespan.MILLISECONDS)
+        public long latency;
+    }
+}
@@ -0,0 +1,171 @@
+package overwatch.trace;
+
+import jdk.jfr.Recording;
+import org.jetbrains.annotations.NotNull;
+import overwatch.service.ConfigurationService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+/**
+ * Vergibt Nummern für Frames, steuert die Aufzeichnung der {@link FrameEvents} zur Laufzeit
+ * und sammelt die Latenzen von der Erkennung eines Objekts bis zur Meldung an das Backend.
+ * Es läuft immer höchstens eine Engine, daher ist der aktuelle Frame global.
+ */
+public final class FrameTrace {
+
+    private static final Logger logger = Logger.getLogger(FrameTrace.class.getName());
+
+    /**
+     * Anzahl der Latenzen, welche für den Bericht vorgehalten werden.
+     */
+    private static final int LATENCY_CAPACITY = 1024;
+
+    private static final long[] latencies = new long[LATENCY_CAPACITY];
+
+    private static int latencyCount;
+
+    private static long frameCounter;
+
+    private static volatile long frameId;
+
+    private static volatile long captureTimestamp;
+
+    private static volatile Recording recording;
+
+    static {
+        if (ConfigurationService.getBoolean(ConfigurationService.Keys.TRACE_ENABLE))
+            start();
+    }
+
+    private FrameTrace() {}
+
+    /**
+     * Beginnt einen neuen Frame. Muss vor der Aufnahme der Bilder aufgerufen werden.
+     * @return Gibt die Nummer des Frames zurück.
+     */
+    public static synchronized long beginFrame() {
+        captureTimestamp = System.currentTimeMillis();
+        frameId = ++frameCounter;
+        return frameId;
+    }
+
+    /**
+     * Die Nummer des aktuellen Frames.
+     * @return Gibt die Nummer zurück oder {@code 0}, sollte noch kein Frame begonnen worden sein.
+     */
+    public static long frameId() {
+        return frameId;
+    }
+
+    /**
+     * Der Zeitpunkt, an dem der aktuelle Frame begonnen wurde.
+     * @return Gibt den Zeitpunkt in Millisekunden zurück.
+     */
+    public static long captureTimestamp() {
+        return captureTimestamp;
+    }
+
+    /**
+     * Startet die Aufzeichnung aller {@link FrameEvents}. Läuft bereits eine Aufzeichnung, passiert nichts.
+     */
+    public static synchronized void start() {
+        if (recording != null) return;
+        final Recording recording = new Recording();
+        recording.setName("overwatch");
+        recording.enable(FrameEvents.CaptureEvent.class);
+        recording.enable(FrameEvents.AnalysisEvent.class);
+        recording.enable(FrameEvents.ZoneStateEvent.class);
+        recording.enable(FrameEvents.PublishEvent.class);
+        recording.enable(FrameEvents.LatencyEvent.class);
+        recording.start();
+        FrameTrace.recording = recording;
+        logger.info("Frame tracing started.");
+    }
+
+    /**
+     * Beendet die Aufzeichnung. Ist {@code trace-path} gesetzt, wird die Aufzeichnung dorthin geschrieben.
+     * @return Gibt die geschriebene Datei zurück oder ein leeres Optional.
+     */
+    public static synchronized Optional<Path> stop() {
+        final Recording recording = FrameTrace.recording;
+        if (recording == null) return Optional.empty();
+        FrameTrace.recording = null;
+        try (recording) {
+            recording.stop();
+            final String path = ConfigurationService.getString(ConfigurationService.Keys.TRACE_PATH);
+            if (path.isEmpty()) return Optional.empty();
+            final Path file = Path.of(path);
+            recording.dump(file);
+            logger.info("Frame tracing written to: '" + file + "'");
+            return Optional.of(file);
+        }
+        catch (IOException e) {
+            logger.severe("Could not write frame tracing: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Prüft, ob aktuell aufgezeichnet wird.
+     * @return Gibt {@code true} zurück, wenn aufgezeichnet wird.
+     */
+    public static boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * Erfasst die Latenz von dem ersten Frame, in dem ein Objekt in einer Zone lag, bis zur Meldung der Zone an das Backend.
+     * @param zoneNr Die Nummer der Zone.
+     * @param latencyMillis Die Latenz in Millisekunden.
+     */
+    public static void recordLatency(int zoneNr, long latencyMillis) {
+        synchronized (latencies) {
+            latencies[latencyCount++ % LATENCY_CAPACITY] = latencyMillis;
+        }
+        final FrameEvents.LatencyEvent event = new FrameEvents.LatencyEvent();
+        if (event.shouldCommit()) {
+            event.zoneNr = zoneNr;
+            event.latency = latencyMillis;
+            event.commit();
+        }
+    }
+
+    /**
+     * Erstellt einen Bericht über die zuletzt erfassten Latenzen.
+     * @return Gibt den Bericht als Text zurück.
+     */
+    public static @NotNull String report() {
+        final long[] values;
+        synchronized (latencies) {
+            values = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_CAPACITY));
+        }
+        Arrays.sort(values);
+        final StringBuilder report = new StringBuilder()
+                .append("recording ").append(isRecording()).append('\n')
+                .append("frames ").append(frameId).append('\n')
+                .append("latency_count ").append(values.length).append('\n');
+        if (values.length == 0)
+            return report.toString();
+        return report
+                .append("latency_p50_ms ").append(percentile(values, 50)).append('\n')
+                .append("latency_p90_ms ").append(percentile(values, 90)).append('\n')
+                .append("latency_p99_ms ").append(percentile(values, 99)).append('\n')
+                .append("latency_max_ms ").append(values[values.length - 1]).append('\n')
+                .toString();
+    }
+
+    /**
+     * Bestimmt ein Perzentil nach dem Nearest-Rank-Verfahren.
+     * @param sortedValues Die aufsteigend sortierten Werte, nicht leer.
+     * @param percentile Das Perzentil zwischen {@code 1} und {@code 100}.
+     * @return Gibt den Wert des Perzentils zurück.
+     */
+    public static long percentile(long @NotNull [] sortedValues, int percentile) {
+        final int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,114 @@
+package overwatch.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+import overwatch.skeleton.Outline;
+
+import java.awt.image.BufferedImage;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public class AlgorithmTest {
+
+    private static final Capture ENTRANCE = new Capture(0, 0, 100, 100, "/dev/video0", 0, "opencv");
+
+    private static final Capture LOT = new Capture(100, 0, 100, 100, "/dev/video1", 0, "Average");
+
+    private static final Capture DEFAULT = new Capture(200, 0, 100, 100, "/dev/video2");
+
+    @Test
+    public void groupByAlgorithm() {
+        Zone z1 = new Zone(1, ENTRANCE, 0, 0, 50, 50);
+        Zone z2 = new Zone(2, LOT, 0, 0, 50, 50);
+        Zone z3 = new Zone(3, LOT, 50, 0, 50, 50);
+        Zone z4 = new Zone(4, DEFAULT, 0, 0, 50, 50);
+
+        Map<String, Zone[]> groups = Algorithm.groupByAlgorithm(new Zone[]{ z1, z2, z3, z4 });
+        Assert.assertEquals(List.of("opencv", "average"), List.copyOf(groups.keySet()));
+        Assert.assertArrayEquals(new Zone[]{ z1, z4 }, groups.get("opencv"));
+        Assert.assertArrayEquals(new Zone[]{ z2, z3 }, groups.get("average"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void groupByAlgorithmUnknown() {
+        Capture capture = new Capture(0, 0, 100, 100, "/dev/video0", 0, "unknown");
+        Algorithm.groupByAlgorithm(new Zone[]{ new Zone(1, capture, 0, 0, 50, 50) });
+    }
+
+    @Test
+    public void composite() {
+        Zone z1 = new Zone(1, ENTRANCE, 0, 0, 50, 50);
+        Zone z2 = new Zone(2, LOT, 0, 0, 50, 50);
+        StubAlgorithm a = new StubAlgorithm(z1, Outline.of(10, 10, 20, 20));
+        StubAlgorithm b = new StubAlgorithm(z2, Outline.of(110, 10, 20, 20));
+        CompositeAlgorithm composite = new CompositeAlgorithm(new Zone[]{ z1, z2 }, new Algorithm[]{ a, b });
+
+        Assert.assertEquals(List.of(z1, z2), List.copyOf(composite.compute()));
+        AnalysisSnapshot snapshot = composite.snapshot();
+        Assert.assertEquals(1, snapshot.frameNumber());
+        Assert.assertEquals(List.of(Outline.of(10, 10, 20, 20), Outline.of(110, 10, 20, 20)), List.copyOf(snapshot.objects()));
+        Assert.assertTrue(snapshot.mask().isModified(15, 15));
+        Assert.assertTrue(snapshot.mask().isModified(115, 15));
+        Assert.assertFalse(snapshot.mask().isModified(60, 15));
+
+        composite.close();
+        Assert.assertTrue(a.isClosed && b.isClosed);
+    }
+
+    @Test
+    public void computeImageRegion() {
+        Zone z1 = new Zone(1, ENTRANCE, 0, 0, 50, 50);
+        Zone z2 = new Zone(2, LOT, 0, 0, 50, 50);
+        StubAlgorithm a = new StubAlgorithm(z1, Outline.of(10, 10, 20, 20));
+        StubAlgorithm b = new StubAlgorithm(z2, Outline.of(110, 10, 20, 20));
+        CompositeAlgorithm composite = new CompositeAlgorithm(new Zone[]{ z1, z2 }, new Algorithm[]{ a, b });
+        composite.compute();
+
+        // Nur die zweite Capture, auf die halbe Breite verkleinert.
+        BufferedImage image = composite.computeImage(LOT, 50);
+        Assert.assertEquals(50, image.getWidth());
+        Assert.assertEquals(50, image.getHeight());
+        Assert.assertEquals(Algorithm.MODIFIED_PIXEL_COLOR.getRGB(), image.getRGB(10, 10));
+        Assert.assertEquals(Algorithm.ACTIVE_ZONE_COLOR.getRGB(), image.getRGB(20, 3));
+        Assert.assertEquals(Algorithm.UNMODIFIED_PIXEL_COLOR.getRGB(), image.getRGB(40, 40));
+
+        // Ohne Begrenzung der Breite wird nicht skaliert.
+        Assert.assertEquals(30, composite.computeImage(Outline.of(20, 20, 30, 10), 0).getWidth());
+        Assert.assertEquals(10, composite.computeImage(Outline.of(20, 20, 30, 10), 0).getHeight());
+        composite.close();
+    }
+
+    private static final class StubAlgorithm extends Algorithm {
+
+        private final Zone zone;
+
+        private final Outline object;
+
+        private boolean isClosed;
+
+        private StubAlgorithm(Zone zone, Outline object) {
+            this.zone = zone;
+            this.object = object;
+        }
+
+        @Override
+        public void close() {
+            isClosed = true;
+        }
+
+        @Override
+        public @NotNull Collection<? extends Zone> compute() {
+            publish((x, y) -> object.x() <= x && x <= object.endX() && object.y() <= y && y <= object.endY(), List.of(object), List.of(zone));
+            return List.of(zone);
+        }
+
+        @Override
+        public @NotNull BufferedImage computeImage() {
+            return new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package overwatch.algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class MotionGateTest {
+
+    @Test
+    public void update() {
+        MotionGate gate = new MotionGate(10, 1000, 5000);
+        Assert.assertTrue(gate.update(0));
+        // Ohne Bewegung wird bis zum Ruhezustand weiter ausgewertet.
+        Assert.assertTrue(gate.update(500));
+        // Ruhezustand, nur noch im langsamen Intervall.
+        Assert.assertFalse(gate.update(1500));
+        Assert.assertTrue(gate.update(5500));
+        Assert.assertFalse(gate.update(6000));
+
+        // Bewegung beendet den Ruhezustand sofort.
+        Arrays.fill(gate.luma(), 0, 4, 200);
+        Assert.assertTrue(gate.update(6100));
+        Assert.assertTrue(gate.update(6200));
+    }
+
+    @Test
+    public void isEnabled() {
+        MotionGate gate = new MotionGate(10, 1000, 0);
+        Assert.assertFalse(gate.isEnabled());
+        Assert.assertTrue(gate.update(0));
+        Assert.assertTrue(gate.update(100000));
+    }
+}
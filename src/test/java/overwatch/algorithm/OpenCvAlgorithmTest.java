@@ -0,0 +1,63 @@
+package overwatch.algorithm;
+
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.global.opencv_video;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+import overwatch.simulation.SimulatedLot;
+import overwatch.simulation.Simulator;
+
+public class OpenCvAlgorithmTest {
+
+    @Test
+    public void calculateWorkingWidth() {
+        Capture capture = new Capture(0,0,1920,1080,"/dev/video0");
+        Zone z1 = new Zone(1, capture, 0,0, 480,240);
+        Zone z2 = new Zone(2, capture, 480,0, 480,480);
+        Assert.assertEquals(384, OpenCvAlgorithm.calculateWorkingWidth(capture, new Zone[]{ z1, z2 }));
+
+        Capture small = new Capture(0,0,200,200,"/dev/video1");
+        Zone z3 = new Zone(3, small, 0,0, 20,20);
+        Assert.assertEquals(200, OpenCvAlgorithm.calculateWorkingWidth(small, new Zone[]{ z3 }));
+
+        Capture fixed = new Capture(0,0,1920,1080,"/dev/video2", 640);
+        Assert.assertEquals(640, OpenCvAlgorithm.calculateWorkingWidth(fixed, new Zone[0]));
+    }
+
+    @Test
+    public void learningRate() {
+        Assert.assertEquals(-1, OpenCvAlgorithm.learningRate(0), 0);
+        // Nach 24 zurückgehaltenen Frames lernt das nächste Frame für 25.
+        Assert.assertEquals(0.025, OpenCvAlgorithm.learningRate(24), 1e-9);
+        Assert.assertEquals(1, OpenCvAlgorithm.learningRate(5000), 0);
+    }
+
+    @Test
+    public void simulatedCapture() {
+        // Ohne die nativen Bibliotheken von OpenCv (z.B. ohne GTK) wird der Test übersprungen.
+        try {
+            Loader.load(opencv_video.class);
+        }
+        catch (UnsatisfiedLinkError e) {
+            Assume.assumeNoException(e);
+        }
+        Zone[] zones = Simulator.createLayout(1, 4, "opencv");
+        Simulator.register(zones, new SimulatedLot.Parameters(1e9, 1e9, 0, 0), 7);
+        OpenCvAlgorithm algorithm = new OpenCvAlgorithm(zones);
+        try {
+            // Das erste Frame bildet den Hintergrund des leeren Parkplatzes, danach sind alle Plätze belegt.
+            Assert.assertTrue(algorithm.compute().isEmpty());
+            Simulator.advance(200);
+            for (int i = 0; i < 3; i++)
+                algorithm.compute();
+            Assert.assertEquals(zones.length, algorithm.compute().size());
+        }
+        finally {
+            algorithm.close();
+            Simulator.clear();
+        }
+    }
+}
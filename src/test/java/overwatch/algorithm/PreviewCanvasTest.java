@@ -0,0 +1,43 @@
+package overwatch.algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+import overwatch.skeleton.Outline;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+
+public class PreviewCanvasTest {
+
+    @Test
+    public void render() {
+        Capture first = new Capture(0, 0, 100, 50, Capture.VIRTUAL_CAMERA_NAME);
+        Capture second = new Capture(1000, 0, 100, 50, Capture.VIRTUAL_CAMERA_NAME);
+        Zone zone = new Zone(1, second, 20, 10, 40, 30);
+        Outline object = Outline.of(1030, 20, 10, 10);
+        AnalysisSnapshot snapshot = new AnalysisSnapshot(1, 0, (x, y) -> x == 1035 && y == 25, List.of(object), List.of(zone), Map.of());
+
+        PreviewCanvas canvas = new PreviewCanvas(new Capture[]{ first, second });
+        BufferedImage image = canvas.render(snapshot, new Zone[]{ zone });
+        // Das Gesamtbild entspricht weiterhin den absoluten Koordinaten.
+        Assert.assertEquals(1100, image.getWidth());
+        Assert.assertEquals(50, image.getHeight());
+        Assert.assertEquals(Algorithm.MODIFIED_PIXEL_COLOR.getRGB(), image.getRGB(1035, 25));
+        Assert.assertEquals(Algorithm.ACTIVE_ZONE_COLOR.getRGB(), image.getRGB(1034, 25));
+        Assert.assertEquals(Algorithm.OBJECT_OUTLINE_COLOR.getRGB(), image.getRGB(1030, 25));
+        // Zwischen den Captures bleibt das Bild leer.
+        Assert.assertEquals(Algorithm.UNMODIFIED_PIXEL_COLOR.getRGB(), image.getRGB(500, 25));
+
+        // Jede Darstellung setzt ein eigenes Gesamtbild zusammen, frühere Bilder bleiben davon unberührt.
+        AnalysisSnapshot empty = new AnalysisSnapshot(2, 0, (x, y) -> false, List.of(), List.of(), Map.of());
+        Assert.assertEquals(Algorithm.UNMODIFIED_PIXEL_COLOR.getRGB(), (int) canvas.render(empty, new Zone[]{ zone }, it -> it.getRGB(1035, 25)));
+        Assert.assertEquals(Algorithm.MODIFIED_PIXEL_COLOR.getRGB(), image.getRGB(1035, 25));
+
+        // Nach dem Freigeben werden die Puffer erneut angelegt.
+        canvas.flush();
+        Assert.assertEquals(Algorithm.MODIFIED_PIXEL_COLOR.getRGB(), canvas.render(snapshot, new Zone[]{ zone }).getRGB(1035, 25));
+    }
+}
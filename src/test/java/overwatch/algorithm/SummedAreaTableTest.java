@@ -0,0 +1,60 @@
+package overwatch.algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SummedAreaTableTest {
+
+    private static byte[] createMask(int width, int height) {
+        byte[] mask = new byte[width * height];
+        // Vordergrund im Bereich x 2..5, y 1..2 sowie ein Schatten bei x 0, y 3.
+        for (int y = 1; y <= 2; y++)
+            for (int x = 2; x <= 5; x++)
+                mask[x + y * width] = (byte) 255;
+        mask[3 * width] = (byte) 127;
+        return mask;
+    }
+
+    @Test
+    public void sum() {
+        SummedAreaTable table = new SummedAreaTable(8, 4);
+        table.update(createMask(8, 4), 255);
+        Assert.assertEquals(8, table.sum(0, 0, 8, 4));
+        Assert.assertEquals(4, table.sum(4, 0, 4, 4));
+        Assert.assertEquals(1, table.sum(2, 1, 1, 1));
+        Assert.assertEquals(0, table.sum(6, 0, 2, 4));
+        // Teile außerhalb der Maske werden ignoriert.
+        Assert.assertEquals(8, table.sum(-5, -5, 50, 50));
+        Assert.assertEquals(0, table.sum(10, 0, 4, 4));
+
+        table.update(createMask(8, 4), 1);
+        Assert.assertEquals(9, table.sum(0, 0, 8, 4));
+    }
+
+    @Test
+    public void collect() {
+        Capture capture = new Capture(100, 0, 16, 8, "/dev/video0");
+        Zone left = new Zone(1, capture, 0, 0, 8, 8);
+        Zone right = new Zone(2, capture, 8, 0, 8, 8);
+        // Die Maske ist auf die halbe Auflösung der Capture herunterskaliert.
+        SummedAreaTable table = new SummedAreaTable(8, 4);
+        table.update(createMask(8, 4), 255);
+
+        Map<Integer, Float> occupancy = new HashMap<>();
+        List<Zone> activeZones = new ArrayList<>();
+        OccupancyMode.collect(new Zone[]{ left, right }, capture, table, 0.4f, occupancy, activeZones);
+        Assert.assertEquals(0.25f, occupancy.get(1), 0.0001f);
+        Assert.assertEquals(0.25f, occupancy.get(2), 0.0001f);
+        Assert.assertTrue(activeZones.isEmpty());
+
+        OccupancyMode.collect(new Zone[]{ left, right }, capture, table, 0.25f, occupancy, activeZones);
+        Assert.assertEquals(List.of(left, right), activeZones);
+    }
+}
@@ -0,0 +1,61 @@
+package overwatch.algorithm.dongle;
+
+import org.junit.Assert;
+import org.junit.Test;
+import overwatch.skeleton.Outline;
+import overwatch.skeleton.OutlineBuffer;
+
+import java.util.List;
+
+public class ChangePyramidTest {
+
+    @Test
+    public void spacing() {
+        Assert.assertEquals(7, ChangePyramid.spacing(60, 220, 240));
+        // Kleine Zonen werden mit mindestens vier Rasterpunkten pro Seite abgetastet.
+        Assert.assertEquals(5, ChangePyramid.spacing(60, 20, 100));
+        Assert.assertEquals(1, ChangePyramid.spacing(60, 2, 2));
+    }
+
+    @Test
+    public void findObjects() {
+        Outline region = Outline.of(100, 50, 128, 128);
+        // Ein Objekt von 8x8 Pixeln zwischen den Punkten eines Rasters von 25 Pixeln und ein größeres Objekt.
+        OutlineBuffer objects = new OutlineBuffer();
+        ChangePyramid pyramid = new ChangePyramid();
+        pyramid.sample(region.x(), region.y(), region.endX(), region.endY(), 100, 50, ChangePyramid.spacing(60, 220, 240),
+                (x, y) -> (x >= 10 && x <= 17 && y >= 6 && y <= 13) || (x >= 60 && x <= 99 && y >= 70 && y <= 89));
+        pyramid.findObjects(60, objects);
+        Assert.assertEquals(List.of(Outline.of(110, 56, 8, 8), Outline.of(160, 120, 40, 20)), objects.toList());
+        // Das Raster von 7 Pixeln wird bis zu Zellen von 56 Pixeln zusammengefasst.
+        Assert.assertEquals(4, pyramid.levelCount());
+    }
+
+    @Test
+    public void findObjectsAtRegionBorder() {
+        Outline region = Outline.of(0, 0, 64, 64);
+        // Einzelne Pixel im Inneren werden verworfen, am Rand könnte das Objekt im benachbarten Bereich fortgesetzt sein.
+        OutlineBuffer objects = new OutlineBuffer();
+        ChangePyramid pyramid = new ChangePyramid();
+        pyramid.sample(region.x(), region.y(), region.endX(), region.endY(), 0, 0, 7, (x, y) -> (x == 21 && y == 21) || (x >= 60 && y == 35));
+        pyramid.findObjects(60, objects);
+        Assert.assertEquals(List.of(Outline.of(60, 35, 4, 1)), objects.toList());
+    }
+
+    @Test
+    public void findObjectsWithFineGrid() {
+        // Beide Objekte liegen in derselben Zelle der obersten Ebene und werden erst im Raster getrennt.
+        OutlineBuffer objects = new OutlineBuffer();
+        ChangePyramid pyramid = new ChangePyramid();
+        pyramid.sample(0, 0, 39, 39, 0, 0, 2,
+                (x, y) -> (x >= 2 && x <= 11 && y >= 2 && y <= 11) || (x >= 20 && x <= 29 && y >= 4 && y <= 13));
+        pyramid.findObjects(60, objects);
+        Assert.assertEquals(List.of(Outline.of(2, 2, 10, 10), Outline.of(20, 4, 10, 10)), objects.toList());
+
+        // Die Instanz wird für einen kleineren Bereich wiederverwendet.
+        objects.clear();
+        pyramid.sample(100, 100, 115, 115, 100, 100, 2, (x, y) -> x >= 4 && x <= 11 && y >= 4 && y <= 11);
+        pyramid.findObjects(60, objects);
+        Assert.assertEquals(List.of(Outline.of(104, 104, 8, 8)), objects.toList());
+    }
+}
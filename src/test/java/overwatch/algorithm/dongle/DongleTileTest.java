@@ -0,0 +1,111 @@
+package overwatch.algorithm.dongle;
+
+import org.junit.Assert;
+import org.junit.Test;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+
+public class DongleTileTest {
+
+    private static final Capture CAPTURE = new Capture(100, 0, 300, 200, Capture.VIRTUAL_CAMERA_NAME);
+
+    @Test
+    public void create() {
+        DongleProcessableZone zone = new DongleProcessableZone(new Zone(1, CAPTURE, 0, 0, 150, 100));
+        List<DongleTile> tiles = DongleTile.create(CAPTURE, new DongleProcessableZone[]{ zone });
+        // Nur die Ausschnitte der ersten Zeile enthalten die Zone.
+        Assert.assertEquals(2, tiles.size());
+        Assert.assertEquals(100, tiles.get(0).x());
+        Assert.assertEquals(228, tiles.get(1).x());
+        Assert.assertEquals(DongleTile.TILE_SIZE, tiles.get(1).width());
+    }
+
+    @Test
+    public void firstGridPoint() {
+        Assert.assertEquals(10, DongleTile.firstGridPoint(10, 0, 25));
+        Assert.assertEquals(10, DongleTile.firstGridPoint(10, 10, 25));
+        Assert.assertEquals(35, DongleTile.firstGridPoint(10, 11, 25));
+        Assert.assertEquals(60, DongleTile.firstGridPoint(10, 60, 25));
+    }
+
+    @Test
+    public void updateSignature() {
+        DongleTile tile = new DongleTile(CAPTURE, 100, 0, 20, 12, new DongleProcessableZone[0]);
+        int[] pixels = new int[DongleTile.TILE_SIZE * DongleTile.TILE_SIZE];
+        int[] previous = tile.createSignature();
+        int[] current = tile.createSignature();
+        Assert.assertEquals(6, previous.length);
+
+        tile.updateSignature(image((x, y) -> 0x808080), pixels, previous);
+        // Rauschen einzelner Pixel verändert die Signatur kaum.
+        tile.updateSignature(image((x, y) -> x == 3 && y == 3 ? 0xa0a0a0 : 0x808080), pixels, current);
+        Assert.assertFalse(DongleTile.isChanged(previous, current, 10));
+        // Ein Objekt im Block verändert die Signatur.
+        tile.updateSignature(image((x, y) -> x >= 16 && y >= 8 ? 0xffffff : 0x808080), pixels, current);
+        Assert.assertTrue(DongleTile.isChanged(previous, current, 10));
+    }
+
+    @Test
+    public void signatureComparesWithLastEvaluation() {
+        DongleTile tile = new DongleTile(CAPTURE, 100, 0, 20, 12, new DongleProcessableZone[0]);
+        DongleTile.Signature signature = new DongleTile.Signature(tile);
+        int[] pixels = new int[DongleTile.TILE_SIZE * DongleTile.TILE_SIZE];
+        Assert.assertTrue(signature.update(image((x, y) -> 0x808080), pixels, 10));
+
+        // Jeder Schritt liegt unter dem Schwellwert, zusammen überschreiten sie ihn.
+        Assert.assertFalse(signature.update(image((x, y) -> 0x848484), pixels, 10));
+        Assert.assertFalse(signature.update(image((x, y) -> 0x888888), pixels, 10));
+        Assert.assertTrue(signature.update(image((x, y) -> 0x8c8c8c), pixels, 10));
+        // Die neue Referenz ist das zuletzt ausgewertete Bild.
+        Assert.assertFalse(signature.update(image((x, y) -> 0x909090), pixels, 10));
+
+        signature.invalidate();
+        Assert.assertTrue(signature.update(image((x, y) -> 0x909090), pixels, 10));
+    }
+
+    @Test
+    public void lumaImage() {
+        BufferedImage gray = new BufferedImage(4, 2, BufferedImage.TYPE_BYTE_GRAY);
+        gray.getRaster().setSample(2, 1, 0, 200);
+        DongleImage luma = new DongleImage.LumaImage(gray);
+        Assert.assertEquals(200, luma.getLuma(2, 1));
+        Assert.assertEquals(0xc8c8c8, luma.getPixel(2, 1));
+
+        // Farbbilder werden einmalig umgerechnet und liefern dieselbe Helligkeit wie die Standardimplementierung.
+        DongleImage color = image((x, y) -> x * 0x300000 + y * 0x2000 + 0x40);
+        BufferedImage rgb = new BufferedImage(CAPTURE.width(), CAPTURE.height(), BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < rgb.getHeight(); y++)
+            for (int x = 0; x < rgb.getWidth(); x++)
+                rgb.setRGB(x, y, color.getPixel(x, y));
+        int[] expected = new int[6], actual = new int[6];
+        color.getLumas(3, 4, 3, 2, expected);
+        new DongleImage.LumaImage(rgb).getLumas(3, 4, 3, 2, actual);
+        Assert.assertArrayEquals(expected, actual);
+    }
+
+    private static DongleImage image(IntBinaryOperator pixels) {
+        return new DongleImage() {
+            @Override
+            public void flush() {}
+
+            @Override
+            public int width() {
+                return CAPTURE.width();
+            }
+
+            @Override
+            public int height() {
+                return CAPTURE.height();
+            }
+
+            @Override
+            public int getPixel(int x, int y) {
+                return pixels.applyAsInt(x, y);
+            }
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package overwatch.algorithm.dongle;
+
+import org.junit.Assert;
+import org.junit.Test;
+import overwatch.skeleton.Outline;
+import overwatch.skeleton.OutlineBuffer;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class RunningAverageBackgroundTest {
+
+    private static final int WIDTH = 64, HEIGHT = 48;
+
+    private static int gray(int value) {
+        return value << 16 | value << 8 | value;
+    }
+
+    @Test
+    public void update() {
+        RunningAverageBackground background = new RunningAverageBackground(WIDTH, HEIGHT, 20, 4, 12);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        Arrays.fill(pixels, gray(100));
+        Assert.assertEquals(0, background.update(pixels));
+
+        // Langsame Änderung der Beleuchtung wird angelernt.
+        for (int value = 100; value <= 160; value++) {
+            Arrays.fill(pixels, gray(value));
+            Assert.assertEquals(0, background.update(pixels));
+            Assert.assertEquals(0, background.update(pixels));
+        }
+
+        // Ein Objekt erscheint und bleibt über viele Frames im Vordergrund.
+        for (int y = 10; y < 30; y++)
+            for (int x = 20; x < 40; x++)
+                pixels[x + y * WIDTH] = gray(20);
+        for (int i = 0; i < 100; i++)
+            Assert.assertEquals(400, background.update(pixels));
+
+        OutlineBuffer outlines = new OutlineBuffer();
+        background.extract(100, 200, 60, outlines);
+        Assert.assertEquals(List.of(Outline.of(120, 208, 20, 24)), outlines.toList());
+    }
+
+    @Test
+    public void extract() {
+        RunningAverageBackground background = new RunningAverageBackground(WIDTH, HEIGHT, 20, 4, 12);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        background.reset(pixels);
+        // Zwei getrennte Objekte und ein einzelner Pixel als Rauschen.
+        for (int y = 0; y < 8; y++)
+            for (int x = 0; x < 8; x++) {
+                pixels[x + y * WIDTH] = gray(255);
+                pixels[40 + x + (30 + y) * WIDTH] = gray(255);
+            }
+        pixels[20 + 20 * WIDTH] = gray(255);
+        background.update(pixels);
+
+        OutlineBuffer outlines = new OutlineBuffer();
+        background.extract(0, 0, 1, outlines);
+        Assert.assertEquals(List.of(Outline.of(0, 0, 8, 8), Outline.of(40, 28, 8, 12)), outlines.toList());
+    }
+}
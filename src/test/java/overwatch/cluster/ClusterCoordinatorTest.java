@@ -0,0 +1,185 @@
+package overwatch.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fi.iki.elonen.NanoHTTPD;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import overwatch.dto.InitDto;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+import overwatch.service.ConfigurationService;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+public class ClusterCoordinatorTest {
+
+    private StubNode workerA, workerB, backend;
+
+    @Before
+    public void startNodes() throws IOException {
+        workerA = StubNode.create();
+        workerB = StubNode.create();
+        backend = StubNode.create();
+        ConfigurationService.override(ConfigurationService.Keys.SERVICE_UPDATE_ENDPOINT, backend.url() + "/update");
+        ClusterCoordinator.reset(List.of(workerA.url(), workerB.url()));
+    }
+
+    @After
+    public void stopNodes() {
+        workerA.stop();
+        workerB.stop();
+        backend.stop();
+        ClusterCoordinator.reset(List.of());
+    }
+
+    @Test
+    public void partition() {
+        Capture c1 = new Capture(0,0,1920,1080,"/dev/video0");
+        Capture c2 = new Capture(1920,0,640,480,"/dev/video1");
+        Capture c3 = new Capture(2560,0,640,480,"/dev/video2");
+        Capture c4 = new Capture(3200,0,640,480,"/dev/video3");
+
+        Map<String, Set<String>> partitions = ClusterCoordinator.partition(new Capture[]{ c2, c4, c1, c3 }, List.of("a", "b"));
+        Assert.assertEquals(Set.of("/dev/video0"), partitions.get("a"));
+        Assert.assertEquals(Set.of("/dev/video1", "/dev/video2", "/dev/video3"), partitions.get("b"));
+
+        partitions = ClusterCoordinator.partition(new Capture[]{ c1, c2 }, List.of("a", "b", "c"));
+        Assert.assertEquals(Set.of(), partitions.get("c"));
+
+        partitions = ClusterCoordinator.partition(new Capture[]{ c1, c2 }, List.of());
+        Assert.assertTrue(partitions.isEmpty());
+    }
+
+    @Test
+    public void distributeAndForward() throws Exception {
+        ClusterCoordinator.assign(layout());
+        Assert.assertEquals(Set.of("/dev/video0"), workerA.lastLayout());
+        Assert.assertEquals(Set.of("/dev/video1"), workerB.lastLayout());
+        // Nach der Verteilung ist noch keine Zone gemeldet.
+        Assert.assertEquals(List.of(List.of()), backend.updates());
+
+        ClusterCoordinator.acceptWorkerUpdate(workerA.url(), new int[]{ 1 });
+        ClusterCoordinator.acceptWorkerUpdate(workerB.url(), new int[]{ 2 });
+        ClusterCoordinator.acceptWorkerUpdate("http://unknown", new int[]{ 3 });
+        // Ein unveränderter Zustand wird nicht erneut gemeldet.
+        ClusterCoordinator.acceptWorkerUpdate(workerA.url(), new int[]{ 1 });
+        Assert.assertEquals(List.of(List.of(), List.of(1), List.of(1, 2)), backend.updates());
+
+        // Fällt ein Worker aus, übernimmt der andere dessen Geräte und meldet seine Zonen neu.
+        workerB.stop();
+        ClusterCoordinator.heartbeat();
+        Assert.assertEquals(Set.of("/dev/video0", "/dev/video1"), workerA.lastLayout());
+        Assert.assertEquals(List.of(List.of(), List.of(1), List.of(1, 2), List.of()), backend.updates());
+    }
+
+    @Test
+    public void acceptUpdatesWhileLayoutIsSent() throws Exception {
+        ClusterCoordinator.assign(layout());
+        workerB.block();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final InitDto layout = layout();
+            final Future<?> assignment = executor.submit(() -> ClusterCoordinator.assign(layout));
+            Assert.assertTrue(workerB.awaitBlocked());
+            // Während ein Worker das Layout noch nicht angenommen hat, werden Meldungen anderer Worker weitergeleitet.
+            ClusterCoordinator.acceptWorkerUpdate(workerA.url(), new int[]{ 1 });
+            Assert.assertEquals(List.of(List.of(), List.of(1)), backend.updates());
+            workerB.release();
+            assignment.get(5, TimeUnit.SECONDS);
+        }
+        finally {
+            workerB.release();
+            executor.shutdownNow();
+        }
+    }
+
+    private static InitDto layout() throws IOException {
+        return new ObjectMapper().readValue("""
+                {
+                  "captures": {
+                    "/dev/video0": { "x": 0, "y": 0, "width": 50, "height": 50 },
+                    "/dev/video1": { "x": 50, "y": 0, "width": 50, "height": 50 }
+                  },
+                  "zones": {
+                    "1": { "offsetX": 0, "offsetY": 0, "width": 50, "height": 50, "deviceName": "/dev/video0" },
+                    "2": { "offsetX": 0, "offsetY": 0, "width": 50, "height": 50, "deviceName": "/dev/video1" }
+                  }
+                }""", InitDto.class);
+    }
+
+    /**
+     * Worker oder Backend im selben Prozess. Nimmt Layouts und Meldungen an und merkt sich diese.
+     */
+    private static final class StubNode extends NanoHTTPD {
+
+        private final ObjectMapper mapper = new ObjectMapper();
+
+        private final List<Set<String>> layouts = new CopyOnWriteArrayList<>();
+
+        private final List<List<Integer>> updates = new CopyOnWriteArrayList<>();
+
+        private volatile CountDownLatch blocked = new CountDownLatch(0), released = new CountDownLatch(0);
+
+        private StubNode() {
+            super("127.0.0.1", 0);
+        }
+
+        private static StubNode create() throws IOException {
+            final StubNode node = new StubNode();
+            node.start(NanoHTTPD.SOCKET_READ_TIMEOUT, true);
+            return node;
+        }
+
+        private String url() {
+            return "http://127.0.0.1:" + getListeningPort();
+        }
+
+        private void block() {
+            blocked = new CountDownLatch(1);
+            released = new CountDownLatch(1);
+        }
+
+        private boolean awaitBlocked() throws InterruptedException {
+            return blocked.await(5, TimeUnit.SECONDS);
+        }
+
+        private void release() {
+            released.countDown();
+        }
+
+        private Set<String> lastLayout() {
+            return layouts.isEmpty() ? Set.of() : layouts.get(layouts.size() - 1);
+        }
+
+        private List<List<Integer>> updates() {
+            return List.copyOf(updates);
+        }
+
+        @Override
+        public Response serve(IHTTPSession session) {
+            try {
+                if (session.getMethod() == Method.POST) {
+                    blocked.countDown();
+                    released.await(5, TimeUnit.SECONDS);
+                    final Map<String, String> body = new HashMap<>();
+                    session.parseBody(body);
+                    layouts.add(Arrays.stream(mapper.readValue(body.get("postData"), InitDto.class).toZones())
+                            .map(Zone::capture)
+                            .map(Capture::deviceName)
+                            .collect(Collectors.toSet()));
+                }
+                else if (session.getMethod() == Method.PUT)
+                    updates.add(session.getParms().isEmpty() ? List.of() : decodeParameters(session.getQueryParameterString()).getOrDefault("zones", List.of()).stream().map(Integer::valueOf).toList());
+                return newFixedLengthResponse(Response.Status.OK, NanoHTTPD.MIME_PLAINTEXT, "");
+            }
+            catch (Exception e) {
+                return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, NanoHTTPD.MIME_PLAINTEXT, e.getMessage());
+            }
+        }
+    }
+}
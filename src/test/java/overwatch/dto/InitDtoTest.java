@@ -1,10 +1,13 @@
 package overwatch.dto;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Assert;
 import org.junit.Test;
 import overwatch.model.Capture;
 import overwatch.model.Zone;
 
+import java.util.Set;
+
 public class InitDtoTest {
 
     @Test
@@ -22,4 +25,22 @@ public class InitDtoTest {
 
         Assert.assertEquals(expected, zones[0]);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void subset() throws Exception {
+        CapturesDto capturesDto = new CapturesDto();
+        capturesDto.addCapture("/dev/video0", new CaptureDto(0,0,50,50));
+        capturesDto.addCapture("/dev/video1", new CaptureDto(50,0,50,50));
+        ZonesDto zonesDto = new ZonesDto();
+        zonesDto.addZone("1", new ZoneDto(0,0,50,50,"/dev/video0"));
+        zonesDto.addZone("2", new ZoneDto(0,0,50,50,"/dev/video1"));
+
+        InitDto subset = new InitDto(capturesDto, zonesDto).subset(Set.of("/dev/video1"));
+        ObjectMapper mapper = new ObjectMapper();
+        Zone[] zones = mapper.readValue(mapper.writeValueAsString(subset), InitDto.class).toZones();
+
+        Assert.assertEquals(1, zones.length);
+        Assert.assertEquals(2, zones[0].nr());
+        Assert.assertEquals("/dev/video1", zones[0].capture().deviceName());
+    }
+}
@@ -0,0 +1,106 @@
+package overwatch.journal;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class JournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> read(Journal journal, long fromOffset, long toOffset) {
+        List<String> records = new ArrayList<>();
+        journal.read(fromOffset, toOffset, (offset, timestamp, frameId, zoneNr, isActive) ->
+                records.add(offset + ":" + timestamp + ":" + frameId + ":" + zoneNr + ":" + isActive));
+        return records;
+    }
+
+    private static long countSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(it -> it.getFileName().toString().endsWith(".journal")).count();
+        }
+    }
+
+    @Test
+    public void appendAndRead() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (Journal journal = new Journal(directory, 4, 0)) {
+            for (int i = 0; i < 10; i++)
+                Assert.assertEquals(i, journal.append(i, i % 2 == 0, i / 2, 1000 + i * 100L));
+            Assert.assertTrue(journal.awaitWritten(10, 5000));
+            Assert.assertEquals(3, countSegments(directory));
+
+            Assert.assertEquals(List.of("3:1300:1:3:false", "4:1400:2:4:true", "5:1500:2:5:false"), read(journal, 3, 6));
+            Assert.assertEquals(10, read(journal, 0, 100).size());
+
+            List<Long> offsets = new ArrayList<>();
+            Assert.assertEquals(3, journal.replay(1350, 1700, (offset, timestamp, frameId, zoneNr, isActive) -> offsets.add(offset)));
+            Assert.assertEquals(List.of(4L, 5L, 6L), offsets);
+
+            journal.acknowledge(6);
+            journal.acknowledge(2);
+            Assert.assertEquals(6, journal.acknowledged());
+        }
+
+        // Nach dem erneuten Öffnen werden Offsets und Bestätigung fortgesetzt.
+        try (Journal journal = new Journal(directory, 4, 0)) {
+            Assert.assertEquals(10, journal.position());
+            Assert.assertEquals(6, journal.acknowledged());
+            Assert.assertEquals(10, journal.append(42, true, 9, 3000));
+            Assert.assertTrue(journal.awaitWritten(11, 5000));
+            Assert.assertEquals(List.of("9:1900:4:9:false", "10:3000:9:42:true"), read(journal, 9, 11));
+        }
+    }
+
+    @Test
+    public void backlog() throws IOException {
+        try (Journal journal = new Journal(folder.getRoot().toPath(), 16, 0)) {
+            // Frame 1: Zone 1 aktiv, Frame 2: Zone 2 aktiv und Zone 3 inaktiv, Frame 3: Zone 1 inaktiv.
+            journal.append(1, true, 1, 1000);
+            journal.append(2, true, 2, 1200);
+            journal.append(3, false, 2, 1200);
+            journal.append(1, false, 3, 1400);
+            Assert.assertTrue(journal.awaitWritten(4, 5000));
+
+            JournalBacklog backlog = JournalBacklog.read(journal, 0, 4, new int[]{ 2 }, 10);
+            Assert.assertTrue(backlog.isComplete());
+            Assert.assertEquals(3, backlog.size());
+            Assert.assertArrayEquals(new int[]{ 1, 3 }, backlog.zoneNrs(0));
+            Assert.assertArrayEquals(new int[]{ 1, 2 }, backlog.zoneNrs(1));
+            Assert.assertArrayEquals(new int[]{ 2 }, backlog.zoneNrs(2));
+            Assert.assertEquals(3, backlog.endOffset(1));
+            Assert.assertEquals(1400, backlog.timestamp(2));
+
+            // Höchstens die ältesten Frames werden gelesen.
+            backlog = JournalBacklog.read(journal, 0, 4, new int[]{ 2 }, 2);
+            Assert.assertFalse(backlog.isComplete());
+            Assert.assertEquals(2, backlog.size());
+            Assert.assertArrayEquals(new int[]{ 1, 2 }, backlog.zoneNrs(1));
+        }
+    }
+
+    @Test
+    public void retention() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (Journal journal = new Journal(directory, 2, 60_000)) {
+            // Die ersten beiden Segmente liegen außerhalb der Aufbewahrungszeit.
+            for (int i = 0; i < 4; i++)
+                journal.append(i, true, i, 1000);
+            long now = System.currentTimeMillis();
+            for (int i = 4; i < 7; i++)
+                journal.append(i, true, i, now);
+            Assert.assertTrue(journal.awaitWritten(7, 5000));
+            Assert.assertEquals(2, countSegments(directory));
+            Assert.assertEquals(List.of("4:" + now + ":4:4:true"), read(journal, 0, 5));
+        }
+    }
+}
@@ -3,6 +3,13 @@ package overwatch.service;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 public class ConfigurationServiceTest {
 
     @Test
@@ -23,16 +30,58 @@ public class ConfigurationServiceTest {
 
     @Test
     public void getLong() {
-        Assert.assertEquals(100, ConfigurationService.getInt(ConfigurationService.Keys.ANALYSE_INTERVAL_MS));
+        Assert.assertEquals(100, ConfigurationService.getLong(ConfigurationService.Keys.ANALYSE_INTERVAL_MS));
+    }
+
+    @Test
+    public void getEnum() {
+        ConfigurationService.override("EnumKey", "seconds");
+        Assert.assertEquals(TimeUnit.SECONDS, ConfigurationService.getEnum("EnumKey", TimeUnit.MILLISECONDS));
+        // Ein Tippfehler führt zum Standardwert statt zu einer Ausnahme.
+        ConfigurationService.override("EnumKey", "secnds");
+        Assert.assertEquals(TimeUnit.MILLISECONDS, ConfigurationService.getEnum("EnumKey", TimeUnit.MILLISECONDS));
+        ConfigurationService.override("EnumKey", "");
+        Assert.assertEquals(TimeUnit.MILLISECONDS, ConfigurationService.getEnum("EnumKey", TimeUnit.MILLISECONDS));
     }
 
     @Test
     public void getFloat() {
-        Assert.assertEquals(100, ConfigurationService.getInt(ConfigurationService.Keys.ANALYSE_INTERVAL_MS));
+        Assert.assertEquals(100, ConfigurationService.getFloat(ConfigurationService.Keys.ANALYSE_INTERVAL_MS), 0);
+        ConfigurationService.override("FloatKey", "0.25");
+        Assert.assertEquals(0.25f, ConfigurationService.getFloat("FloatKey"), 0);
     }
 
     @Test
     public void getBoolean() {
         Assert.assertTrue(ConfigurationService.getBoolean(ConfigurationService.Keys.ANALYSE_OPENCV_ENABLE));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void reload() throws IOException {
+        final Path file = Files.createTempFile("overwatch", ".properties");
+        final List<String> changes = new ArrayList<>();
+        ConfigurationService.subscribe((previous, current) -> {
+            if (current.isChanged(previous, List.of(ConfigurationService.Keys.ANALYSE_INTERVAL_MS)))
+                changes.add(previous.getInt(ConfigurationService.Keys.ANALYSE_INTERVAL_MS) + "->" + current.getInt(ConfigurationService.Keys.ANALYSE_INTERVAL_MS));
+        });
+        try {
+            Files.writeString(file, "analyse-interval-ms=250\n");
+            ConfigurationService.override(ConfigurationService.Keys.CONFIGURATION_FILE, file.toString());
+            ConfigurationService.Snapshot snapshot = ConfigurationService.snapshot();
+            Assert.assertTrue(ConfigurationService.reload());
+            Assert.assertEquals(250, ConfigurationService.getInt(ConfigurationService.Keys.ANALYSE_INTERVAL_MS));
+            // Ein bereits gelesener Snapshot verändert sich nicht.
+            Assert.assertEquals(100, snapshot.getInt(ConfigurationService.Keys.ANALYSE_INTERVAL_MS));
+            // Werte ohne Eintrag in der Datei stammen weiterhin aus der mitgelieferten Konfiguration, unveränderte Dateien lösen keine Benachrichtigung aus.
+            Assert.assertEquals("/home/frechsack/", ConfigurationService.getString(ConfigurationService.Keys.IMAGE_BASE_PATH));
+            Assert.assertFalse(ConfigurationService.reload());
+        }
+        finally {
+            ConfigurationService.override(ConfigurationService.Keys.CONFIGURATION_FILE, "");
+            ConfigurationService.reload();
+            Files.deleteIfExists(file);
+        }
+        Assert.assertEquals(100, ConfigurationService.getInt(ConfigurationService.Keys.ANALYSE_INTERVAL_MS));
+        Assert.assertEquals(List.of("100->250", "250->100"), changes);
+    }
+}
@@ -0,0 +1,71 @@
+package overwatch.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class OccupancyServiceTest {
+
+    private static final Capture CAPTURE = new Capture(0, 0, 100, 100, "/dev/video0");
+
+    @Test
+    public void update() throws InterruptedException {
+        Zone z1 = new Zone(1, CAPTURE, 0, 0, 50, 50);
+        Zone z2 = new Zone(2, CAPTURE, 50, 0, 50, 50);
+        OccupancyService.reset(new Zone[]{ z2, z1 }, List.of(z2));
+        long sequence = OccupancyService.snapshot().sequence();
+
+        Assert.assertEquals(0, OccupancyService.update(List.of(z2), 1, 100));
+        Assert.assertEquals(2, OccupancyService.update(List.of(z1), 2, 200));
+
+        OccupancyService.Snapshot snapshot = OccupancyService.snapshot();
+        Assert.assertEquals(sequence + 2, snapshot.sequence());
+        Assert.assertArrayEquals(new OccupancyService.ZoneState[]{
+                new OccupancyService.ZoneState(1, true, 200),
+                new OccupancyService.ZoneState(2, false, 200)
+        }, snapshot.states());
+
+        OccupancyService.ZoneChange[] changes = OccupancyService.awaitChanges(sequence, 0);
+        Assert.assertArrayEquals(new OccupancyService.ZoneChange[]{
+                new OccupancyService.ZoneChange(sequence + 1, 2, 1, true, 200),
+                new OccupancyService.ZoneChange(sequence + 2, 2, 2, false, 200)
+        }, changes);
+        Assert.assertEquals(0, OccupancyService.awaitChanges(sequence + 2, 10).length);
+        // Unbekannte Sequenznummern erfordern einen vollständigen Zustand.
+        Assert.assertNull(OccupancyService.awaitChanges(sequence + 3, 10));
+
+        // Nach einem Neustart behalten bekannte Zonen mit unverändertem Zustand den Zeitpunkt ihres letzten Wechsels.
+        Zone z3 = new Zone(3, CAPTURE, 0, 50, 50, 50);
+        OccupancyService.reset(new Zone[]{ z1, z3 }, List.of(z1));
+        Assert.assertEquals(sequence + 2, OccupancyService.snapshot().sequence());
+        Assert.assertArrayEquals(new OccupancyService.ZoneState[]{
+                new OccupancyService.ZoneState(1, true, 200),
+                new OccupancyService.ZoneState(3, false, 0)
+        }, OccupancyService.snapshot().states());
+    }
+
+    @Test
+    public void resetRecordsChanges() throws InterruptedException {
+        Zone z1 = new Zone(1, CAPTURE, 0, 0, 50, 50);
+        Zone z2 = new Zone(2, CAPTURE, 50, 0, 50, 50);
+        Zone z3 = new Zone(3, CAPTURE, 0, 50, 50, 50);
+        OccupancyService.reset(new Zone[]{ z1, z2 }, List.of());
+        OccupancyService.update(List.of(z1, z2), 1, 100);
+        long sequence = OccupancyService.snapshot().sequence();
+
+        // Die entfernte Zone 2 wird inaktiv, Zone 1 wechselt ihren Zustand und die neue Zone 3 ist aktiv.
+        OccupancyService.reset(new Zone[]{ z1, z3 }, List.of(z3));
+        OccupancyService.ZoneChange[] changes = OccupancyService.awaitChanges(sequence, 0);
+        Assert.assertEquals(List.of(2, 1, 3), Arrays.stream(changes).map(OccupancyService.ZoneChange::nr).toList());
+        Assert.assertEquals(List.of(false, false, true), Arrays.stream(changes).map(OccupancyService.ZoneChange::isActive).toList());
+        Assert.assertTrue(Arrays.stream(changes).allMatch(it -> it.frameId() == OccupancyService.RESET_FRAME_ID && it.timestamp() > 100));
+
+        OccupancyService.Snapshot snapshot = OccupancyService.snapshot();
+        Assert.assertEquals(sequence + 3, snapshot.sequence());
+        Assert.assertEquals(changes[1].timestamp(), snapshot.states()[0].lastChangeTimestamp());
+    }
+}
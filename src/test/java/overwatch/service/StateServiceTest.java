@@ -0,0 +1,53 @@
+package overwatch.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+import overwatch.model.Capture;
+import overwatch.model.Zone;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class StateServiceTest {
+
+    @Test
+    public void writeAndRead() throws IOException {
+        Capture c1 = new Capture(0,0,640,480,"/dev/video0");
+        Capture c2 = new Capture(640,0,640,480,"/dev/video1", 320);
+        Zone z1 = new Zone(1, c1, 0,0, 100,100);
+        Zone z2 = new Zone(2, c2, 50,50, 100,100);
+        StateService.State state = new StateService.State(new Zone[]{ z1, z2 }, new int[]{ 2 }, new int[][]{ {}, { 2 }, { 1, 2 } });
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StateService.write(new DataOutputStream(bytes), state);
+        StateService.State read = StateService.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assert.assertEquals(2, read.zones().length);
+        Assert.assertTrue(z1.isSameDefinition(read.zones()[0]));
+        Assert.assertTrue(z2.isSameDefinition(read.zones()[1]));
+        Assert.assertEquals(320, read.zones()[1].capture().workingWidth());
+        Assert.assertArrayEquals(new int[]{ 2 }, read.activeZoneNrs());
+        Assert.assertArrayEquals(new int[][]{ {}, { 2 }, { 1, 2 } }, read.historyZoneNrs());
+    }
+
+    @Test
+    public void submitAndFlush() throws IOException {
+        Path directory = Files.createTempDirectory("overwatch-state");
+        Path path = directory.resolve("overwatch.state");
+        ConfigurationService.override(ConfigurationService.Keys.STATE_PATH, path.toString());
+        try {
+            Zone zone = new Zone(1, new Capture(0,0,640,480,"/dev/video0"), 0,0, 100,100);
+            StateService.submit(new StateService.State(new Zone[]{ zone }, new int[]{ 1 }, new int[0][]));
+            StateService.submit(new StateService.State(new Zone[]{ zone }, new int[0], new int[0][]));
+            StateService.flush();
+            // Spätestens nach flush() liegt der neueste Zustand vor, ein älterer überschreibt ihn nicht mehr.
+            Assert.assertArrayEquals(new int[0], StateService.load().orElseThrow().activeZoneNrs());
+        }
+        finally {
+            ConfigurationService.override(ConfigurationService.Keys.STATE_PATH, "");
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(directory);
+        }
+    }
+}
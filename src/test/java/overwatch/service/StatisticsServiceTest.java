@@ -0,0 +1,75 @@
+package overwatch.service;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+public class StatisticsServiceTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1), MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    @Before
+    public void clear() {
+        StatisticsService.clear();
+    }
+
+    @Test
+    public void dwellBucket() {
+        Assert.assertEquals(0, StatisticsService.dwellBucketOf(59_999));
+        Assert.assertEquals(1, StatisticsService.dwellBucketOf(MINUTE));
+        Assert.assertEquals(4, StatisticsService.dwellBucketOf(59 * MINUTE));
+        Assert.assertEquals(StatisticsService.DWELL_BUCKET_BOUNDS_SECONDS.length, StatisticsService.dwellBucketOf(24 * HOUR));
+    }
+
+    @Test
+    public void recordChange() {
+        final long start = Instant.parse("2026-03-02T08:00:00Z").toEpochMilli();
+        StatisticsService.reset(new int[]{ 1, 2 }, new boolean[]{ false, true }, start);
+
+        StatisticsService.recordChange(0, true, start + 10 * MINUTE);
+        StatisticsService.recordChange(0, false, start + 40 * MINUTE);
+        StatisticsService.recordChange(0, true, start + 50 * MINUTE);
+        // Unveränderte Zustände werden ignoriert.
+        StatisticsService.recordChange(0, true, start + 55 * MINUTE);
+        StatisticsService.recordChange(0, false, start + HOUR + 5 * MINUTE);
+        // Der Beginn dieser Belegung wurde nicht beobachtet, daher entsteht keine Verweildauer.
+        StatisticsService.recordChange(1, false, start + 30 * MINUTE);
+
+        StatisticsService.Report report = StatisticsService.report(3, start + HOUR + 30 * MINUTE);
+        Assert.assertEquals(start - HOUR, report.firstHourTimestamp());
+        Assert.assertEquals(2, report.zones().length);
+
+        StatisticsService.ZoneStatistics zone1 = report.zones()[0];
+        Assert.assertEquals(1, zone1.nr());
+        Assert.assertEquals(2, zone1.arrivals());
+        Assert.assertEquals(2, zone1.departures());
+        Assert.assertEquals(2, zone1.dwellCount());
+        Assert.assertEquals(1350, zone1.averageDwellSeconds(), 0.001);
+        Assert.assertArrayEquals(new long[]{ 0, 0, 0, 1, 1, 0, 0, 0, 0 }, zone1.dwellHistogram());
+        Assert.assertArrayEquals(new long[]{ 0, 40 * MINUTE, 5 * MINUTE }, zone1.occupiedMillis());
+        Assert.assertArrayEquals(new int[]{ 0, 2, 0 }, zone1.hourlyArrivals());
+
+        StatisticsService.ZoneStatistics zone2 = report.zones()[1];
+        Assert.assertEquals(0, zone2.dwellCount());
+        Assert.assertEquals(1, zone2.departures());
+        Assert.assertArrayEquals(new long[]{ 0, 30 * MINUTE, 0 }, zone2.occupiedMillis());
+
+        // Aktive Zonen werden bis zur Abfrage eingerechnet, ohne die Statistiken zu verändern.
+        StatisticsService.recordChange(1, true, start + HOUR + 10 * MINUTE);
+        Assert.assertArrayEquals(new long[]{ 30 * MINUTE, 20 * MINUTE },
+                StatisticsService.report(2, start + HOUR + 30 * MINUTE).zones()[1].occupiedMillis());
+        Assert.assertArrayEquals(new long[]{ 30 * MINUTE, 25 * MINUTE },
+                StatisticsService.report(2, start + HOUR + 35 * MINUTE).zones()[1].occupiedMillis());
+
+        // Nach einem Neustart bleiben die Statistiken bekannter Zonen erhalten.
+        StatisticsService.reset(new int[]{ 2, 3 }, new boolean[]{ true, false }, start + HOUR + 40 * MINUTE);
+        report = StatisticsService.report(1, start + HOUR + 50 * MINUTE);
+        Assert.assertEquals(2, report.zones()[0].nr());
+        Assert.assertEquals(1, report.zones()[0].arrivals());
+        Assert.assertArrayEquals(new long[]{ 40 * MINUTE }, report.zones()[0].occupiedMillis());
+        Assert.assertEquals(0, report.zones()[1].arrivals());
+    }
+}
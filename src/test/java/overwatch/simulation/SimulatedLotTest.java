@@ -0,0 +1,77 @@
+package overwatch.simulation;
+
+import org.junit.Assert;
+import org.junit.Test;
+import overwatch.model.Zone;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SimulatedLotTest {
+
+    private static int center(BufferedImage image, Zone zone) {
+        return image.getRGB(zone.offsetX() + zone.width() / 2, zone.offsetY() + zone.height() * 3 / 4) & 0xffffff;
+    }
+
+    @Test
+    public void createLayout() {
+        Zone[] zones = Simulator.createLayout(3, 10, "average");
+        Assert.assertEquals(30, zones.length);
+        for (int i = 0; i < zones.length; i++) {
+            Assert.assertEquals(i + 1, zones[i].nr());
+            Assert.assertTrue(zones[i].capture().isSimulated());
+            Assert.assertEquals("average", zones[i].capture().algorithm());
+            Assert.assertTrue(zones[i].offsetX() + zones[i].width() <= Simulator.CAPTURE_WIDTH);
+            Assert.assertTrue(zones[i].offsetY() + zones[i].height() <= Simulator.CAPTURE_HEIGHT);
+        }
+    }
+
+    @Test
+    public void render() {
+        Zone[] zones = Simulator.createLayout(1, 4, "");
+        SimulatedLot lot = new SimulatedLot(zones[0].capture(), zones, new SimulatedLot.Parameters(0, 60, 0, 0), 7);
+        BufferedImage empty = lot.render(0, true);
+
+        // Ohne Ankünfte bleibt der Parkplatz leer.
+        lot.advance(1000, 1000);
+        BufferedImage current = lot.render(1000, false);
+        for (Zone zone : zones)
+            Assert.assertEquals(center(empty, zone), center(current, zone));
+
+        Map<Integer, Long> occupancy = new HashMap<>();
+        lot.collectOccupancy(occupancy);
+        Assert.assertTrue(occupancy.isEmpty());
+    }
+
+    @Test
+    public void advance() {
+        Zone[] zones = Simulator.createLayout(1, 4, "");
+        SimulatedLot lot = new SimulatedLot(zones[0].capture(), zones, new SimulatedLot.Parameters(1e9, 1e9, 0, 0), 7);
+        BufferedImage empty = lot.render(0, true);
+
+        lot.advance(200, 200);
+        Map<Integer, Long> occupancy = new HashMap<>();
+        lot.collectOccupancy(occupancy);
+        Assert.assertEquals(Map.of(1, 200L, 2, 200L, 3, 200L, 4, 200L), occupancy);
+        Assert.assertEquals(4, lot.arrivalCount());
+
+        BufferedImage current = lot.render(200, false);
+        for (Zone zone : zones)
+            Assert.assertNotEquals(center(empty, zone), center(current, zone));
+    }
+
+    @Test
+    public void report() {
+        Zone[] zones = Simulator.createLayout(1, 4, "");
+        SimulationReport report = new SimulationReport(zones.length);
+        report.record(200, Map.of(1, 200L), List.of(), 0);
+        report.record(400, Map.of(1, 200L), List.of(zones[0]), 0);
+        report.record(600, Map.of(1, 200L), List.of(zones[0], zones[1]), 0);
+
+        Assert.assertEquals(1, report.detectedArrivals());
+        Assert.assertEquals(200, report.latencyPercentile(50));
+        Assert.assertEquals(10.0 / 12.0, report.accuracy(), 0.0001);
+    }
+}
@@ -0,0 +1,73 @@
+package overwatch.skeleton;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class OutlineBufferTest {
+
+    @Test
+    public void mergeIntersecting() {
+        OutlineBuffer buffer = new OutlineBuffer(1);
+        buffer.add(0, 0, 20, 20);
+        buffer.add(100, 100, 10, 10);
+        buffer.add(23, 0, 20, 20);
+        buffer.add(46, 10, 5, 5);
+        buffer.mergeIntersecting(2);
+        // Das erste Objekt wächst um das dritte und erreicht dadurch das vierte.
+        Assert.assertEquals(List.of(Outline.of(0, 0, 51, 20), Outline.of(100, 100, 10, 10)), buffer.toList());
+        Assert.assertEquals(51 * 20, buffer.area(0));
+    }
+
+    @Test
+    public void mergeIntersectingMatchesCompose() {
+        Random random = new Random(7);
+        for (int run = 0; run < 200; run++) {
+            List<Outline> outlines = new ArrayList<>();
+            for (int i = 0; i < 30; i++)
+                outlines.add(Outline.of(random.nextInt(500), random.nextInt(500), random.nextInt(40), random.nextInt(40)));
+            OutlineBuffer buffer = OutlineBuffer.of(outlines);
+
+            for (int i = 0; i < outlines.size(); i++) {
+                Outline a = outlines.get(i);
+                for (int y = i + 1; y < outlines.size(); y++) {
+                    if (!Outline.isIntersecting(a, outlines.get(y), 5))
+                        continue;
+                    a = Outline.compose(a, outlines.get(y));
+                    outlines.remove(y--);
+                }
+                outlines.set(i, a);
+            }
+            buffer.mergeIntersecting(5);
+            Assert.assertEquals(outlines, buffer.toList());
+        }
+    }
+
+    @Test
+    public void removeSmallerThan() {
+        OutlineBuffer buffer = new OutlineBuffer();
+        buffer.add(0, 0, 2, 2);
+        buffer.add(10, 10, 10, 10);
+        buffer.add(30, 30, 1, 1);
+        buffer.add(50, 50, 8, 8);
+        buffer.removeSmallerThan(60);
+        Assert.assertEquals(List.of(Outline.of(10, 10, 10, 10), Outline.of(50, 50, 8, 8)), buffer.toList());
+    }
+
+    @Test
+    public void intersection() {
+        OutlineBuffer buffer = new OutlineBuffer();
+        buffer.add(10, 10, 20, 20);
+        buffer.translate(100, 0);
+        Outline zone = Outline.of(100, 0, 20, 20);
+        Assert.assertTrue(buffer.isIntersecting(0, zone));
+        Assert.assertEquals(Outline.intersectionArea(buffer.get(0), zone), buffer.intersectionArea(0, zone));
+        Assert.assertFalse(buffer.isIntersecting(0, Outline.of(0, 0, 110, 10)));
+
+        buffer.clear();
+        Assert.assertTrue(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,47 @@
+package overwatch.trace;
+
+import org.junit.Assert;
+import org.junit.Test;
+import overwatch.service.ConfigurationService;
+
+public class FrameTraceTest {
+
+    @Test
+    public void percentile() {
+        long[] values = new long[100];
+        for (int i = 0; i < values.length; i++)
+            values[i] = i + 1;
+        Assert.assertEquals(50, FrameTrace.percentile(values, 50));
+        Assert.assertEquals(90, FrameTrace.percentile(values, 90));
+        Assert.assertEquals(99, FrameTrace.percentile(values, 99));
+        Assert.assertEquals(100, FrameTrace.percentile(values, 100));
+        Assert.assertEquals(7, FrameTrace.percentile(new long[]{ 7 }, 50));
+    }
+
+    @Test
+    public void beginFrame() {
+        long first = FrameTrace.beginFrame();
+        long second = FrameTrace.beginFrame();
+        Assert.assertEquals(first + 1, second);
+        Assert.assertEquals(second, FrameTrace.frameId());
+        Assert.assertTrue(FrameTrace.captureTimestamp() > 0);
+    }
+
+    @Test
+    public void report() {
+        for (int i = 1; i <= 10; i++)
+            FrameTrace.recordLatency(1, i * 10L);
+        String report = FrameTrace.report();
+        Assert.assertTrue(report.contains("latency_max_ms 100"));
+        Assert.assertTrue(report.contains("latency_p50_ms 50"));
+    }
+
+    @Test
+    public void recording() {
+        ConfigurationService.override(ConfigurationService.Keys.TRACE_PATH, "");
+        FrameTrace.start();
+        Assert.assertTrue(FrameTrace.isRecording());
+        FrameTrace.stop();
+        Assert.assertFalse(FrameTrace.isRecording());
+    }
+}